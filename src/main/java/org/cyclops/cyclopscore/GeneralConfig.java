@@ -1,11 +1,14 @@
 package org.cyclops.cyclopscore;
 
 import net.minecraft.launchwrapper.Launch;
+import org.cyclops.cyclopscore.block.multi.CubeDetector;
 import org.cyclops.cyclopscore.config.ConfigurableProperty;
 import org.cyclops.cyclopscore.config.ConfigurableType;
 import org.cyclops.cyclopscore.config.ConfigurableTypeCategory;
 import org.cyclops.cyclopscore.config.extendedconfig.DummyConfig;
+import org.cyclops.cyclopscore.ingredient.collection.IngredientCollectionBulkEngine;
 import org.cyclops.cyclopscore.init.ModBase;
+import org.cyclops.cyclopscore.nbt.path.NbtPath;
 import org.cyclops.cyclopscore.tracking.Analytics;
 import org.cyclops.cyclopscore.tracking.Versions;
 
@@ -72,6 +75,36 @@ public class GeneralConfig extends DummyConfig {
     @ConfigurableProperty(category = ConfigurableTypeCategory.GENERAL, comment = "If a button should be added to the main menu to open a dev world (shift-click creates a new world).")
     public static boolean devWorldButton = (Boolean) Launch.blackboard.get("fml.deobfuscatedEnvironment");
 
+    /**
+     * The maximum number of parsed NBT path expressions that are cached.
+     */
+    @ConfigurableProperty(category = ConfigurableTypeCategory.CORE, comment = "The maximum number of parsed NBT path expressions that are cached, 0 disables caching.", minimalValue = 0, maximalValue = 65536, requiresMcRestart = true)
+    public static int nbtPathCacheSize = NbtPath.DEFAULT_CACHE_SIZE;
+
+    /**
+     * The number of seconds after which unused parsed NBT path expressions are removed from the cache.
+     */
+    @ConfigurableProperty(category = ConfigurableTypeCategory.CORE, comment = "The number of seconds after which unused parsed NBT path expressions are removed from the cache, 0 disables expiry.", minimalValue = 0, maximalValue = 86400, requiresMcRestart = true)
+    public static int nbtPathCacheExpireSeconds = NbtPath.DEFAULT_CACHE_EXPIRE_SECONDS;
+
+    /**
+     * The number of worker threads for adding or removing large batches of ingredients to indexed collections.
+     */
+    @ConfigurableProperty(category = ConfigurableTypeCategory.CORE, comment = "The number of worker threads for adding or removing large batches of ingredients to indexed collections.", minimalValue = 1, maximalValue = 256, requiresMcRestart = true)
+    public static int ingredientBulkParallelism = IngredientCollectionBulkEngine.DEFAULT_PARALLELISM;
+
+    /**
+     * The minimum number of ingredients in a batch for it to be added or removed in parallel.
+     */
+    @ConfigurableProperty(category = ConfigurableTypeCategory.CORE, comment = "The minimum number of ingredients in a batch for it to be added or removed in parallel.", minimalValue = 0, maximalValue = Integer.MAX_VALUE, requiresMcRestart = true)
+    public static int ingredientBulkInlineThreshold = IngredientCollectionBulkEngine.DEFAULT_INLINE_THRESHOLD;
+
+    /**
+     * The number of worker threads for asynchronous multiblock detection.
+     */
+    @ConfigurableProperty(category = ConfigurableTypeCategory.CORE, comment = "The number of worker threads for asynchronous multiblock detection.", minimalValue = 1, maximalValue = 256, requiresMcRestart = true)
+    public static int multiblockDetectionWorkers = CubeDetector.DEFAULT_ASYNC_WORKERS;
+
     /**
      * The type of this config.
      */
@@ -89,6 +122,9 @@ public class GeneralConfig extends DummyConfig {
         getMod().putGenericReference(ModBase.REFKEY_CRASH_ON_INVALID_RECIPE, GeneralConfig.crashOnInvalidRecipe);
         getMod().putGenericReference(ModBase.REFKEY_DEBUGCONFIG, GeneralConfig.debug);
         getMod().putGenericReference(ModBase.REFKEY_CRASH_ON_MODCOMPAT_CRASH, GeneralConfig.crashOnModCompatCrash);
+        NbtPath.setCacheConfig(nbtPathCacheSize, nbtPathCacheExpireSeconds);
+        IngredientCollectionBulkEngine.configure(ingredientBulkParallelism, ingredientBulkInlineThreshold);
+        CubeDetector.configureAsyncWorkers(multiblockDetectionWorkers);
 
         if(analytics) {
             Analytics.registerMod(getMod(), Reference.GA_TRACKING_ID);
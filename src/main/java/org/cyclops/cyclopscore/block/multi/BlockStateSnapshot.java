@@ -0,0 +1,323 @@
+package org.cyclops.cyclopscore.block.multi;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.init.Biomes;
+import net.minecraft.init.Blocks;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.SoundCategory;
+import net.minecraft.util.SoundEvent;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.IBlockAccess;
+import net.minecraft.world.IWorldEventListener;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldType;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+import javax.annotation.Nullable;
+
+/**
+ * A copy of the block states of a world that is filled lazily per chunk section.
+ *
+ * Sections are copied on the thread that owns the world, after which they can be read from any thread.
+ * Block states in sections that were not copied yet are reported as air,
+ * and such reads are remembered so that the missing sections can be copied via {@link #update()}.
+ * This allows a reader to be run again until it only read copied sections.
+ * Copying and reading must not happen at the same time.
+ *
+ * While the snapshot is in use, block changes in the world are tracked, so that copied sections that became
+ * outdated can be detected via {@link #isChanged()}.
+ * This only notices block changes that notify the world event listeners, which is the case for block changes
+ * that are sent to clients.
+ * Snapshots must therefore be released via {@link #release()} once they are not used anymore.
+ *
+ * Biomes are copied for each chunk column of which a section is copied.
+ * Tile entities and light are not captured.
+ * @author rubensworks
+ */
+public class BlockStateSnapshot implements IBlockAccess {
+
+    // Marks a section that only contains air.
+    private static final IBlockState[] EMPTY_SECTION = new IBlockState[0];
+
+    private final World world;
+    private final int worldHeight;
+    private final WorldType worldType;
+    private final Long2ObjectOpenHashMap<IBlockState[]> sections = new Long2ObjectOpenHashMap<>();
+    private final Long2ObjectOpenHashMap<Biome[]> biomes = new Long2ObjectOpenHashMap<>();
+    private final LongSet missingSections = new LongOpenHashSet();
+    private final LongSet changedSections = new LongOpenHashSet();
+    private final IWorldEventListener listener = new BlockChangeListener();
+
+    private long lastSectionKey = Long.MIN_VALUE;
+    private IBlockState[] lastSection = null;
+
+    /**
+     * Create a new empty snapshot, and start tracking block changes in the world.
+     * @param world The world, this must be called on its owning thread.
+     */
+    public BlockStateSnapshot(World world) {
+        this.world = world;
+        this.worldHeight = world.getHeight();
+        this.worldType = world.getWorldType();
+        world.addEventListener(listener);
+    }
+
+    protected static long getSectionKey(int sectionX, int sectionY, int sectionZ) {
+        return ((long) sectionX & 0x3FFFFFFL) << 38 | ((long) sectionY & 0xFFFL) << 26 | ((long) sectionZ & 0x3FFFFFFL);
+    }
+
+    protected static long getSectionKey(BlockPos pos) {
+        return getSectionKey(pos.getX() >> 4, pos.getY() >> 4, pos.getZ() >> 4);
+    }
+
+    /**
+     * Copy the section that contains the given location, if it was not copied before.
+     * This must be called on the owning thread of the world.
+     * @param pos A location.
+     */
+    public void copySection(BlockPos pos) {
+        long key = getSectionKey(pos);
+        if (!sections.containsKey(key)) {
+            copySection(pos.getX() >> 4, pos.getY() >> 4, pos.getZ() >> 4);
+        }
+    }
+
+    protected void copySection(int sectionX, int sectionY, int sectionZ) {
+        Chunk chunk = world.getChunk(sectionX, sectionZ);
+        ExtendedBlockStorage storage = chunk.getBlockStorageArray()[sectionY];
+        IBlockState[] states;
+        if (storage == Chunk.NULL_BLOCK_STORAGE || storage.isEmpty()) {
+            states = EMPTY_SECTION;
+        } else {
+            states = new IBlockState[16 * 16 * 16];
+            for (int y = 0; y < 16; y++) {
+                for (int z = 0; z < 16; z++) {
+                    for (int x = 0; x < 16; x++) {
+                        states[(y << 8) | (z << 4) | x] = storage.get(x, y, z);
+                    }
+                }
+            }
+        }
+        sections.put(getSectionKey(sectionX, sectionY, sectionZ), states);
+
+        long columnKey = ChunkPos.asLong(sectionX, sectionZ);
+        if (!biomes.containsKey(columnKey)) {
+            Biome[] columnBiomes = new Biome[16 * 16];
+            BlockPos.MutableBlockPos pos = new BlockPos.MutableBlockPos();
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    columnBiomes[(z << 4) | x] = chunk.getBiome(pos.setPos((sectionX << 4) + x, 0, (sectionZ << 4) + z),
+                            world.getBiomeProvider());
+                }
+            }
+            biomes.put(columnKey, columnBiomes);
+        }
+        lastSectionKey = Long.MIN_VALUE;
+        lastSection = null;
+    }
+
+    /**
+     * Copy the sections that were read since the last update but were missing,
+     * and copy the sections that were changed in the world since they were copied.
+     * This must be called on the owning thread of the world, while the snapshot is not being read.
+     * @return If any section was copied.
+     */
+    public boolean update() {
+        boolean updated = !missingSections.isEmpty() || !changedSections.isEmpty();
+        LongSet keys = new LongOpenHashSet(missingSections);
+        keys.addAll(changedSections);
+        missingSections.clear();
+        changedSections.clear();
+        for (LongIterator it = keys.iterator(); it.hasNext();) {
+            long key = it.nextLong();
+            copySection((int) (key >> 38), (int) (key << 26 >> 52), (int) (key << 38 >> 38));
+        }
+        return updated;
+    }
+
+    /**
+     * @return If a block state in a section that was not copied was read since the last update.
+     *         Reads of locations outside of the build height are not counted.
+     */
+    public boolean isIncomplete() {
+        return !missingSections.isEmpty();
+    }
+
+    /**
+     * This must be called on the owning thread of the world.
+     * @return If a block in a copied section was changed in the world since the last update.
+     */
+    public boolean isChanged() {
+        return !changedSections.isEmpty();
+    }
+
+    /**
+     * Stop tracking block changes.
+     * This must be called on the owning thread of the world.
+     */
+    public void release() {
+        world.removeEventListener(listener);
+    }
+
+    @Nullable
+    protected IBlockState[] getSection(BlockPos pos) {
+        long key = getSectionKey(pos);
+        if (key == lastSectionKey) {
+            return lastSection;
+        }
+        IBlockState[] section = sections.get(key);
+        if (section == null) {
+            missingSections.add(key);
+        } else {
+            lastSectionKey = key;
+            lastSection = section;
+        }
+        return section;
+    }
+
+    @Override
+    public IBlockState getBlockState(BlockPos pos) {
+        if (pos.getY() < 0 || pos.getY() >= worldHeight) {
+            return Blocks.AIR.getDefaultState();
+        }
+        IBlockState[] section = getSection(pos);
+        if (section == null || section == EMPTY_SECTION) {
+            return Blocks.AIR.getDefaultState();
+        }
+        return section[((pos.getY() & 15) << 8) | ((pos.getZ() & 15) << 4) | (pos.getX() & 15)];
+    }
+
+    @Override
+    public boolean isAirBlock(BlockPos pos) {
+        IBlockState blockState = getBlockState(pos);
+        return blockState.getBlock().isAir(blockState, this, pos);
+    }
+
+    @Nullable
+    @Override
+    public TileEntity getTileEntity(BlockPos pos) {
+        return null;
+    }
+
+    @SideOnly(Side.CLIENT)
+    @Override
+    public int getCombinedLight(BlockPos pos, int lightValue) {
+        return 0;
+    }
+
+    @SideOnly(Side.CLIENT)
+    @Override
+    public Biome getBiome(BlockPos pos) {
+        Biome[] columnBiomes = biomes.get(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4));
+        if (columnBiomes == null) {
+            // Copying any section of the column also copies its biomes.
+            missingSections.add(getSectionKey(pos.getX() >> 4, Math.max(0, Math.min(worldHeight - 1, pos.getY())) >> 4,
+                    pos.getZ() >> 4));
+            return Biomes.PLAINS;
+        }
+        return columnBiomes[((pos.getZ() & 15) << 4) | (pos.getX() & 15)];
+    }
+
+    @Override
+    public int getStrongPower(BlockPos pos, EnumFacing direction) {
+        return getBlockState(pos).getStrongPower(this, pos, direction);
+    }
+
+    @SideOnly(Side.CLIENT)
+    @Override
+    public WorldType getWorldType() {
+        return worldType;
+    }
+
+    @Override
+    public boolean isSideSolid(BlockPos pos, EnumFacing side, boolean _default) {
+        if (pos.getY() < 0 || pos.getY() >= worldHeight) {
+            return _default;
+        }
+        return getBlockState(pos).isSideSolid(this, pos, side);
+    }
+
+    /**
+     * Marks copied sections as changed when a block in them changes.
+     */
+    protected class BlockChangeListener implements IWorldEventListener {
+
+        @Override
+        public void notifyBlockUpdate(World world, BlockPos pos, IBlockState oldState, IBlockState newState, int flags) {
+            long key = getSectionKey(pos);
+            if (sections.containsKey(key)) {
+                changedSections.add(key);
+            }
+        }
+
+        @Override
+        public void notifyLightSet(BlockPos pos) {
+
+        }
+
+        @Override
+        public void markBlockRangeForRenderUpdate(int x1, int y1, int z1, int x2, int y2, int z2) {
+
+        }
+
+        @Override
+        public void playSoundToAllNearExcept(@Nullable EntityPlayer player, SoundEvent sound, SoundCategory category,
+                                             double x, double y, double z, float volume, float pitch) {
+
+        }
+
+        @Override
+        public void playRecord(SoundEvent sound, BlockPos pos) {
+
+        }
+
+        @Override
+        public void spawnParticle(int particleID, boolean ignoreRange, double x, double y, double z,
+                                  double xSpeed, double ySpeed, double zSpeed, int... parameters) {
+
+        }
+
+        @Override
+        public void spawnParticle(int id, boolean ignoreRange, boolean minimiseParticleLevel, double x, double y, double z,
+                                  double xSpeed, double ySpeed, double zSpeed, int... parameters) {
+
+        }
+
+        @Override
+        public void onEntityAdded(Entity entity) {
+
+        }
+
+        @Override
+        public void onEntityRemoved(Entity entity) {
+
+        }
+
+        @Override
+        public void broadcastSound(int soundID, BlockPos pos, int data) {
+
+        }
+
+        @Override
+        public void playEvent(EntityPlayer player, int type, BlockPos pos, int data) {
+
+        }
+
+        @Override
+        public void sendBlockBreakProgress(int breakerId, BlockPos pos, int progress) {
+
+        }
+    }
+}
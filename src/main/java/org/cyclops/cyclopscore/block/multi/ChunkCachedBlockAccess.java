@@ -0,0 +1,106 @@
+package org.cyclops.cyclopscore.block.multi;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.IBlockAccess;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldType;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+import javax.annotation.Nullable;
+
+/**
+ * A block access for a single multiblock detection that reads block states directly from the chunks of a world,
+ * where each chunk is only looked up once.
+ *
+ * Multiblock detection reads many neighbouring locations,
+ * so this avoids a chunk provider lookup for each block state.
+ * Other methods are delegated to the world.
+ *
+ * This should not be stored longer than a single detection, as chunks may be unloaded afterwards.
+ * @author rubensworks
+ */
+public class ChunkCachedBlockAccess implements IBlockAccess {
+
+    private final World world;
+    private final Long2ObjectOpenHashMap<Chunk> chunks = new Long2ObjectOpenHashMap<>();
+    private Chunk lastChunk = null;
+
+    public ChunkCachedBlockAccess(World world) {
+        this.world = world;
+    }
+
+    public World getWorld() {
+        return world;
+    }
+
+    protected Chunk getChunk(int chunkX, int chunkZ) {
+        Chunk chunk = this.lastChunk;
+        if (chunk == null || chunk.x != chunkX || chunk.z != chunkZ) {
+            long key = ChunkPos.asLong(chunkX, chunkZ);
+            chunk = this.chunks.get(key);
+            if (chunk == null) {
+                chunk = this.world.getChunk(chunkX, chunkZ);
+                this.chunks.put(key, chunk);
+            }
+            this.lastChunk = chunk;
+        }
+        return chunk;
+    }
+
+    @Override
+    public IBlockState getBlockState(BlockPos pos) {
+        if (this.world.isOutsideBuildHeight(pos)) {
+            return Blocks.AIR.getDefaultState();
+        }
+        return getChunk(pos.getX() >> 4, pos.getZ() >> 4).getBlockState(pos);
+    }
+
+    @Override
+    public boolean isAirBlock(BlockPos pos) {
+        IBlockState blockState = getBlockState(pos);
+        return blockState.getBlock().isAir(blockState, this, pos);
+    }
+
+    @Nullable
+    @Override
+    public TileEntity getTileEntity(BlockPos pos) {
+        return this.world.getTileEntity(pos);
+    }
+
+    @SideOnly(Side.CLIENT)
+    @Override
+    public int getCombinedLight(BlockPos pos, int lightValue) {
+        return this.world.getCombinedLight(pos, lightValue);
+    }
+
+    @SideOnly(Side.CLIENT)
+    @Override
+    public Biome getBiome(BlockPos pos) {
+        return this.world.getBiome(pos);
+    }
+
+    @Override
+    public int getStrongPower(BlockPos pos, EnumFacing direction) {
+        return this.world.getStrongPower(pos, direction);
+    }
+
+    @SideOnly(Side.CLIENT)
+    @Override
+    public WorldType getWorldType() {
+        return this.world.getWorldType();
+    }
+
+    @Override
+    public boolean isSideSolid(BlockPos pos, EnumFacing side, boolean _default) {
+        return this.world.isSideSolid(pos, side, _default);
+    }
+}
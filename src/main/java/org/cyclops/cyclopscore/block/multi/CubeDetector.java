@@ -3,35 +3,87 @@ package org.cyclops.cyclopscore.block.multi;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import net.minecraft.block.Block;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Vec3i;
+import net.minecraft.world.IBlockAccess;
 import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
 import org.cyclops.cyclopscore.algorithm.Dimension;
 import org.cyclops.cyclopscore.helper.L10NHelpers;
 import org.cyclops.cyclopscore.helper.LocationHelpers;
 
+import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
 
 /**
  * Detector of cubes in a world.
+ *
+ * In incremental mode, see {@link #setIncremental(boolean)}, valid structures are cached per world
+ * after their detection, together with the allowed block at each of their locations.
+ * Block changes within a cached structure are then validated by only checking the changed location
+ * and the block counts, instead of detecting and validating the complete structure again.
+ * This assumes that all block changes within structures are passed to this detector,
+ * other changes must be reported via {@link #invalidateCachedStructures(World, BlockPos)}.
+ *
+ * Block states are read via {@link #getBlockAccess(World)}, which is the world itself by default.
+ * Optionally, see {@link #setChunkCached(boolean)}, block states can be read via a {@link ChunkCachedBlockAccess}
+ * during each detection.
+ * Locations are iterated with a single mutable position where possible.
+ *
+ * Detections can also be done asynchronously, see {@link #detectAsync(WorldServer, BlockPos, BlockPos, IValidationAction, boolean)}.
+ * The allowed blocks, validators and listeners of a detector must not be changed while asynchronous detections are running.
  * @author rubensworks
  *
  */
 public class CubeDetector {
 	
 	private static Vec3i NULL_SIZE = Vec3i.NULL_VECTOR;
+
+	public static final int DEFAULT_ASYNC_WORKERS = 2;
+	public static final int MAX_ASYNC_CHANGED_RETRIES = 3;
+
+	private static volatile ExecutorService ASYNC_EXECUTOR = createAsyncExecutor(DEFAULT_ASYNC_WORKERS);
+	// If a detector class overrides isValidLocation, in which case border navigation must keep calling it
+	private static final ClassValue<Boolean> OVERRIDES_IS_VALID_LOCATION = new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			for(Class<?> clazz = type; clazz != CubeDetector.class && clazz != null; clazz = clazz.getSuperclass()) {
+				for(Method method : clazz.getDeclaredMethods()) {
+					if(method.getName().equals("isValidLocation")) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+	};
 	
 	private Collection<AllowedBlock> allowedBlocks = Sets.newHashSet();
 	private Map<Block, AllowedBlock> blockInfo = Maps.newHashMap();
 	private List<? extends IDetectionListener> listeners;
 	private List<ISizeValidator> sizeValidators = Lists.newLinkedList();
 
-	private final Map<Block, Integer> blockOccurences = Maps.newHashMap();
+	private final ThreadLocal<Map<Block, Integer>> blockOccurences = ThreadLocal.withInitial(Maps::newHashMap);
+	private final Map<Block, Integer> blockIndexes = Maps.newHashMap();
+
+	private boolean incremental = false;
+	private final Map<World, List<CachedStructure>> cachedStructures = new WeakHashMap<>();
+	private final ThreadLocal<CachedStructure> recordingStructure = new ThreadLocal<>();
+
+	private boolean chunkCached = false;
+	private final ThreadLocal<IBlockAccess> blockAccess = new ThreadLocal<>();
 
 	/**
 	 * Make a new instance.
@@ -57,8 +109,126 @@ public class CubeDetector {
 		for(AllowedBlock block : allowedBlocks) {
 			blockInfo.put(block.getBlock(), block);
 			this.allowedBlocks.add(block);
+			if(!blockIndexes.containsKey(block.getBlock())) {
+				blockIndexes.put(block.getBlock(), blockIndexes.size() + 1);
+			}
+		}
+		clearCachedStructures();
+	}
+
+	/**
+	 * @return If valid structures are cached to validate block changes incrementally.
+	 */
+	public boolean isIncremental() {
+		return incremental;
+	}
+
+	/**
+	 * Set the incremental mode.
+	 * In this mode, block changes within previously detected structures only validate the changed location.
+	 * Listeners will then only be notified for the changed location if the structure remains valid.
+	 * @param incremental If valid structures should be cached to validate block changes incrementally.
+	 * @return this instance.
+	 */
+	public CubeDetector setIncremental(boolean incremental) {
+		this.incremental = incremental;
+		if(!incremental) {
+			clearCachedStructures();
+		}
+		return this;
+	}
+
+	/**
+	 * @return If block states are read via a {@link ChunkCachedBlockAccess} during detections.
+	 */
+	public boolean isChunkCached() {
+		return chunkCached;
+	}
+
+	/**
+	 * Set if block states should be read via a {@link ChunkCachedBlockAccess} during detections,
+	 * which only looks up each chunk once per detection.
+	 * Subclasses that override the detection methods must then read block states via {@link #getBlockAccess(World)}
+	 * or {@link #getBlockState(World, BlockPos)} to benefit from this.
+	 * @param chunkCached If a chunk cache should be used.
+	 * @return this instance.
+	 */
+	public CubeDetector setChunkCached(boolean chunkCached) {
+		this.chunkCached = chunkCached;
+		return this;
+	}
+
+	/**
+	 * Replace the shared executor of asynchronous detections with one with the given number of threads.
+	 * @param workers The number of worker threads.
+	 */
+	public static void configureAsyncWorkers(int workers) {
+		ExecutorService oldExecutor = ASYNC_EXECUTOR;
+		ASYNC_EXECUTOR = createAsyncExecutor(workers);
+		oldExecutor.shutdown();
+	}
+
+	protected static ExecutorService createAsyncExecutor(int workers) {
+		return Executors.newFixedThreadPool(Math.max(1, workers), new ThreadFactoryBuilder()
+				.setNameFormat("Cyclops Core multiblock detection worker %d")
+				.setDaemon(true)
+				.build());
+	}
+
+	protected static Executor getAsyncExecutor() {
+		return ASYNC_EXECUTOR;
+	}
+
+	/**
+	 * Remove all cached structures that contain or are adjacent to the given location.
+	 * This must be called for block changes inside incrementally detected structures
+	 * that are not passed to {@link #detect(World, BlockPos, BlockPos, IValidationAction, boolean)}.
+	 * @param world The world.
+	 * @param location The changed location.
+	 */
+	public void invalidateCachedStructures(World world, BlockPos location) {
+		List<CachedStructure> structures = cachedStructures.get(world);
+		if(structures != null) {
+			structures.removeIf(structure -> structure.isAdjacentOrContains(location));
+		}
+	}
+
+	/**
+	 * Remove all cached structures.
+	 */
+	public void clearCachedStructures() {
+		cachedStructures.clear();
+	}
+
+	protected CachedStructure getCachedStructure(World world, BlockPos location) {
+		List<CachedStructure> structures = cachedStructures.get(world);
+		if(structures != null) {
+			for(CachedStructure structure : structures) {
+				if(structure.contains(location)) {
+					return structure;
+				}
+			}
+		}
+		return null;
+	}
+
+	protected void addCachedStructure(World world, CachedStructure structure) {
+		List<CachedStructure> structures = cachedStructures.computeIfAbsent(world, k -> Lists.newArrayList());
+		structures.removeIf(other -> other.intersects(structure));
+		structures.add(structure);
+	}
+
+	protected void removeCachedStructure(World world, CachedStructure structure) {
+		List<CachedStructure> structures = cachedStructures.get(world);
+		if(structures != null) {
+			structures.remove(structure);
 		}
 	}
+
+	protected int getBlockIndex(Block block) {
+		Integer index = blockIndexes.get(block);
+		return index == null ? 0 : index;
+	}
 	
 	/**
 	 * @return the size validators
@@ -90,15 +260,81 @@ public class CubeDetector {
 		}
 	}
 	
+	/**
+	 * Get the block access to read block states from during the current detection.
+	 * @param world The world.
+	 * @return The block access, which is the world itself if no other block access is active.
+	 */
+	protected IBlockAccess getBlockAccess(World world) {
+		IBlockAccess blockAccess = this.blockAccess.get();
+		return blockAccess != null ? blockAccess : world;
+	}
+
+	/**
+	 * Read a block state via {@link #getBlockAccess(World)}.
+	 * @param world The world.
+	 * @param location The location.
+	 * @return The block state.
+	 */
+	protected IBlockState getBlockState(World world, BlockPos location) {
+		return getBlockAccess(world).getBlockState(location);
+	}
+
+	/**
+	 * Run the given action with the given block access as the one that is returned by {@link #getBlockAccess(World)}
+	 * on the current thread.
+	 * @param blockAccess The block access, or null to read from the world directly.
+	 * @param action The action to run.
+	 * @param <T> The result type.
+	 * @return The result of the action.
+	 */
+	protected <T> T withBlockAccess(IBlockAccess blockAccess, Supplier<T> action) {
+		IBlockAccess previous = this.blockAccess.get();
+		this.blockAccess.set(blockAccess);
+		try {
+			return action.get();
+		} finally {
+			if(previous == null) {
+				this.blockAccess.remove();
+			} else {
+				this.blockAccess.set(previous);
+			}
+		}
+	}
+
+	/**
+	 * @param world The world.
+	 * @return The block access to use for a synchronous detection, or null to read from the world directly.
+	 */
+	protected IBlockAccess createBlockAccess(World world) {
+		return isChunkCached() ? new ChunkCachedBlockAccess(world) : null;
+	}
+
+	/**
+	 * Check if the given block state is allowed at the given location, without creating an error.
+	 * This is used for navigating to the borders of a structure, where invalid locations are expected,
+	 * and by {@link #isValidLocation(World, BlockPos, IValidationAction, BlockPos)} to decide if a location is valid.
+	 * @param blockState The block state at the location.
+	 * @param location The location.
+	 * @param excludeLocation The location of the block that is being removed, used for invalidating, null for validating.
+	 * @return If the location is valid.
+	 */
+	protected boolean isValidLocationFast(IBlockState blockState, BlockPos location, BlockPos excludeLocation) {
+		return location.equals(excludeLocation) || blockInfo.containsKey(blockState.getBlock());
+	}
+
+	protected boolean isValidLocationFast(World world, BlockPos location, BlockPos excludeLocation) {
+		return isValidLocationFast(getBlockState(world, location), location, excludeLocation);
+	}
+
 	protected L10NHelpers.UnlocalizedString isValidLocation(World world, BlockPos location, IValidationAction action, BlockPos excludeLocation) {
-		IBlockState blockState = world.getBlockState(location);
+		IBlockState blockState = getBlockState(world, location);
 		Block block = blockState.getBlock();
-		boolean contains = location.equals(excludeLocation) || blockInfo.containsKey(block);
 		L10NHelpers.UnlocalizedString error;
-        if(action != null && blockInfo.containsKey(block) && (error = action.onValidate(location, blockState)) != null) {
+        if(action != null && blockInfo.containsKey(block) && (error = action.onValidate(location.toImmutable(), blockState)) != null) {
 			return error;
 		}
-        return contains ? null : new L10NHelpers.UnlocalizedString("multiblock.cyclopscore.error.invalidBlock",
+        return isValidLocationFast(blockState, location, excludeLocation) ? null : new L10NHelpers.UnlocalizedString("multiblock.cyclopscore.error.invalidBlock",
 				LocationHelpers.toCompactString(location), new L10NHelpers.UnlocalizedString(block.getTranslationKey() + ".name"));
 	}
 
@@ -107,7 +343,7 @@ public class CubeDetector {
     }
 	
 	protected boolean isAir(World world, BlockPos location) {
-		return world.isAirBlock(location);
+		return getBlockAccess(world).isAirBlock(location);
 	}
 	
 	/**
@@ -120,17 +356,21 @@ public class CubeDetector {
 	 * @return The found border.
 	 */
 	protected BlockPos navigateToBorder(World world, BlockPos startLocation, int dimension, int direction, BlockPos excludeLocation) {
-		BlockPos loopLocation = LocationHelpers.copyLocation(startLocation);
+		BlockPos.MutableBlockPos loopLocation = new BlockPos.MutableBlockPos(startLocation);
+		int dx = dimension == 0 ? direction : 0;
+		int dy = dimension == 1 ? direction : 0;
+		int dz = dimension == 2 ? direction : 0;
 		
 		// Loop until we find a non-valid location.
-		while(isValidLocation(world, loopLocation, excludeLocation) == null) {
-			loopLocation = LocationHelpers.addToDimension(loopLocation, dimension, direction);
+		// Errors are only created if a subclass changes the validity of locations via isValidLocation.
+		boolean fast = !OVERRIDES_IS_VALID_LOCATION.get(getClass());
+		while(fast ? isValidLocationFast(world, loopLocation, excludeLocation)
+				: isValidLocation(world, loopLocation, excludeLocation) == null) {
+			loopLocation.setPos(loopLocation.getX() + dx, loopLocation.getY() + dy, loopLocation.getZ() + dz);
 		}
 		
 		// Because we went one increment too far.
-		loopLocation = LocationHelpers.addToDimension(loopLocation, dimension, -direction);
-		
-		return loopLocation;
+		return new BlockPos(loopLocation.getX() - dx, loopLocation.getY() - dy, loopLocation.getZ() - dz);
 	}
 	
 	/**
@@ -158,7 +398,7 @@ public class CubeDetector {
 	 * @return The corner location.
 	 */
 	protected BlockPos navigateToCorner(World world, BlockPos startLocation, int[] dimensions, boolean max, BlockPos excludeLocation) {
-		BlockPos navigateLocation = LocationHelpers.copyLocation(startLocation);
+		BlockPos navigateLocation = startLocation;
 		for(int dimension : dimensions) {
 			navigateLocation = navigateToBorder(world, navigateLocation, dimension, max, excludeLocation);
 		}
@@ -166,15 +406,9 @@ public class CubeDetector {
 	}
 	
 	protected boolean isEdge(World world, int[][] dimensionEgdes, BlockPos location) {
-        int[] c = LocationHelpers.toArray(location);
-		for (int i = 0; i < dimensionEgdes.length; i++) {
-			for (int j = 0; j < dimensionEgdes[i].length; j++) {
-				if(dimensionEgdes[i][j] == c[i]) {
-					return true;
-				}
-			}
-		}
-		return false;
+		return dimensionEgdes[0][0] == location.getX() || dimensionEgdes[0][1] == location.getX()
+				|| dimensionEgdes[1][0] == location.getY() || dimensionEgdes[1][1] == location.getY()
+				|| dimensionEgdes[2][0] == location.getZ() || dimensionEgdes[2][1] == location.getZ();
 	}
 	
 	/**
@@ -194,13 +428,27 @@ public class CubeDetector {
 	
 	/**
 	 * Run the {@link BlockPosAction} for all the possible locations within this structure.
+	 * The location that is passed to the action is mutable, so it must be copied if it is stored.
 	 * @param world The world.
 	 * @param dimensionEgdes The edges per dimension. [dimension][start=0 | stop=1]
 	 * @param locationAction The runnable that will be called for each location in the structure.
 	 * @return If the structure is valid for the given edges.
 	 */
 	protected boolean coordinateRecursion(World world, int[][] dimensionEgdes, BlockPosAction locationAction) {
-		return coordinateRecursion(world, dimensionEgdes, new int[]{}, locationAction);
+		if(dimensionEgdes.length != 3) {
+			return coordinateRecursion(world, dimensionEgdes, new int[]{}, locationAction);
+		}
+		BlockPos.MutableBlockPos location = new BlockPos.MutableBlockPos();
+		for(int x = dimensionEgdes[0][0]; x <= dimensionEgdes[0][1]; x++) {
+			for(int y = dimensionEgdes[1][0]; y <= dimensionEgdes[1][1]; y++) {
+				for(int z = dimensionEgdes[2][0]; z <= dimensionEgdes[2][1]; z++) {
+					if(!locationAction.run(world, location.setPos(x, y, z))) {
+						return false;
+					}
+				}
+			}
+		}
+		return true;
 	}
 	
 	/**
@@ -242,7 +490,8 @@ public class CubeDetector {
 	 * @return Null if the size is valid, otherwise the error message.
 	 */
 	protected L10NHelpers.UnlocalizedString validateAllowedBlockConditions(World world, BlockPos location) {
-		Block block = world.getBlockState(location).getBlock();
+		Block block = getBlockState(world, location).getBlock();
+		Map<Block, Integer> blockOccurences = this.blockOccurences.get();
 		if(blockInfo.containsKey(block)) {
 			Integer occurences = blockOccurences.get(block);
 			if (occurences == null) occurences = 0;
@@ -257,6 +506,10 @@ public class CubeDetector {
 			
 			blockOccurences.put(block, occurences + 1);
 		}
+		CachedStructure recordingStructure = this.recordingStructure.get();
+		if(recordingStructure != null) {
+			recordingStructure.setBlockIndex(location, getBlockIndex(block));
+		}
 		return null;
 	}
 	
@@ -276,13 +529,14 @@ public class CubeDetector {
 	protected L10NHelpers.UnlocalizedString validateDimensionEdges(World world, final int[][] dimensionEgdes,
 			final boolean valid, final IValidationAction action, final BlockPos excludeLocation) {
 		// Init the blockState occurences counter on zero for all blocks.
+		final Map<Block, Integer> blockOccurences = this.blockOccurences.get();
 		blockOccurences.clear();
 		for(AllowedBlock block : allowedBlocks) {
 			blockOccurences.put(block.getBlock(), 0);
 		}
 		
-		// Loop over all dimensions
-		final List<L10NHelpers.UnlocalizedString> errors = Lists.newLinkedList();
+		// Loop over all dimensions, the recursion stops at the first error.
+		final L10NHelpers.UnlocalizedString[] firstError = new L10NHelpers.UnlocalizedString[1];
 		boolean minimumValid = coordinateRecursion(world, dimensionEgdes, new BlockPosAction() {
 
 			@Override
@@ -291,11 +545,17 @@ public class CubeDetector {
 				// normally this 'valid' check is not needed, but bugs are always possible...
 				if(!valid) return true;
 				L10NHelpers.UnlocalizedString allowedBlocks = validateAllowedBlockConditions(world, location);
+				if(allowedBlocks != null) {
+					firstError[0] = allowedBlocks;
+					return false;
+				}
 				L10NHelpers.UnlocalizedString allowedLocation = validateLocationInStructure(world, dimensionEgdes,
 						location, action, excludeLocation);
-				if(allowedBlocks != null) errors.add(allowedBlocks);
-				if(allowedLocation != null) errors.add(allowedLocation);
-				return allowedBlocks == null && allowedLocation == null;
+				if(allowedLocation != null) {
+					firstError[0] = allowedLocation;
+					return false;
+				}
+				return true;
 			}
 			
 		});
@@ -311,16 +571,16 @@ public class CubeDetector {
 				}
 			}
 		}
-		return minimumValid ? null : (errors.isEmpty() ? null : errors.get(0));
+		return minimumValid ? null : firstError[0];
 	}
 
-	protected void postValidate(World world, final Vec3i size, int[][] dimensionEgdes,
+	protected void postValidate(final World world, final Vec3i size, int[][] dimensionEgdes,
 			final boolean valid, final BlockPos originCorner, final BlockPos excludeLocation) {
 		coordinateRecursion(world, dimensionEgdes, new BlockPosAction() {
 
 			@Override
 			public boolean run(World world, BlockPos location) {
-				notifyListeners(world, location, size, valid, originCorner);
+				notifyListeners(world, location.toImmutable(), size, valid, originCorner);
 				return true;
 			}
 			
@@ -355,13 +615,142 @@ public class CubeDetector {
 	 * size of 0 in each dimension.
 	 */
 	public DetectionResult detect(World world, BlockPos startLocation, BlockPos excludeLocation, IValidationAction action, boolean changeState) {
+		if(isIncremental()) {
+			DetectionResult result = detectIncremental(world, startLocation, excludeLocation, action, changeState);
+			if(result != null) {
+				return result;
+			}
+			// The cached structures around this location may not match the world anymore after a full detection.
+			invalidateCachedStructures(world, startLocation);
+		}
+
+		Detection detection = withBlockAccess(createBlockAccess(world),
+				() -> detectStructure(world, startLocation, excludeLocation, action));
+		return commitDetection(world, detection, excludeLocation, changeState);
+	}
+
+	/**
+	 * Detect a structure at the given start location without blocking the server thread.
+	 *
+	 * The structure is detected and validated on a worker thread, which reads from a {@link BlockStateSnapshot}.
+	 * That snapshot starts with the chunk section of the start location,
+	 * and the server thread copies the sections that the worker read but were missing after each attempt,
+	 * until an attempt only read copied sections.
+	 * Finally, the detection is committed on the server thread, which caches the structure in incremental mode,
+	 * and calls the post-validate actions.
+	 *
+	 * If blocks in the copied sections changed during an attempt, the changed sections are copied again
+	 * and the detection is retried, up to {@link #MAX_ASYNC_CHANGED_RETRIES} times,
+	 * after which the detection is done synchronously.
+	 * Only block changes that are sent to clients are noticed, see {@link BlockStateSnapshot}.
+	 *
+	 * The detection methods are called on a worker thread with the given world,
+	 * so overrides must read block states via {@link #getBlockAccess(World)} or {@link #getBlockState(World, BlockPos)},
+	 * and must not access the world otherwise.
+	 *
+	 * This must be called on the server thread.
+	 * @param world The world to look in.
+	 * @param startLocation The starting location.
+	 * @param excludeLocation The location of the block that is being removed, used for invalidating, null for validating.
+	 * @param action The action to execute when a location has been validated.
+	 *               This is called on a worker thread, so it must not access the world,
+	 *               and it can be called again for the same location in a later attempt.
+	 * @param changeState If the post-validate actions should be called, and thus potentially change the world blockState
+	 *                    states.
+	 * @return A future that is always completed on the server thread with the detection result.
+	 */
+	public CompletableFuture<DetectionResult> detectAsync(final WorldServer world, final BlockPos startLocation,
+														  final BlockPos excludeLocation, final IValidationAction action,
+														  final boolean changeState) {
+		if(isIncremental()) {
+			DetectionResult result = detectIncremental(world, startLocation, excludeLocation, action, changeState);
+			if(result != null) {
+				return CompletableFuture.completedFuture(result);
+			}
+			invalidateCachedStructures(world, startLocation);
+		}
+
+		BlockStateSnapshot snapshot = new BlockStateSnapshot(world);
+		snapshot.copySection(startLocation);
+		AsyncDetection detection = new AsyncDetection(world, startLocation, excludeLocation, action, changeState, snapshot);
+		try {
+			scheduleAsyncDetection(detection);
+		} catch (RuntimeException e) {
+			snapshot.release();
+			throw e;
+		}
+		return detection.future;
+	}
+
+	protected void scheduleAsyncDetection(final AsyncDetection asyncDetection) {
+		getAsyncExecutor().execute(() -> {
+			Detection detection = null;
+			Throwable error = null;
+			try {
+				detection = withBlockAccess(asyncDetection.snapshot, () -> detectStructure(asyncDetection.world,
+						asyncDetection.startLocation, asyncDetection.excludeLocation, asyncDetection.action));
+			} catch (Throwable e) {
+				error = e;
+			}
+			final Detection finalDetection = detection;
+			final Throwable finalError = error;
+			asyncDetection.world.addScheduledTask(() -> commitAsyncDetection(asyncDetection, finalDetection, finalError));
+		});
+	}
+
+	/**
+	 * Commit an attempt of an asynchronous detection, or schedule another attempt if the snapshot was incomplete
+	 * or changed.
+	 * This must be called on the server thread.
+	 * @param asyncDetection The asynchronous detection.
+	 * @param detection The detection of the attempt, or null if it failed.
+	 * @param error The error of the attempt, or null if it succeeded.
+	 */
+	protected void commitAsyncDetection(AsyncDetection asyncDetection, Detection detection, Throwable error) {
+		BlockStateSnapshot snapshot = asyncDetection.snapshot;
+		boolean done = true;
+		try {
+			if(error != null) {
+				asyncDetection.future.completeExceptionally(error);
+			} else if(snapshot.isChanged() && ++asyncDetection.changedRetries > MAX_ASYNC_CHANGED_RETRIES) {
+				asyncDetection.future.complete(detect(asyncDetection.world, asyncDetection.startLocation,
+						asyncDetection.excludeLocation, asyncDetection.action, asyncDetection.changeState));
+			} else if(snapshot.update()) {
+				done = false;
+				scheduleAsyncDetection(asyncDetection);
+			} else {
+				asyncDetection.future.complete(commitDetection(asyncDetection.world, detection,
+						asyncDetection.excludeLocation, asyncDetection.changeState));
+			}
+		} catch (Throwable e) {
+			done = true;
+			asyncDetection.future.completeExceptionally(e);
+		} finally {
+			if(done) {
+				snapshot.release();
+			}
+		}
+	}
+
+	/**
+	 * Detect and validate a structure at the given start location, without changing any state.
+	 * This can be called from any thread, as long as the block access of {@link #getBlockAccess(World)}
+	 * can be read from it.
+	 * @param world The world to look in.
+	 * @param startLocation The starting location.
+	 * @param excludeLocation The location of the block that is being removed, used for invalidating, null for validating.
+	 * @param action The action to execute when a location has been validated.
+	 * @return The detection.
+	 */
+	protected Detection detectStructure(World world, BlockPos startLocation, BlockPos excludeLocation,
+										IValidationAction action) {
 		// Next to the origin, we only need one corner for each dimension,
 		// we can easily derive if the structure is valid with these 4 corners.
 		L10NHelpers.UnlocalizedString error;
 
 		// First detect if the given location is a valid block.
 		if((error = isValidLocation(world, startLocation, excludeLocation)) != null) {
-			return new DetectionResult(error);
+			return new Detection(new DetectionResult(error));
 		}
 
 		// Find a corner that can be used as an origin for the structure.
@@ -399,8 +788,17 @@ public class CubeDetector {
 		}
 
 		// Loop over each blockState of the cube and check if they have valid blocks or are air.
-		if((error = validateDimensionEdges(world, dimensionEgdes, excludeLocation == null, action, excludeLocation)) != null) {
-			return new DetectionResult(error);
+		CachedStructure structure = null;
+		if(isIncremental() && excludeLocation == null) {
+			structure = new CachedStructure(originCorner, dimensionEgdes, blockIndexes.size() + 1);
+			recordingStructure.set(structure);
+		}
+		try {
+			if((error = validateDimensionEdges(world, dimensionEgdes, excludeLocation == null, action, excludeLocation)) != null) {
+				return new Detection(new DetectionResult(error));
+			}
+		} finally {
+			recordingStructure.remove();
 		}
 
 		Vec3i size = LocationHelpers.fromArray(distances);
@@ -411,13 +809,97 @@ public class CubeDetector {
 			// TODO: the 'valid' condition might be impossible to have influence if all structure
 			// handling goes according to plan.
 			if ((error = validator.isSizeValid(size)) != null && excludeLocation == null) {
-				return new DetectionResult(error);
+				return new Detection(new DetectionResult(error));
+			}
+		}
+		if(structure != null) {
+			for(Map.Entry<Block, Integer> entry : blockOccurences.get().entrySet()) {
+				structure.blockCounts[getBlockIndex(entry.getKey())] = entry.getValue();
+			}
+			structure.size = size;
+		}
+		return new Detection(new DetectionResult(size), originCorner, dimensionEgdes, structure);
+	}
+
+	/**
+	 * Apply a detection to the world, by caching its structure and calling the post-validate actions.
+	 * This must be called on the server thread.
+	 * @param world The world.
+	 * @param detection The detection.
+	 * @param excludeLocation The location of the block that is being removed, used for invalidating, null for validating.
+	 * @param changeState If the post-validate actions should be called.
+	 * @return The detection result.
+	 */
+	protected DetectionResult commitDetection(World world, Detection detection, BlockPos excludeLocation, boolean changeState) {
+		if(detection.dimensionEgdes == null) {
+			return detection.result;
+		}
+		if(detection.structure != null) {
+			addCachedStructure(world, detection.structure);
+		}
+		if(changeState) {
+			postValidate(world, detection.result.getSize(), detection.dimensionEgdes, excludeLocation == null,
+					detection.originCorner, excludeLocation);
+		}
+		return detection.result;
+	}
+
+	/**
+	 * Detect a structure based on a cached structure that contains the given location.
+	 * When validating, only the given location and the block counts are validated.
+	 * When invalidating, the cached structure is invalidated as a whole.
+	 * @param world The world to look in.
+	 * @param startLocation The changed location.
+	 * @param excludeLocation The location of the block that is being removed, used for invalidating, null for validating.
+	 * @param action The action to execute when a location has been validated.
+	 * @param changeState If the post-validate actions should be called.
+	 * @return The detection result, or null if a full detection is required.
+	 */
+	protected DetectionResult detectIncremental(World world, BlockPos startLocation, BlockPos excludeLocation,
+												IValidationAction action, boolean changeState) {
+		CachedStructure structure = getCachedStructure(world, startLocation);
+		if(structure == null) {
+			return null;
+		}
+		removeCachedStructure(world, structure);
+		int previousIndex = structure.getBlockIndex(startLocation);
+
+		if(excludeLocation != null) {
+			// Only the removal of a block that was part of the structure can be handled without navigating.
+			if(previousIndex == 0 || !startLocation.equals(excludeLocation)) {
+				return null;
+			}
+			if(changeState) {
+				postValidate(world, structure.size, structure.dimensionEgdes, false, structure.originCorner, excludeLocation);
+			}
+			return new DetectionResult(structure.size);
+		}
+
+		L10NHelpers.UnlocalizedString error;
+		if((error = validateLocationInStructure(world, structure.dimensionEgdes, startLocation, action, null)) != null) {
+			return new DetectionResult(error);
+		}
+
+		// Update the block counts and validate them for the complete structure.
+		Block block = getBlockState(world, startLocation).getBlock();
+		int index = getBlockIndex(block);
+		structure.blockCounts[previousIndex]--;
+		structure.blockCounts[index]++;
+		structure.setBlockIndex(startLocation, index);
+		for(AllowedBlock allowed : allowedBlocks) {
+			int occurences = structure.blockCounts[getBlockIndex(allowed.getBlock())];
+			for(IBlockCountValidator validator : allowed.getCountValidators()) {
+				if((error = validator.isValid(occurences, true, allowed.getBlock())) != null) {
+					return new DetectionResult(error);
+				}
 			}
 		}
-        if(changeState) {
-			postValidate(world, size, dimensionEgdes, excludeLocation == null, originCorner, excludeLocation);
-        }
-		return new DetectionResult(size);
+
+		addCachedStructure(world, structure);
+		if(changeState && index != 0) {
+			notifyListeners(world, startLocation, structure.size, true, structure.originCorner);
+		}
+		return new DetectionResult(structure.size);
 	}
 	
 	/**
@@ -439,12 +921,141 @@ public class CubeDetector {
 		
 	}
 	
+	/**
+	 * The outcome of {@link #detectStructure(World, BlockPos, BlockPos, IValidationAction)}
+	 * that has not been applied to the world yet.
+	 * The edges are null if the structure was invalid.
+	 */
+	protected static class Detection {
+
+		private final DetectionResult result;
+		private final BlockPos originCorner;
+		private final int[][] dimensionEgdes;
+		private final CachedStructure structure;
+
+		public Detection(DetectionResult result, BlockPos originCorner, int[][] dimensionEgdes, CachedStructure structure) {
+			this.result = result;
+			this.originCorner = originCorner;
+			this.dimensionEgdes = dimensionEgdes;
+			this.structure = structure;
+		}
+
+		public Detection(DetectionResult result) {
+			this(result, null, null, null);
+		}
+
+		public DetectionResult getResult() {
+			return result;
+		}
+
+	}
+
+	/**
+	 * The state of a running {@link #detectAsync(WorldServer, BlockPos, BlockPos, IValidationAction, boolean)}.
+	 */
+	protected static class AsyncDetection {
+
+		private final WorldServer world;
+		private final BlockPos startLocation;
+		private final BlockPos excludeLocation;
+		private final IValidationAction action;
+		private final boolean changeState;
+		private final BlockStateSnapshot snapshot;
+		private final CompletableFuture<DetectionResult> future = new CompletableFuture<>();
+		private int changedRetries = 0;
+
+		public AsyncDetection(WorldServer world, BlockPos startLocation, BlockPos excludeLocation,
+							  IValidationAction action, boolean changeState, BlockStateSnapshot snapshot) {
+			this.world = world;
+			this.startLocation = startLocation;
+			this.excludeLocation = excludeLocation;
+			this.action = action;
+			this.changeState = changeState;
+			this.snapshot = snapshot;
+		}
+
+	}
+
+	/**
+	 * A valid structure that was detected before,
+	 * with the index of the allowed block at each location, and the number of blocks per allowed block index.
+	 * Index zero is used for locations without an allowed block.
+	 */
+	protected static class CachedStructure {
+
+		private final BlockPos originCorner;
+		private final int[][] dimensionEgdes;
+		private final short[] blockIndexes;
+		private final int[] blockCounts;
+		private Vec3i size;
+
+		public CachedStructure(BlockPos originCorner, int[][] dimensionEgdes, int allowedBlockIndexes) {
+			this.originCorner = originCorner;
+			this.dimensionEgdes = dimensionEgdes;
+			this.blockIndexes = new short[getLength(0) * getLength(1) * getLength(2)];
+			this.blockCounts = new int[allowedBlockIndexes];
+		}
+
+		protected int getLength(int dimension) {
+			return dimensionEgdes[dimension][1] - dimensionEgdes[dimension][0] + 1;
+		}
+
+		protected int getArrayIndex(BlockPos location) {
+			return ((location.getX() - dimensionEgdes[0][0]) * getLength(1)
+					+ (location.getY() - dimensionEgdes[1][0])) * getLength(2)
+					+ (location.getZ() - dimensionEgdes[2][0]);
+		}
+
+		protected boolean isWithin(BlockPos location, int margin) {
+			int[] c = LocationHelpers.toArray(location);
+			for(int i = 0; i < c.length; i++) {
+				if(c[i] < dimensionEgdes[i][0] - margin || c[i] > dimensionEgdes[i][1] + margin) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		public boolean contains(BlockPos location) {
+			return isWithin(location, 0);
+		}
+
+		public boolean isAdjacentOrContains(BlockPos location) {
+			return isWithin(location, 1);
+		}
+
+		public boolean intersects(CachedStructure other) {
+			for(int i = 0; i < dimensionEgdes.length; i++) {
+				if(other.dimensionEgdes[i][1] < dimensionEgdes[i][0] || other.dimensionEgdes[i][0] > dimensionEgdes[i][1]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		public int getBlockIndex(BlockPos location) {
+			return blockIndexes[getArrayIndex(location)];
+		}
+
+		public void setBlockIndex(BlockPos location, int index) {
+			blockIndexes[getArrayIndex(location)] = (short) index;
+		}
+
+		public BlockPos getOriginCorner() {
+			return originCorner;
+		}
+
+		public Vec3i getSize() {
+			return size;
+		}
+	}
+
 	protected interface BlockPosAction {
 		
 		/**
 		 * An action for {@link CubeDetector#coordinateRecursion(World, int[][], BlockPosAction)}.
 		 * @param world The world.
-		 * @param location The location.
+		 * @param location The location, which may be mutable.
 		 * @return If the recursion should continue. If one is false, the full
 		 * {@link CubeDetector#coordinateRecursion(World, int[][], BlockPosAction)} will return false.
 		 */
@@ -25,13 +25,13 @@ public class HollowCubeDetector extends CubeDetector {
 	}
 	
 	@Override
-	protected void postValidate(World world, final Vec3i size, final int[][] dimensionEgdes, final boolean valid, final BlockPos originCorner, final BlockPos excludeLocation) {
+	protected void postValidate(final World world, final Vec3i size, final int[][] dimensionEgdes, final boolean valid, final BlockPos originCorner, final BlockPos excludeLocation) {
 		coordinateRecursion(world, dimensionEgdes, new BlockPosAction() {
 
 			@Override
 			public boolean run(World world, BlockPos location) {
 				if(isEdge(world, dimensionEgdes, location) && isValidLocation(world, location, excludeLocation) == null) {
-					notifyListeners(world, location, size, valid, originCorner);
+					notifyListeners(world, location.toImmutable(), size, valid, originCorner);
 				}
 				return true;
 			}
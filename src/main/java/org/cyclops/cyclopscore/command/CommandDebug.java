@@ -11,6 +11,7 @@ import net.minecraft.util.text.TextComponentString;
 import org.cyclops.cyclopscore.CyclopsCore;
 import org.cyclops.cyclopscore.init.ModBase;
 import org.cyclops.cyclopscore.network.PacketCodec;
+import org.cyclops.cyclopscore.network.PacketCodecPlanRegistry;
 import org.cyclops.cyclopscore.network.packet.debug.PingPongPacketAsync;
 import org.cyclops.cyclopscore.network.packet.debug.PingPongPacketComplexAsync;
 import org.cyclops.cyclopscore.network.packet.debug.PingPongPacketComplexSync;
@@ -58,6 +59,7 @@ public class CommandDebug extends CommandMod {
         map.put("simple_sync", new CommandDebugPacket(getMod(), new PingPongPacketSync(AMOUNT)));
         map.put("complex_async", new CommandDebugPacket(getMod(), new PingPongPacketComplexAsync(AMOUNT, "abc", "def")));
         map.put("complex_sync", new CommandDebugPacket(getMod(), new PingPongPacketComplexSync(AMOUNT, "abc", "def")));
+        map.put("packet_codec_stats", new CommandDebugPacketCodecStats(getMod()));
         return map;
     }
 
@@ -91,4 +93,21 @@ public class CommandDebug extends CommandMod {
         }
     }
 
+    public class CommandDebugPacketCodecStats extends CommandMod {
+
+        public CommandDebugPacketCodecStats(ModBase mod) {
+            super(mod);
+        }
+
+        @Override
+        public List<String> getTabCompletions(MinecraftServer server, ICommandSender sender, String[] parts, BlockPos blockPos) {
+            return null;
+        }
+
+        @Override
+        public void execute(MinecraftServer server, ICommandSender sender, String[] parts) {
+            sender.sendMessage(new TextComponentString("Packet codec plans: " + PacketCodecPlanRegistry.getStats()));
+        }
+    }
+
 }
@@ -0,0 +1,434 @@
+package org.cyclops.cyclopscore.datastructure;
+
+import it.unimi.dsi.fastutil.Hash;
+
+import javax.annotation.Nullable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A hash map that can create snapshots of itself in constant time.
+ *
+ * Entries are stored in a hash array mapped trie, of which the nodes are shared with snapshots.
+ * Each map owns the nodes that it created since its last snapshot, and modifies those in place.
+ * Shared nodes are never modified, so a modification of a map after a snapshot
+ * only copies the nodes along the path to the modified entry, and never the whole map.
+ * This makes it possible to read a snapshot on another thread while this map keeps being modified.
+ *
+ * Keys are hashed and compared by the given strategy, or by their own hashCode and equals methods.
+ *
+ * @param <K> The key type.
+ * @param <V> The value type.
+ */
+public class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+    private static final Object SUBNODE = new Object();
+    private static final Object NOT_FOUND = new Object();
+    private static final Node EMPTY_NODE = new Node(null, false, 0, 0, new Object[0]);
+
+    @Nullable
+    private final Hash.Strategy<? super K> strategy;
+    private Object edit;
+    private Node root;
+    private int size;
+    private int modCount;
+
+    // The result of the last assoc or dissoc
+    private boolean found;
+    private Object foundValue;
+
+    public PersistentHashMap() {
+        this(null);
+    }
+
+    public PersistentHashMap(@Nullable Hash.Strategy<? super K> strategy) {
+        this(strategy, EMPTY_NODE, 0);
+    }
+
+    protected PersistentHashMap(@Nullable Hash.Strategy<? super K> strategy, Node root, int size) {
+        this.strategy = strategy;
+        this.edit = new Object();
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Create a snapshot of this map in constant time.
+     * Later modifications of this map will not be visible in the snapshot, and vice versa.
+     * @return A snapshot of this map.
+     */
+    public PersistentHashMap<K, V> snapshot() {
+        // All current nodes become shared, so that they are copied before either map modifies them
+        this.edit = new Object();
+        return new PersistentHashMap<>(strategy, root, size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(key) != NOT_FOUND;
+    }
+
+    @Override
+    public V get(Object key) {
+        Object value = find(key);
+        return value == NOT_FOUND ? null : (V) value;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        found = false;
+        foundValue = null;
+        root = assoc(root, 0, hash(key), key, value);
+        if (!found) {
+            size++;
+            modCount++;
+        }
+        return (V) foundValue;
+    }
+
+    @Override
+    public V remove(Object key) {
+        found = false;
+        foundValue = null;
+        Node newRoot = dissoc(root, 0, hash(key), key);
+        root = newRoot == null ? EMPTY_NODE : newRoot;
+        if (found) {
+            size--;
+            modCount++;
+        }
+        return (V) foundValue;
+    }
+
+    @Override
+    public void clear() {
+        root = EMPTY_NODE;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    protected int hash(Object key) {
+        if (key == null) {
+            return 0;
+        }
+        int hash = strategy == null ? key.hashCode() : strategy.hashCode((K) key);
+        return hash ^ (hash >>> 16);
+    }
+
+    protected boolean keyEquals(Object a, Object b) {
+        if (a == b) {
+            return true;
+        }
+        if (a == null || b == null) {
+            return false;
+        }
+        return strategy == null ? a.equals(b) : strategy.equals((K) a, (K) b);
+    }
+
+    protected static int bitpos(int hash, int shift) {
+        return 1 << ((hash >>> shift) & 31);
+    }
+
+    protected static int index(int bitmap, int bit) {
+        return 2 * Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    protected Object find(Object key) {
+        int hash = hash(key);
+        Node node = root;
+        int shift = 0;
+        while (true) {
+            if (node.collision) {
+                for (int i = 0; i < node.array.length; i += 2) {
+                    if (keyEquals(key, node.array[i])) {
+                        return node.array[i + 1];
+                    }
+                }
+                return NOT_FOUND;
+            }
+            int bit = bitpos(hash, shift);
+            if ((node.bitmap & bit) == 0) {
+                return NOT_FOUND;
+            }
+            int i = index(node.bitmap, bit);
+            Object k = node.array[i];
+            if (k == SUBNODE) {
+                node = (Node) node.array[i + 1];
+                shift += 5;
+            } else {
+                return keyEquals(key, k) ? node.array[i + 1] : NOT_FOUND;
+            }
+        }
+    }
+
+    /**
+     * @param node A node.
+     * @return The node if it is owned by this map, otherwise an owned copy of it.
+     */
+    protected Node editable(Node node) {
+        return node.edit == edit ? node : new Node(edit, node.collision, node.hash, node.bitmap, node.array.clone());
+    }
+
+    /**
+     * @param node A node.
+     * @param bitmap A new bitmap.
+     * @param array A new array.
+     * @return The node with the given bitmap and array, modified in place if it is owned by this map.
+     */
+    protected Node withArray(Node node, int bitmap, Object[] array) {
+        if (node.edit == edit) {
+            node.bitmap = bitmap;
+            node.array = array;
+            return node;
+        }
+        return new Node(edit, node.collision, node.hash, bitmap, array);
+    }
+
+    protected Node assoc(Node node, int shift, int hash, Object key, Object value) {
+        if (node.collision) {
+            if (hash != node.hash) {
+                // Nest the collision node in a bitmap node, in which both hashes can be distinguished
+                Node parent = new Node(edit, false, 0, bitpos(node.hash, shift), new Object[]{SUBNODE, node});
+                return assoc(parent, shift, hash, key, value);
+            }
+            for (int i = 0; i < node.array.length; i += 2) {
+                if (keyEquals(key, node.array[i])) {
+                    return assocValue(node, i, value);
+                }
+            }
+            Object[] array = new Object[node.array.length + 2];
+            System.arraycopy(node.array, 0, array, 0, node.array.length);
+            array[node.array.length] = key;
+            array[node.array.length + 1] = value;
+            return withArray(node, node.bitmap, array);
+        }
+
+        int bit = bitpos(hash, shift);
+        int i = index(node.bitmap, bit);
+        if ((node.bitmap & bit) == 0) {
+            Object[] array = new Object[node.array.length + 2];
+            System.arraycopy(node.array, 0, array, 0, i);
+            array[i] = key;
+            array[i + 1] = value;
+            System.arraycopy(node.array, i, array, i + 2, node.array.length - i);
+            return withArray(node, node.bitmap | bit, array);
+        }
+        Object k = node.array[i];
+        Object v = node.array[i + 1];
+        if (k == SUBNODE) {
+            Node subNode = assoc((Node) v, shift + 5, hash, key, value);
+            if (subNode == v) {
+                return node;
+            }
+            Node editable = editable(node);
+            editable.array[i + 1] = subNode;
+            return editable;
+        }
+        if (keyEquals(key, k)) {
+            return assocValue(node, i, value);
+        }
+        Node subNode = createNode(shift + 5, k, v, hash, key, value);
+        Node editable = editable(node);
+        editable.array[i] = SUBNODE;
+        editable.array[i + 1] = subNode;
+        return editable;
+    }
+
+    protected Node assocValue(Node node, int i, Object value) {
+        found = true;
+        foundValue = node.array[i + 1];
+        if (foundValue == value) {
+            return node;
+        }
+        Node editable = editable(node);
+        editable.array[i + 1] = value;
+        return editable;
+    }
+
+    protected Node createNode(int shift, Object key1, Object value1, int hash2, Object key2, Object value2) {
+        int hash1 = hash(key1);
+        if (hash1 == hash2) {
+            return new Node(edit, true, hash1, 0, new Object[]{key1, value1, key2, value2});
+        }
+        Node node = new Node(edit, false, 0, 0, new Object[0]);
+        node = assoc(node, shift, hash1, key1, value1);
+        return assoc(node, shift, hash2, key2, value2);
+    }
+
+    /**
+     * @return The node without the given key, or null if it became empty.
+     */
+    @Nullable
+    protected Node dissoc(Node node, int shift, int hash, Object key) {
+        if (node.collision) {
+            for (int i = 0; i < node.array.length; i += 2) {
+                if (keyEquals(key, node.array[i])) {
+                    found = true;
+                    foundValue = node.array[i + 1];
+                    return node.array.length == 2 ? null : withArray(node, node.bitmap, removePair(node.array, i));
+                }
+            }
+            return node;
+        }
+
+        int bit = bitpos(hash, shift);
+        if ((node.bitmap & bit) == 0) {
+            return node;
+        }
+        int i = index(node.bitmap, bit);
+        Object k = node.array[i];
+        Object v = node.array[i + 1];
+        if (k == SUBNODE) {
+            Node subNode = dissoc((Node) v, shift + 5, hash, key);
+            if (subNode == v) {
+                return node;
+            }
+            if (subNode != null) {
+                Node editable = editable(node);
+                editable.array[i + 1] = subNode;
+                return editable;
+            }
+        } else if (keyEquals(key, k)) {
+            found = true;
+            foundValue = v;
+        } else {
+            return node;
+        }
+        return node.bitmap == bit ? null : withArray(node, node.bitmap ^ bit, removePair(node.array, i));
+    }
+
+    protected static Object[] removePair(Object[] array, int i) {
+        Object[] newArray = new Object[array.length - 2];
+        System.arraycopy(array, 0, newArray, 0, i);
+        System.arraycopy(array, i + 2, newArray, i, array.length - i - 2);
+        return newArray;
+    }
+
+    /**
+     * A trie node.
+     * Bitmap nodes store key-value pairs for the set bits of their bitmap,
+     * where the key is {@link #SUBNODE} if the value is a child node.
+     * Collision nodes store key-value pairs of keys that have the same hash.
+     */
+    protected static final class Node {
+
+        private final Object edit;
+        private final boolean collision;
+        private final int hash;
+        private int bitmap;
+        private Object[] array;
+
+        private Node(@Nullable Object edit, boolean collision, int hash, int bitmap, Object[] array) {
+            this.edit = edit;
+            this.collision = collision;
+            this.hash = hash;
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+    }
+
+    /**
+     * An iterator over the node arrays.
+     * Removing an entry first makes all nodes shared, so the arrays that are being iterated are never modified.
+     */
+    protected class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+        private Object[][] arrays = new Object[8][];
+        private int[] positions = new int[8];
+        private int depth;
+        private int expectedModCount;
+        private Object nextKey = NOT_FOUND;
+        private Object nextValue;
+        private Object lastKey = NOT_FOUND;
+
+        public EntryIterator() {
+            this.arrays[0] = root.array;
+            this.expectedModCount = modCount;
+            advance();
+        }
+
+        protected void advance() {
+            nextKey = NOT_FOUND;
+            while (depth >= 0) {
+                Object[] array = arrays[depth];
+                int position = positions[depth];
+                if (position >= array.length) {
+                    depth--;
+                } else {
+                    positions[depth] = position + 2;
+                    if (array[position] == SUBNODE) {
+                        if (++depth == arrays.length) {
+                            arrays = Arrays.copyOf(arrays, depth * 2);
+                            positions = Arrays.copyOf(positions, depth * 2);
+                        }
+                        arrays[depth] = ((Node) array[position + 1]).array;
+                        positions[depth] = 0;
+                    } else {
+                        nextKey = array[position];
+                        nextValue = array[position + 1];
+                        return;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextKey != NOT_FOUND;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<K, V> entry = new AbstractMap.SimpleImmutableEntry<>((K) nextKey, (V) nextValue);
+            lastKey = nextKey;
+            advance();
+            return entry;
+        }
+
+        @Override
+        public void remove() {
+            if (lastKey == NOT_FOUND) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            edit = new Object();
+            PersistentHashMap.this.remove(lastKey);
+            lastKey = NOT_FOUND;
+            expectedModCount = modCount;
+        }
+    }
+
+}
@@ -0,0 +1,361 @@
+package org.cyclops.cyclopscore.datastructure;
+
+import javax.annotation.Nullable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A sorted map that can create snapshots of itself in constant time.
+ *
+ * Entries are stored in an AVL tree, of which the nodes are shared with snapshots.
+ * Each map owns the nodes that it created since its last snapshot, and modifies those in place.
+ * Shared nodes are never modified, so a modification of a map after a snapshot
+ * only copies the nodes along the path to the modified entry, and never the whole map.
+ * This makes it possible to read a snapshot on another thread while this map keeps being modified.
+ *
+ * Keys are ordered by the given comparator, or by their natural ordering.
+ * Entries are iterated in ascending key order.
+ *
+ * @param <K> The key type.
+ * @param <V> The value type.
+ */
+public class PersistentTreeMap<K, V> extends AbstractMap<K, V> {
+
+    @Nullable
+    private final Comparator<? super K> comparator;
+    private Object edit;
+    private Node<K, V> root;
+    private int size;
+    private int modCount;
+
+    // The result of the last insert or delete
+    private boolean found;
+    private V foundValue;
+
+    public PersistentTreeMap() {
+        this(null);
+    }
+
+    public PersistentTreeMap(@Nullable Comparator<? super K> comparator) {
+        this(comparator, null, 0);
+    }
+
+    protected PersistentTreeMap(@Nullable Comparator<? super K> comparator, @Nullable Node<K, V> root, int size) {
+        this.comparator = comparator;
+        this.edit = new Object();
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Create a snapshot of this map in constant time.
+     * Later modifications of this map will not be visible in the snapshot, and vice versa.
+     * @return A snapshot of this map.
+     */
+    public PersistentTreeMap<K, V> snapshot() {
+        // All current nodes become shared, so that they are copied before either map modifies them
+        this.edit = new Object();
+        return new PersistentTreeMap<>(comparator, root, size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(key) != null;
+    }
+
+    @Override
+    public V get(Object key) {
+        Node<K, V> node = find(key);
+        return node == null ? null : node.value;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        found = false;
+        foundValue = null;
+        root = insert(root, key, value);
+        if (!found) {
+            size++;
+            modCount++;
+        }
+        return foundValue;
+    }
+
+    @Override
+    public V remove(Object key) {
+        found = false;
+        foundValue = null;
+        root = delete(root, (K) key);
+        if (found) {
+            size--;
+            modCount++;
+        }
+        return foundValue;
+    }
+
+    @Override
+    public void clear() {
+        root = null;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    protected int compare(K a, K b) {
+        return comparator == null ? ((Comparable<? super K>) a).compareTo(b) : comparator.compare(a, b);
+    }
+
+    @Nullable
+    protected Node<K, V> find(Object key) {
+        Node<K, V> node = root;
+        while (node != null) {
+            int c = compare((K) key, node.key);
+            if (c == 0) {
+                return node;
+            }
+            node = c < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /**
+     * @param node A node.
+     * @return The node if it is owned by this map, otherwise an owned copy of it.
+     */
+    protected Node<K, V> editable(Node<K, V> node) {
+        return node.edit == edit ? node : new Node<>(edit, node.key, node.value, node.left, node.right, node.height);
+    }
+
+    protected static int height(@Nullable Node<?, ?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    protected Node<K, V> insert(@Nullable Node<K, V> node, K key, V value) {
+        if (node == null) {
+            return new Node<>(edit, key, value, null, null, 1);
+        }
+        int c = compare(key, node.key);
+        if (c == 0) {
+            found = true;
+            foundValue = node.value;
+            if (node.value == value) {
+                return node;
+            }
+            Node<K, V> editable = editable(node);
+            editable.value = value;
+            return editable;
+        }
+        Node<K, V> child = insert(c < 0 ? node.left : node.right, key, value);
+        if (found && child == (c < 0 ? node.left : node.right)) {
+            return node;
+        }
+        Node<K, V> editable = editable(node);
+        if (c < 0) {
+            editable.left = child;
+        } else {
+            editable.right = child;
+        }
+        return balance(editable);
+    }
+
+    @Nullable
+    protected Node<K, V> delete(@Nullable Node<K, V> node, K key) {
+        if (node == null) {
+            return null;
+        }
+        int c = compare(key, node.key);
+        if (c == 0) {
+            found = true;
+            foundValue = node.value;
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            // Replace the node by the smallest node of its right subtree
+            Node<K, V> min = node.right;
+            while (min.left != null) {
+                min = min.left;
+            }
+            Node<K, V> editable = editable(node);
+            editable.right = deleteMin(node.right);
+            editable.key = min.key;
+            editable.value = min.value;
+            return balance(editable);
+        }
+        Node<K, V> child = delete(c < 0 ? node.left : node.right, key);
+        if (!found) {
+            return node;
+        }
+        Node<K, V> editable = editable(node);
+        if (c < 0) {
+            editable.left = child;
+        } else {
+            editable.right = child;
+        }
+        return balance(editable);
+    }
+
+    @Nullable
+    protected Node<K, V> deleteMin(Node<K, V> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        Node<K, V> editable = editable(node);
+        editable.left = deleteMin(node.left);
+        return balance(editable);
+    }
+
+    /**
+     * @param node An owned node of which the children are balanced.
+     * @return The balanced node.
+     */
+    protected Node<K, V> balance(Node<K, V> node) {
+        int balance = height(node.left) - height(node.right);
+        if (balance > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(editable(node.left));
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(editable(node.right));
+            }
+            return rotateLeft(node);
+        }
+        node.updateHeight();
+        return node;
+    }
+
+    protected Node<K, V> rotateLeft(Node<K, V> node) {
+        Node<K, V> right = editable(node.right);
+        node.right = right.left;
+        node.updateHeight();
+        right.left = node;
+        right.updateHeight();
+        return right;
+    }
+
+    protected Node<K, V> rotateRight(Node<K, V> node) {
+        Node<K, V> left = editable(node.left);
+        node.left = left.right;
+        node.updateHeight();
+        left.right = node;
+        left.updateHeight();
+        return left;
+    }
+
+    protected static final class Node<K, V> {
+
+        private final Object edit;
+        private K key;
+        private V value;
+        private Node<K, V> left;
+        private Node<K, V> right;
+        private int height;
+
+        private Node(Object edit, K key, V value, @Nullable Node<K, V> left, @Nullable Node<K, V> right, int height) {
+            this.edit = edit;
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = height;
+        }
+
+        private void updateHeight() {
+            this.height = Math.max(height(left), height(right)) + 1;
+        }
+    }
+
+    /**
+     * An in-order iterator over the nodes.
+     * Removing an entry first makes all nodes shared, so the nodes that are being iterated are never modified.
+     */
+    protected class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+        private Node<K, V>[] stack = new Node[8];
+        private int depth;
+        private int expectedModCount;
+        private K lastKey;
+        private boolean canRemove;
+
+        public EntryIterator() {
+            this.expectedModCount = modCount;
+            pushLeft(root);
+        }
+
+        protected void pushLeft(@Nullable Node<K, V> node) {
+            while (node != null) {
+                if (depth == stack.length) {
+                    stack = Arrays.copyOf(stack, depth * 2);
+                }
+                stack[depth++] = node;
+                node = node.left;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return depth > 0;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> node = stack[--depth];
+            pushLeft(node.right);
+            lastKey = node.key;
+            canRemove = true;
+            return new AbstractMap.SimpleImmutableEntry<>(node.key, node.value);
+        }
+
+        @Override
+        public void remove() {
+            if (!canRemove) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            edit = new Object();
+            PersistentTreeMap.this.remove(lastKey);
+            canRemove = false;
+            expectedModCount = modCount;
+        }
+    }
+
+}
@@ -0,0 +1,25 @@
+package org.cyclops.cyclopscore.ingredient.collection;
+
+/**
+ * Observes the changes that are applied to an {@link IngredientCollectionObservableWrapper}.
+ *
+ * @param <T> The instance type.
+ * @param <M> The matching condition parameter.
+ */
+public interface IIngredientCollectionObserver<T, M> {
+
+    /**
+     * Called after the given instance was added to the observed collection.
+     * @param instance The added instance.
+     *                 This instance should not be stored, as it may be modified by the caller afterwards.
+     */
+    public void onInstanceAdded(T instance);
+
+    /**
+     * Called after the given instance was removed from the observed collection.
+     * @param instance The removed instance.
+     *                 This instance should not be stored, as it may be modified by the caller afterwards.
+     */
+    public void onInstanceRemoved(T instance);
+
+}
@@ -0,0 +1,61 @@
+package org.cyclops.cyclopscore.ingredient.collection;
+
+/**
+ * A mutable mapping from ingredient component instances to primitive long values.
+ *
+ * Next to the regular boxed {@link IIngredientMapMutable} methods,
+ * this exposes primitive variants that implementations can provide without allocating boxed values.
+ * Absent keys are considered to be mapped to zero.
+ *
+ * @param <T> The instance type.
+ * @param <M> The matching condition parameter.
+ */
+public interface IIngredientLongMapMutable<T, M> extends IIngredientMapMutable<T, M, Long> {
+
+    /**
+     * Get the value for the given instance.
+     * @param key An instance.
+     * @return The value, or zero if the key is not present.
+     */
+    public default long getLong(T key) {
+        Long value = get(key);
+        return value == null ? 0 : value;
+    }
+
+    /**
+     * Add a new entry.
+     * @param key An instance key.
+     * @param value A value.
+     * @return The previous value that was associated with the given instance, or zero if there was none.
+     */
+    public default long putLong(T key, long value) {
+        Long previous = put(key, value);
+        return previous == null ? 0 : previous;
+    }
+
+    /**
+     * Remove the mapping for the given key instance.
+     * @param key An instance key.
+     * @return The value that was associated with the given instance, or zero if there was none.
+     */
+    public default long removeLong(T key) {
+        Long previous = remove(key);
+        return previous == null ? 0 : previous;
+    }
+
+    /**
+     * Add the given value to the value that is associated with the given key instance.
+     * If the key was not present yet, it will be added with the given value.
+     *
+     * Note that the given key instance can be stored as-is in this map,
+     * so it must not be modified afterwards.
+     *
+     * @param key An instance key.
+     * @param increment The value to add.
+     * @return The previous value that was associated with the given instance, or zero if there was none.
+     */
+    public default long addTo(T key, long increment) {
+        return putLong(key, getLong(key) + increment);
+    }
+
+}
@@ -0,0 +1,25 @@
+package org.cyclops.cyclopscore.ingredient.collection;
+
+/**
+ * A collection-like that can create snapshots of its contents in constant time.
+ *
+ * A snapshot shares its internal structure with the collection it was created from.
+ * Shared parts are never modified, so modifying either of them only copies the parts that are modified,
+ * such as the path to a modified entry.
+ * This makes it possible to read a snapshot on another thread while the original collection
+ * keeps being modified on its own thread.
+ *
+ * Snapshots must be created on the thread that modifies the original collection,
+ * and must be safely published to other threads, for example by passing them to an executor.
+ *
+ * @param <S> The snapshot type.
+ */
+public interface IIngredientSnapshottable<S> {
+
+    /**
+     * @return A snapshot of the current contents.
+     *         Later modifications of this collection will not be visible in the snapshot, and vice versa.
+     */
+    public S snapshot();
+
+}
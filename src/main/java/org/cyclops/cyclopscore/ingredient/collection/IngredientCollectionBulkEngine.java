@@ -0,0 +1,334 @@
+package org.cyclops.cyclopscore.ingredient.collection;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+
+/**
+ * A shared engine for adding or removing large batches of instances to or from
+ * {@link IngredientCollectionMultiClassified} collections using a {@link ForkJoinPool}.
+ *
+ * Work is partitioned both by category type and by chunks of the input.
+ * First, the classifiers of all instances are calculated in parallel chunks.
+ * Next, instances are grouped per classifier,
+ * after which the groups are added to or removed from their classified collections in parallel,
+ * since different classified collections can be modified independently.
+ *
+ * Batches that are smaller than the inline threshold are handled on the calling thread,
+ * as the overhead of parallelization would be larger than the gain.
+ *
+ * The collections that are passed to this engine must not be modified concurrently by other threads.
+ */
+public class IngredientCollectionBulkEngine {
+
+    public static final int DEFAULT_PARALLELISM = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    public static final int DEFAULT_INLINE_THRESHOLD = 4096;
+    public static final int CHUNK_SIZE = 1024;
+
+    private static volatile IngredientCollectionBulkEngine INSTANCE = new IngredientCollectionBulkEngine(
+            DEFAULT_PARALLELISM, DEFAULT_INLINE_THRESHOLD);
+
+    private final ForkJoinPool pool;
+    private final int inlineThreshold;
+
+    public IngredientCollectionBulkEngine(int parallelism, int inlineThreshold) {
+        this.pool = new ForkJoinPool(Math.max(1, parallelism), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("Cyclops Core ingredient bulk worker " + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        this.inlineThreshold = inlineThreshold;
+    }
+
+    /**
+     * @return The shared engine.
+     */
+    public static IngredientCollectionBulkEngine getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Replace the shared engine with one with the given configuration.
+     * @param parallelism The number of worker threads.
+     * @param inlineThreshold The minimum number of instances for which parallel execution is used.
+     */
+    public static void configure(int parallelism, int inlineThreshold) {
+        IngredientCollectionBulkEngine oldInstance = INSTANCE;
+        INSTANCE = new IngredientCollectionBulkEngine(parallelism, inlineThreshold);
+        oldInstance.pool.shutdown();
+    }
+
+    /**
+     * @return The number of worker threads.
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * @return The minimum number of instances for which parallel execution is used.
+     */
+    public int getInlineThreshold() {
+        return inlineThreshold;
+    }
+
+    /**
+     * Check if a batch of the given size will be handled on the calling thread.
+     * @param size A number of instances.
+     * @return If parallel execution will be skipped.
+     */
+    public boolean shouldRunInline(int size) {
+        return size < this.inlineThreshold || getParallelism() <= 1;
+    }
+
+    /**
+     * Add the given instances to the given collection.
+     * @param collection A collection.
+     * @param instances The instances to add.
+     * @param <T> The instance type.
+     * @param <M> The matching condition parameter.
+     * @return If the collection was changed due to this addition.
+     */
+    public <T, M> boolean addAll(IngredientCollectionMultiClassified<T, M> collection, Iterable<? extends T> instances) {
+        if (instances instanceof Collection && shouldRunInline(((Collection<?>) instances).size())) {
+            return addAllInline(collection, instances);
+        }
+        List<T> instancesList = Lists.newArrayList(instances);
+        if (shouldRunInline(instancesList.size())) {
+            return addAllInline(collection, instancesList);
+        }
+        return execute(collection, instancesList, true) > 0;
+    }
+
+    /**
+     * Remove the given instances from the given collection.
+     * @param collection A collection.
+     * @param instances The instances to remove.
+     * @param <T> The instance type.
+     * @param <M> The matching condition parameter.
+     * @return The number of removed instances.
+     */
+    public <T, M> int removeAll(IngredientCollectionMultiClassified<T, M> collection, Iterable<? extends T> instances) {
+        if (instances instanceof Collection && shouldRunInline(((Collection<?>) instances).size())) {
+            return removeAllInline(collection, instances);
+        }
+        List<T> instancesList = Lists.newArrayList(instances);
+        if (shouldRunInline(instancesList.size())) {
+            return removeAllInline(collection, instancesList);
+        }
+        return execute(collection, instancesList, false);
+    }
+
+    protected <T, M> boolean addAllInline(IngredientCollectionMultiClassified<T, M> collection, Iterable<? extends T> instances) {
+        boolean changed = false;
+        for (T instance : instances) {
+            changed |= collection.add(instance);
+        }
+        return changed;
+    }
+
+    protected <T, M> int removeAllInline(IngredientCollectionMultiClassified<T, M> collection, Iterable<? extends T> instances) {
+        int removed = 0;
+        for (T instance : instances) {
+            if (collection.remove(instance)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    protected <T, M> int execute(IngredientCollectionMultiClassified<T, M> collection, List<T> instances, boolean add) {
+        List<IngredientCollectionSingleClassified<T, M, ?>> singleClassifieds = collection.getClassifiedCollectionsList();
+        int categories = singleClassifieds.size();
+        if (categories == 0) {
+            return 0;
+        }
+        int size = instances.size();
+
+        // Calculate the classifiers of all instances in parallel chunks
+        Object[][] classifiers = new Object[categories][size];
+        List<Callable<Void>> classifyTasks = Lists.newArrayList();
+        for (int category = 0; category < categories; category++) {
+            IngredientCollectionSingleClassified<T, M, ?> singleClassified = singleClassifieds.get(category);
+            Object[] categoryClassifiers = classifiers[category];
+            for (int start = 0; start < size; start += CHUNK_SIZE) {
+                int chunkStart = start;
+                int chunkEnd = Math.min(size, start + CHUNK_SIZE);
+                classifyTasks.add(() -> {
+                    for (int i = chunkStart; i < chunkEnd; i++) {
+                        categoryClassifiers[i] = singleClassified.getClassifier(instances.get(i));
+                    }
+                    return null;
+                });
+            }
+        }
+        invokeAll(classifyTasks);
+
+        // Group instances by classifier for each category type in parallel
+        IIngredientCollectionMutable<T, M>[][] instanceCollections = new IIngredientCollectionMutable[categories][size];
+        List<Callable<List<Group<T, M>>>> groupTasks = Lists.newArrayList();
+        for (int category = 0; category < categories; category++) {
+            IngredientCollectionSingleClassified<T, M, ?> singleClassified = singleClassifieds.get(category);
+            Object[] categoryClassifiers = classifiers[category];
+            IIngredientCollectionMutable<T, M>[] categoryInstanceCollections = instanceCollections[category];
+            groupTasks.add(() -> group(singleClassified, categoryClassifiers, categoryInstanceCollections, add));
+        }
+        List<List<Group<T, M>>> groups = invokeAll(groupTasks);
+
+        // Add or remove the groups in parallel, with tasks of roughly the chunk size.
+        // The changes for the first category type are remembered for updating the index of the collection.
+        boolean[] changed = new boolean[size];
+        List<Callable<Integer>> mutateTasks = Lists.newArrayList();
+        List<Integer> mutateTaskCategories = Lists.newArrayList();
+        for (int category = 0; category < categories; category++) {
+            List<Group<T, M>> batch = Lists.newArrayList();
+            int batchSize = 0;
+            for (Group<T, M> group : groups.get(category)) {
+                batch.add(group);
+                batchSize += group.indexes.size();
+                if (batchSize >= CHUNK_SIZE) {
+                    mutateTasks.add(newMutateTask(instances, batch, add, category == 0 ? changed : null));
+                    mutateTaskCategories.add(category);
+                    batch = Lists.newArrayList();
+                    batchSize = 0;
+                }
+            }
+            if (!batch.isEmpty()) {
+                mutateTasks.add(newMutateTask(instances, batch, add, category == 0 ? changed : null));
+                mutateTaskCategories.add(category);
+            }
+        }
+        List<Integer> mutateResults = invokeAll(mutateTasks);
+
+        // Update the sizes and remove empty classified collections
+        int[] changes = new int[categories];
+        for (int i = 0; i < mutateResults.size(); i++) {
+            changes[mutateTaskCategories.get(i)] += mutateResults.get(i);
+        }
+        for (int category = 0; category < categories; category++) {
+            IngredientCollectionSingleClassified<T, M, ?> singleClassified = singleClassifieds.get(category);
+            if (add) {
+                singleClassified.setSize(singleClassified.size() + changes[category]);
+            } else {
+                singleClassified.setSize(singleClassified.size() - changes[category]);
+                singleClassified.getClassifiedCollections().values().removeIf(IIngredientCollection::isEmpty);
+            }
+        }
+
+        // Update the index of the collection
+        for (int i = 0; i < size; i++) {
+            if (changed[i]) {
+                T instance = instances.get(i);
+                if (add) {
+                    Object[] instanceClassifiers = new Object[categories];
+                    IIngredientCollectionMutable<T, M>[] collections = new IIngredientCollectionMutable[categories];
+                    for (int category = 0; category < categories; category++) {
+                        instanceClassifiers[category] = classifiers[category][i];
+                        collections[category] = instanceCollections[category][i];
+                    }
+                    collection.onIndexAdded(instance, instanceClassifiers, collections);
+                } else {
+                    collection.onIndexRemoved(instance);
+                }
+            }
+        }
+
+        return changes[0];
+    }
+
+    @SuppressWarnings("unchecked")
+    protected <T, M, C> List<Group<T, M>> group(IngredientCollectionSingleClassified<T, M, C> singleClassified,
+                                                Object[] classifiers, IIngredientCollectionMutable<T, M>[] instanceCollections,
+                                                boolean create) {
+        Map<C, Group<T, M>> groups = singleClassified.getCategoryType().isReferenceEqual()
+                ? Maps.newIdentityHashMap() : Maps.newHashMap();
+        for (int i = 0; i < classifiers.length; i++) {
+            C classifier = (C) classifiers[i];
+            Group<T, M> group = groups.get(classifier);
+            if (group == null) {
+                IIngredientCollectionMutable<T, M> classifiedCollection = create
+                        ? singleClassified.getOrCreateClassifiedCollection(classifier)
+                        : singleClassified.getClassifiedCollections().get(classifier);
+                group = new Group<>(classifiedCollection);
+                groups.put(classifier, group);
+            }
+            if (group.collection != null) {
+                group.indexes.add(i);
+                instanceCollections[i] = group.collection;
+            }
+        }
+        List<Group<T, M>> groupsList = Lists.newArrayListWithCapacity(groups.size());
+        for (Group<T, M> group : groups.values()) {
+            if (group.collection != null) {
+                groupsList.add(group);
+            }
+        }
+        return groupsList;
+    }
+
+    protected <T, M> Callable<Integer> newMutateTask(List<T> instances, List<Group<T, M>> groups, boolean add,
+                                                     @Nullable boolean[] changedInstances) {
+        return () -> {
+            int changed = 0;
+            for (Group<T, M> group : groups) {
+                IntIterator it = group.indexes.iterator();
+                while (it.hasNext()) {
+                    int index = it.nextInt();
+                    T instance = instances.get(index);
+                    if (add ? group.collection.add(instance) : group.collection.remove(instance)) {
+                        changed++;
+                        if (changedInstances != null) {
+                            changedInstances[index] = true;
+                        }
+                    }
+                }
+            }
+            return changed;
+        };
+    }
+
+    protected <R> List<R> invokeAll(List<Callable<R>> tasks) {
+        List<R> results = Lists.newArrayListWithCapacity(tasks.size());
+        for (Future<R> future : this.pool.invokeAll(tasks)) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                Throwables.throwIfUnchecked(e.getCause());
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * The indexes of the instances that belong to a single classified collection.
+     * @param <T> The instance type.
+     * @param <M> The matching condition parameter.
+     */
+    protected static class Group<T, M> {
+
+        @Nullable
+        private final IIngredientCollectionMutable<T, M> collection;
+        private final IntArrayList indexes = new IntArrayList();
+
+        public Group(@Nullable IIngredientCollectionMutable<T, M> collection) {
+            this.collection = collection;
+        }
+    }
+
+}
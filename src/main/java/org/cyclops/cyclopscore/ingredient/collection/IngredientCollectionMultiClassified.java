@@ -1,18 +1,19 @@
 package org.cyclops.cyclopscore.ingredient.collection;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenCustomHashMap;
+import org.cyclops.commoncapabilities.api.ingredient.IIngredientMatcher;
 import org.cyclops.commoncapabilities.api.ingredient.IngredientComponent;
 import org.cyclops.commoncapabilities.api.ingredient.IngredientComponentCategoryType;
 
 import javax.annotation.Nullable;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -23,6 +24,13 @@ import java.util.stream.Collectors;
  * This allows instances to be looked up or removed more efficiently when the used match condition
  * is compatible with the identifying match condition of category types.
  *
+ * Next to the classified collections, an index of entries is maintained per prototype
+ * that stores the classifiers and classified collections of an instance,
+ * so that an instance that was found in one classified collection can be removed from all others
+ * without having to classify it again.
+ * As classified collections may merge the quantities of their instances,
+ * instances with another quantity than the one of the entry are classified again.
+ *
  * @param <T> An instance type.
  * @param <M> The matching condition parameter.
  */
@@ -30,63 +38,111 @@ public class IngredientCollectionMultiClassified<T, M> extends IngredientCollect
         implements IIngredientCollectionMutable<T, M>, IIngredientCollectionLikeMultiClassifiedTrait<T, M, T, IngredientCollectionSingleClassified<T, M, ?>> {
 
     private final Map<IngredientComponentCategoryType<T, M, ?>, IngredientCollectionSingleClassified<T, M, ?>> classifiedCollections;
-
+    private final List<IngredientCollectionSingleClassified<T, M, ?>> classifiedCollectionsList;
+    private final Object2ObjectOpenCustomHashMap<T, Entry<T, M>> entries;
 
     public IngredientCollectionMultiClassified(IngredientComponent<T, M> component,
                                                Supplier<IIngredientCollectionMutable<T, M>> collectionCreator) {
         super(component);
         this.classifiedCollections = Maps.newIdentityHashMap();
+        this.classifiedCollectionsList = Lists.newArrayList();
         for (IngredientComponentCategoryType<T, M, ?> categoryType : component.getCategoryTypes()) {
-            this.classifiedCollections.put(categoryType,
-                    new IngredientCollectionSingleClassified<>(component, collectionCreator, categoryType));
+            IngredientCollectionSingleClassified<T, M, ?> singleClassified =
+                    new IngredientCollectionSingleClassified<>(component, collectionCreator, categoryType);
+            this.classifiedCollections.put(categoryType, singleClassified);
+            this.classifiedCollectionsList.add(singleClassified);
         }
+        this.entries = new Object2ObjectOpenCustomHashMap<>(new IngredientHashStrategy<>(component));
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public boolean add(T instance) {
+        T prototype = getPrototype(instance);
+        Entry<T, M> entry = this.entries.get(prototype);
+        boolean cached = entry != null && entry.isInstance(getComponent(), instance);
+        Object[] classifiers;
+        IIngredientCollectionMutable<T, M>[] collections;
+        if (cached) {
+            classifiers = entry.classifiers;
+            collections = entry.collections;
+        } else {
+            classifiers = new Object[this.classifiedCollectionsList.size()];
+            collections = new IIngredientCollectionMutable[classifiers.length];
+            for (int i = 0; i < classifiers.length; i++) {
+                classifiers[i] = this.classifiedCollectionsList.get(i).getClassifier(instance);
+            }
+        }
         boolean result = false;
-        for (IngredientCollectionSingleClassified<T, M, ?> singleClassified : classifiedCollections.values()) {
-            result = singleClassified.add(instance);
+        for (int i = 0; i < classifiers.length; i++) {
+            IIngredientCollectionMutable<T, M> collection = this.classifiedCollectionsList.get(i)
+                    .addClassified(instance, classifiers[i]);
+            if (collection != null) {
+                collections[i] = collection;
+                result = true;
+            }
+        }
+        if (result) {
+            if (entry == null) {
+                entry = new Entry<>(instance, classifiers, collections);
+                this.entries.put(prototype, entry);
+            }
+            entry.count++;
         }
         return result;
     }
 
+    /**
+     * Add the given instances to the collection.
+     * Large batches are added in parallel by the shared {@link IngredientCollectionBulkEngine}.
+     * @param instances Instances.
+     * @return If the collection was changed due to this addition.
+     *         This can be false in the case of sets in which each instance can only exists once.
+     */
+    @Override
+    public boolean addAll(Iterable<? extends T> instances) {
+        return IngredientCollectionBulkEngine.getInstance().addAll(this, instances);
+    }
+
     /**
      * A multi-threaded addAll implementation.
      * This will create workers for adding the given instances to all classified collections.
      * @param executorService An optional executor service.
-     *                        If none is provided, a new temporary one will be created
-     *                        for the duration of this method call.
+     *                        If none is provided, the shared {@link IngredientCollectionBulkEngine} will be used.
      * @param instances The instances that need to be added.
      * @return If the collection was changed due to this addition.
      *         This can be false in the case of sets in which each instance can only exists once.
      */
     public boolean addAllThreaded(@Nullable ExecutorService executorService, Iterable<? extends T> instances) {
-        boolean newExecutorService = false;
         if (executorService == null) {
-            executorService = Executors.newFixedThreadPool(this.classifiedCollections.size());
-            newExecutorService = true;
+            return addAll(instances);
         }
         try {
-            boolean ret =  executorService.invokeAll(this.classifiedCollections.values().stream()
+            return executorService.invokeAll(this.classifiedCollections.values().stream()
                     .map(c -> (Callable<Boolean>) () -> c.addAll(instances)).collect(Collectors.toList())).get(0).get();
-            if (newExecutorService) {
-                executorService.shutdown();
-            }
-            return ret;
         } catch (InterruptedException | ExecutionException e) {
             e.printStackTrace();
             return false;
+        } finally {
+            // The classified collections were modified directly, so the index must be recalculated
+            rebuildIndex();
         }
     }
 
     @Override
     public boolean remove(T instance) {
-        boolean result = false;
-        for (IngredientCollectionSingleClassified<T, M, ?> singleClassified : classifiedCollections.values()) {
-            result = singleClassified.remove(instance);
-        }
-        return result;
+        return unlink(instance, null);
+    }
+
+    /**
+     * Remove all the given instances from the collection.
+     * Large batches are removed in parallel by the shared {@link IngredientCollectionBulkEngine}.
+     * @param instances Instances.
+     * @return The number of removed instances.
+     */
+    @Override
+    public int removeAll(Iterable<? extends T> instances) {
+        return IngredientCollectionBulkEngine.getInstance().removeAll(this, instances);
     }
 
     @Override
@@ -101,13 +157,8 @@ public class IngredientCollectionMultiClassified<T, M> extends IngredientCollect
         // and iterate over all matching elements.
         IngredientCollectionSingleClassified<T, M, ?> classifiedCollection = getBestClassifiedCollection(matchCondition);
 
-        // Determine all other classified collections
-        Set<IngredientCollectionSingleClassified<T, M, ?>> otherClassifiedCollections = Sets.newIdentityHashSet();
-        otherClassifiedCollections.addAll(classifiedCollections.values());
-        otherClassifiedCollections.remove(classifiedCollection);
-
         // Using the best collection's iterator, we remove all its matches,
-        // but we also remove all matches from all other classified collections.
+        // but we also remove all matches from all other classified collections via the index.
         // This is more efficient than calling removeAll on all classified collections directly,
         // since iteration can (most likely) not be done efficiently for all of them.
         Iterator<T> it = classifiedCollection.iterator(instance, matchCondition);
@@ -115,7 +166,7 @@ public class IngredientCollectionMultiClassified<T, M> extends IngredientCollect
         while (it.hasNext()) {
             T removed = it.next();
             it.remove();
-            otherClassifiedCollections.forEach((c) -> c.remove(removed));
+            unlink(removed, classifiedCollection);
             count++;
         }
 
@@ -142,6 +193,7 @@ public class IngredientCollectionMultiClassified<T, M> extends IngredientCollect
         for (IngredientCollectionSingleClassified<T, M, ?> singleClassified : classifiedCollections.values()) {
             singleClassified.clear();
         }
+        this.entries.clear();
     }
 
     @Override
@@ -157,13 +209,12 @@ public class IngredientCollectionMultiClassified<T, M> extends IngredientCollect
 
     @Override
     public Iterator<T> iterator() {
-        return new IIngredientCollectionLikeMultiClassifiedTrait.RemoveCallbackIterator<>(this,
-                null, getComponent().getMatcher().getAnyMatchCondition());
+        return new IndexedRemoveIterator(null, getComponent().getMatcher().getAnyMatchCondition());
     }
 
     @Override
     public Iterator<T> iterator(T instance, M matchCondition) {
-        return new IIngredientCollectionLikeMultiClassifiedTrait.RemoveCallbackIterator<>(this, instance, matchCondition);
+        return new IndexedRemoveIterator(instance, matchCondition);
     }
 
     @Override
@@ -175,4 +226,196 @@ public class IngredientCollectionMultiClassified<T, M> extends IngredientCollect
     public Map<IngredientComponentCategoryType<T, M, ?>, IngredientCollectionSingleClassified<T, M, ?>> getClassifiedCollections() {
         return this.classifiedCollections;
     }
+
+    /**
+     * @return All classified collections, in the order of the category types of the component type.
+     */
+    public List<IngredientCollectionSingleClassified<T, M, ?>> getClassifiedCollectionsList() {
+        return this.classifiedCollectionsList;
+    }
+
+    /**
+     * @param instance An instance.
+     * @return The key of the instance in the index.
+     */
+    protected T getPrototype(T instance) {
+        IIngredientMatcher<T, M> matcher = getComponent().getMatcher();
+        return getComponent().getPrimaryQuantifier() == null || matcher.isEmpty(instance) ? instance
+                : matcher.withQuantity(instance, 1);
+    }
+
+    /**
+     * Remove one occurrence of the given instance from all classified collections using its index entry.
+     * If the instance is not the one of its index entry, it will be classified again.
+     * @param instance An instance.
+     * @param skipCollection An optional classified collection from which the instance was already removed.
+     * @return If the instance was removed.
+     */
+    protected boolean unlink(T instance, @Nullable IngredientCollectionSingleClassified<T, M, ?> skipCollection) {
+        T prototype = getPrototype(instance);
+        Entry<T, M> entry = this.entries.get(prototype);
+        if (entry == null && skipCollection == null) {
+            return false;
+        }
+        boolean cached = entry != null && entry.isInstance(getComponent(), instance);
+        boolean removed = skipCollection != null;
+        for (int i = 0; i < this.classifiedCollectionsList.size(); i++) {
+            IngredientCollectionSingleClassified<T, M, ?> singleClassified = this.classifiedCollectionsList.get(i);
+            if (singleClassified != skipCollection) {
+                if (cached) {
+                    removed |= singleClassified.removeClassified(instance, entry.classifiers[i], entry.collections[i]);
+                } else {
+                    removed |= singleClassified.remove(instance);
+                }
+            }
+        }
+        if (removed && entry != null) {
+            onEntryRemoved(prototype, entry);
+        }
+        return removed;
+    }
+
+    /**
+     * Called when one occurrence of an entry's prototype was removed.
+     * @param prototype The prototype of the entry.
+     * @param entry The entry.
+     */
+    protected void onEntryRemoved(T prototype, Entry<T, M> entry) {
+        if (--entry.count <= 0) {
+            // Collections that merge quantities can still contain the prototype after fewer removals than additions
+            if (getComponent().getPrimaryQuantifier() != null
+                    && contains(prototype, getComponent().getMatcher().getExactMatchNoQuantityCondition())) {
+                entry.count = 1;
+            } else {
+                this.entries.remove(prototype);
+            }
+        }
+    }
+
+    /**
+     * Register an instance that was added to all classified collections in the index.
+     *
+     * This should not be called outside of internal usage,
+     * such as bulk operations that modify the classified collections directly.
+     *
+     * @param instance An instance.
+     * @param classifiers The classifiers of the instance, in the order of {@link #getClassifiedCollectionsList()}.
+     * @param collections The classified collections of the instance, in the order of {@link #getClassifiedCollectionsList()}.
+     */
+    public void onIndexAdded(T instance, Object[] classifiers, IIngredientCollectionMutable<T, M>[] collections) {
+        T prototype = getPrototype(instance);
+        Entry<T, M> entry = this.entries.get(prototype);
+        if (entry == null) {
+            entry = new Entry<>(instance, classifiers, collections);
+            this.entries.put(prototype, entry);
+        } else if (entry.isInstance(getComponent(), instance)) {
+            System.arraycopy(collections, 0, entry.collections, 0, collections.length);
+        }
+        entry.count++;
+    }
+
+    /**
+     * Unregister an instance that was removed from all classified collections from the index.
+     *
+     * This should not be called outside of internal usage,
+     * such as bulk operations that modify the classified collections directly.
+     *
+     * @param instance An instance.
+     */
+    public void onIndexRemoved(T instance) {
+        T prototype = getPrototype(instance);
+        Entry<T, M> entry = this.entries.get(prototype);
+        if (entry != null) {
+            onEntryRemoved(prototype, entry);
+        }
+    }
+
+    /**
+     * Recalculate the index based on the contents of the classified collections.
+     */
+    protected void rebuildIndex() {
+        this.entries.clear();
+        for (T instance : getFirstSingleClassified()) {
+            T prototype = getPrototype(instance);
+            Entry<T, M> entry = this.entries.get(prototype);
+            if (entry == null) {
+                entry = new Entry<>(instance, this.classifiedCollectionsList.size());
+                for (int i = 0; i < entry.classifiers.length; i++) {
+                    IngredientCollectionSingleClassified<T, M, ?> singleClassified = this.classifiedCollectionsList.get(i);
+                    entry.classifiers[i] = singleClassified.getClassifier(instance);
+                    entry.collections[i] = singleClassified.getClassifiedCollections().get(entry.classifiers[i]);
+                }
+                this.entries.put(prototype, entry);
+            }
+            entry.count++;
+        }
+    }
+
+    /**
+     * An index entry for a prototype that is shared by all classified collections,
+     * containing the classifier and classified collection of an instance for each category type,
+     * and the number of occurrences of the prototype.
+     * @param <T> An instance type.
+     * @param <M> The matching condition parameter.
+     */
+    protected static class Entry<T, M> {
+
+        private final T instance;
+        private final Object[] classifiers;
+        private final IIngredientCollectionMutable<T, M>[] collections;
+        private int count;
+
+        @SuppressWarnings("unchecked")
+        public Entry(T instance, int categories) {
+            this(instance, new Object[categories], new IIngredientCollectionMutable[categories]);
+        }
+
+        public Entry(T instance, Object[] classifiers, IIngredientCollectionMutable<T, M>[] collections) {
+            this.instance = instance;
+            this.classifiers = classifiers;
+            this.collections = collections;
+            this.count = 0;
+        }
+
+        /**
+         * @param component The component type.
+         * @param instance An instance.
+         * @return If the classifiers of this entry were determined for the given instance.
+         */
+        public boolean isInstance(IngredientComponent<T, M> component, T instance) {
+            return component.getMatcher().matchesExactly(this.instance, instance);
+        }
+    }
+
+    /**
+     * An iterator over the best classified collection that removes instances from all other classified collections
+     * via the index.
+     */
+    protected class IndexedRemoveIterator implements Iterator<T> {
+
+        private final IngredientCollectionSingleClassified<T, M, ?> classifiedCollection;
+        private final Iterator<T> iterator;
+        private T lastNext;
+
+        public IndexedRemoveIterator(@Nullable T instance, M matchCondition) {
+            this.classifiedCollection = getBestClassifiedCollection(matchCondition);
+            this.iterator = this.classifiedCollection.iterator(instance, matchCondition);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.iterator.hasNext();
+        }
+
+        @Override
+        public T next() {
+            return lastNext = this.iterator.next();
+        }
+
+        @Override
+        public void remove() {
+            this.iterator.remove();
+            unlink(lastNext, this.classifiedCollection);
+        }
+    }
 }
@@ -0,0 +1,131 @@
+package org.cyclops.cyclopscore.ingredient.collection;
+
+import com.google.common.collect.Lists;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A mutable ingredient collection that wraps over another mutable ingredient collection,
+ * and notifies its {@link IIngredientCollectionObserver}s of all instances that are added and removed.
+ *
+ * Only changes that are applied via this wrapper will be observed,
+ * so the inner collection should not be modified directly.
+ *
+ * @param <T> An instance type.
+ * @param <M> The matching condition parameter.
+ */
+public class IngredientCollectionObservableWrapper<T, M, W extends IIngredientCollectionMutable<T, M>>
+        extends IngredientCollectionMutableWrapper<T, M, W> {
+
+    private final List<IIngredientCollectionObserver<T, M>> observers = Lists.newArrayList();
+
+    public IngredientCollectionObservableWrapper(W innerCollection) {
+        super(innerCollection);
+    }
+
+    /**
+     * @param observer An observer that will be notified of all changes from now on.
+     */
+    public void addObserver(IIngredientCollectionObserver<T, M> observer) {
+        this.observers.add(observer);
+    }
+
+    /**
+     * @param observer An observer that should not be notified anymore.
+     */
+    public void removeObserver(IIngredientCollectionObserver<T, M> observer) {
+        this.observers.remove(observer);
+    }
+
+    protected void notifyAdded(T instance) {
+        for (IIngredientCollectionObserver<T, M> observer : this.observers) {
+            observer.onInstanceAdded(instance);
+        }
+    }
+
+    protected void notifyRemoved(T instance) {
+        for (IIngredientCollectionObserver<T, M> observer : this.observers) {
+            observer.onInstanceRemoved(instance);
+        }
+    }
+
+    @Override
+    public boolean add(T instance) {
+        if (super.add(instance)) {
+            notifyAdded(instance);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean addAll(Iterable<? extends T> instances) {
+        boolean changed = false;
+        for (T instance : instances) {
+            changed |= add(instance);
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean remove(T instance) {
+        if (super.remove(instance)) {
+            notifyRemoved(instance);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int removeAll(T instance, M matchCondition) {
+        if (this.observers.isEmpty()) {
+            return super.removeAll(instance, matchCondition);
+        }
+        // Determine the matching instances beforehand, as the inner collection does not expose what it removed.
+        List<T> removedInstances = Lists.newArrayList(iterator(instance, matchCondition));
+        int removed = super.removeAll(instance, matchCondition);
+        for (T removedInstance : removedInstances) {
+            notifyRemoved(removedInstance);
+        }
+        return removed;
+    }
+
+    @Override
+    public int removeAll(Iterable<? extends T> instances) {
+        int removed = 0;
+        for (T instance : instances) {
+            if (remove(instance)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public int removeAll(Iterable<? extends T> instances, M matchCondition) {
+        if (Objects.equals(getComponent().getMatcher().getAnyMatchCondition(), matchCondition)) {
+            int size = size();
+            this.clear();
+            return size;
+        }
+        int removed = 0;
+        for (T instance : instances) {
+            removed += removeAll(instance, matchCondition);
+        }
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        if (this.observers.isEmpty()) {
+            super.clear();
+            return;
+        }
+        List<T> removedInstances = Lists.newArrayList(iterator());
+        super.clear();
+        for (T removedInstance : removedInstances) {
+            notifyRemoved(removedInstance);
+        }
+    }
+}
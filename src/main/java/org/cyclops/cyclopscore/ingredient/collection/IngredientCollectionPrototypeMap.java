@@ -12,7 +12,8 @@ import java.util.Map;
 /**
  * An ingredient collection that stores the collection as an {@link IIngredientMap}
  * where instances are stored as keys and their amounts as values.
- * By default, a {@link IngredientHashMap} will be used as internal map.
+ * By default, a {@link IngredientLongHashMap} will be used as internal map,
+ * which stores quantities as primitive longs.
  *
  * Note: This uses slightly different semantics compared to the {@link IIngredientCollection} interface.
  * For instance, multiple instances that are equal (ignoring quantity) are combined by this collection.
@@ -21,25 +22,31 @@ import java.util.Map;
  * which means that even if an instance is not present,
  * it can still be removed, but it will result in a negative quantity.
  *
+ * Snapshots can be created in constant time if the internal map is {@link IIngredientSnapshottable},
+ * such as {@link IngredientPersistentLongHashMap}.
+ * Otherwise, such as for the default {@link IngredientLongHashMap}, snapshots copy the internal map,
+ * while this collection keeps its internal map.
+ *
  * @param <T> The instance type.
  * @param <M> The matching condition parameter.
  */
 public class IngredientCollectionPrototypeMap<T, M> extends IngredientCollectionAdapter<T, M>
-        implements IIngredientCollapsedCollectionMutable<T, M> {
+        implements IIngredientCollapsedCollectionMutable<T, M>, IIngredientSnapshottable<IngredientCollectionPrototypeMap<T, M>> {
 
-    private final IIngredientMapMutable<T, M, Long> ingredients;
+    private final IIngredientLongMapMutable<T, M> ingredients;
     private final boolean negativeQuantities;
+    private T lastPrototype;
 
     public IngredientCollectionPrototypeMap(IngredientComponent<T, M> component) {
         this(component, false);
     }
 
     public IngredientCollectionPrototypeMap(IngredientComponent<T, M> component, boolean negativeQuantities) {
-        this(component, negativeQuantities, new IngredientHashMap<>(component));
+        this(component, negativeQuantities, new IngredientLongHashMap<>(component));
     }
 
     public IngredientCollectionPrototypeMap(IngredientComponent<T, M> component, boolean negativeQuantities,
-                                            IIngredientMapMutable<T, M, Long> map) {
+                                            IIngredientLongMapMutable<T, M> map) {
         super(component);
         this.ingredients = map;
         this.negativeQuantities = negativeQuantities;
@@ -51,14 +58,20 @@ public class IngredientCollectionPrototypeMap<T, M> extends IngredientCollection
     @Override
     public boolean add(T instance) {
         IIngredientMatcher<T, M> matcher = getComponent().getMatcher();
-        T prototype = getPrototype(instance);
-        Long value = ingredients.get(prototype);
-        long existingValue = value == null ? 0 : value;
-        long newValue = Math.addExact(existingValue, matcher.getQuantity(instance));
-        if (newValue != 0) {
-            ingredients.put(prototype, newValue);
+        T key = getPrototypeKey(instance);
+        long quantity = matcher.getQuantity(instance);
+        long existingValue = ingredients.getLong(key);
+        // Throws before anything was written
+        long newValue = Math.addExact(existingValue, quantity);
+        if (newValue == 0) {
+            if (existingValue != 0) {
+                ingredients.removeLong(key);
+            }
+        } else if (existingValue != 0) {
+            // The map keeps its existing key
+            ingredients.putLong(key, newValue);
         } else {
-            ingredients.remove(prototype);
+            ingredients.putLong(toPrototype(instance, key), newValue);
         }
         return true;
     }
@@ -66,15 +79,17 @@ public class IngredientCollectionPrototypeMap<T, M> extends IngredientCollection
     @Override
     public boolean remove(T instance) {
         IIngredientMatcher<T, M> matcher = getComponent().getMatcher();
-        T prototype = getPrototype(instance);
-        Long value = ingredients.get(prototype);
-        long existingValue = value == null ? 0 : value;
+        T key = getPrototypeKey(instance);
+        long existingValue = ingredients.getLong(key);
         long currentValue = matcher.getQuantity(instance);
         if (currentValue == existingValue) {
-            ingredients.remove(prototype);
+            ingredients.removeLong(key);
             return true;
-        } else if (currentValue < existingValue || isNegativeQuantities()) {
-            ingredients.put(prototype, existingValue - currentValue);
+        } else if (currentValue < existingValue) {
+            ingredients.putLong(key, existingValue - currentValue);
+            return true;
+        } else if (isNegativeQuantities()) {
+            ingredients.putLong(existingValue == 0 ? toPrototype(instance, key) : key, existingValue - currentValue);
             return true;
         }
         return false;
@@ -119,7 +134,7 @@ public class IngredientCollectionPrototypeMap<T, M> extends IngredientCollection
      *         This will contain all non-zero quantity instances, but with a quantity of 1.
      */
     public Iterator<Map.Entry<T, Long>> prototypeIterator(T instance, M matchCondition) {
-        return ingredients.iterator(getPrototype(instance), matchCondition);
+        return ingredients.iterator(getPrototypeKey(instance), matchCondition);
     }
 
     protected T getPrototype(T instance) {
@@ -127,6 +142,37 @@ public class IngredientCollectionPrototypeMap<T, M> extends IngredientCollection
         return matcher.withQuantity(instance, 1);
     }
 
+    /**
+     * Get a key to look up the given instance in the internal map.
+     * Instances with a quantity of one are used directly,
+     * and the last created prototype is reused if it matches,
+     * so that only other instances are copied.
+     * The returned key may be the given instance, so it must not be inserted into the map.
+     * @param instance An instance.
+     * @return A key with a quantity of one.
+     */
+    protected T getPrototypeKey(T instance) {
+        IIngredientMatcher<T, M> matcher = getComponent().getMatcher();
+        if (matcher.getQuantity(instance) == 1) {
+            return instance;
+        }
+        T lastPrototype = this.lastPrototype;
+        if (lastPrototype != null
+                && matcher.matches(lastPrototype, instance, matcher.getExactMatchNoQuantityCondition())) {
+            return lastPrototype;
+        }
+        return this.lastPrototype = getPrototype(instance);
+    }
+
+    /**
+     * @param instance An instance.
+     * @param key The key that was returned by {@link #getPrototypeKey(Object)} for the instance.
+     * @return A prototype that can be inserted into the map.
+     */
+    protected T toPrototype(T instance, T key) {
+        return key == instance ? getPrototype(instance) : key;
+    }
+
     /**
      * Set the quantity of the given instance.
      * @param instance An instance, its quantity will be ignored.
@@ -135,9 +181,9 @@ public class IngredientCollectionPrototypeMap<T, M> extends IngredientCollection
     public void setQuantity(T instance, long quantity) {
         T prototype = getPrototype(instance);
         if (quantity != 0) {
-            ingredients.put(prototype, quantity);
+            ingredients.putLong(prototype, quantity);
         } else {
-            ingredients.remove(prototype);
+            ingredients.removeLong(prototype);
         }
     }
 
@@ -147,8 +193,7 @@ public class IngredientCollectionPrototypeMap<T, M> extends IngredientCollection
      * @return The quantity.
      */
     public long getQuantity(T instance) {
-        Long count = ingredients.get(getPrototype(instance));
-        return count == null ? 0 : count;
+        return ingredients.getLong(getPrototypeKey(instance));
     }
 
     /**
@@ -158,6 +203,17 @@ public class IngredientCollectionPrototypeMap<T, M> extends IngredientCollection
         return negativeQuantities;
     }
 
+    @Override
+    public IngredientCollectionPrototypeMap<T, M> snapshot() {
+        IIngredientLongMapMutable<T, M> snapshot;
+        if (ingredients instanceof IIngredientSnapshottable) {
+            snapshot = ((IIngredientSnapshottable<? extends IIngredientLongMapMutable<T, M>>) ingredients).snapshot();
+        } else {
+            snapshot = new IngredientLongHashMap<>(getComponent(), ingredients);
+        }
+        return new IngredientCollectionPrototypeMap<>(getComponent(), negativeQuantities, snapshot);
+    }
+
     protected static class QuantityApplier<T, M> implements Function<Map.Entry<T, Long>, T> {
 
         private final IIngredientMatcher<T, M> matcher;
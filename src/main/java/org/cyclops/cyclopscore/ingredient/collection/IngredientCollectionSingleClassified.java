@@ -5,6 +5,7 @@ import com.google.common.collect.Maps;
 import org.cyclops.commoncapabilities.api.ingredient.IngredientComponent;
 import org.cyclops.commoncapabilities.api.ingredient.IngredientComponentCategoryType;
 
+import javax.annotation.Nullable;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Objects;
@@ -102,6 +103,50 @@ public class IngredientCollectionSingleClassified<T, M, C> extends IngredientCol
         return false;
     }
 
+    /**
+     * Add the given instance to the classified collection of the given classifier.
+     *
+     * This should not be called outside of internal usage,
+     * such as collections that already determined the classifier of the instance.
+     *
+     * @param instance An instance.
+     * @param classifier The classifier of the instance.
+     * @return The classified collection the instance was added to, or null if it was not added.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public IIngredientCollectionMutable<T, M> addClassified(T instance, Object classifier) {
+        IIngredientCollectionMutable<T, M> collection = getOrCreateClassifiedCollection((C) classifier);
+        if (collection.add(instance)) {
+            this.size++;
+            return collection;
+        }
+        return null;
+    }
+
+    /**
+     * Remove the given instance from the given classified collection.
+     *
+     * This should not be called outside of internal usage,
+     * such as collections that already determined the classifier and classified collection of the instance.
+     *
+     * @param instance An instance.
+     * @param classifier The classifier of the instance.
+     * @param collection The classified collection of the classifier.
+     * @return If the instance was removed.
+     */
+    public boolean removeClassified(T instance, Object classifier, IIngredientCollectionMutable<T, M> collection) {
+        if (collection.remove(instance)) {
+            this.size--;
+            // Cleanup collections map if the collection becomes empty
+            if (collection.isEmpty()) {
+                this.classifiedCollections.remove(classifier);
+            }
+            return true;
+        }
+        return false;
+    }
+
     @Override
     public int removeAll(T instance, M matchCondition) {
         if (Objects.equals(getComponent().getMatcher().getAnyMatchCondition(), matchCondition)) {
@@ -1,6 +1,10 @@
 package org.cyclops.cyclopscore.ingredient.collection;
 
+import com.google.common.collect.Lists;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenCustomHashMap;
+import net.minecraft.nbt.CompressedStreamTools;
 import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTSizeTracker;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.nbt.NBTTagList;
 import net.minecraft.util.ResourceLocation;
@@ -9,9 +13,13 @@ import org.cyclops.commoncapabilities.api.ingredient.IIngredientMatcher;
 import org.cyclops.commoncapabilities.api.ingredient.IIngredientSerializer;
 import org.cyclops.commoncapabilities.api.ingredient.IngredientComponent;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -20,6 +28,13 @@ import java.util.Objects;
  */
 public final class IngredientCollections {
 
+    private static final int BINARY_END = 0;
+    private static final int BINARY_EMPTY = 1;
+    private static final int BINARY_NEW_PROTOTYPE = 2;
+    private static final int BINARY_PROTOTYPE_OFFSET = 3;
+    // The same limit as PacketBuffer#readCompoundTag
+    private static final long BINARY_MAX_PROTOTYPE_SIZE = 2097152L;
+
     IngredientCollections() {
 
     }
@@ -230,15 +245,27 @@ public final class IngredientCollections {
      * @return An NBT tag.
      */
     public static <T, M> NBTTagCompound serialize(IIngredientCollection<T, M> collection) {
-        NBTTagCompound tag = new NBTTagCompound();
+        return serialize(collection.getComponent(), collection.iterator());
+    }
 
-        IngredientComponent<T, M> component = collection.getComponent();
+    /**
+     * Serialize the given instances to an NBT tag,
+     * in the same format as {@link #serialize(IIngredientCollection)}.
+     *
+     * @param component The ingredient component type.
+     * @param instances An iterator over the instances to serialize.
+     * @param <T> The instance type.
+     * @param <M> The matching condition parameter.
+     * @return An NBT tag.
+     */
+    public static <T, M> NBTTagCompound serialize(IngredientComponent<T, M> component, Iterator<T> instances) {
+        NBTTagCompound tag = new NBTTagCompound();
         tag.setString("component", component.getName().toString());
 
         NBTTagList list = new NBTTagList();
         IIngredientSerializer<T, M> serializer = component.getSerializer();
-        for (T ingredient : collection) {
-            list.appendTag(serializer.serializeInstance(ingredient));
+        while (instances.hasNext()) {
+            list.appendTag(serializer.serializeInstance(instances.next()));
         }
         tag.setTag("ingredients", list);
 
@@ -296,6 +323,161 @@ public final class IngredientCollections {
         return deserialize(tag, IngredientArrayList::new);
     }
 
+    /**
+     * Serialize the given collection to a compact binary format.
+     * The type of collection will be lost,
+     * only the component type and the ingredients will be saved.
+     *
+     * @param collection An ingredient collection.
+     * @param output The output to write to.
+     * @param <T> The instance type.
+     * @param <M> The matching condition parameter.
+     * @throws IOException If an I/O error occurs.
+     * @see #serializeBinary(IngredientComponent, Iterator, DataOutput)
+     */
+    public static <T, M> void serializeBinary(IIngredientCollection<T, M> collection, DataOutput output) throws IOException {
+        serializeBinary(collection.getComponent(), collection.iterator(), output);
+    }
+
+    /**
+     * Serialize the given instances to a compact binary format.
+     *
+     * The component name is written once, followed by the instances in iteration order.
+     * Each distinct prototype, which is an instance with quantity one, is only written as NBT when it first occurs,
+     * after that it is referred to by its index.
+     * Quantities and indexes are written as variable-length integers.
+     *
+     * Instances are written while iterating, so no intermediate collection or NBT list is created.
+     * A {@link io.netty.buffer.ByteBufOutputStream} can be used to write to a byte buffer.
+     * For a format that can be stored inside other NBT tags,
+     * {@link #serialize(IngredientComponent, Iterator)} can be used instead.
+     *
+     * @param component The ingredient component type.
+     * @param instances An iterator over the instances to serialize.
+     * @param output The output to write to.
+     * @param <T> The instance type.
+     * @param <M> The matching condition parameter.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static <T, M> void serializeBinary(IngredientComponent<T, M> component, Iterator<T> instances,
+                                              DataOutput output) throws IOException {
+        IIngredientMatcher<T, M> matcher = component.getMatcher();
+        IIngredientSerializer<T, M> serializer = component.getSerializer();
+        output.writeUTF(component.getName().toString());
+
+        Object2IntOpenCustomHashMap<T> prototypes = new Object2IntOpenCustomHashMap<>(new IngredientHashStrategy<>(component));
+        prototypes.defaultReturnValue(-1);
+        while (instances.hasNext()) {
+            T instance = instances.next();
+            if (matcher.isEmpty(instance)) {
+                writeVarLong(output, BINARY_EMPTY);
+                continue;
+            }
+            T prototype = matcher.withQuantity(instance, 1);
+            int index = prototypes.getInt(prototype);
+            if (index < 0) {
+                prototypes.put(prototype, prototypes.size());
+                writeVarLong(output, BINARY_NEW_PROTOTYPE);
+                NBTTagCompound tag = new NBTTagCompound();
+                tag.setTag("prototype", serializer.serializeInstance(prototype));
+                CompressedStreamTools.write(tag, output);
+            } else {
+                writeVarLong(output, BINARY_PROTOTYPE_OFFSET + index);
+            }
+            writeVarLong(output, matcher.getQuantity(instance));
+        }
+        writeVarLong(output, BINARY_END);
+    }
+
+    /**
+     * Deserialize a collection from the binary format of {@link #serializeBinary(IngredientComponent, Iterator, DataOutput)}.
+     *
+     * @param input The input to read from.
+     * @param ingredientCollectionFactory A function that creates a {@link IIngredientCollectionMutable}
+     *                                    from an {@link IngredientComponent}.
+     * @param <C> The collection type.
+     * @return An ingredient collection.
+     * @throws IOException If an I/O error occurs.
+     * @throws IllegalArgumentException If the input was invalid.
+     */
+    public static <C extends IIngredientCollectionMutable<?, ?>> C deserializeBinary(DataInput input,
+                                                                                     IIngredientCollectionConstructor<C>
+                                                                                             ingredientCollectionFactory)
+            throws IOException {
+        String componentTypeName = input.readUTF();
+        IngredientComponent<?, ?> component = IngredientComponent.REGISTRY.getValue(new ResourceLocation(componentTypeName));
+        if (component == null) {
+            throw new IllegalArgumentException("No ingredient component with the given name was found: " + componentTypeName);
+        }
+
+        C collection = ingredientCollectionFactory.create(component);
+        deserializeBinaryInstances(input, component, (IIngredientCollectionMutable) collection);
+        return collection;
+    }
+
+    /**
+     * Deserialize a collection from the binary format of {@link #serializeBinary(IngredientComponent, Iterator, DataOutput)}.
+     *
+     * @param input The input to read from.
+     * @return An ingredient array list.
+     * @throws IOException If an I/O error occurs.
+     * @throws IllegalArgumentException If the input was invalid.
+     */
+    public static IngredientArrayList<?, ?> deserializeBinary(DataInput input) throws IOException {
+        return deserializeBinary(input, IngredientArrayList::new);
+    }
+
+    protected static <T, M> void deserializeBinaryInstances(DataInput input, IngredientComponent<T, M> component,
+                                                            IIngredientCollectionMutable<T, M> collection)
+            throws IOException {
+        IIngredientMatcher<T, M> matcher = component.getMatcher();
+        IIngredientSerializer<T, M> serializer = component.getSerializer();
+        List<T> prototypes = Lists.newArrayList();
+        long code;
+        while ((code = readVarLong(input)) != BINARY_END) {
+            if (code == BINARY_EMPTY) {
+                collection.add(matcher.getEmptyInstance());
+                continue;
+            }
+            T prototype;
+            if (code == BINARY_NEW_PROTOTYPE) {
+                NBTTagCompound tag = CompressedStreamTools.read(input, new NBTSizeTracker(BINARY_MAX_PROTOTYPE_SIZE));
+                prototype = serializer.deserializeInstance(tag.getTag("prototype"));
+                prototypes.add(prototype);
+            } else {
+                long index = code - BINARY_PROTOTYPE_OFFSET;
+                if (index < 0 || index >= prototypes.size()) {
+                    throw new IllegalArgumentException("Invalid ingredient prototype index: " + index);
+                }
+                prototype = prototypes.get((int) index);
+            }
+            collection.add(matcher.withQuantity(prototype, readVarLong(input)));
+        }
+    }
+
+    protected static void writeVarLong(DataOutput output, long value) throws IOException {
+        while ((value & -128L) != 0L) {
+            output.writeByte((int) (value & 127L) | 128);
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    protected static long readVarLong(DataInput input) throws IOException {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            if (shift >= 64) {
+                throw new IOException("Variable-length integer is too long");
+            }
+            b = input.readByte();
+            value |= (long) (b & 127) << shift;
+            shift += 7;
+        } while ((b & 128) != 0);
+        return value;
+    }
+
     /**
      * Helper interface for constructing an {@link IIngredientCollection} based on an {@link IngredientComponent}.
      * @param <C> The storage type.
@@ -0,0 +1,37 @@
+package org.cyclops.cyclopscore.ingredient.collection;
+
+import it.unimi.dsi.fastutil.Hash;
+import org.cyclops.commoncapabilities.api.ingredient.IIngredientMatcher;
+import org.cyclops.commoncapabilities.api.ingredient.IngredientComponent;
+
+/**
+ * A fastutil hash strategy that hashes and compares instances using the matcher of an ingredient component.
+ *
+ * This allows instances to be used directly as keys in fastutil custom hash collections,
+ * without having to wrap them in a {@link org.cyclops.commoncapabilities.api.ingredient.IngredientInstanceWrapper}.
+ *
+ * @param <T> The instance type.
+ * @param <M> The matching condition parameter.
+ */
+public class IngredientHashStrategy<T, M> implements Hash.Strategy<T> {
+
+    private final IIngredientMatcher<T, M> matcher;
+
+    public IngredientHashStrategy(IngredientComponent<T, M> component) {
+        this.matcher = component.getMatcher();
+    }
+
+    @Override
+    public int hashCode(T instance) {
+        return matcher.hash(instance);
+    }
+
+    @Override
+    public boolean equals(T a, T b) {
+        // Fastutil checks for null keys by comparing against null, which not all matchers support.
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return matcher.matchesExactly(a, b);
+    }
+}
@@ -0,0 +1,119 @@
+package org.cyclops.cyclopscore.ingredient.collection;
+
+import com.google.common.collect.Iterators;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenCustomHashMap;
+import org.cyclops.commoncapabilities.api.ingredient.IngredientComponent;
+
+import javax.annotation.Nullable;
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * An ingredient map collection from instances to primitive longs that internally uses
+ * a fastutil {@link Object2LongOpenCustomHashMap} to store instances.
+ *
+ * Instances are stored directly as keys in an open addressing hash table,
+ * and are hashed and compared based on their component type's matcher.
+ * Values are stored as primitive longs, so the primitive methods from {@link IIngredientLongMapMutable}
+ * do not allocate boxed values.
+ *
+ * @see Object2LongOpenCustomHashMap
+ * @param <T> The instance type.
+ * @param <M> The matching condition parameter.
+ */
+public class IngredientLongHashMap<T, M> extends IngredientMapAdapter<T, M, Long> implements IIngredientLongMapMutable<T, M> {
+
+    private final Object2LongOpenCustomHashMap<T> map;
+
+    public IngredientLongHashMap(IngredientComponent<T, M> component) {
+        super(component);
+        this.map = new Object2LongOpenCustomHashMap<>(new IngredientHashStrategy<>(component));
+    }
+
+    public IngredientLongHashMap(IngredientComponent<T, M> component, int expectedSize) {
+        super(component);
+        this.map = new Object2LongOpenCustomHashMap<>(expectedSize, new IngredientHashStrategy<>(component));
+    }
+
+    public IngredientLongHashMap(IngredientComponent<T, M> component, IIngredientMap<? extends T, M, ? extends Long> map) {
+        this(component, map.size());
+        putAll(map);
+    }
+
+    @Override
+    public void clear() {
+        this.map.clear();
+    }
+
+    @Nullable
+    @Override
+    public Long put(T key, Long value) {
+        return this.map.put(key, value);
+    }
+
+    @Nullable
+    @Override
+    public Long remove(T key) {
+        return this.map.remove(key);
+    }
+
+    @Override
+    public int size() {
+        return this.map.size();
+    }
+
+    @Override
+    public boolean containsKey(T instance) {
+        return this.map.containsKey(instance);
+    }
+
+    @Override
+    public boolean containsValue(Long value) {
+        return this.map.containsValue(value);
+    }
+
+    @Nullable
+    @Override
+    public Long get(T key) {
+        return this.map.containsKey(key) ? this.map.getLong(key) : null;
+    }
+
+    @Override
+    public long getLong(T key) {
+        return this.map.getLong(key);
+    }
+
+    @Override
+    public long putLong(T key, long value) {
+        return this.map.put(key, value);
+    }
+
+    @Override
+    public long removeLong(T key) {
+        return this.map.removeLong(key);
+    }
+
+    @Override
+    public long addTo(T key, long increment) {
+        return this.map.addTo(key, increment);
+    }
+
+    @Override
+    public IngredientSet<T, M> keySet() {
+        return new IngredientHashSet<>(this.getComponent(), this.map.keySet());
+    }
+
+    @Override
+    public Collection<Long> values() {
+        return this.map.values();
+    }
+
+    @Override
+    public Iterator<Map.Entry<T, Long>> iterator() {
+        return Iterators.transform(this.map.object2LongEntrySet().iterator(),
+                entry -> new AbstractMap.SimpleEntry<>(entry.getKey(), entry.getLongValue()));
+    }
+
+}
@@ -1,12 +1,13 @@
 package org.cyclops.cyclopscore.ingredient.collection;
 
 import com.google.common.collect.Iterators;
-import com.google.common.collect.Sets;
 import org.cyclops.commoncapabilities.api.ingredient.IngredientComponent;
 import org.cyclops.commoncapabilities.api.ingredient.IngredientInstanceWrapper;
 
 import javax.annotation.Nullable;
+import java.util.AbstractCollection;
 import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
@@ -14,6 +15,8 @@ import java.util.Map;
 /**
  * An abstract ingredient map adapter.
  *
+ * The key set and values are read-only views of the wrapped map.
+ *
  * @param <T> The instance type.
  * @param <M> The matching condition parameter.
  * @param <V> The type of mapped values.
@@ -71,18 +74,60 @@ public abstract class IngredientMapWrappedAdapter<T, M, V, C extends Map<Ingredi
 
     @Override
     public IngredientSet<T, M> keySet() {
-        return new IngredientHashSet<>(this.getComponent(), Sets.newHashSet(this.collection.keySet()));
+        return new IngredientSetView<>(this.getComponent(), new KeySetView());
     }
 
     @Override
     public Collection<V> values() {
-        return this.collection.values();
+        return new ValuesView();
     }
 
     @Override
     public Iterator<Map.Entry<T, V>> iterator() {
-        return Iterators.transform(this.collection.keySet().iterator(),
-                key -> new AbstractMap.SimpleEntry<>(key.getInstance(), this.collection.get(key)));
+        return Iterators.transform(this.collection.entrySet().iterator(),
+                entry -> new AbstractMap.SimpleEntry<>(entry.getKey().getInstance(), entry.getValue()));
+    }
+
+    /**
+     * A read-only view of the keys of the wrapped map.
+     */
+    protected class KeySetView extends AbstractSet<IngredientInstanceWrapper<T, M>> {
+
+        @Override
+        public Iterator<IngredientInstanceWrapper<T, M>> iterator() {
+            return Iterators.unmodifiableIterator(collection.keySet().iterator());
+        }
+
+        @Override
+        public int size() {
+            return collection.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return collection.containsKey(o);
+        }
+    }
+
+    /**
+     * A read-only view of the values of the wrapped map.
+     */
+    protected class ValuesView extends AbstractCollection<V> {
+
+        @Override
+        public Iterator<V> iterator() {
+            return Iterators.unmodifiableIterator(collection.values().iterator());
+        }
+
+        @Override
+        public int size() {
+            return collection.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return collection.containsValue(o);
+        }
     }
 
 }
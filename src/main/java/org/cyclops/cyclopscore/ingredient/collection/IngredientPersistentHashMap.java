@@ -0,0 +1,38 @@
+package org.cyclops.cyclopscore.ingredient.collection;
+
+import org.cyclops.commoncapabilities.api.ingredient.IngredientComponent;
+import org.cyclops.commoncapabilities.api.ingredient.IngredientInstanceWrapper;
+import org.cyclops.cyclopscore.datastructure.PersistentHashMap;
+
+/**
+ * An ingredient map collection that internally uses a {@link PersistentHashMap} to store instances.
+ * This means that key instances are hashed based on their component type's hash method.
+ *
+ * Snapshots share the internal hash trie, so modifying either map only copies the path to the modified entry.
+ * @see PersistentHashMap
+ * @param <T> The instance type.
+ * @param <M> The matching condition parameter.
+ * @param <V> The type of mapped values.
+ */
+public class IngredientPersistentHashMap<T, M, V> extends IngredientMapWrappedAdapter<T, M, V, PersistentHashMap<IngredientInstanceWrapper<T, M>, V>>
+        implements IIngredientSnapshottable<IngredientPersistentHashMap<T, M, V>> {
+
+    public IngredientPersistentHashMap(IngredientComponent<T, M> component) {
+        this(component, new PersistentHashMap<>());
+    }
+
+    public IngredientPersistentHashMap(IngredientComponent<T, M> component, IIngredientMap<? extends T, M, ? extends V> map) {
+        this(component);
+        putAll(map);
+    }
+
+    public IngredientPersistentHashMap(IngredientComponent<T, M> component, PersistentHashMap<IngredientInstanceWrapper<T, M>, V> map) {
+        super(component, map);
+    }
+
+    @Override
+    public IngredientPersistentHashMap<T, M, V> snapshot() {
+        return new IngredientPersistentHashMap<>(getComponent(), getCollection().snapshot());
+    }
+
+}
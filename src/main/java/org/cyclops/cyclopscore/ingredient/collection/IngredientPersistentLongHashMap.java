@@ -0,0 +1,123 @@
+package org.cyclops.cyclopscore.ingredient.collection;
+
+import com.google.common.collect.Iterators;
+import org.cyclops.commoncapabilities.api.ingredient.IngredientComponent;
+import org.cyclops.commoncapabilities.api.ingredient.IngredientInstanceWrapper;
+import org.cyclops.cyclopscore.datastructure.PersistentHashMap;
+
+import javax.annotation.Nullable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * An ingredient map collection from instances to longs that internally uses a {@link PersistentHashMap}
+ * to store instances.
+ *
+ * Instances are stored directly as keys, and are hashed and compared based on their component type's matcher.
+ * Snapshots share the internal hash trie, so modifying either map only copies the path to the modified entry.
+ * Contrary to {@link IngredientLongHashMap}, values are stored boxed.
+ *
+ * @see PersistentHashMap
+ * @param <T> The instance type.
+ * @param <M> The matching condition parameter.
+ */
+public class IngredientPersistentLongHashMap<T, M> extends IngredientMapAdapter<T, M, Long>
+        implements IIngredientLongMapMutable<T, M>, IIngredientSnapshottable<IngredientPersistentLongHashMap<T, M>> {
+
+    private final PersistentHashMap<T, Long> map;
+
+    public IngredientPersistentLongHashMap(IngredientComponent<T, M> component) {
+        this(component, new PersistentHashMap<>(new IngredientHashStrategy<>(component)));
+    }
+
+    public IngredientPersistentLongHashMap(IngredientComponent<T, M> component, IIngredientMap<? extends T, M, ? extends Long> map) {
+        this(component);
+        putAll(map);
+    }
+
+    protected IngredientPersistentLongHashMap(IngredientComponent<T, M> component, PersistentHashMap<T, Long> map) {
+        super(component);
+        this.map = map;
+    }
+
+    @Override
+    public IngredientPersistentLongHashMap<T, M> snapshot() {
+        return new IngredientPersistentLongHashMap<>(getComponent(), this.map.snapshot());
+    }
+
+    @Override
+    public void clear() {
+        this.map.clear();
+    }
+
+    @Nullable
+    @Override
+    public Long put(T key, Long value) {
+        return this.map.put(key, value);
+    }
+
+    @Nullable
+    @Override
+    public Long remove(T key) {
+        return this.map.remove(key);
+    }
+
+    @Override
+    public int size() {
+        return this.map.size();
+    }
+
+    @Override
+    public boolean containsKey(T instance) {
+        return this.map.containsKey(instance);
+    }
+
+    @Override
+    public boolean containsValue(Long value) {
+        return this.map.containsValue(value);
+    }
+
+    @Nullable
+    @Override
+    public Long get(T key) {
+        return this.map.get(key);
+    }
+
+    @Override
+    public IngredientSet<T, M> keySet() {
+        return new IngredientSetView<>(this.getComponent(), new AbstractSet<IngredientInstanceWrapper<T, M>>() {
+            @Override
+            public Iterator<IngredientInstanceWrapper<T, M>> iterator() {
+                return Iterators.unmodifiableIterator(Iterators.transform(map.keySet().iterator(), getComponent()::wrap));
+            }
+
+            @Override
+            public int size() {
+                return map.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof IngredientInstanceWrapper
+                        && ((IngredientInstanceWrapper) o).getComponent() == getComponent()
+                        && map.containsKey(((IngredientInstanceWrapper) o).getInstance());
+            }
+        });
+    }
+
+    @Override
+    public Collection<Long> values() {
+        return Collections.unmodifiableCollection(this.map.values());
+    }
+
+    @Override
+    public Iterator<Map.Entry<T, Long>> iterator() {
+        return Iterators.transform(this.map.entrySet().iterator(),
+                entry -> new AbstractMap.SimpleEntry<>(entry.getKey(), entry.getValue()));
+    }
+
+}
@@ -0,0 +1,38 @@
+package org.cyclops.cyclopscore.ingredient.collection;
+
+import org.cyclops.commoncapabilities.api.ingredient.IngredientComponent;
+import org.cyclops.commoncapabilities.api.ingredient.IngredientInstanceWrapper;
+import org.cyclops.cyclopscore.datastructure.PersistentTreeMap;
+
+/**
+ * An ingredient map collection that internally uses a {@link PersistentTreeMap} to store instances.
+ * This means that key instances are automatically ordered based on their component type's comparator.
+ *
+ * Snapshots share the internal tree, so modifying either map only copies the path to the modified entry.
+ * @see PersistentTreeMap
+ * @param <T> The instance type.
+ * @param <M> The matching condition parameter.
+ * @param <V> The type of mapped values.
+ */
+public class IngredientPersistentTreeMap<T, M, V> extends IngredientMapWrappedAdapter<T, M, V, PersistentTreeMap<IngredientInstanceWrapper<T, M>, V>>
+        implements IIngredientSnapshottable<IngredientPersistentTreeMap<T, M, V>> {
+
+    public IngredientPersistentTreeMap(IngredientComponent<T, M> component) {
+        this(component, new PersistentTreeMap<>());
+    }
+
+    public IngredientPersistentTreeMap(IngredientComponent<T, M> component, IIngredientMap<? extends T, M, ? extends V> map) {
+        this(component);
+        putAll(map);
+    }
+
+    public IngredientPersistentTreeMap(IngredientComponent<T, M> component, PersistentTreeMap<IngredientInstanceWrapper<T, M>, V> map) {
+        super(component, map);
+    }
+
+    @Override
+    public IngredientPersistentTreeMap<T, M, V> snapshot() {
+        return new IngredientPersistentTreeMap<>(getComponent(), getCollection().snapshot());
+    }
+
+}
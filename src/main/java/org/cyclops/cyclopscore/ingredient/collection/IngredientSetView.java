@@ -0,0 +1,21 @@
+package org.cyclops.cyclopscore.ingredient.collection;
+
+import org.cyclops.commoncapabilities.api.ingredient.IngredientComponent;
+import org.cyclops.commoncapabilities.api.ingredient.IngredientInstanceWrapper;
+
+import java.util.Set;
+
+/**
+ * An ingredient set that is backed by a read-only set of wrapped instances,
+ * such as the key set of a map.
+ * Changes to the backing set are visible in this set, and modifications of this set are not supported.
+ * @param <T> The instance type.
+ * @param <M> The matching condition parameter.
+ */
+public class IngredientSetView<T, M> extends IngredientSet<T, M> {
+
+    public IngredientSetView(IngredientComponent<T, M> component, Set<IngredientInstanceWrapper<T, M>> set) {
+        super(component, set);
+    }
+
+}
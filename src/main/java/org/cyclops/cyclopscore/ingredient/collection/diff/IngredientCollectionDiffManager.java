@@ -1,15 +1,26 @@
 package org.cyclops.cyclopscore.ingredient.collection.diff;
 
+import org.cyclops.commoncapabilities.api.ingredient.IIngredientMatcher;
 import org.cyclops.commoncapabilities.api.ingredient.IngredientComponent;
 import org.cyclops.cyclopscore.ingredient.collection.IIngredientCollection;
+import org.cyclops.cyclopscore.ingredient.collection.IIngredientCollectionMutable;
+import org.cyclops.cyclopscore.ingredient.collection.IIngredientCollectionObserver;
+import org.cyclops.cyclopscore.ingredient.collection.IngredientCollectionObservableWrapper;
 import org.cyclops.cyclopscore.ingredient.collection.IngredientCollectionPrototypeMap;
+import org.cyclops.cyclopscore.ingredient.collection.IngredientLinkedList;
 
+import javax.annotation.Nullable;
 import java.util.Iterator;
+import java.util.Map;
 
 /**
  * Observes an {@link IIngredientCollection} to calculate diffs
  * each time {@link #onChange(Iterator)} is called.
  *
+ * Alternatively, this can run in incremental mode by calling {@link #observe(IngredientCollectionObservableWrapper)},
+ * after which {@link #onChange()} calculates diffs based on the journal of observed additions and removals,
+ * which only takes time proportional to the number of changes since the last call.
+ *
  * @param <T> The instance type.
  * @param <M> The matching condition parameter.
  * @author rubensworks
@@ -19,9 +30,17 @@ public class IngredientCollectionDiffManager<T, M> {
     private final IngredientComponent<T, M> ingredientComponent;
     private IngredientCollectionPrototypeMap<T, M> instancesCache;
 
+    @Nullable
+    private IngredientCollectionObservableWrapper<T, M, ?> observedCollection;
+    private final IngredientCollectionPrototypeMap<T, M> journal;
+    private final IIngredientCollectionObserver<T, M> journalObserver;
+
     public IngredientCollectionDiffManager(IngredientComponent<T, M> ingredientComponent) {
         this.ingredientComponent = ingredientComponent;
         this.instancesCache = null;
+        this.observedCollection = null;
+        this.journal = new IngredientCollectionPrototypeMap<>(ingredientComponent, true);
+        this.journalObserver = new JournalObserver();
     }
 
     /**
@@ -43,4 +62,91 @@ public class IngredientCollectionDiffManager<T, M> {
         return diff;
     }
 
+    /**
+     * Start observing the given collection for incremental diff calculation.
+     *
+     * All instances that are currently present in the collection
+     * will be emitted as additions on the next call of {@link #onChange()}.
+     * If another collection was being observed, it will not be observed anymore.
+     *
+     * @param collection The collection to observe.
+     */
+    public void observe(IngredientCollectionObservableWrapper<T, M, ?> collection) {
+        stopObserving();
+        this.observedCollection = collection;
+        for (T instance : collection) {
+            this.journalObserver.onInstanceAdded(instance);
+        }
+        collection.addObserver(this.journalObserver);
+    }
+
+    /**
+     * Stop observing the collection that was passed to {@link #observe(IngredientCollectionObservableWrapper)},
+     * and discard all pending changes.
+     */
+    public void stopObserving() {
+        if (this.observedCollection != null) {
+            this.observedCollection.removeObserver(this.journalObserver);
+            this.observedCollection = null;
+        }
+        this.journal.clear();
+    }
+
+    /**
+     * @return If a collection is being observed for incremental diff calculation.
+     */
+    public boolean isObserving() {
+        return this.observedCollection != null;
+    }
+
+    /**
+     * Calculates the diff of all changes to the observed collection
+     * since the last call of this method.
+     *
+     * @return The diff.
+     * @throws IllegalStateException If no collection is being observed.
+     */
+    public IngredientCollectionDiff<T, M> onChange() throws IllegalStateException {
+        if (this.observedCollection == null) {
+            throw new IllegalStateException("Incremental diffs require a collection to be observed.");
+        }
+
+        IIngredientMatcher<T, M> matcher = ingredientComponent.getMatcher();
+        IIngredientCollectionMutable<T, M> additions = new IngredientLinkedList<>(ingredientComponent);
+        IIngredientCollectionMutable<T, M> deletions = new IngredientLinkedList<>(ingredientComponent);
+        Iterator<Map.Entry<T, Long>> quantitativeIterator = this.journal.prototypeIterator();
+        while (quantitativeIterator.hasNext()) {
+            Map.Entry<T, Long> entry = quantitativeIterator.next();
+            long count = entry.getValue() == null ? 0 : entry.getValue();
+            if (count > 0) {
+                additions.add(matcher.withQuantity(entry.getKey(), count));
+            } else if (count < 0) {
+                deletions.add(matcher.withQuantity(entry.getKey(), -count));
+            }
+        }
+        this.journal.clear();
+
+        return new IngredientCollectionDiff<>(additions, deletions, this.observedCollection.isEmpty());
+    }
+
+    /**
+     * Keeps track of the net quantity changes of all observed instances.
+     */
+    private class JournalObserver implements IIngredientCollectionObserver<T, M> {
+
+        @Override
+        public void onInstanceAdded(T instance) {
+            if (!ingredientComponent.getMatcher().isEmpty(instance)) {
+                journal.add(instance);
+            }
+        }
+
+        @Override
+        public void onInstanceRemoved(T instance) {
+            if (!ingredientComponent.getMatcher().isEmpty(instance)) {
+                journal.remove(instance);
+            }
+        }
+    }
+
 }
@@ -1,5 +1,6 @@
 package org.cyclops.cyclopscore.ingredient.storage;
 
+import com.google.common.collect.Lists;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraftforge.common.util.Constants;
 import org.cyclops.commoncapabilities.api.ingredient.IIngredientMatcher;
@@ -10,9 +11,14 @@ import org.cyclops.cyclopscore.ingredient.collection.IIngredientCollection;
 import org.cyclops.cyclopscore.ingredient.collection.IngredientArrayList;
 import org.cyclops.cyclopscore.ingredient.collection.IngredientCollectionPrototypeMap;
 import org.cyclops.cyclopscore.ingredient.collection.IngredientCollections;
+import org.cyclops.cyclopscore.ingredient.collection.IngredientHashSet;
 
 import javax.annotation.Nullable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.function.Predicate;
 
 /**
@@ -237,6 +243,127 @@ public final class IngredientStorageHelpers {
         return matcher.getEmptyInstance();
     }
 
+    /**
+     * Move all instances that match the given prototype and match condition from source to destination,
+     * until the given maximum total quantity is reached, or nothing can be moved anymore.
+     *
+     * The source is only scanned once, as the movements continue with the next source instance
+     * once the current one is depleted or nothing more of it can be moved.
+     * If the source is slotted, its slots are scanned directly,
+     * otherwise the matching source instances are collected before moving.
+     * Prototypes that the destination did not accept are skipped for the remainder of the call.
+     *
+     * When simulating, the same movements are done on a simulated {@link IngredientStorageMoveView},
+     * which records the simulated contents of source slots and of the destination,
+     * so that each movement is limited by the previous ones.
+     * See that view for the assumptions it makes about the destination.
+     *
+     * @param source A source storage to extract from.
+     * @param destination A destination storage to insert to.
+     * @param prototype The prototype instance, its quantity is ignored.
+     * @param matchCondition The match condition, the quantity condition is ignored.
+     * @param maxTotal The maximum total quantity to move.
+     * @param simulate If the movement should be simulated.
+     * @param <T> The instance type.
+     * @param <M> The matching condition parameter.
+     * @return The moved instances and the operation counters.
+     * @throws InconsistentIngredientInsertionException When ingredients are lost due to inconsistent simulation.
+     */
+    public static <T, M> IngredientStorageMoveResult<T, M> moveAll(IIngredientComponentStorage<T, M> source,
+                                                                  IIngredientComponentStorage<T, M> destination,
+                                                                  T prototype, M matchCondition, long maxTotal,
+                                                                  boolean simulate)
+            throws InconsistentIngredientInsertionException {
+        IngredientComponent<T, M> component = source.getComponent();
+        IIngredientMatcher<T, M> matcher = component.getMatcher();
+        IngredientStorageMoveView<T, M> view = new IngredientStorageMoveView<>(source, destination, simulate);
+        IngredientStorageMoveResult<T, M> result = new IngredientStorageMoveResult<>(component);
+        M matchConditionNoQuantity = matcher.withoutCondition(matchCondition,
+                component.getPrimaryQuantifier().getMatchCondition());
+        IngredientHashSet<T, M> rejectedPrototypes = new IngredientHashSet<>(component);
+        long remaining = maxTotal;
+
+        if (source instanceof IIngredientComponentStorageSlotted) {
+            int slots = ((IIngredientComponentStorageSlotted<T, M>) source).getSlots();
+            for (int slot = 0; slot < slots && remaining > 0; slot++) {
+                result.onScanned();
+                // Keep moving from this slot, as the destination may only accept part of it at once
+                while (remaining > 0) {
+                    T contents = view.getSlotContents(slot);
+                    if (matcher.isEmpty(contents) || !matcher.matches(prototype, contents, matchConditionNoQuantity)
+                            || rejectedPrototypes.contains(matcher.withQuantity(contents, 1))) {
+                        break;
+                    }
+                    T extractedSimulated = view.extract(slot, remaining, true);
+                    result.onExtracted();
+                    if (matcher.isEmpty(extractedSimulated)) {
+                        break;
+                    }
+                    long movableQuantity = view.insertQuantitySimulated(extractedSimulated);
+                    result.onInserted();
+                    if (movableQuantity <= 0) {
+                        rejectedPrototypes.add(matcher.withQuantity(extractedSimulated, 1));
+                        break;
+                    }
+                    T extracted = view.extract(slot, movableQuantity, false);
+                    result.onExtracted();
+                    if (matcher.isEmpty(extracted)) {
+                        break;
+                    }
+                    T moved = view.insertRemainderFixup(extracted);
+                    result.onInserted();
+                    if (matcher.isEmpty(moved)) {
+                        break;
+                    }
+                    result.onMoved(moved);
+                    remaining -= matcher.getQuantity(moved);
+                }
+            }
+        } else {
+            // Collect the candidates first, as extracting while iterating could invalidate the iterator
+            List<T> candidates = Lists.newArrayList(source.iterator(prototype, matchConditionNoQuantity));
+            M matchConditionExact = matcher.getExactMatchNoQuantityCondition();
+            for (int i = 0; i < candidates.size() && remaining > 0; i++) {
+                result.onScanned();
+                T candidate = candidates.get(i);
+                long available = matcher.getQuantity(candidate);
+                // Keep moving this candidate, as the destination may only accept part of it at once
+                while (available > 0 && remaining > 0) {
+                    if (matcher.isEmpty(candidate) || rejectedPrototypes.contains(matcher.withQuantity(candidate, 1))) {
+                        break;
+                    }
+                    long quantity = Math.min(available, remaining);
+                    T extractedSimulated = view.extract(matcher.withQuantity(candidate, quantity), matchConditionExact, true);
+                    result.onExtracted();
+                    if (matcher.isEmpty(extractedSimulated)) {
+                        break;
+                    }
+                    long movableQuantity = view.insertQuantitySimulated(extractedSimulated);
+                    result.onInserted();
+                    if (movableQuantity <= 0) {
+                        rejectedPrototypes.add(matcher.withQuantity(extractedSimulated, 1));
+                        break;
+                    }
+                    T extracted = view.extract(matcher.withQuantity(extractedSimulated, movableQuantity), matchConditionExact, false);
+                    result.onExtracted();
+                    if (matcher.isEmpty(extracted)) {
+                        break;
+                    }
+                    T moved = view.insertRemainderFixup(extracted);
+                    result.onInserted();
+                    if (matcher.isEmpty(moved)) {
+                        break;
+                    }
+                    result.onMoved(moved);
+                    remaining -= matcher.getQuantity(moved);
+                    available -= matcher.getQuantity(moved);
+                }
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Move ingredients from source to target with optional source and target slots,
      * based on an ingredient prototype and match condition.
@@ -410,6 +537,35 @@ public final class IngredientStorageHelpers {
         return matcher.getEmptyInstance();
     }
 
+    /**
+     * Move all instances that match the given prototype and match condition
+     * from any slot in the source to any slot in the destination.
+     *
+     * In contrast to {@link #moveIngredientsSlotted(IIngredientComponentStorage, int, IIngredientComponentStorage, int, Object, Object, boolean)}
+     * with both slots set to -1, this will not only move the first movable instance,
+     * but it will move up to the quantity of the given prototype in total, possibly of different prototypes.
+     * Instead of simulating each pair of source and destination slots,
+     * this creates a {@link IngredientStorageSlottedTransferPlan} and executes it.
+     *
+     * @param source A source storage to extract from.
+     * @param destination A destination storage to insert to.
+     * @param instance The prototype instance, its quantity indicates the maximum total quantity to move.
+     * @param matchCondition The match condition.
+     * @param simulate If the movement should be simulated.
+     * @param <T> The instance type.
+     * @param <M> The matching condition parameter.
+     * @return The moved instances, grouped by prototype.
+     * @throws InconsistentIngredientInsertionException When ingredients are lost due to inconsistent simulation.
+     */
+    public static <T, M> IngredientCollectionPrototypeMap<T, M> moveIngredientsSlottedBulk(IIngredientComponentStorageSlotted<T, M> source,
+                                                                                          IIngredientComponentStorageSlotted<T, M> destination,
+                                                                                          T instance, M matchCondition, boolean simulate)
+            throws InconsistentIngredientInsertionException {
+        IngredientStorageSlottedTransferPlan<T, M> plan = IngredientStorageSlottedTransferPlan.create(source, destination,
+                instance, matchCondition);
+        return simulate ? plan.getPlanned() : plan.execute();
+    }
+
     /**
      * Move ingredients from source to target with optional source and target slots,
      * based on an ingredient predicate.
@@ -855,7 +1011,7 @@ public final class IngredientStorageHelpers {
      * @return An NBT tag.
      */
     public static <T, M> NBTTagCompound serialize(IIngredientComponentStorage<T, M> storage) {
-        NBTTagCompound tag = IngredientCollections.serialize(new IngredientArrayList<>(storage.getComponent(), storage.iterator()));
+        NBTTagCompound tag = IngredientCollections.serialize(storage.getComponent(), storage.iterator());
         tag.setLong("maxQuantity", storage.getMaxQuantity());
         tag.setBoolean("slotted", storage instanceof IIngredientComponentStorageSlotted);
         return tag;
@@ -888,6 +1044,47 @@ public final class IngredientStorageHelpers {
         }
     }
 
+    /**
+     * Serialize the given storage to a compact binary format.
+     *
+     * All ingredients, the max quantity, and whether or not it is slotted will be stored.
+     * Ingredients are written directly from the storage iterator,
+     * see {@link IngredientCollections#serializeBinary(IngredientComponent, Iterator, DataOutput)}.
+     *
+     * @param storage An ingredient storage.
+     * @param output The output to write to.
+     * @param <T> The instance type.
+     * @param <M> The matching condition parameter.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static <T, M> void serializeBinary(IIngredientComponentStorage<T, M> storage, DataOutput output) throws IOException {
+        output.writeLong(storage.getMaxQuantity());
+        output.writeBoolean(storage instanceof IIngredientComponentStorageSlotted);
+        IngredientCollections.serializeBinary(storage.getComponent(), storage.iterator(), output);
+    }
+
+    /**
+     * Deserialize the storage from the binary format of {@link #serializeBinary(IIngredientComponentStorage, DataOutput)}.
+     *
+     * All ingredients, the max quantity, and whether or not it is slotted will be restored.
+     *
+     * @param input The input to read from.
+     * @param rateLimit The rate limit per insertion/extraction.
+     * @return The deserialized storage.
+     * @throws IOException If an I/O error occurs.
+     * @throws IllegalArgumentException If the input was invalid.
+     */
+    public static IIngredientComponentStorage<?, ?> deserializeBinary(DataInput input, long rateLimit) throws IOException {
+        long maxQuantity = input.readLong();
+        if (input.readBoolean()) {
+            return new IngredientComponentStorageSlottedCollectionWrapper<>(
+                    IngredientCollections.deserializeBinary(input, IngredientArrayList::new), maxQuantity, rateLimit);
+        } else {
+            return new IngredientComponentStorageCollectionWrapper<>(
+                    IngredientCollections.deserializeBinary(input, IngredientCollectionPrototypeMap::new), maxQuantity, rateLimit);
+        }
+    }
+
     /**
      * Helper interface for constructing an {@link IIngredientCollection} based on an {@link IngredientComponent}.
      * @param <C> The storage type.
@@ -0,0 +1,91 @@
+package org.cyclops.cyclopscore.ingredient.storage;
+
+import org.cyclops.commoncapabilities.api.ingredient.IngredientComponent;
+import org.cyclops.cyclopscore.ingredient.collection.IngredientCollectionPrototypeMap;
+
+/**
+ * The result of moving multiple instances between two storages,
+ * such as by {@link IngredientStorageHelpers#moveAll(org.cyclops.commoncapabilities.api.ingredient.storage.IIngredientComponentStorage, org.cyclops.commoncapabilities.api.ingredient.storage.IIngredientComponentStorage, Object, Object, long, boolean)}.
+ *
+ * Next to the moved instances, this contains counters of the storage operations that were done.
+ *
+ * @param <T> The instance type.
+ * @param <M> The matching condition parameter.
+ */
+public class IngredientStorageMoveResult<T, M> {
+
+    private final IngredientCollectionPrototypeMap<T, M> moved;
+    private int scanned = 0;
+    private int extractions = 0;
+    private int insertions = 0;
+    private int movements = 0;
+
+    public IngredientStorageMoveResult(IngredientComponent<T, M> component) {
+        this.moved = new IngredientCollectionPrototypeMap<>(component);
+    }
+
+    /**
+     * @return The moved instances, grouped by prototype.
+     */
+    public IngredientCollectionPrototypeMap<T, M> getMoved() {
+        return moved;
+    }
+
+    /**
+     * @return The total moved quantity.
+     */
+    public long getMovedQuantity() {
+        long quantity = 0;
+        IngredientComponent<T, M> component = moved.getComponent();
+        for (T instance : moved) {
+            quantity += component.getMatcher().getQuantity(instance);
+        }
+        return quantity;
+    }
+
+    /**
+     * @return The number of source instances or slots that were checked.
+     */
+    public int getScanned() {
+        return scanned;
+    }
+
+    /**
+     * @return The number of extract calls on the source, including simulated ones.
+     */
+    public int getExtractions() {
+        return extractions;
+    }
+
+    /**
+     * @return The number of insert calls on the destination, including simulated ones.
+     */
+    public int getInsertions() {
+        return insertions;
+    }
+
+    /**
+     * @return The number of non-empty movements.
+     */
+    public int getMovements() {
+        return movements;
+    }
+
+    protected void onScanned() {
+        scanned++;
+    }
+
+    protected void onExtracted() {
+        extractions++;
+    }
+
+    protected void onInserted() {
+        insertions++;
+    }
+
+    protected void onMoved(T instance) {
+        moved.add(instance);
+        movements++;
+    }
+
+}
@@ -0,0 +1,196 @@
+package org.cyclops.cyclopscore.ingredient.storage;
+
+import it.unimi.dsi.fastutil.ints.Int2LongMap;
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import org.cyclops.commoncapabilities.api.ingredient.IIngredientMatcher;
+import org.cyclops.commoncapabilities.api.ingredient.storage.IIngredientComponentStorage;
+import org.cyclops.commoncapabilities.api.ingredient.storage.IIngredientComponentStorageSlotted;
+
+/**
+ * A view of the source and destination storage of a sequence of movements,
+ * as used by {@link IngredientStorageHelpers#moveAll(IIngredientComponentStorage, IIngredientComponentStorage, Object, Object, long, boolean)}.
+ *
+ * If the view is simulated, the storages are never modified.
+ * Instead, the quantities that were extracted from source slots and inserted into the destination are recorded,
+ * and later operations are simulated on top of them.
+ * Each simulated operation is first simulated on the actual storage,
+ * so that limits per operation, such as rate limits and filters, are applied as in a real movement.
+ * The result is then limited by the recorded operations:
+ * <ul>
+ *     <li>Extractions from a source slot are limited to what remains in that slot.</li>
+ *     <li>For a slotted destination, the contents that were inserted into each slot are recorded,
+ *     where a slot only accepts instances that are equal to what it already contains,
+ *     up to {@link IIngredientComponentStorageSlotted#getMaxQuantity(int)}.</li>
+ *     <li>For other destinations, insertions are limited to the remaining quantity
+ *     up to {@link IIngredientComponentStorage#getMaxQuantity()}.</li>
+ * </ul>
+ *
+ * @param <T> The instance type.
+ * @param <M> The matching condition parameter.
+ */
+public class IngredientStorageMoveView<T, M> {
+
+    private final IIngredientComponentStorage<T, M> source;
+    private final IIngredientComponentStorage<T, M> destination;
+    private final boolean simulate;
+    private final IIngredientMatcher<T, M> matcher;
+
+    private final Int2LongMap extractedSlots;
+    private final Int2ObjectMap<T> insertedSlots;
+    private long destinationQuantity = -1;
+
+    public IngredientStorageMoveView(IIngredientComponentStorage<T, M> source,
+                                     IIngredientComponentStorage<T, M> destination, boolean simulate) {
+        this.source = source;
+        this.destination = destination;
+        this.simulate = simulate;
+        this.matcher = source.getComponent().getMatcher();
+        this.extractedSlots = simulate ? new Int2LongOpenHashMap() : null;
+        this.insertedSlots = simulate ? new Int2ObjectOpenHashMap<>() : null;
+    }
+
+    /**
+     * @return If the storages are never modified by this view.
+     */
+    public boolean isSimulate() {
+        return simulate;
+    }
+
+    /**
+     * @param slot A slot of the slotted source.
+     * @return The contents of the slot, without the quantity that was extracted within this view.
+     */
+    public T getSlotContents(int slot) {
+        T contents = ((IIngredientComponentStorageSlotted<T, M>) source).getSlotContents(slot);
+        if (!simulate || matcher.isEmpty(contents)) {
+            return contents;
+        }
+        long quantity = matcher.getQuantity(contents) - extractedSlots.get(slot);
+        return quantity <= 0 ? matcher.getEmptyInstance() : matcher.withQuantity(contents, quantity);
+    }
+
+    /**
+     * Extract from a slot of the slotted source.
+     * @param slot A slot.
+     * @param maxQuantity The maximum quantity to extract.
+     * @param simulate If the extraction should only be simulated within this view.
+     * @return The extracted instance.
+     */
+    public T extract(int slot, long maxQuantity, boolean simulate) {
+        IIngredientComponentStorageSlotted<T, M> sourceSlotted = (IIngredientComponentStorageSlotted<T, M>) source;
+        if (!this.simulate) {
+            return sourceSlotted.extract(slot, maxQuantity, simulate);
+        }
+        long quantity = Math.min(maxQuantity, matcher.getQuantity(getSlotContents(slot)));
+        if (quantity <= 0) {
+            return matcher.getEmptyInstance();
+        }
+        T extracted = sourceSlotted.extract(slot, quantity, true);
+        if (!simulate && !matcher.isEmpty(extracted)) {
+            extractedSlots.put(slot, extractedSlots.get(slot) + matcher.getQuantity(extracted));
+        }
+        return extracted;
+    }
+
+    /**
+     * Extract from the source.
+     * The caller is responsible for not extracting more than the source contains.
+     * @param prototype The instance to extract, including its quantity.
+     * @param matchCondition The match condition.
+     * @param simulate If the extraction should only be simulated within this view.
+     * @return The extracted instance.
+     */
+    public T extract(T prototype, M matchCondition, boolean simulate) {
+        return source.extract(prototype, matchCondition, simulate || this.simulate);
+    }
+
+    /**
+     * Simulate an insertion into the destination within this view.
+     * @param instance The instance to insert.
+     * @return The quantity that would be inserted.
+     */
+    public long insertQuantitySimulated(T instance) {
+        long quantity = IngredientStorageHelpers.insertIngredientQuantity(destination, instance, true);
+        if (!simulate || quantity <= 0) {
+            return quantity;
+        }
+        if (destination instanceof IIngredientComponentStorageSlotted) {
+            IIngredientComponentStorageSlotted<T, M> destinationSlotted = (IIngredientComponentStorageSlotted<T, M>) destination;
+            long capacity = 0;
+            for (int slot = 0; slot < destinationSlotted.getSlots() && capacity < quantity; slot++) {
+                capacity += getSlotCapacity(destinationSlotted, slot, instance);
+            }
+            return Math.min(quantity, capacity);
+        }
+        return Math.min(quantity, Math.max(0, destination.getMaxQuantity() - getDestinationQuantity()));
+    }
+
+    /**
+     * Get the quantity of the given instance that a slot of the destination would accept within this view.
+     * @param destinationSlotted The slotted destination.
+     * @param slot A slot.
+     * @param instance The instance to insert.
+     * @return The quantity that the slot would accept.
+     */
+    protected long getSlotCapacity(IIngredientComponentStorageSlotted<T, M> destinationSlotted, int slot, T instance) {
+        T inserted = insertedSlots.get(slot);
+        if (inserted == null) {
+            return matcher.getQuantity(instance)
+                    - matcher.getQuantity(destinationSlotted.insert(slot, instance, true));
+        }
+        if (!matcher.matches(inserted, instance, matcher.getExactMatchNoQuantityCondition())) {
+            return 0;
+        }
+        long quantity = matcher.getQuantity(destinationSlotted.getSlotContents(slot)) + matcher.getQuantity(inserted);
+        return Math.min(matcher.getQuantity(instance), Math.max(0, destinationSlotted.getMaxQuantity(slot) - quantity));
+    }
+
+    protected long getDestinationQuantity() {
+        if (destinationQuantity < 0) {
+            destinationQuantity = 0;
+            for (T instance : destination) {
+                destinationQuantity += matcher.getQuantity(instance);
+            }
+        }
+        return destinationQuantity;
+    }
+
+    /**
+     * Insert an instance that was extracted from the source into the destination,
+     * where the remainder is inserted back into the source,
+     * see {@link IngredientStorageHelpers#insertIngredientRemainderFixup(IIngredientComponentStorage, IIngredientComponentStorage, Object, boolean)}.
+     * @param instance The extracted instance.
+     * @return The inserted instance.
+     * @throws InconsistentIngredientInsertionException When ingredients are lost due to inconsistent simulation.
+     */
+    public T insertRemainderFixup(T instance) throws InconsistentIngredientInsertionException {
+        if (!simulate) {
+            return IngredientStorageHelpers.insertIngredientRemainderFixup(source, destination, instance, false);
+        }
+        long quantity = insertQuantitySimulated(instance);
+        if (quantity <= 0) {
+            return matcher.getEmptyInstance();
+        }
+        if (destination instanceof IIngredientComponentStorageSlotted) {
+            // Distribute the inserted quantity over the slots in order
+            IIngredientComponentStorageSlotted<T, M> destinationSlotted = (IIngredientComponentStorageSlotted<T, M>) destination;
+            long remaining = quantity;
+            for (int slot = 0; slot < destinationSlotted.getSlots() && remaining > 0; slot++) {
+                long slotQuantity = Math.min(remaining,
+                        getSlotCapacity(destinationSlotted, slot, matcher.withQuantity(instance, remaining)));
+                if (slotQuantity > 0) {
+                    T inserted = insertedSlots.get(slot);
+                    insertedSlots.put(slot, matcher.withQuantity(instance,
+                            (inserted == null ? 0 : matcher.getQuantity(inserted)) + slotQuantity));
+                    remaining -= slotQuantity;
+                }
+            }
+        } else {
+            destinationQuantity = getDestinationQuantity() + quantity;
+        }
+        return matcher.withQuantity(instance, quantity);
+    }
+
+}
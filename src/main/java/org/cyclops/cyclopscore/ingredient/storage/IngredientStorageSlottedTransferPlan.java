@@ -0,0 +1,253 @@
+package org.cyclops.cyclopscore.ingredient.storage;
+
+import com.google.common.collect.Lists;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import org.cyclops.commoncapabilities.api.ingredient.IIngredientMatcher;
+import org.cyclops.commoncapabilities.api.ingredient.IngredientComponent;
+import org.cyclops.commoncapabilities.api.ingredient.storage.IIngredientComponentStorageSlotted;
+import org.cyclops.cyclopscore.ingredient.collection.IngredientCollectionPrototypeMap;
+import org.cyclops.cyclopscore.ingredient.collection.IngredientHashMap;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * A plan for moving instances between all slots of two {@link IIngredientComponentStorageSlotted}'s in bulk.
+ *
+ * The plan is created by scanning the source slots once to summarize the available quantity per prototype,
+ * and scanning the destination slots once to find the slots that can accept these prototypes.
+ * Slots that already contain a prototype are filled before empty slots.
+ * Executing the plan only does the real extractions and insertions that were planned,
+ * instead of simulating every source and destination slot pair.
+ *
+ * A plan should be executed directly after it was created, as it does not detect storage changes in between.
+ *
+ * @param <T> The instance type.
+ * @param <M> The matching condition parameter.
+ */
+public class IngredientStorageSlottedTransferPlan<T, M> {
+
+    private final IIngredientComponentStorageSlotted<T, M> source;
+    private final IIngredientComponentStorageSlotted<T, M> destination;
+    private final IntArrayList sourceSlots = new IntArrayList();
+    private final IntArrayList destinationSlots = new IntArrayList();
+    private final List<T> instances = Lists.newArrayList();
+    private final IngredientCollectionPrototypeMap<T, M> planned;
+
+    protected IngredientStorageSlottedTransferPlan(IIngredientComponentStorageSlotted<T, M> source,
+                                                   IIngredientComponentStorageSlotted<T, M> destination) {
+        this.source = source;
+        this.destination = destination;
+        this.planned = new IngredientCollectionPrototypeMap<>(source.getComponent());
+    }
+
+    /**
+     * Create a plan for moving instances that match the given prototype and match condition
+     * from any source slot to any destination slot.
+     *
+     * The quantity of the given prototype indicates the maximum total quantity to move.
+     * If the match condition includes the quantity, then either exactly this quantity will be planned, or nothing.
+     *
+     * @param source A source storage to extract from.
+     * @param destination A destination storage to insert to.
+     * @param instance The prototype instance.
+     * @param matchCondition The match condition.
+     * @param <T> The instance type.
+     * @param <M> The matching condition parameter.
+     * @return A new plan.
+     */
+    public static <T, M> IngredientStorageSlottedTransferPlan<T, M> create(IIngredientComponentStorageSlotted<T, M> source,
+                                                                          IIngredientComponentStorageSlotted<T, M> destination,
+                                                                          T instance, M matchCondition) {
+        IngredientComponent<T, M> component = source.getComponent();
+        IIngredientMatcher<T, M> matcher = component.getMatcher();
+        IngredientStorageSlottedTransferPlan<T, M> plan = new IngredientStorageSlottedTransferPlan<>(source, destination);
+        long maxQuantity = matcher.getQuantity(instance);
+        if (maxQuantity <= 0) {
+            return plan;
+        }
+        M quantityCondition = component.getPrimaryQuantifier().getMatchCondition();
+        M matchConditionNoQuantity = matcher.withoutCondition(matchCondition, quantityCondition);
+        boolean exactQuantity = matcher.hasCondition(matchCondition, quantityCondition);
+
+        // Summarize the available source quantities per prototype
+        List<PrototypeSummary<T>> summaries = Lists.newArrayList();
+        IngredientHashMap<T, M, PrototypeSummary<T>> summaryIndex = new IngredientHashMap<>(component);
+        int sourceSlotCount = source.getSlots();
+        for (int slot = 0; slot < sourceSlotCount; slot++) {
+            T contents = source.getSlotContents(slot);
+            if (matcher.isEmpty(contents) || !matcher.matches(instance, contents, matchConditionNoQuantity)) {
+                continue;
+            }
+            T available = source.extract(slot, maxQuantity, true);
+            if (matcher.isEmpty(available)) {
+                continue;
+            }
+            T prototype = matcher.withQuantity(available, 1);
+            PrototypeSummary<T> summary = summaryIndex.get(prototype);
+            if (summary == null) {
+                summary = new PrototypeSummary<>(prototype);
+                summaryIndex.put(prototype, summary);
+                summaries.add(summary);
+            }
+            long quantity = matcher.getQuantity(available);
+            summary.sourceSlots.add(slot);
+            summary.sourceQuantities.add(quantity);
+            summary.quantity += quantity;
+        }
+        if (summaries.isEmpty()) {
+            return plan;
+        }
+
+        // Find the empty destination slots, and the destination slots that contain a source prototype
+        IntArrayList emptySlots = new IntArrayList();
+        int destinationSlotCount = destination.getSlots();
+        for (int slot = 0; slot < destinationSlotCount; slot++) {
+            T contents = destination.getSlotContents(slot);
+            if (matcher.isEmpty(contents)) {
+                emptySlots.add(slot);
+            } else {
+                PrototypeSummary<T> summary = summaryIndex.get(matcher.withQuantity(contents, 1));
+                if (summary != null) {
+                    summary.destinationSlots.add(slot);
+                }
+            }
+        }
+
+        // Assign the source quantities to destination slots
+        long remaining = maxQuantity;
+        BitSet usedEmptySlots = new BitSet(destinationSlotCount);
+        for (PrototypeSummary<T> summary : summaries) {
+            long remainingPrototype = Math.min(summary.quantity, remaining);
+            int destinationIndex = 0;
+            int emptySlotIndex = 0;
+            int destinationSlot = -1;
+            long destinationCapacity = 0;
+            sourceLoop:
+            for (int i = 0; i < summary.sourceSlots.size(); i++) {
+                int sourceSlot = summary.sourceSlots.getInt(i);
+                long toMove = Math.min(summary.sourceQuantities.getLong(i), remainingPrototype);
+                while (toMove > 0) {
+                    if (destinationCapacity <= 0) {
+                        // Select the next destination slot
+                        boolean emptySlot = false;
+                        if (destinationIndex < summary.destinationSlots.size()) {
+                            destinationSlot = summary.destinationSlots.getInt(destinationIndex++);
+                        } else if (emptySlotIndex < emptySlots.size()) {
+                            destinationSlot = emptySlots.getInt(emptySlotIndex++);
+                            emptySlot = true;
+                        } else {
+                            break sourceLoop;
+                        }
+                        T remainingInsert = destination.insert(destinationSlot,
+                                matcher.withQuantity(summary.prototype, remainingPrototype), true);
+                        destinationCapacity = remainingPrototype - matcher.getQuantity(remainingInsert);
+                        if (emptySlot && destinationCapacity > 0) {
+                            usedEmptySlots.set(destinationSlot);
+                        }
+                        continue;
+                    }
+                    long moved = Math.min(toMove, destinationCapacity);
+                    plan.add(sourceSlot, destinationSlot, matcher.withQuantity(summary.prototype, moved));
+                    toMove -= moved;
+                    destinationCapacity -= moved;
+                    remainingPrototype -= moved;
+                    remaining -= moved;
+                }
+                if (remainingPrototype == 0) {
+                    break;
+                }
+            }
+            if (remaining == 0) {
+                break;
+            }
+            // Empty slots that were filled with this prototype can not accept other prototypes anymore
+            if (!usedEmptySlots.isEmpty()) {
+                emptySlots.removeIf(usedEmptySlots::get);
+                usedEmptySlots.clear();
+            }
+        }
+
+        if (exactQuantity && remaining != 0) {
+            return new IngredientStorageSlottedTransferPlan<>(source, destination);
+        }
+        return plan;
+    }
+
+    protected void add(int sourceSlot, int destinationSlot, T instance) {
+        sourceSlots.add(sourceSlot);
+        destinationSlots.add(destinationSlot);
+        instances.add(instance);
+        planned.add(instance);
+    }
+
+    /**
+     * @return The instances that are planned to be moved, grouped by prototype.
+     */
+    public IngredientCollectionPrototypeMap<T, M> getPlanned() {
+        return planned;
+    }
+
+    /**
+     * @return The number of extract and insert pairs that will be done on execution.
+     */
+    public int getTransferCount() {
+        return instances.size();
+    }
+
+    /**
+     * Execute this plan.
+     * @return The instances that were effectively moved, grouped by prototype.
+     * @throws InconsistentIngredientInsertionException When ingredients are lost due to inconsistent simulation.
+     */
+    public IngredientCollectionPrototypeMap<T, M> execute() throws InconsistentIngredientInsertionException {
+        IngredientComponent<T, M> component = source.getComponent();
+        IIngredientMatcher<T, M> matcher = component.getMatcher();
+        IngredientCollectionPrototypeMap<T, M> moved = new IngredientCollectionPrototypeMap<>(component);
+        for (int i = 0; i < instances.size(); i++) {
+            int sourceSlot = sourceSlots.getInt(i);
+            int destinationSlot = destinationSlots.getInt(i);
+            T extracted = source.extract(sourceSlot, matcher.getQuantity(instances.get(i)), false);
+            // If the source was lying during planning, nothing has been moved for this transfer.
+            if (matcher.isEmpty(extracted)) {
+                continue;
+            }
+            // Remaining should be empty, otherwise the destination was lying during planning
+            T remaining = destination.insert(destinationSlot, extracted, false);
+            if (!matcher.isEmpty(remaining)) {
+                // If the destination was lying, try to add the remainder back into the source.
+                // If even that fails, throw an error.
+                T remainderFixup = source.insert(sourceSlot, remaining, false);
+                if (!matcher.isEmpty(remainderFixup)) {
+                    T movedActual = matcher.withQuantity(remaining,
+                            matcher.getQuantity(extracted)
+                                    - matcher.getQuantity(remaining)
+                                    + matcher.getQuantity(remainderFixup));
+                    throw new InconsistentIngredientInsertionException(component, destination, remainderFixup, movedActual);
+                }
+                long movedQuantity = matcher.getQuantity(extracted) - matcher.getQuantity(remaining);
+                if (movedQuantity == 0) {
+                    continue;
+                }
+                extracted = matcher.withQuantity(extracted, movedQuantity);
+            }
+            moved.add(extracted);
+        }
+        return moved;
+    }
+
+    protected static class PrototypeSummary<T> {
+
+        private final T prototype;
+        private final IntArrayList sourceSlots = new IntArrayList();
+        private final LongArrayList sourceQuantities = new LongArrayList();
+        private final IntArrayList destinationSlots = new IntArrayList();
+        private long quantity = 0;
+
+        public PrototypeSummary(T prototype) {
+            this.prototype = prototype;
+        }
+    }
+
+}
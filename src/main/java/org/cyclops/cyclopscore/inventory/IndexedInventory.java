@@ -3,25 +3,34 @@ package org.cyclops.cyclopscore.inventory;
 import com.google.common.collect.Maps;
 import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
-import it.unimi.dsi.fastutil.ints.IntAVLTreeSet;
-import it.unimi.dsi.fastutil.ints.IntSet;
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
 
+import java.util.BitSet;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.PrimitiveIterator;
 
 /**
  * An inventory that adds an index from item to slot on a regular inventory.
+ *
+ * Next to the index by item, a second-level index groups the slots of each item
+ * by a hash of their damage value and NBT tag, see {@link #getExactHash(ItemStack)},
+ * so that stacks that are equal in item, damage and NBT can be found without checking all slots of that item.
+ * The hash of a slot is taken when its stack is set or read from NBT,
+ * so stacks whose damage or NBT tag are modified in place must be set again,
+ * or {@link #markSlotDirty(int)} must be called for their slot.
+ * Empty and non-empty slots are tracked in a bitset.
  * @author rubensworks
  *
  */
 public class IndexedInventory extends LargeInventory implements IndexedSlotlessItemHandlerWrapper.IInventoryIndexReference {
 
     private final Map<Item, Int2ObjectMap<ItemStack>> index = Maps.newIdentityHashMap();
-    private IntSet emptySlots;
-    private IntSet nonEmptySlots;
+    private final Map<Item, Int2ObjectMap<Int2ObjectMap<ItemStack>>> exactIndex = Maps.newIdentityHashMap();
+    private int[] exactHashes;
+    private BitSet nonEmptySlots;
 
     /**
      * Default constructor for NBT persistence, don't call this yourself.
@@ -38,84 +47,146 @@ public class IndexedInventory extends LargeInventory implements IndexedSlotlessI
      */
     public IndexedInventory(int size, String name, int stackLimit) {
         super(size, name, stackLimit);
-        this.emptySlots = new IntAVLTreeSet();
-        this.nonEmptySlots = new IntAVLTreeSet();
+        this.exactHashes = new int[size];
+        this.nonEmptySlots = new BitSet(size);
         createIndex();
     }
 
+    /**
+     * Calculate the hash of the damage value and NBT tag of the given stack,
+     * which is used as key in the second-level index.
+     * Different stacks can have the same hash, so matches within the index must still be checked.
+     * @param itemStack A non-empty item stack.
+     * @return The hash.
+     */
+    public static int getExactHash(ItemStack itemStack) {
+        NBTTagCompound tag = itemStack.getTagCompound();
+        return 31 * itemStack.getItemDamage() + (tag == null ? 0 : tag.hashCode());
+    }
+
     protected void createIndex() {
         this.index.clear();
+        this.exactIndex.clear();
         this.nonEmptySlots.clear();
-        this.emptySlots.clear();
         for (int i = 0; i < getSizeInventory(); i++) {
             ItemStack itemStack = getStackInSlot(i);
             if (!itemStack.isEmpty()) {
-                Int2ObjectMap<ItemStack> stacks = index.get(itemStack.getItem());
-                if (stacks == null) {
-                    stacks = new Int2ObjectOpenHashMap<>();
-                    index.put(itemStack.getItem(), stacks);
-                }
-                stacks.put(i, itemStack);
-                this.nonEmptySlots.add(i);
-            } else {
-                this.emptySlots.add(i);
+                addToIndex(i, itemStack);
+                this.nonEmptySlots.set(i);
             }
         }
     }
 
-    @Override
-    public void readFromNBT(NBTTagCompound data, String tag) {
-        super.readFromNBT(data, tag);
-        createIndex();
+    protected void addToIndex(int slotId, ItemStack itemStack) {
+        Int2ObjectMap<ItemStack> stacks = index.get(itemStack.getItem());
+        if (stacks == null) {
+            stacks = new Int2ObjectOpenHashMap<>();
+            index.put(itemStack.getItem(), stacks);
+        }
+        stacks.put(slotId, itemStack);
+        addToExactIndex(slotId, itemStack, getExactHash(itemStack));
     }
 
-    @Override
-    public void setInventorySlotContents(int slotId, ItemStack itemStack) {
-        // Update index
-        ItemStack oldStack = getStackInSlot(slotId);
-        boolean wasEmpty = oldStack.isEmpty();
-        boolean isEmpty = itemStack.isEmpty();
-        if (!oldStack.isEmpty()) {
-            Int2ObjectMap<ItemStack> stacks = index.get(oldStack.getItem());
-            if (stacks != null) {
-                stacks.remove(slotId);
-            }
+    protected void addToExactIndex(int slotId, ItemStack itemStack, int exactHash) {
+        this.exactHashes[slotId] = exactHash;
+        Int2ObjectMap<Int2ObjectMap<ItemStack>> buckets = exactIndex.get(itemStack.getItem());
+        if (buckets == null) {
+            buckets = new Int2ObjectOpenHashMap<>();
+            exactIndex.put(itemStack.getItem(), buckets);
+        }
+        Int2ObjectMap<ItemStack> bucket = buckets.get(exactHash);
+        if (bucket == null) {
+            bucket = new Int2ObjectOpenHashMap<>();
+            buckets.put(exactHash, bucket);
+        }
+        bucket.put(slotId, itemStack);
+    }
+
+    protected void removeFromIndex(int slotId, ItemStack itemStack) {
+        Int2ObjectMap<ItemStack> stacks = index.get(itemStack.getItem());
+        if (stacks != null) {
+            stacks.remove(slotId);
             if (stacks.isEmpty()) {
-                index.remove(oldStack.getItem());
+                index.remove(itemStack.getItem());
             }
         }
-        if (!itemStack.isEmpty()) {
-            Int2ObjectMap<ItemStack> stacks = index.get(itemStack.getItem());
-            if (stacks == null) {
-                stacks = new Int2ObjectOpenHashMap<>();
-                index.put(itemStack.getItem(), stacks);
+        removeFromExactIndex(slotId, itemStack);
+    }
+
+    protected void removeFromExactIndex(int slotId, ItemStack itemStack) {
+        // The stored hash is used, as the tag of the stack may have been modified after it was indexed.
+        int exactHash = this.exactHashes[slotId];
+        Int2ObjectMap<Int2ObjectMap<ItemStack>> buckets = exactIndex.get(itemStack.getItem());
+        if (buckets != null) {
+            Int2ObjectMap<ItemStack> bucket = buckets.get(exactHash);
+            if (bucket != null) {
+                bucket.remove(slotId);
+                if (bucket.isEmpty()) {
+                    buckets.remove(exactHash);
+                    if (buckets.isEmpty()) {
+                        exactIndex.remove(itemStack.getItem());
+                    }
+                }
             }
-            stacks.put(slotId, itemStack);
         }
+    }
 
-        // Call super
-        super.setInventorySlotContents(slotId, itemStack);
-
-        // Update first and last values
-        if (wasEmpty && !isEmpty) {
-            this.emptySlots.remove(slotId);
-            this.nonEmptySlots.add(slotId);
+    protected void updateIndex(int slotId, ItemStack oldStack, ItemStack itemStack) {
+        if (!oldStack.isEmpty()) {
+            removeFromIndex(slotId, oldStack);
+        }
+        if (!itemStack.isEmpty()) {
+            addToIndex(slotId, itemStack);
         }
-        if (!wasEmpty && isEmpty) {
-            this.emptySlots.add(slotId);
-            this.nonEmptySlots.remove(slotId);
+        this.nonEmptySlots.set(slotId, !itemStack.isEmpty());
+    }
+
+    /**
+     * Mark the given slot as changed, so that it will be serialized again on the next write,
+     * and so that it is hashed again in the second-level index.
+     * This is only needed if the stack in the slot was modified in a way that can not be detected,
+     * such as a modification of its damage or the contents of its NBT tag.
+     * @param slotId The slot id.
+     */
+    @Override
+    public void markSlotDirty(int slotId) {
+        super.markSlotDirty(slotId);
+        if (slotId >= 0 && slotId < getSizeInventory()) {
+            ItemStack itemStack = getStackInSlot(slotId);
+            Int2ObjectMap<ItemStack> stacks = itemStack.isEmpty() ? null : index.get(itemStack.getItem());
+            // While a new stack is being set, the index still contains the old stack, which is updated afterwards.
+            if (stacks != null && stacks.get(slotId) == itemStack) {
+                int exactHash = getExactHash(itemStack);
+                if (exactHash != this.exactHashes[slotId]) {
+                    removeFromExactIndex(slotId, itemStack);
+                    addToExactIndex(slotId, itemStack, exactHash);
+                }
+            }
         }
+    }
+
+    @Override
+    protected void readSlot(int slotId, ItemStack itemStack) {
+        // The index is updated per slot, so that unchanged slots are not re-indexed.
+        ItemStack oldStack = getStackInSlot(slotId);
+        super.readSlot(slotId, itemStack);
+        updateIndex(slotId, oldStack, itemStack);
+    }
 
-        // This is unit-tested, so this *should not* be able to happen.
-        // If it happens, trigger a crash!
-        if (this.nonEmptySlots.size() + this.emptySlots.size() != getSizeInventory()) throw new IllegalStateException(String.format(
-                "Indexed inventory at inconsistent state %s %s %s (slot: %s).", this.nonEmptySlots, this.emptySlots, this.getSizeInventory(), slotId));
+    @Override
+    public void setInventorySlotContents(int slotId, ItemStack itemStack) {
+        if (slotId >= getSizeInventory()) {
+            return;
+        }
+        ItemStack oldStack = getStackInSlot(slotId);
+        super.setInventorySlotContents(slotId, itemStack);
+        updateIndex(slotId, oldStack, itemStack);
     }
 
     @Override
     public void clear() {
         super.clear();
-        index.clear();
+        createIndex();
     }
 
     @Override
@@ -123,13 +194,60 @@ public class IndexedInventory extends LargeInventory implements IndexedSlotlessI
         return index;
     }
 
+    @Override
+    public Int2ObjectMap<ItemStack> getExactIndex(ItemStack itemStack) {
+        Int2ObjectMap<Int2ObjectMap<ItemStack>> buckets = exactIndex.get(itemStack.getItem());
+        if (buckets == null) {
+            return null;
+        }
+        return buckets.get(getExactHash(itemStack));
+    }
+
     @Override
     public PrimitiveIterator.OfInt getEmptySlots() {
-        return new IndexedSlotlessItemHandlerWrapper.WrappedIntIterator(this.emptySlots.iterator());
+        return new BitSetIterator(this.nonEmptySlots, false, getSizeInventory());
     }
 
     @Override
     public PrimitiveIterator.OfInt getNonEmptySlots() {
-        return new IndexedSlotlessItemHandlerWrapper.WrappedIntIterator(this.nonEmptySlots.iterator());
+        return new BitSetIterator(this.nonEmptySlots, true, getSizeInventory());
+    }
+
+    /**
+     * Iterator over the set or clear bits of a bitset in ascending order.
+     */
+    public static class BitSetIterator implements PrimitiveIterator.OfInt {
+
+        private final BitSet bitSet;
+        private final boolean set;
+        private final int size;
+        private int next;
+
+        public BitSetIterator(BitSet bitSet, boolean set, int size) {
+            this.bitSet = bitSet;
+            this.set = set;
+            this.size = size;
+            this.next = find(0);
+        }
+
+        protected int find(int from) {
+            int next = set ? bitSet.nextSetBit(from) : bitSet.nextClearBit(from);
+            return next >= 0 && next < size ? next : -1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next >= 0;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) {
+                throw new NoSuchElementException("Slot out of bounds");
+            }
+            int current = this.next;
+            this.next = find(current + 1);
+            return current;
+        }
     }
-}
\ No newline at end of file
+}
@@ -10,6 +10,7 @@ import org.cyclops.commoncapabilities.api.capability.itemhandler.SlotlessItemHan
 import org.cyclops.commoncapabilities.api.ingredient.IngredientComponent;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -17,6 +18,7 @@ import java.util.PrimitiveIterator;
 import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 /**
@@ -46,18 +48,11 @@ public class IndexedSlotlessItemHandlerWrapper extends SlotlessItemHandlerWrappe
                     .iterator();
         }
 
-        Map<Item, Int2ObjectMap<ItemStack>> items = inventory.getIndex();
-        Int2ObjectMap<ItemStack> stacks = items.get(itemStack.getItem());
-        if (stacks != null) {
-            return stacks.int2ObjectEntrySet()
-                    .stream()
-                    .filter(entry -> entry.getValue().getCount()
-                            < Math.min(inventory.getInventoryStackLimit(), entry.getValue().getMaxStackSize())
-                            && ItemMatch.areItemStacksEqual(entry.getValue(), itemStack, matchFlags))
-                    .mapToInt(Int2ObjectMap.Entry::getIntKey)
-                    .iterator();
-        }
-        return IntStream.empty().iterator();
+        return getIndexedMatchingStacks(itemStack, matchFlags)
+                .filter(entry -> entry.getValue().getCount()
+                        < Math.min(inventory.getInventoryStackLimit(), entry.getValue().getMaxStackSize()))
+                .mapToInt(Int2ObjectMap.Entry::getIntKey)
+                .iterator();
     }
 
     @Override
@@ -71,16 +66,9 @@ public class IndexedSlotlessItemHandlerWrapper extends SlotlessItemHandlerWrappe
                     .iterator();
         }
 
-        Map<Item, Int2ObjectMap<ItemStack>> items = inventory.getIndex();
-        Int2ObjectMap<ItemStack> stacks = items.get(itemStack.getItem());
-        if (stacks != null) {
-            return stacks.int2ObjectEntrySet()
-                    .stream()
-                    .filter(entry -> ItemMatch.areItemStacksEqual(entry.getValue(), itemStack, matchFlags))
-                    .mapToInt(Int2ObjectMap.Entry::getIntKey)
-                    .iterator();
-        }
-        return IntStream.empty().iterator();
+        return getIndexedMatchingStacks(itemStack, matchFlags)
+                .mapToInt(Int2ObjectMap.Entry::getIntKey)
+                .iterator();
     }
 
     @Override
@@ -90,17 +78,42 @@ public class IndexedSlotlessItemHandlerWrapper extends SlotlessItemHandlerWrappe
                     .filter(slot -> ItemMatch.areItemStacksEqual(itemHandler.getStackInSlot(slot), itemStack, matchFlags))
                     .iterator();
         }
-        Map<Item, Int2ObjectMap<ItemStack>> items = inventory.getIndex();
-        Int2ObjectMap<ItemStack> stacks = items.get(itemStack.getItem());
+        return getIndexedMatchingStacks(itemStack, matchFlags)
+                .mapToInt(Int2ObjectMap.Entry::getIntKey)
+                .iterator();
+    }
+
+    /**
+     * Get the indexed slots that may contain stacks that match with the given stack.
+     * If both damage and NBT must match, only the slots with the same damage and NBT hash are returned,
+     * otherwise all slots with the same item are returned.
+     * @param itemStack The item stack to match.
+     * @param matchFlags The match flags, which must include the item flag.
+     * @return The slots with their stacks, or null if there are none.
+     */
+    @Nullable
+    protected Int2ObjectMap<ItemStack> getIndexedStacks(ItemStack itemStack, int matchFlags) {
+        if (IngredientComponent.ITEMSTACK.getMatcher().hasCondition(matchFlags, ItemMatch.DAMAGE)
+                && IngredientComponent.ITEMSTACK.getMatcher().hasCondition(matchFlags, ItemMatch.NBT)) {
+            return inventory.getExactIndex(itemStack);
+        }
+        return inventory.getIndex().get(itemStack.getItem());
+    }
+
+    /**
+     * Get the indexed slots with stacks that match with the given stack.
+     * @param itemStack The item stack to match.
+     * @param matchFlags The match flags, which must include the item flag.
+     * @return The slots with their matching stacks.
+     */
+    protected Stream<Int2ObjectMap.Entry<ItemStack>> getIndexedMatchingStacks(ItemStack itemStack, int matchFlags) {
+        Int2ObjectMap<ItemStack> stacks = getIndexedStacks(itemStack, matchFlags);
         if (stacks == null) {
-            return IntStream.empty().iterator();
+            return Stream.empty();
         }
-
         return stacks.int2ObjectEntrySet()
                 .stream()
-                .filter(entry -> ItemMatch.areItemStacksEqual(entry.getValue(), itemStack, matchFlags))
-                .mapToInt(Int2ObjectMap.Entry::getIntKey)
-                .iterator();
+                .filter(entry -> ItemMatch.areItemStacksEqual(entry.getValue(), itemStack, matchFlags));
     }
 
     @Override
@@ -121,6 +134,20 @@ public class IndexedSlotlessItemHandlerWrapper extends SlotlessItemHandlerWrappe
 
         public int getInventoryStackLimit();
         public Map<Item, Int2ObjectMap<ItemStack>> getIndex();
+
+        /**
+         * Get the slots that may contain stacks with the same item, damage and NBT tag as the given stack.
+         * This may contain slots with other stacks, so matches must still be checked.
+         * Stacks that were modified in place are only found after their slot was set again,
+         * or after {@link IndexedInventory#markSlotDirty(int)} was called for it.
+         * @param itemStack A non-empty item stack.
+         * @return The slots with their stacks, or null if there are none.
+         */
+        @Nullable
+        public default Int2ObjectMap<ItemStack> getExactIndex(ItemStack itemStack) {
+            return getIndex().get(itemStack.getItem());
+        }
+
         public PrimitiveIterator.OfInt getEmptySlots();
         public PrimitiveIterator.OfInt getNonEmptySlots();
 
@@ -2,8 +2,6 @@ package org.cyclops.cyclopscore.inventory;
 
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
-import net.minecraft.nbt.NBTTagList;
-import org.cyclops.cyclopscore.helper.MinecraftHelpers;
 
 /**
  * A large inventory implementation.
@@ -29,48 +27,21 @@ public class LargeInventory extends SimpleInventory {
         super(size, name, stackLimit);
     }
 
-    /**
-     * Read inventory data from the given NBT.
-     * @param data The NBT data containing inventory data.
-     * @param tag The NBT tag name where the info is located.
-     */
-    public void readFromNBT(NBTTagCompound data, String tag) {
-        NBTTagList nbttaglist = data.getTagList(tag, MinecraftHelpers.NBTTag_Types.NBTTagCompound.ordinal());
-
-        for (int j = 0; j < getSizeInventory(); ++j)
-            _contents[j] = ItemStack.EMPTY;
-
-        for (int j = 0; j < nbttaglist.tagCount(); ++j) {
-            NBTTagCompound slot = nbttaglist.getCompoundTagAt(j);
-            int index;
-            if (slot.hasKey("index")) {
-                index = slot.getInteger("index");
-            } else {
-                index = slot.getInteger("Slot");
-            }
-            if (index >= 0 && index < getSizeInventory()) {
-                _contents[index] = new ItemStack(slot);
-            }
+    @Override
+    protected int getSlotIndex(NBTTagCompound slot) {
+        if (slot.hasKey("index")) {
+            return slot.getInteger("index");
+        } else {
+            return slot.getInteger("Slot");
         }
     }
 
-    /**
-     * Write inventory data to the given NBT.
-     * @param data The NBT tag that will receive inventory data.
-     * @param tag The NBT tag name where the info must be located.
-     */
-    public void writeToNBT(NBTTagCompound data, String tag) {
-        NBTTagList slots = new NBTTagList();
-        for (int index = 0; index < getSizeInventory(); ++index) {
-            ItemStack itemStack = getStackInSlot(index);
-            if (!itemStack.isEmpty() && itemStack.getCount() > 0) {
-                NBTTagCompound slot = new NBTTagCompound();
-                slots.appendTag(slot);
-                slot.setInteger("Slot", index);
-                itemStack.writeToNBT(slot);
-            }
-        }
-        data.setTag(tag, slots);
+    @Override
+    protected NBTTagCompound createSlotTag(int index, ItemStack itemStack) {
+        NBTTagCompound slot = new NBTTagCompound();
+        slot.setInteger("Slot", index);
+        itemStack.writeToNBT(slot);
+        return slot;
     }
 
-}
\ No newline at end of file
+}
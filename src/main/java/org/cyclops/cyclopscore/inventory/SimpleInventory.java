@@ -10,11 +10,24 @@ import net.minecraft.util.text.TextComponentTranslation;
 import org.cyclops.cyclopscore.helper.MinecraftHelpers;
 import org.cyclops.cyclopscore.persist.IDirtyMarkListener;
 
+import javax.annotation.Nullable;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Objects;
 
 /**
  * A basic inventory implementation.
+ *
+ * When delta persistence is enabled, see {@link #setDeltaPersistence(boolean)},
+ * the NBT tag of each slot is kept after it was written or read,
+ * so that later writes only serialize the slots that have changed,
+ * and later reads only deserialize the slots whose tag has changed.
+ * A slot is considered changed if {@link #setInventorySlotContents(int, ItemStack)}
+ * or {@link #markSlotDirty(int)} was called for it,
+ * or if the stack, its count, its damage or its NBT tag instance differs from when the slot tag was made.
+ * Contents of the NBT tag that are modified in place are not detected, so {@link #markSlotDirty(int)}
+ * must be called in that case.
+ * Tags of stacks with capability data are never kept, as that data can change without any notification.
  * @author rubensworks
  *
  */
@@ -25,6 +38,7 @@ public class SimpleInventory implements INBTInventory {
     private final String _name;
     private final int _stackLimit;
     private final List<IDirtyMarkListener> dirtyMarkListeners = Lists.newLinkedList();
+    private SlotTag[] slotTags = null;
 
     /**
      * Default constructor for NBT persistence, don't call this yourself.
@@ -64,6 +78,33 @@ public class SimpleInventory implements INBTInventory {
         this.dirtyMarkListeners.remove(dirtyMarkListener);
     }
 
+    /**
+     * @return If the NBT tags of slots are reused when writing and reading.
+     */
+    public boolean isDeltaPersistence() {
+        return slotTags != null;
+    }
+
+    /**
+     * Set if the NBT tags of slots should be reused when writing and reading.
+     * @param deltaPersistence If only changed slots should be serialized and deserialized.
+     */
+    public void setDeltaPersistence(boolean deltaPersistence) {
+        this.slotTags = deltaPersistence ? new SlotTag[getSizeInventory()] : null;
+    }
+
+    /**
+     * Mark the given slot as changed, so that it will be serialized again on the next write.
+     * This is only needed if the stack in the slot was modified in a way that can not be detected,
+     * such as a modification of the contents of its NBT tag.
+     * @param slotId The slot id.
+     */
+    public void markSlotDirty(int slotId) {
+        if (slotTags != null && slotId >= 0 && slotId < slotTags.length) {
+            slotTags[slotId] = null;
+        }
+    }
+
     @Override
     public int getSizeInventory() {
         return _contents.length;
@@ -97,6 +138,7 @@ public class SimpleInventory implements INBTInventory {
             return;
         }
         this._contents[slotId] = Objects.requireNonNull(itemstack);
+        markSlotDirty(slotId);
 
         if (!itemstack.isEmpty() && itemstack.getCount() > this.getInventoryStackLimit()) {
             itemstack.setCount(this.getInventoryStackLimit());
@@ -141,23 +183,64 @@ public class SimpleInventory implements INBTInventory {
     public void readFromNBT(NBTTagCompound data, String tag) {
         NBTTagList nbttaglist = data.getTagList(tag, MinecraftHelpers.NBTTag_Types.NBTTagCompound.ordinal());
 
-        for (int j = 0; j < getSizeInventory(); ++j)
-            _contents[j] = ItemStack.EMPTY;
+        if (slotTags == null) {
+            for (int j = 0; j < getSizeInventory(); ++j)
+                readSlot(j, ItemStack.EMPTY);
 
-        for (int j = 0; j < nbttaglist.tagCount(); ++j) {
-            NBTTagCompound slot = nbttaglist.getCompoundTagAt(j);
-            int index;
-            if (slot.hasKey("index")) {
-                index = slot.getInteger("index");
-            } else {
-                index = slot.getByte("Slot");
+            for (int j = 0; j < nbttaglist.tagCount(); ++j) {
+                NBTTagCompound slot = nbttaglist.getCompoundTagAt(j);
+                int index = getSlotIndex(slot);
+                if (index >= 0 && index < getSizeInventory()) {
+                    readSlot(index, new ItemStack(slot));
+                }
             }
-            if (index >= 0 && index < getSizeInventory()) {
-                _contents[index] = new ItemStack(slot);
+        } else {
+            // Only deserialize the slots of which the tag differs from the last written or read tag.
+            BitSet readSlots = new BitSet(getSizeInventory());
+            for (int j = 0; j < nbttaglist.tagCount(); ++j) {
+                NBTTagCompound slot = nbttaglist.getCompoundTagAt(j);
+                int index = getSlotIndex(slot);
+                if (index >= 0 && index < getSizeInventory()) {
+                    readSlots.set(index);
+                    SlotTag slotTag = slotTags[index];
+                    if (slotTag == null || !slotTag.matches(slot, getStackInSlot(index))) {
+                        ItemStack itemStack = new ItemStack(slot);
+                        readSlot(index, itemStack);
+                        slotTags[index] = SlotTag.create(slot, itemStack);
+                    }
+                }
+            }
+            for (int j = readSlots.nextClearBit(0); j < getSizeInventory(); j = readSlots.nextClearBit(j + 1)) {
+                if (!getStackInSlot(j).isEmpty()) {
+                    readSlot(j, ItemStack.EMPTY);
+                }
+                slotTags[j] = null;
             }
         }
     }
 
+    /**
+     * Set the contents of a slot while reading from NBT.
+     * @param slotId The slot id.
+     * @param itemStack The read stack.
+     */
+    protected void readSlot(int slotId, ItemStack itemStack) {
+        _contents[slotId] = itemStack;
+    }
+
+    /**
+     * Get the slot index from the given slot tag.
+     * @param slot A slot tag.
+     * @return The slot index.
+     */
+    protected int getSlotIndex(NBTTagCompound slot) {
+        if (slot.hasKey("index")) {
+            return slot.getInteger("index");
+        } else {
+            return slot.getByte("Slot");
+        }
+    }
+
     @Override
     public void writeToNBT(NBTTagCompound data) {
         writeToNBT(data, "items");
@@ -169,19 +252,43 @@ public class SimpleInventory implements INBTInventory {
      * @param tag The NBT tag name where the info must be located.
      */
     public void writeToNBT(NBTTagCompound data, String tag) {
+        // A new list is always created, as previously written lists may still be in use, for example by chunk IO.
         NBTTagList slots = new NBTTagList();
-        for (byte index = 0; index < getSizeInventory(); ++index) {
+        for (int index = 0; index < getSizeInventory(); ++index) {
             ItemStack itemStack = getStackInSlot(index);
             if (!itemStack.isEmpty() && itemStack.getCount() > 0) {
-                NBTTagCompound slot = new NBTTagCompound();
-                slots.appendTag(slot);
-                slot.setByte("Slot", index);
-                itemStack.writeToNBT(slot);
+                if (slotTags == null) {
+                    slots.appendTag(createSlotTag(index, itemStack));
+                } else {
+                    SlotTag slotTag = slotTags[index];
+                    if (slotTag == null || !slotTag.matches(itemStack)) {
+                        NBTTagCompound slot = createSlotTag(index, itemStack);
+                        slotTags[index] = SlotTag.create(slot, itemStack);
+                        slots.appendTag(slot);
+                    } else {
+                        slots.appendTag(slotTag.getTag());
+                    }
+                }
+            } else if (slotTags != null) {
+                slotTags[index] = null;
             }
         }
         data.setTag(tag, slots);
     }
 
+    /**
+     * Serialize the given slot.
+     * @param index The slot index.
+     * @param itemStack The non-empty stack in the slot.
+     * @return The slot tag.
+     */
+    protected NBTTagCompound createSlotTag(int index, ItemStack itemStack) {
+        NBTTagCompound slot = new NBTTagCompound();
+        slot.setByte("Slot", (byte) index);
+        itemStack.writeToNBT(slot);
+        return slot;
+    }
+
     @Override
     public ItemStack removeStackFromSlot(int slotId) {
         ItemStack stackToTake = getStackInSlot(slotId);
@@ -275,4 +382,61 @@ public class SimpleInventory implements INBTInventory {
     public void fromNBT(NBTTagCompound tag) {
         readFromNBT(tag);
     }
-}
\ No newline at end of file
+
+    /**
+     * A written or read slot tag, together with the state of the stack it represents.
+     * Slot tags are never modified after they are created.
+     * Only fields that can be compared in constant time are kept,
+     * so that checking a slot is always cheaper than serializing it again.
+     */
+    protected static class SlotTag {
+
+        private final NBTTagCompound tag;
+        private final ItemStack itemStack;
+        private final int count;
+        private final int damage;
+        private final NBTTagCompound itemTag;
+
+        public SlotTag(NBTTagCompound tag, ItemStack itemStack) {
+            this.tag = tag;
+            this.itemStack = itemStack;
+            this.count = itemStack.getCount();
+            this.damage = itemStack.getItemDamage();
+            this.itemTag = itemStack.getTagCompound();
+        }
+
+        /**
+         * @param tag A slot tag.
+         * @param itemStack The stack of the slot tag.
+         * @return A new slot tag, or null if the stack has capability data, as changes to it can not be detected.
+         */
+        @Nullable
+        public static SlotTag create(NBTTagCompound tag, ItemStack itemStack) {
+            return tag.hasKey("ForgeCaps") ? null : new SlotTag(tag, itemStack);
+        }
+
+        public NBTTagCompound getTag() {
+            return tag;
+        }
+
+        /**
+         * @param itemStack A stack.
+         * @return If the given stack is the stack of this slot tag, and it has not been modified.
+         */
+        public boolean matches(ItemStack itemStack) {
+            return this.itemStack == itemStack
+                    && this.count == itemStack.getCount()
+                    && this.damage == itemStack.getItemDamage()
+                    && this.itemTag == itemStack.getTagCompound();
+        }
+
+        /**
+         * @param tag A slot tag.
+         * @param itemStack A stack.
+         * @return If the given slot tag equals this slot tag, and the given stack still matches it.
+         */
+        public boolean matches(NBTTagCompound tag, ItemStack itemStack) {
+            return (this.tag == tag || this.tag.equals(tag)) && matches(itemStack);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.cyclops.cyclopscore.inventory.container;
+
+/**
+ * A variable that is synchronized from server to client inside a GUI.
+ * @author rubensworks
+ */
+public interface ISyncedGuiVariable {
+
+    /**
+     * Queue the server-side value to be sent to the client if it has changed.
+     */
+    public void detectAndSendChanges();
+
+}
@@ -24,10 +24,14 @@ import org.cyclops.cyclopscore.inventory.container.button.IButtonClickAcceptorSe
 import org.cyclops.cyclopscore.inventory.slot.SlotArmor;
 import org.cyclops.cyclopscore.inventory.slot.SlotExtended;
 import org.cyclops.cyclopscore.network.packet.ValueNotifyPacket;
+import org.cyclops.cyclopscore.network.packet.ValuesNotifyPacket;
 
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 
 /**
@@ -43,7 +47,8 @@ public abstract class InventoryContainer extends Container implements IButtonCli
 
     private final Map<Integer, IButtonActionServer<InventoryContainer>> buttonActions = Maps.newHashMap();
     private final Map<Integer, NBTTagCompound> values = Maps.newHashMap();
-    private final List<SyncedGuiVariable<?>> syncedGuiVariables = Lists.newArrayList();
+    private Map<Integer, NBTTagCompound> queuedValues = Maps.newHashMap();
+    private final List<ISyncedGuiVariable> syncedGuiVariables = Lists.newArrayList();
     private int nextValueId = 0;
     private IValueNotifiable guiValueListener = null;
 
@@ -72,9 +77,10 @@ public abstract class InventoryContainer extends Container implements IButtonCli
     public void detectAndSendChanges() {
         super.detectAndSendChanges();
         if (!MinecraftHelpers.isClientSide()) {
-            for (SyncedGuiVariable<?> syncedGuiVariable : this.syncedGuiVariables) {
+            for (ISyncedGuiVariable syncedGuiVariable : this.syncedGuiVariables) {
                 syncedGuiVariable.detectAndSendChanges();
             }
+            sendQueuedValues();
         }
     }
 
@@ -471,6 +477,35 @@ public abstract class InventoryContainer extends Container implements IButtonCli
         }
     }
 
+    /**
+     * Queue a changed value to be sent from the server to the client.
+     * All queued values are sent in a single packet by {@link #sendQueuedValues()}.
+     * @param valueId The value id.
+     * @param value The new value.
+     */
+    protected void queueValue(int valueId, NBTTagCompound value) {
+        queuedValues.put(valueId, value);
+    }
+
+    /**
+     * Send all values that were queued by {@link #queueValue(int, NBTTagCompound)} to the client.
+     */
+    protected void sendQueuedValues() {
+        if (!queuedValues.isEmpty()) {
+            Map<Integer, NBTTagCompound> sendValues = queuedValues;
+            queuedValues = Maps.newHashMap();
+            values.putAll(sendValues);
+            if (sendValues.size() == 1) {
+                Map.Entry<Integer, NBTTagCompound> entry = sendValues.entrySet().iterator().next();
+                CyclopsCore._instance.getPacketHandler().sendToPlayer(new ValueNotifyPacket(getGuiModId(), getGuiId(),
+                        entry.getKey(), entry.getValue()), (EntityPlayerMP) player);
+            } else {
+                CyclopsCore._instance.getPacketHandler().sendToPlayer(new ValuesNotifyPacket(getGuiModId(), getGuiId(),
+                        sendValues), (EntityPlayerMP) player);
+            }
+        }
+    }
+
     @Override
     public NBTTagCompound getValue(int valueId) {
         return values.get(valueId);
@@ -507,4 +542,56 @@ public abstract class InventoryContainer extends Container implements IButtonCli
         return variable;
     }
 
+    /**
+     * Register the given int variable for automatically sychronizing between client and server,
+     * without boxing its values.
+     * @param serverValueSupplier A supplier for the server-side variable value.
+     * @return A supplier that can be called for retrieving the value.
+     * @see #registerSyncedVariable(Class, Supplier)
+     */
+    public IntSupplier registerSyncedIntVariable(IntSupplier serverValueSupplier) {
+        SyncedGuiVariable.OfInt variable = new SyncedGuiVariable.OfInt(this, serverValueSupplier);
+        this.syncedGuiVariables.add(variable);
+        return variable;
+    }
+
+    /**
+     * Register the given long variable for automatically sychronizing between client and server,
+     * without boxing its values.
+     * @param serverValueSupplier A supplier for the server-side variable value.
+     * @return A supplier that can be called for retrieving the value.
+     * @see #registerSyncedVariable(Class, Supplier)
+     */
+    public LongSupplier registerSyncedLongVariable(LongSupplier serverValueSupplier) {
+        SyncedGuiVariable.OfLong variable = new SyncedGuiVariable.OfLong(this, serverValueSupplier);
+        this.syncedGuiVariables.add(variable);
+        return variable;
+    }
+
+    /**
+     * Register the given float variable for automatically sychronizing between client and server,
+     * without boxing its values.
+     * @param serverValueSupplier A supplier for the server-side variable value.
+     * @return A supplier that can be called for retrieving the value.
+     * @see #registerSyncedVariable(Class, Supplier)
+     */
+    public SyncedGuiVariable.FloatSupplier registerSyncedFloatVariable(SyncedGuiVariable.FloatSupplier serverValueSupplier) {
+        SyncedGuiVariable.OfFloat variable = new SyncedGuiVariable.OfFloat(this, serverValueSupplier);
+        this.syncedGuiVariables.add(variable);
+        return variable;
+    }
+
+    /**
+     * Register the given double variable for automatically sychronizing between client and server,
+     * without boxing its values.
+     * @param serverValueSupplier A supplier for the server-side variable value.
+     * @return A supplier that can be called for retrieving the value.
+     * @see #registerSyncedVariable(Class, Supplier)
+     */
+    public DoubleSupplier registerSyncedDoubleVariable(DoubleSupplier serverValueSupplier) {
+        SyncedGuiVariable.OfDouble variable = new SyncedGuiVariable.OfDouble(this, serverValueSupplier);
+        this.syncedGuiVariables.add(variable);
+        return variable;
+    }
+
 }
@@ -1,41 +1,73 @@
 package org.cyclops.cyclopscore.inventory.container;
 
 import net.minecraft.nbt.NBTTagCompound;
+import org.apache.commons.lang3.ClassUtils;
 import org.cyclops.cyclopscore.persist.nbt.NBTClassType;
 
+import javax.annotation.Nullable;
 import java.util.Objects;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 
 /**
  * A convenience datastructure that offers direct synchronization of values between server and client inside GUIs.
+ *
+ * Values of immutable types, such as primitives, strings and enums, are compared directly,
+ * so that they are only serialized to NBT when they have changed.
+ * Values of other types are serialized each time they are checked, and their NBT tags are compared.
+ *
+ * As values are retrieved via a {@link Supplier}, primitive values are boxed each time they are checked.
+ * For int, long, float and double values, the variables in {@link OfInt}, {@link OfLong}, {@link OfFloat}
+ * and {@link OfDouble} avoid this.
  * @param <T> The type of value.
  */
-public class SyncedGuiVariable<T> implements Supplier<T> {
+public class SyncedGuiVariable<T> implements ISyncedGuiVariable, Supplier<T> {
 
     private final InventoryContainer gui;
     private final int guiValueId;
     private final NBTClassType<T> nbtClassType;
     private final Supplier<T> serverValueSupplier;
+    private final boolean immutableValue;
 
     private NBTTagCompound lastTag;
+    private T lastValue;
+
+    private NBTTagCompound clientTag;
+    private T clientValue;
 
     SyncedGuiVariable(InventoryContainer gui, Class<T> clazz, Supplier<T> serverValueSupplier) {
         this.gui = gui;
         this.guiValueId = gui.getNextValueId();
         this.nbtClassType = NBTClassType.getClassType(clazz);
         this.serverValueSupplier = serverValueSupplier;
+        this.immutableValue = isImmutableType(clazz);
 
         this.lastTag = null;
     }
 
+    /**
+     * @param clazz A class.
+     * @return If instances of the given class can be compared by value, without being modified afterwards.
+     */
+    public static boolean isImmutableType(Class<?> clazz) {
+        return clazz.isPrimitive() || ClassUtils.isPrimitiveWrapper(clazz) || clazz == String.class || clazz.isEnum();
+    }
+
+    @Override
     public void detectAndSendChanges() {
         T value = this.serverValueSupplier.get();
+        if (this.immutableValue && this.lastTag != null && Objects.equals(this.lastValue, value)) {
+            return;
+        }
         NBTTagCompound tag = new NBTTagCompound();
         this.nbtClassType.writePersistedField("v", value, tag);
         if (!Objects.equals(this.lastTag, tag)) {
-            this.gui.setValue(this.guiValueId, tag);
+            this.gui.queueValue(this.guiValueId, tag);
             this.lastTag = tag;
         }
+        this.lastValue = value;
     }
 
     @Override
@@ -44,7 +76,236 @@ public class SyncedGuiVariable<T> implements Supplier<T> {
         if (tag == null) {
             return this.nbtClassType.getDefaultValue();
         }
-        return this.nbtClassType.readPersistedField("v", tag);
+        if (!this.immutableValue) {
+            return this.nbtClassType.readPersistedField("v", tag);
+        }
+        // Only deserialize immutable values once per received tag.
+        if (tag != this.clientTag) {
+            this.clientValue = this.nbtClassType.readPersistedField("v", tag);
+            this.clientTag = tag;
+        }
+        return this.clientValue;
+    }
+
+    /**
+     * A supplier of float values.
+     */
+    @FunctionalInterface
+    public static interface FloatSupplier {
+        public float getAsFloat();
+    }
+
+    /**
+     * Base class for variables of a primitive type,
+     * which keep their last server value and their client value in primitive fields.
+     */
+    protected static abstract class Primitive implements ISyncedGuiVariable {
+
+        private final InventoryContainer gui;
+        private final int guiValueId;
+
+        private boolean sent;
+        private NBTTagCompound clientTag;
+
+        protected Primitive(InventoryContainer gui) {
+            this.gui = gui;
+            this.guiValueId = gui.getNextValueId();
+        }
+
+        /**
+         * Retrieve the current server value.
+         * @return If it differs from the previous server value.
+         */
+        protected abstract boolean updateServerValue();
+
+        /**
+         * @param tag The tag to write the last server value to.
+         */
+        protected abstract void writeServerValue(NBTTagCompound tag);
+
+        /**
+         * @param tag The received tag to read the client value from, or null if none was received.
+         */
+        protected abstract void readClientValue(@Nullable NBTTagCompound tag);
+
+        @Override
+        public void detectAndSendChanges() {
+            if (updateServerValue() || !this.sent) {
+                NBTTagCompound tag = new NBTTagCompound();
+                writeServerValue(tag);
+                this.gui.queueValue(this.guiValueId, tag);
+                this.sent = true;
+            }
+        }
+
+        /**
+         * Deserialize the client value if a new tag was received.
+         */
+        protected void updateClientValue() {
+            NBTTagCompound tag = this.gui.getValue(this.guiValueId);
+            if (tag != this.clientTag) {
+                readClientValue(tag);
+                this.clientTag = tag;
+            }
+        }
+    }
+
+    /**
+     * A synchronized int value.
+     */
+    public static class OfInt extends Primitive implements IntSupplier {
+
+        private final IntSupplier serverValueSupplier;
+        private int lastValue;
+        private int clientValue;
+
+        OfInt(InventoryContainer gui, IntSupplier serverValueSupplier) {
+            super(gui);
+            this.serverValueSupplier = serverValueSupplier;
+        }
+
+        @Override
+        protected boolean updateServerValue() {
+            int value = this.serverValueSupplier.getAsInt();
+            boolean changed = value != this.lastValue;
+            this.lastValue = value;
+            return changed;
+        }
+
+        @Override
+        protected void writeServerValue(NBTTagCompound tag) {
+            tag.setInteger("v", this.lastValue);
+        }
+
+        @Override
+        protected void readClientValue(@Nullable NBTTagCompound tag) {
+            this.clientValue = tag == null ? 0 : tag.getInteger("v");
+        }
+
+        @Override
+        public int getAsInt() {
+            updateClientValue();
+            return this.clientValue;
+        }
+    }
+
+    /**
+     * A synchronized long value.
+     */
+    public static class OfLong extends Primitive implements LongSupplier {
+
+        private final LongSupplier serverValueSupplier;
+        private long lastValue;
+        private long clientValue;
+
+        OfLong(InventoryContainer gui, LongSupplier serverValueSupplier) {
+            super(gui);
+            this.serverValueSupplier = serverValueSupplier;
+        }
+
+        @Override
+        protected boolean updateServerValue() {
+            long value = this.serverValueSupplier.getAsLong();
+            boolean changed = value != this.lastValue;
+            this.lastValue = value;
+            return changed;
+        }
+
+        @Override
+        protected void writeServerValue(NBTTagCompound tag) {
+            tag.setLong("v", this.lastValue);
+        }
+
+        @Override
+        protected void readClientValue(@Nullable NBTTagCompound tag) {
+            this.clientValue = tag == null ? 0 : tag.getLong("v");
+        }
+
+        @Override
+        public long getAsLong() {
+            updateClientValue();
+            return this.clientValue;
+        }
+    }
+
+    /**
+     * A synchronized float value.
+     */
+    public static class OfFloat extends Primitive implements FloatSupplier {
+
+        private final FloatSupplier serverValueSupplier;
+        private float lastValue;
+        private float clientValue;
+
+        OfFloat(InventoryContainer gui, FloatSupplier serverValueSupplier) {
+            super(gui);
+            this.serverValueSupplier = serverValueSupplier;
+        }
+
+        @Override
+        protected boolean updateServerValue() {
+            float value = this.serverValueSupplier.getAsFloat();
+            // Bits are compared, so that NaN values are not seen as changed each time.
+            boolean changed = Float.floatToIntBits(value) != Float.floatToIntBits(this.lastValue);
+            this.lastValue = value;
+            return changed;
+        }
+
+        @Override
+        protected void writeServerValue(NBTTagCompound tag) {
+            tag.setFloat("v", this.lastValue);
+        }
+
+        @Override
+        protected void readClientValue(@Nullable NBTTagCompound tag) {
+            this.clientValue = tag == null ? 0 : tag.getFloat("v");
+        }
+
+        @Override
+        public float getAsFloat() {
+            updateClientValue();
+            return this.clientValue;
+        }
+    }
+
+    /**
+     * A synchronized double value.
+     */
+    public static class OfDouble extends Primitive implements DoubleSupplier {
+
+        private final DoubleSupplier serverValueSupplier;
+        private double lastValue;
+        private double clientValue;
+
+        OfDouble(InventoryContainer gui, DoubleSupplier serverValueSupplier) {
+            super(gui);
+            this.serverValueSupplier = serverValueSupplier;
+        }
+
+        @Override
+        protected boolean updateServerValue() {
+            double value = this.serverValueSupplier.getAsDouble();
+            // Bits are compared, so that NaN values are not seen as changed each time.
+            boolean changed = Double.doubleToLongBits(value) != Double.doubleToLongBits(this.lastValue);
+            this.lastValue = value;
+            return changed;
+        }
+
+        @Override
+        protected void writeServerValue(NBTTagCompound tag) {
+            tag.setDouble("v", this.lastValue);
+        }
+
+        @Override
+        protected void readClientValue(@Nullable NBTTagCompound tag) {
+            this.clientValue = tag == null ? 0 : tag.getDouble("v");
+        }
+
+        @Override
+        public double getAsDouble() {
+            updateClientValue();
+            return this.clientValue;
+        }
     }
 
 }
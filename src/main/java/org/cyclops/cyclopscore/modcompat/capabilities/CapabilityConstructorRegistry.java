@@ -23,6 +23,7 @@ import org.cyclops.cyclopscore.init.ModBase;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Registry for capabilities created by this mod.
@@ -42,6 +43,13 @@ public class CapabilityConstructorRegistry {
     private Collection<Pair<Class<?>, ICapabilityConstructor<?, ?, ?>>>
             capabilityConstructorsItemSuper = Sets.newHashSet();
 
+    private final ClassValue<ICapabilityConstructor<?, ?, ?>[]> resolvedConstructorsTile =
+            new ResolvedConstructors(() -> capabilityConstructorsTile, () -> capabilityConstructorsTileSuper);
+    private final ClassValue<ICapabilityConstructor<?, ?, ?>[]> resolvedConstructorsEntity =
+            new ResolvedConstructors(() -> capabilityConstructorsEntity, () -> capabilityConstructorsEntitySuper);
+    private final ClassValue<ICapabilityConstructor<?, ?, ?>[]> resolvedConstructorsItem =
+            new ResolvedConstructors(() -> capabilityConstructorsItem, () -> capabilityConstructorsItemSuper);
+
     protected final ModBase mod;
     protected boolean baked = false;
     protected boolean registeredTileEventListener = false;
@@ -188,18 +196,46 @@ public class CapabilityConstructorRegistry {
 
     protected <T> void onLoad(Map<Class<? extends T>, List<ICapabilityConstructor<?, ? extends T, ? extends T>>> allConstructors,
                               Collection<Pair<Class<?>, ICapabilityConstructor<?, ?, ?>>> allInheritableConstructors,
+                              ClassValue<ICapabilityConstructor<?, ?, ?>[]> resolvedConstructors,
                               T object, AttachCapabilitiesEvent<?> event, Class<? extends T> baseClass) {
-        onLoad(allConstructors, allInheritableConstructors, object, object, event, baseClass);
+        onLoad(allConstructors, allInheritableConstructors, resolvedConstructors, object, object, event, baseClass);
     }
 
     protected <K, V> void onLoad(Map<Class<? extends K>, List<ICapabilityConstructor<?, ? extends K, ? extends V>>> allConstructors,
                                  Collection<Pair<Class<?>, ICapabilityConstructor<?, ?, ?>>> allInheritableConstructors,
+                                 ClassValue<ICapabilityConstructor<?, ?, ?>[]> resolvedConstructors,
                                  K keyObject, V valueObject, AttachCapabilitiesEvent<?> event, Class<? extends K> baseClass) {
-        boolean initialized = baked || Helpers.isMinecraftInitialized();
         if (!baked && Helpers.isMinecraftInitialized()) {
             bake();
         }
 
+        // Once baked, the applicable constructors of each class are resolved only once
+        if (baked) {
+            for (ICapabilityConstructor<?, ?, ?> constructor : resolvedConstructors.get(keyObject.getClass())) {
+                addLoadedCapabilityProvider(event, keyObject, valueObject, constructor);
+            }
+            return;
+        }
+
+        onLoadUnbaked(allConstructors, allInheritableConstructors, keyObject, valueObject, event);
+    }
+
+    /**
+     * Attach capabilities before the registry is baked,
+     * in which case not all capabilities may have been initialized yet.
+     * @param allConstructors The constructors per exact class.
+     * @param allInheritableConstructors The inheritable constructors.
+     * @param keyObject The object to check the class of.
+     * @param valueObject The object to pass to the constructors.
+     * @param event The attach event.
+     * @param <K> The key object type.
+     * @param <V> The value object type.
+     */
+    protected <K, V> void onLoadUnbaked(Map<Class<? extends K>, List<ICapabilityConstructor<?, ? extends K, ? extends V>>> allConstructors,
+                                        Collection<Pair<Class<?>, ICapabilityConstructor<?, ?, ?>>> allInheritableConstructors,
+                                        K keyObject, V valueObject, AttachCapabilitiesEvent<?> event) {
+        boolean initialized = Helpers.isMinecraftInitialized();
+
         // Normal constructors
         Collection<ICapabilityConstructor<?, ? extends K, ? extends V>> constructors = allConstructors.get(keyObject.getClass());
         if (constructors != null) {
@@ -213,12 +249,36 @@ public class CapabilityConstructorRegistry {
         // Inheritable constructors
         for (Pair<Class<?>, ICapabilityConstructor<?, ?, ?>> constructorEntry : allInheritableConstructors) {
             if ((initialized || constructorEntry.getRight().getCapability() != null)
-                    && (keyObject == baseClass || constructorEntry.getLeft() == keyObject || constructorEntry.getLeft().isInstance(keyObject))) {
+                    && constructorEntry.getLeft().isInstance(keyObject)) {
                 addLoadedCapabilityProvider(event, keyObject, valueObject, constructorEntry.getRight());
             }
         }
     }
 
+    /**
+     * Determine all constructors that apply to the given class,
+     * first the ones registered for that exact class, followed by the applicable inheritable ones.
+     * @param allConstructors The constructors per exact class.
+     * @param allInheritableConstructors The inheritable constructors.
+     * @param clazz The class of the key objects.
+     * @return The applicable constructors.
+     */
+    protected static ICapabilityConstructor<?, ?, ?>[] resolveConstructors(Map<? extends Class<?>, ? extends List<? extends ICapabilityConstructor<?, ?, ?>>> allConstructors,
+                                                                       Collection<Pair<Class<?>, ICapabilityConstructor<?, ?, ?>>> allInheritableConstructors,
+                                                                       Class<?> clazz) {
+        List<ICapabilityConstructor<?, ?, ?>> resolved = Lists.newArrayList();
+        List<? extends ICapabilityConstructor<?, ?, ?>> constructors = allConstructors.get(clazz);
+        if (constructors != null) {
+            resolved.addAll(constructors);
+        }
+        for (Pair<Class<?>, ICapabilityConstructor<?, ?, ?>> constructorEntry : allInheritableConstructors) {
+            if (constructorEntry.getLeft().isAssignableFrom(clazz)) {
+                resolved.add(constructorEntry.getRight());
+            }
+        }
+        return resolved.toArray(new ICapabilityConstructor<?, ?, ?>[0]);
+    }
+
     protected <K, V> void addLoadedCapabilityProvider(AttachCapabilitiesEvent<?> event, K keyObject, V valueObject, ICapabilityConstructor<?, ?, ?> constructor) {
         ICapabilityProvider provider = createProvider(keyObject, valueObject, constructor);
         if (provider != null) {
@@ -278,17 +338,38 @@ public class CapabilityConstructorRegistry {
 
     }
 
+    /**
+     * Lazily resolves the applicable constructors per class.
+     * This must only be used after the registry has been baked.
+     */
+    protected static class ResolvedConstructors extends ClassValue<ICapabilityConstructor<?, ?, ?>[]> {
+
+        private final Supplier<? extends Map<? extends Class<?>, ? extends List<? extends ICapabilityConstructor<?, ?, ?>>>> constructors;
+        private final Supplier<Collection<Pair<Class<?>, ICapabilityConstructor<?, ?, ?>>>> inheritableConstructors;
+
+        public ResolvedConstructors(Supplier<? extends Map<? extends Class<?>, ? extends List<? extends ICapabilityConstructor<?, ?, ?>>>> constructors,
+                                    Supplier<Collection<Pair<Class<?>, ICapabilityConstructor<?, ?, ?>>>> inheritableConstructors) {
+            this.constructors = constructors;
+            this.inheritableConstructors = inheritableConstructors;
+        }
+
+        @Override
+        protected ICapabilityConstructor<?, ?, ?>[] computeValue(Class<?> clazz) {
+            return resolveConstructors(constructors.get(), inheritableConstructors.get(), clazz);
+        }
+    }
+
     public class TileEventListener {
         @SubscribeEvent
         public void onTileLoad(AttachCapabilitiesEvent<TileEntity> event) {
-            onLoad(capabilityConstructorsTile, capabilityConstructorsTileSuper, event.getObject(), event, TileEntity.class);
+            onLoad(capabilityConstructorsTile, capabilityConstructorsTileSuper, resolvedConstructorsTile, event.getObject(), event, TileEntity.class);
         }
     }
 
     public class EntityEventListener {
         @SubscribeEvent
         public void onEntityLoad(AttachCapabilitiesEvent<Entity> event) {
-            onLoad(capabilityConstructorsEntity, capabilityConstructorsEntitySuper, event.getObject(), event, Entity.class);
+            onLoad(capabilityConstructorsEntity, capabilityConstructorsEntitySuper, resolvedConstructorsEntity, event.getObject(), event, Entity.class);
         }
     }
 
@@ -296,7 +377,7 @@ public class CapabilityConstructorRegistry {
         @SubscribeEvent
         public void onItemStackLoad(AttachCapabilitiesEvent<ItemStack> event) {
             if (!event.getObject().isEmpty()) {
-                onLoad(capabilityConstructorsItem, capabilityConstructorsItemSuper, event.getObject().getItem(), event.getObject(), event, Item.class);
+                onLoad(capabilityConstructorsItem, capabilityConstructorsItemSuper, resolvedConstructorsItem, event.getObject().getItem(), event.getObject(), event, Item.class);
             }
         }
     }
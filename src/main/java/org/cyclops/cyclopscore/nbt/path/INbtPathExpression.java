@@ -61,6 +61,27 @@ public interface INbtPathExpression {
      */
     public NbtPathExpressionMatches matchContexts(Stream<NbtPathExpressionExecutionContext> executionContexts);
 
+    /**
+     * @return If this expression can be evaluated directly on NBT tags
+     *         via {@link #visitMatches(NBTBase, INbtPathExpressionVisitor)},
+     *         which is only possible if it does not depend on parent or root navigation.
+     */
+    public default boolean isFlat() {
+        return false;
+    }
+
+    /**
+     * Pass all matches for the given NBT tag to the given visitor,
+     * without creating streams or execution contexts.
+     * This is only supported if {@link #isFlat()} is true.
+     * @param nbt An NBT tag.
+     * @param visitor The visitor for all matches.
+     * @return False if the visitor stopped the evaluation, true otherwise.
+     */
+    public default boolean visitMatches(NBTBase nbt, INbtPathExpressionVisitor visitor) {
+        throw new UnsupportedOperationException("This NBT Path expression can not be evaluated as a flat expression.");
+    }
+
     /**
      * Create a navigation for this expression with the given navigation as child.
      * If no child is passed, the created navigation is a leaf.
@@ -0,0 +1,18 @@
+package org.cyclops.cyclopscore.nbt.path;
+
+import net.minecraft.nbt.NBTBase;
+
+/**
+ * A visitor for the matches of an NBT path expression
+ * that is evaluated with {@link INbtPathExpression#visitMatches(NBTBase, INbtPathExpressionVisitor)}.
+ */
+public interface INbtPathExpressionVisitor {
+
+    /**
+     * Visit a matching NBT tag.
+     * @param nbt A matching NBT tag.
+     * @return If more matches should be visited, false will stop the evaluation.
+     */
+    public boolean visit(NBTBase nbt);
+
+}
@@ -1,12 +1,17 @@
 package org.cyclops.cyclopscore.nbt.path;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Lists;
 import org.cyclops.cyclopscore.nbt.path.parse.*;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Utility class for parsing NBT path expressions.
+ *
+ * Parsed expressions are cached, so that repeatedly parsing the same expression string is cheap.
  */
 public class NbtPath {
 
@@ -29,6 +34,76 @@ public class NbtPath {
             new NbtPathExpressionParseHandlerStringEqual(),
             new NbtPathExpressionParseHandlerFilterExpression()
     );
+    private static final INbtPathExpressionParseHandler[][] PARSE_HANDLERS_ASCII = createAsciiDispatchTable();
+    private static final INbtPathExpressionParseHandler[] PARSE_HANDLERS_OTHER = getParseHandlersFor((char) 128);
+
+    public static final int DEFAULT_CACHE_SIZE = 512;
+    public static final int DEFAULT_CACHE_EXPIRE_SECONDS = 300;
+
+    private static volatile Cache<String, INbtPathExpression> CACHE = createCache(DEFAULT_CACHE_SIZE, DEFAULT_CACHE_EXPIRE_SECONDS);
+
+    private static INbtPathExpressionParseHandler[][] createAsciiDispatchTable() {
+        INbtPathExpressionParseHandler[][] table = new INbtPathExpressionParseHandler[128][];
+        for (char c = 0; c < table.length; c++) {
+            table[c] = getParseHandlersFor(c);
+        }
+        return table;
+    }
+
+    private static INbtPathExpressionParseHandler[] getParseHandlersFor(char c) {
+        List<INbtPathExpressionParseHandler> handlers = Lists.newArrayList();
+        for (INbtPathExpressionParseHandler parseHandler : PARSE_HANDLERS) {
+            char[] prefixCharacters = parseHandler.getPrefixCharacters();
+            if (prefixCharacters == null) {
+                handlers.add(parseHandler);
+            } else {
+                for (char prefixCharacter : prefixCharacters) {
+                    if (prefixCharacter == c) {
+                        handlers.add(parseHandler);
+                        break;
+                    }
+                }
+            }
+        }
+        return handlers.toArray(new INbtPathExpressionParseHandler[0]);
+    }
+
+    private static Cache<String, INbtPathExpression> createCache(int maximumSize, int expireSeconds) {
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize);
+        if (expireSeconds > 0) {
+            builder = builder.expireAfterAccess(expireSeconds, TimeUnit.SECONDS);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Reconfigure the cache of parsed expressions.
+     * This will clear all cached expressions.
+     * @param maximumSize The maximum number of cached expressions, 0 disables caching.
+     * @param expireSeconds The number of seconds after which unused expressions are removed from the cache,
+     *                      0 disables expiry.
+     */
+    public static void setCacheConfig(int maximumSize, int expireSeconds) {
+        CACHE = createCache(maximumSize, expireSeconds);
+    }
+
+    /**
+     * Remove all cached parsed expressions.
+     */
+    public static void clearCache() {
+        CACHE.invalidateAll();
+    }
+
+    /**
+     * Get the parse handlers that could handle an expression starting with the given character,
+     * in the order in which they should be tried.
+     * @param c The first character of an expression.
+     * @return The candidate parse handlers.
+     */
+    public static INbtPathExpressionParseHandler[] getParseHandlers(char c) {
+        return c < PARSE_HANDLERS_ASCII.length ? PARSE_HANDLERS_ASCII[c] : PARSE_HANDLERS_OTHER;
+    }
 
     /**
      * Parse an NBT path expression string into an in-memory representation.
@@ -37,12 +112,28 @@ public class NbtPath {
      * @throws NbtParseException An exception that can be thrown if parsing failed.
      */
     public static INbtPathExpression parse(String nbtPathExpression) throws NbtParseException {
+        Cache<String, INbtPathExpression> cache = CACHE;
+        INbtPathExpression expression = cache.getIfPresent(nbtPathExpression);
+        if (expression == null) {
+            expression = parseUncached(nbtPathExpression);
+            cache.put(nbtPathExpression, expression);
+        }
+        return expression;
+    }
+
+    /**
+     * Parse an NBT path expression string into an in-memory representation, without using the cache.
+     * @param nbtPathExpression An NBT path expression string
+     * @return An in-memory representation of the given expression.
+     * @throws NbtParseException An exception that can be thrown if parsing failed.
+     */
+    public static INbtPathExpression parseUncached(String nbtPathExpression) throws NbtParseException {
         List<INbtPathExpression> expressions = Lists.newArrayList();
 
         int pos = 0;
         while (pos < nbtPathExpression.length()) {
             boolean handled = false;
-            for (INbtPathExpressionParseHandler parseHandler : NbtPath.PARSE_HANDLERS) {
+            for (INbtPathExpressionParseHandler parseHandler : getParseHandlers(nbtPathExpression.charAt(pos))) {
                 INbtPathExpressionParseHandler.HandleResult handleResult = parseHandler.handlePrefixOf(nbtPathExpression, pos);
                 if (handleResult.isValid()) {
                     pos += handleResult.getConsumedExpressionLength();
@@ -58,7 +149,7 @@ public class NbtPath {
             }
         }
 
-        return new NbtPathExpressionList(expressions.toArray(new INbtPathExpression[0]));
+        return NbtPathExpressionListCompiled.compile(expressions.toArray(new INbtPathExpression[0]));
     }
 
 }
@@ -4,6 +4,7 @@ import org.cyclops.cyclopscore.nbt.path.navigate.INbtPathNavigation;
 import org.cyclops.cyclopscore.nbt.path.parse.NbtPathExpressionExecutionContext;
 
 import javax.annotation.Nullable;
+import java.util.Arrays;
 import java.util.stream.Stream;
 
 /**
@@ -30,6 +31,19 @@ public class NbtPathExpressionList implements INbtPathExpression {
         return subExpressions;
     }
 
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof NbtPathExpressionList)) {
+            return false;
+        }
+        return Arrays.equals(this.getSubExpressions(), ((NbtPathExpressionList) obj).getSubExpressions());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(getSubExpressions());
+    }
+
     @Override
     public INbtPathNavigation asNavigation(@Nullable INbtPathNavigation child) throws NbtParseException {
         INbtPathNavigation current = null;
@@ -0,0 +1,163 @@
+package org.cyclops.cyclopscore.nbt.path;
+
+import com.google.common.collect.Lists;
+import net.minecraft.nbt.NBTBase;
+import net.minecraft.nbt.NBTTagByte;
+import net.minecraftforge.common.util.Constants;
+import org.cyclops.cyclopscore.nbt.path.parse.NbtPathExpressionExecutionContext;
+import org.cyclops.cyclopscore.nbt.path.parse.NbtPathExpressionParseHandlerRoot;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * An NBT path expression list that evaluates its sub-expressions directly on NBT tags
+ * when matching or testing tags.
+ *
+ * Matches are passed from one sub-expression to the next via {@link INbtPathExpressionVisitor}s,
+ * so no streams or execution contexts are created for intermediary matches,
+ * and testing stops as soon as the first match is found.
+ * Evaluating against execution contexts via {@link #matchContexts(Stream)} remains stream-based.
+ *
+ * Instances should be created via {@link #compile(INbtPathExpression...)}.
+ */
+public class NbtPathExpressionListCompiled extends NbtPathExpressionList {
+
+    private final INbtPathExpression[] steps;
+
+    protected NbtPathExpressionListCompiled(INbtPathExpression[] subExpressions, INbtPathExpression[] steps) {
+        super(subExpressions);
+        this.steps = steps;
+    }
+
+    /**
+     * Create an expression list for the given sub-expressions.
+     * If all sub-expressions are flat, ignoring leading root expressions,
+     * a compiled expression list will be returned.
+     * Otherwise, a regular stream-based expression list will be returned.
+     * @param subExpressions The sub-expressions.
+     * @return An expression list.
+     */
+    public static NbtPathExpressionList compile(INbtPathExpression... subExpressions) {
+        // Root expressions at the start are no-ops when evaluation starts at the root tag.
+        int start = 0;
+        while (start < subExpressions.length && subExpressions[start] == NbtPathExpressionParseHandlerRoot.Expression.INSTANCE) {
+            start++;
+        }
+        for (int i = start; i < subExpressions.length; i++) {
+            if (!subExpressions[i].isFlat()) {
+                return new NbtPathExpressionList(subExpressions);
+            }
+        }
+        return new NbtPathExpressionListCompiled(subExpressions, Arrays.copyOfRange(subExpressions, start, subExpressions.length));
+    }
+
+    /**
+     * @return The flat sub-expressions that are evaluated in sequence, without leading root expressions.
+     */
+    public INbtPathExpression[] getSteps() {
+        return steps;
+    }
+
+    @Override
+    public boolean isFlat() {
+        return true;
+    }
+
+    @Override
+    public boolean visitMatches(NBTBase nbt, INbtPathExpressionVisitor visitor) {
+        if (steps.length == 0) {
+            return visitor.visit(nbt);
+        }
+        INbtPathExpressionVisitor chain = visitor;
+        for (int i = steps.length - 1; i > 0; i--) {
+            chain = new StepVisitor(steps[i], chain);
+        }
+        return steps[0].visitMatches(nbt, chain);
+    }
+
+    @Override
+    public NbtPathExpressionMatches match(Stream<NBTBase> nbts) {
+        MatchCollector collector = new MatchCollector();
+        nbts.forEach(nbt -> visitMatches(nbt, collector));
+        return new NbtPathExpressionMatches(collector.matches.stream().map(NbtPathExpressionExecutionContext::new));
+    }
+
+    @Override
+    public NbtPathExpressionMatches match(NBTBase nbt) {
+        MatchCollector collector = new MatchCollector();
+        visitMatches(nbt, collector);
+        return new NbtPathExpressionMatches(collector.matches.stream().map(NbtPathExpressionExecutionContext::new));
+    }
+
+    @Override
+    public boolean test(Stream<NBTBase> nbts) {
+        return nbts.findFirst().map(this::test).orElse(false);
+    }
+
+    @Override
+    public boolean test(NBTBase nbt) {
+        FirstMatchTester tester = new FirstMatchTester();
+        visitMatches(nbt, tester);
+        return tester.truthy;
+    }
+
+    /**
+     * Check if the given match of an expression is truthy,
+     * which is the case for all tags except for bytes that are not 1.
+     * @param nbt A matched NBT tag.
+     * @return If the tag is truthy.
+     */
+    public static boolean isTruthy(NBTBase nbt) {
+        return nbt.getId() != Constants.NBT.TAG_BYTE || ((NBTTagByte) nbt).getByte() == (byte) 1;
+    }
+
+    /**
+     * Passes all tags to the next step in the chain.
+     */
+    protected static class StepVisitor implements INbtPathExpressionVisitor {
+
+        private final INbtPathExpression step;
+        private final INbtPathExpressionVisitor next;
+
+        public StepVisitor(INbtPathExpression step, INbtPathExpressionVisitor next) {
+            this.step = step;
+            this.next = next;
+        }
+
+        @Override
+        public boolean visit(NBTBase nbt) {
+            return step.visitMatches(nbt, next);
+        }
+    }
+
+    /**
+     * Collects all matches.
+     */
+    protected static class MatchCollector implements INbtPathExpressionVisitor {
+
+        private final List<NBTBase> matches = Lists.newArrayList();
+
+        @Override
+        public boolean visit(NBTBase nbt) {
+            matches.add(nbt);
+            return true;
+        }
+    }
+
+    /**
+     * Checks if the first match is truthy, and stops afterwards.
+     */
+    protected static class FirstMatchTester implements INbtPathExpressionVisitor {
+
+        private boolean truthy = false;
+
+        @Override
+        public boolean visit(NBTBase nbt) {
+            truthy = isTruthy(nbt);
+            return false;
+        }
+    }
+
+}
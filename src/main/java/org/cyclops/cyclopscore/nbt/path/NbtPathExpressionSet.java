@@ -0,0 +1,210 @@
+package org.cyclops.cyclopscore.nbt.path;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import net.minecraft.nbt.NBTBase;
+
+import javax.annotation.Nullable;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of NBT path expressions that can be tested against an NBT tag at once.
+ *
+ * The steps of all flat expressions are merged into a shared trie,
+ * so that common prefixes such as "$.display" are only evaluated once per tag,
+ * and branches of the trie are not evaluated anymore once all of their expressions are decided.
+ * Expressions that are not flat are tested separately.
+ *
+ * Testing has the same semantics as {@link INbtPathExpression#test(NBTBase)} for each expression.
+ */
+public class NbtPathExpressionSet {
+
+    private final List<INbtPathExpression> expressions;
+    private final Node root;
+    private final int nodeCount;
+    private final int[] fallbackExpressions;
+
+    public NbtPathExpressionSet(List<INbtPathExpression> expressions) {
+        this.expressions = Collections.unmodifiableList(Lists.newArrayList(expressions));
+
+        List<Integer> fallbackExpressions = Lists.newArrayList();
+        int[] nodeCounter = new int[]{1};
+        this.root = new Node(null, 0);
+        for (int i = 0; i < this.expressions.size(); i++) {
+            INbtPathExpression[] steps = getSteps(this.expressions.get(i));
+            if (steps == null) {
+                fallbackExpressions.add(i);
+            } else {
+                Node node = this.root;
+                node.expressionCount++;
+                for (INbtPathExpression step : steps) {
+                    node = node.getOrCreateChild(step, nodeCounter);
+                    node.expressionCount++;
+                }
+                node.terminalExpressions.add(i);
+            }
+        }
+        this.nodeCount = nodeCounter[0];
+        this.fallbackExpressions = fallbackExpressions.stream().mapToInt(Integer::intValue).toArray();
+        this.root.seal();
+    }
+
+    public NbtPathExpressionSet(INbtPathExpression... expressions) {
+        this(Lists.newArrayList(expressions));
+    }
+
+    @Nullable
+    protected static INbtPathExpression[] getSteps(INbtPathExpression expression) {
+        if (expression instanceof NbtPathExpressionListCompiled) {
+            return ((NbtPathExpressionListCompiled) expression).getSteps();
+        }
+        if (expression.isFlat()) {
+            return new INbtPathExpression[]{expression};
+        }
+        return null;
+    }
+
+    /**
+     * @return The expressions in this set, in the order in which they are indexed.
+     */
+    public List<INbtPathExpression> getExpressions() {
+        return expressions;
+    }
+
+    /**
+     * @return The number of expressions in this set.
+     */
+    public int size() {
+        return expressions.size();
+    }
+
+    /**
+     * @return The number of nodes in the shared trie, including the root node.
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Test all expressions against the given NBT tag in a single traversal.
+     * @param nbt An NBT tag.
+     * @return The indexes (as in {@link #getExpressions()}) of the expressions that match.
+     */
+    public BitSet test(NBTBase nbt) {
+        Evaluation evaluation = new Evaluation();
+        evaluation.visit(this.root, nbt);
+        for (int expressionIndex : this.fallbackExpressions) {
+            if (this.expressions.get(expressionIndex).test(nbt)) {
+                evaluation.matches.set(expressionIndex);
+            }
+        }
+        return evaluation.matches;
+    }
+
+    /**
+     * Test if any of the expressions matches the given NBT tag.
+     * @param nbt An NBT tag.
+     * @return If at least one expression matches.
+     */
+    public boolean testAny(NBTBase nbt) {
+        return !test(nbt).isEmpty();
+    }
+
+    /**
+     * A node in the trie of expression steps.
+     */
+    protected static class Node {
+
+        @Nullable
+        private final Node parent;
+        private final int id;
+        private final Map<INbtPathExpression, Node> childrenIndex = Maps.newLinkedHashMap();
+        private final List<Integer> terminalExpressions = Lists.newArrayList();
+        private int expressionCount = 0;
+
+        private INbtPathExpression[] childSteps;
+        private Node[] children;
+        private int[] terminals;
+
+        public Node(@Nullable Node parent, int id) {
+            this.parent = parent;
+            this.id = id;
+        }
+
+        protected Node getOrCreateChild(INbtPathExpression step, int[] nodeCounter) {
+            Node child = this.childrenIndex.get(step);
+            if (child == null) {
+                child = new Node(this, nodeCounter[0]++);
+                this.childrenIndex.put(step, child);
+            }
+            return child;
+        }
+
+        protected void seal() {
+            this.childSteps = this.childrenIndex.keySet().toArray(new INbtPathExpression[0]);
+            this.children = this.childrenIndex.values().toArray(new Node[0]);
+            this.terminals = this.terminalExpressions.stream().mapToInt(Integer::intValue).toArray();
+            for (Node child : this.children) {
+                child.seal();
+            }
+        }
+    }
+
+    /**
+     * The state of testing a single tag.
+     */
+    protected class Evaluation {
+
+        private final BitSet matches = new BitSet(expressions.size());
+        private final BitSet decided = new BitSet(expressions.size());
+        private final int[] undecided = new int[nodeCount];
+        private final INbtPathExpressionVisitor[] visitors = new INbtPathExpressionVisitor[nodeCount];
+
+        public Evaluation() {
+            init(root);
+        }
+
+        protected void init(Node node) {
+            this.undecided[node.id] = node.expressionCount;
+            for (Node child : node.children) {
+                init(child);
+            }
+        }
+
+        protected INbtPathExpressionVisitor getVisitor(Node node) {
+            INbtPathExpressionVisitor visitor = this.visitors[node.id];
+            if (visitor == null) {
+                visitor = nbt -> {
+                    visit(node, nbt);
+                    return this.undecided[node.id] > 0;
+                };
+                this.visitors[node.id] = visitor;
+            }
+            return visitor;
+        }
+
+        protected void visit(Node node, NBTBase nbt) {
+            for (int expressionIndex : node.terminals) {
+                if (!this.decided.get(expressionIndex)) {
+                    this.decided.set(expressionIndex);
+                    if (NbtPathExpressionListCompiled.isTruthy(nbt)) {
+                        this.matches.set(expressionIndex);
+                    }
+                    for (Node current = node; current != null; current = current.parent) {
+                        this.undecided[current.id]--;
+                    }
+                }
+            }
+            for (int i = 0; i < node.children.length; i++) {
+                Node child = node.children[i];
+                if (this.undecided[child.id] > 0) {
+                    node.childSteps[i].visitMatches(nbt, getVisitor(child));
+                }
+            }
+        }
+    }
+
+}
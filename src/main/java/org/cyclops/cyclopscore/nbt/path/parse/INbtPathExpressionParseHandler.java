@@ -17,6 +17,16 @@ public interface INbtPathExpressionParseHandler {
      */
     public INbtPathExpressionParseHandler.HandleResult handlePrefixOf(String nbtPathExpression, int pos);
 
+    /**
+     * The characters that a string expression must start with to possibly be handled by this handler.
+     * This is used to skip handlers that can not handle a certain expression.
+     * @return The possible first characters, or null if any character can be handled.
+     */
+    @Nullable
+    public default char[] getPrefixCharacters() {
+        return null;
+    }
+
     /**
      * A result data object for {@link INbtPathExpressionParseHandler}.
      */
@@ -5,6 +5,7 @@ import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.nbt.NBTTagList;
 import net.minecraftforge.common.util.Constants;
 import org.cyclops.cyclopscore.nbt.path.INbtPathExpression;
+import org.cyclops.cyclopscore.nbt.path.INbtPathExpressionVisitor;
 import org.cyclops.cyclopscore.nbt.path.NbtPathExpressionMatches;
 import org.cyclops.cyclopscore.nbt.path.navigate.INbtPathNavigation;
 import org.cyclops.cyclopscore.nbt.path.navigate.NbtPathNavigationLeafWildcard;
@@ -20,6 +21,11 @@ import java.util.stream.StreamSupport;
  */
 public class NbtPathExpressionParseHandlerAllChildren implements INbtPathExpressionParseHandler {
 
+    @Override
+    public char[] getPrefixCharacters() {
+        return new char[]{'*'};
+    }
+
     @Nullable
     @Override
     public HandleResult handlePrefixOf(String nbtPathExpression, int pos) {
@@ -54,6 +60,31 @@ public class NbtPathExpressionParseHandlerAllChildren implements INbtPathExpress
             );
         }
 
+        @Override
+        public boolean isFlat() {
+            return true;
+        }
+
+        @Override
+        public boolean visitMatches(NBTBase nbt, INbtPathExpressionVisitor visitor) {
+            if (nbt.getId() == Constants.NBT.TAG_LIST) {
+                NBTTagList tag = (NBTTagList) nbt;
+                for (int i = 0; i < tag.tagCount(); i++) {
+                    if (!visitor.visit(tag.get(i))) {
+                        return false;
+                    }
+                }
+            } else if (nbt.getId() == Constants.NBT.TAG_COMPOUND) {
+                NBTTagCompound tag = (NBTTagCompound) nbt;
+                for (String key : tag.getKeySet()) {
+                    if (!visitor.visit(tag.getTag(key))) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
         @Override
         public INbtPathNavigation asNavigation(@Nullable INbtPathNavigation child) {
             return child == null ? NbtPathNavigationLeafWildcard.INSTANCE : new NbtPathNavigationLinkWildcard(child);
@@ -4,6 +4,7 @@ import net.minecraft.nbt.NBTBase;
 import net.minecraft.nbt.NBTPrimitive;
 import net.minecraft.nbt.NBTTagByte;
 import org.cyclops.cyclopscore.nbt.path.INbtPathExpression;
+import org.cyclops.cyclopscore.nbt.path.INbtPathExpressionVisitor;
 import org.cyclops.cyclopscore.nbt.path.NbtPathExpressionMatches;
 
 import javax.annotation.Nullable;
@@ -17,13 +18,20 @@ import java.util.stream.Stream;
 public abstract class NbtPathExpressionParseHandlerBooleanRelationalAdapter implements INbtPathExpressionParseHandler {
 
     private final Pattern regex;
+    private final char[] prefixCharacters;
 
     protected NbtPathExpressionParseHandlerBooleanRelationalAdapter(String relation) {
+        this.prefixCharacters = new char[]{' ', relation.charAt(0)};
         this.regex = Pattern.compile("^ *" + relation + " *([0-9]+(.[0-9]+)?)");
     }
 
     protected abstract boolean getRelationalValue(double left, double right);
 
+    @Override
+    public char[] getPrefixCharacters() {
+        return prefixCharacters;
+    }
+
     @Nullable
     @Override
     public HandleResult handlePrefixOf(String nbtPathExpression, int pos) {
@@ -53,6 +61,21 @@ public abstract class NbtPathExpressionParseHandlerBooleanRelationalAdapter impl
             return targetDouble;
         }
 
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Expression)) {
+                return false;
+            }
+            Expression that = (Expression) obj;
+            return this.getTargetDouble() == that.getTargetDouble()
+                    && this.handler.getClass() == that.handler.getClass();
+        }
+
+        @Override
+        public int hashCode() {
+            return Double.hashCode(getTargetDouble()) + 31 * handler.getClass().hashCode();
+        }
+
         @Override
         public NbtPathExpressionMatches matchContexts(Stream<NbtPathExpressionExecutionContext> executionContexts) {
             return new NbtPathExpressionMatches(executionContexts
@@ -69,5 +92,17 @@ public abstract class NbtPathExpressionParseHandlerBooleanRelationalAdapter impl
             );
         }
 
+        @Override
+        public boolean isFlat() {
+            return true;
+        }
+
+        @Override
+        public boolean visitMatches(NBTBase nbt, INbtPathExpressionVisitor visitor) {
+            boolean value = nbt instanceof NBTPrimitive
+                    && this.handler.getRelationalValue(((NBTPrimitive) nbt).getDouble(), getTargetDouble());
+            return visitor.visit(new NBTTagByte(value ? (byte) 1 : (byte) 0));
+        }
+
     }
 }
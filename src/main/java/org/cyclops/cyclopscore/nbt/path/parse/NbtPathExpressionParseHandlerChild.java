@@ -4,6 +4,7 @@ import net.minecraft.nbt.NBTBase;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraftforge.common.util.Constants;
 import org.cyclops.cyclopscore.nbt.path.INbtPathExpression;
+import org.cyclops.cyclopscore.nbt.path.INbtPathExpressionVisitor;
 import org.cyclops.cyclopscore.nbt.path.NbtPathExpressionMatches;
 import org.cyclops.cyclopscore.nbt.path.navigate.INbtPathNavigation;
 import org.cyclops.cyclopscore.nbt.path.navigate.NbtPathNavigationAdapter;
@@ -22,6 +23,11 @@ public class NbtPathExpressionParseHandlerChild implements INbtPathExpressionPar
 
     private static final Pattern REGEX_CHILDNAME = Pattern.compile("^[a-zA-Z_0-9]+");
 
+    @Override
+    public char[] getPrefixCharacters() {
+        return new char[]{'.'};
+    }
+
     @Nullable
     @Override
     public HandleResult handlePrefixOf(String nbtPathExpression, int pos) {
@@ -52,6 +58,20 @@ public class NbtPathExpressionParseHandlerChild implements INbtPathExpressionPar
             return childName;
         }
 
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Expression)) {
+                return false;
+            }
+            Expression that = (Expression) obj;
+            return this.getChildName().equals(that.getChildName());
+        }
+
+        @Override
+        public int hashCode() {
+            return getChildName().hashCode();
+        }
+
         @Override
         public NbtPathExpressionMatches matchContexts(Stream<NbtPathExpressionExecutionContext> executionContexts) {
             return new NbtPathExpressionMatches(executionContexts
@@ -70,6 +90,22 @@ public class NbtPathExpressionParseHandlerChild implements INbtPathExpressionPar
             );
         }
 
+        @Override
+        public boolean isFlat() {
+            return true;
+        }
+
+        @Override
+        public boolean visitMatches(NBTBase nbt, INbtPathExpressionVisitor visitor) {
+            if (nbt.getId() == Constants.NBT.TAG_COMPOUND) {
+                NBTBase childTag = ((NBTTagCompound) nbt).getTag(childName);
+                if (childTag != null) {
+                    return visitor.visit(childTag);
+                }
+            }
+            return true;
+        }
+
         @Override
         public INbtPathNavigation asNavigation(@Nullable INbtPathNavigation child) {
             return new NbtPathNavigationAdapter(getChildName(), child);
@@ -14,6 +14,11 @@ public class NbtPathExpressionParseHandlerChildBrackets implements INbtPathExpre
 
     private static final Pattern REGEX_CHILDNAME = Pattern.compile("^\\[\"([^\"]*)\"\\]");
 
+    @Override
+    public char[] getPrefixCharacters() {
+        return new char[]{'['};
+    }
+
     @Nullable
     @Override
     public HandleResult handlePrefixOf(String nbtPathExpression, int pos) {
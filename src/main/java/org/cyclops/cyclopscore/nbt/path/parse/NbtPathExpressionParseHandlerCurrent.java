@@ -1,6 +1,8 @@
 package org.cyclops.cyclopscore.nbt.path.parse;
 
+import net.minecraft.nbt.NBTBase;
 import org.cyclops.cyclopscore.nbt.path.INbtPathExpression;
+import org.cyclops.cyclopscore.nbt.path.INbtPathExpressionVisitor;
 import org.cyclops.cyclopscore.nbt.path.NbtPathExpressionMatches;
 
 import javax.annotation.Nullable;
@@ -11,6 +13,11 @@ import java.util.stream.Stream;
  */
 public class NbtPathExpressionParseHandlerCurrent implements INbtPathExpressionParseHandler {
 
+    @Override
+    public char[] getPrefixCharacters() {
+        return new char[]{'@'};
+    }
+
     @Nullable
     @Override
     public HandleResult handlePrefixOf(String nbtPathExpression, int pos) {
@@ -29,5 +36,15 @@ public class NbtPathExpressionParseHandlerCurrent implements INbtPathExpressionP
         public NbtPathExpressionMatches matchContexts(Stream<NbtPathExpressionExecutionContext> executionContexts) {
             return new NbtPathExpressionMatches(executionContexts);
         }
+
+        @Override
+        public boolean isFlat() {
+            return true;
+        }
+
+        @Override
+        public boolean visitMatches(NBTBase nbt, INbtPathExpressionVisitor visitor) {
+            return visitor.visit(nbt);
+        }
     }
 }
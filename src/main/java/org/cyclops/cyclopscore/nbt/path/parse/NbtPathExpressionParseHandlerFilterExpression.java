@@ -5,6 +5,7 @@ import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.nbt.NBTTagList;
 import net.minecraftforge.common.util.Constants;
 import org.cyclops.cyclopscore.nbt.path.INbtPathExpression;
+import org.cyclops.cyclopscore.nbt.path.INbtPathExpressionVisitor;
 import org.cyclops.cyclopscore.nbt.path.NbtParseException;
 import org.cyclops.cyclopscore.nbt.path.NbtPath;
 import org.cyclops.cyclopscore.nbt.path.NbtPathExpressionMatches;
@@ -23,6 +24,11 @@ public class NbtPathExpressionParseHandlerFilterExpression implements INbtPathEx
 
     private static final Pattern REGEX_EXPRESSION = Pattern.compile("^\\[\\?\\(([^\\)^\\(]+)\\)\\]");
 
+    @Override
+    public char[] getPrefixCharacters() {
+        return new char[]{'['};
+    }
+
     @Nullable
     @Override
     public HandleResult handlePrefixOf(String nbtPathExpression, int pos) {
@@ -55,6 +61,20 @@ public class NbtPathExpressionParseHandlerFilterExpression implements INbtPathEx
             return expression;
         }
 
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Expression)) {
+                return false;
+            }
+            Expression that = (Expression) obj;
+            return this.getExpression().equals(that.getExpression());
+        }
+
+        @Override
+        public int hashCode() {
+            return getExpression().hashCode();
+        }
+
         @Override
         public NbtPathExpressionMatches matchContexts(Stream<NbtPathExpressionExecutionContext> executionContexts) {
             return new NbtPathExpressionMatches(executionContexts
@@ -82,5 +102,36 @@ public class NbtPathExpressionParseHandlerFilterExpression implements INbtPathEx
             );
         }
 
+        @Override
+        public boolean isFlat() {
+            return true;
+        }
+
+        @Override
+        public boolean visitMatches(NBTBase nbt, INbtPathExpressionVisitor visitor) {
+            if (nbt.getId() == Constants.NBT.TAG_LIST) {
+                NBTTagList tag = (NBTTagList) nbt;
+                NBTTagList newTagList = new NBTTagList();
+                for (int i = 0; i < tag.tagCount(); i++) {
+                    NBTBase subTag = tag.get(i);
+                    if (getExpression().test(subTag)) {
+                        newTagList.appendTag(subTag);
+                    }
+                }
+                return visitor.visit(newTagList);
+            } else if (nbt.getId() == Constants.NBT.TAG_COMPOUND) {
+                NBTTagCompound tag = (NBTTagCompound) nbt;
+                NBTTagList newTagList = new NBTTagList();
+                for (String key : tag.getKeySet()) {
+                    NBTBase subTag = tag.getTag(key);
+                    if (getExpression().test(subTag)) {
+                        newTagList.appendTag(subTag);
+                    }
+                }
+                return visitor.visit(newTagList);
+            }
+            return true;
+        }
+
     }
 }
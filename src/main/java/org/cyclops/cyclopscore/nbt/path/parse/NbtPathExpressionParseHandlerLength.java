@@ -6,6 +6,7 @@ import net.minecraft.nbt.NBTTagInt;
 import net.minecraft.nbt.NBTTagList;
 import net.minecraftforge.common.util.Constants;
 import org.cyclops.cyclopscore.nbt.path.INbtPathExpression;
+import org.cyclops.cyclopscore.nbt.path.INbtPathExpressionVisitor;
 import org.cyclops.cyclopscore.nbt.path.NbtPathExpressionMatches;
 
 import javax.annotation.Nullable;
@@ -18,6 +19,11 @@ import java.util.stream.Stream;
  */
 public class NbtPathExpressionParseHandlerLength implements INbtPathExpressionParseHandler {
 
+    @Override
+    public char[] getPrefixCharacters() {
+        return new char[]{'.'};
+    }
+
     @Nullable
     @Override
     public HandleResult handlePrefixOf(String nbtPathExpression, int pos) {
@@ -50,5 +56,20 @@ public class NbtPathExpressionParseHandlerLength implements INbtPathExpressionPa
             );
         }
 
+        @Override
+        public boolean isFlat() {
+            return true;
+        }
+
+        @Override
+        public boolean visitMatches(NBTBase nbt, INbtPathExpressionVisitor visitor) {
+            if (nbt.getId() == Constants.NBT.TAG_LIST) {
+                return visitor.visit(new NBTTagInt(((NBTTagList) nbt).tagCount()));
+            } else if (nbt.getId() == Constants.NBT.TAG_COMPOUND) {
+                return visitor.visit(new NBTTagInt(((NBTTagCompound) nbt).getKeySet().size()));
+            }
+            return true;
+        }
+
     }
 }
@@ -4,6 +4,7 @@ import net.minecraft.nbt.NBTBase;
 import net.minecraft.nbt.NBTTagList;
 import net.minecraftforge.common.util.Constants;
 import org.cyclops.cyclopscore.nbt.path.INbtPathExpression;
+import org.cyclops.cyclopscore.nbt.path.INbtPathExpressionVisitor;
 import org.cyclops.cyclopscore.nbt.path.NbtPathExpressionMatches;
 
 import javax.annotation.Nullable;
@@ -20,6 +21,11 @@ public class NbtPathExpressionParseHandlerListElement implements INbtPathExpress
 
     private static final Pattern REGEX_ELEMENTINDEX = Pattern.compile("^\\[([0-9]+)\\]");
 
+    @Override
+    public char[] getPrefixCharacters() {
+        return new char[]{'['};
+    }
+
     @Nullable
     @Override
     public HandleResult handlePrefixOf(String nbtPathExpression, int pos) {
@@ -47,6 +53,20 @@ public class NbtPathExpressionParseHandlerListElement implements INbtPathExpress
             return childIndex;
         }
 
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Expression)) {
+                return false;
+            }
+            Expression that = (Expression) obj;
+            return this.getChildIndex() == that.getChildIndex();
+        }
+
+        @Override
+        public int hashCode() {
+            return getChildIndex();
+        }
+
         @Override
         public NbtPathExpressionMatches matchContexts(Stream<NbtPathExpressionExecutionContext> executionContexts) {
             return new NbtPathExpressionMatches(executionContexts
@@ -65,5 +85,21 @@ public class NbtPathExpressionParseHandlerListElement implements INbtPathExpress
             );
         }
 
+        @Override
+        public boolean isFlat() {
+            return true;
+        }
+
+        @Override
+        public boolean visitMatches(NBTBase nbt, INbtPathExpressionVisitor visitor) {
+            if (nbt.getId() == Constants.NBT.TAG_LIST) {
+                NBTTagList tag = (NBTTagList) nbt;
+                if (childIndex < tag.tagCount()) {
+                    return visitor.visit(tag.get(getChildIndex()));
+                }
+            }
+            return true;
+        }
+
     }
 }
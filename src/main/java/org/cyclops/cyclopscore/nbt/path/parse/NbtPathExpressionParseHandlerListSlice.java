@@ -4,6 +4,7 @@ import net.minecraft.nbt.NBTBase;
 import net.minecraft.nbt.NBTTagList;
 import net.minecraftforge.common.util.Constants;
 import org.cyclops.cyclopscore.nbt.path.INbtPathExpression;
+import org.cyclops.cyclopscore.nbt.path.INbtPathExpressionVisitor;
 import org.cyclops.cyclopscore.nbt.path.NbtPathExpressionMatches;
 
 import javax.annotation.Nullable;
@@ -20,6 +21,11 @@ public class NbtPathExpressionParseHandlerListSlice implements INbtPathExpressio
 
     private static final Pattern REGEX_RANGE = Pattern.compile("^\\[([0-9]*):([0-9]*)(:([0-9]+))?\\]");
 
+    @Override
+    public char[] getPrefixCharacters() {
+        return new char[]{'['};
+    }
+
     @Nullable
     @Override
     public HandleResult handlePrefixOf(String nbtPathExpression, int pos) {
@@ -75,6 +81,22 @@ public class NbtPathExpressionParseHandlerListSlice implements INbtPathExpressio
             return step;
         }
 
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Expression)) {
+                return false;
+            }
+            Expression that = (Expression) obj;
+            return this.getStart() == that.getStart()
+                    && this.getEnd() == that.getEnd()
+                    && this.getStep() == that.getStep();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(getStart(), getEnd(), getStep());
+        }
+
         @Override
         public NbtPathExpressionMatches matchContexts(Stream<NbtPathExpressionExecutionContext> executionContexts) {
             return new NbtPathExpressionMatches(executionContexts
@@ -94,5 +116,24 @@ public class NbtPathExpressionParseHandlerListSlice implements INbtPathExpressio
             );
         }
 
+        @Override
+        public boolean isFlat() {
+            return true;
+        }
+
+        @Override
+        public boolean visitMatches(NBTBase nbt, INbtPathExpressionVisitor visitor) {
+            if (nbt.getId() == Constants.NBT.TAG_LIST) {
+                NBTTagList tag = (NBTTagList) nbt;
+                int actualEnd = getEnd() > -1 ? Math.min(tag.tagCount() - 1, getEnd()) : tag.tagCount() - 1;
+                for (int i = getStart(); i <= actualEnd; i += getStep()) {
+                    if (!visitor.visit(tag.get(i))) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
     }
 }
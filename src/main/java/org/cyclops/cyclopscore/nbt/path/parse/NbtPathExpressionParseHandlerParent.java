@@ -12,6 +12,11 @@ import java.util.stream.Stream;
  */
 public class NbtPathExpressionParseHandlerParent implements INbtPathExpressionParseHandler {
 
+    @Override
+    public char[] getPrefixCharacters() {
+        return new char[]{'.'};
+    }
+
     @Nullable
     @Override
     public HandleResult handlePrefixOf(String nbtPathExpression, int pos) {
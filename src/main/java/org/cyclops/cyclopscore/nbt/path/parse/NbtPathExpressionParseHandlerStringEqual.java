@@ -5,6 +5,7 @@ import net.minecraft.nbt.NBTTagByte;
 import net.minecraft.nbt.NBTTagString;
 import net.minecraftforge.common.util.Constants;
 import org.cyclops.cyclopscore.nbt.path.INbtPathExpression;
+import org.cyclops.cyclopscore.nbt.path.INbtPathExpressionVisitor;
 import org.cyclops.cyclopscore.nbt.path.NbtPathExpressionMatches;
 
 import javax.annotation.Nullable;
@@ -19,6 +20,11 @@ public class NbtPathExpressionParseHandlerStringEqual implements INbtPathExpress
 
     private static final Pattern REGEX_EQUAL = Pattern.compile("^ *== *\"([^\"]*)\"");
 
+    @Override
+    public char[] getPrefixCharacters() {
+        return new char[]{' ', '='};
+    }
+
     @Nullable
     @Override
     public HandleResult handlePrefixOf(String nbtPathExpression, int pos) {
@@ -45,6 +51,20 @@ public class NbtPathExpressionParseHandlerStringEqual implements INbtPathExpress
             return targetString;
         }
 
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Expression)) {
+                return false;
+            }
+            Expression that = (Expression) obj;
+            return this.getTargetString().equals(that.getTargetString());
+        }
+
+        @Override
+        public int hashCode() {
+            return getTargetString().hashCode();
+        }
+
         @Override
         public NbtPathExpressionMatches matchContexts(Stream<NbtPathExpressionExecutionContext> executionContexts) {
             return new NbtPathExpressionMatches(executionContexts
@@ -61,5 +81,17 @@ public class NbtPathExpressionParseHandlerStringEqual implements INbtPathExpress
             );
         }
 
+        @Override
+        public boolean isFlat() {
+            return true;
+        }
+
+        @Override
+        public boolean visitMatches(NBTBase nbt, INbtPathExpressionVisitor visitor) {
+            boolean value = nbt.getId() == Constants.NBT.TAG_STRING
+                    && getTargetString().equals(((NBTTagString) nbt).getString());
+            return visitor.visit(new NBTTagByte(value ? (byte) 1 : (byte) 0));
+        }
+
     }
 }
@@ -6,6 +6,7 @@ import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.nbt.NBTTagList;
 import net.minecraftforge.common.util.Constants;
 import org.cyclops.cyclopscore.nbt.path.INbtPathExpression;
+import org.cyclops.cyclopscore.nbt.path.INbtPathExpressionVisitor;
 import org.cyclops.cyclopscore.nbt.path.NbtPathExpressionMatches;
 import org.cyclops.cyclopscore.nbt.path.navigate.INbtPathNavigation;
 import org.cyclops.cyclopscore.nbt.path.navigate.NbtPathNavigationAdapter;
@@ -25,6 +26,11 @@ public class NbtPathExpressionParseHandlerUnion implements INbtPathExpressionPar
 
     private static final Pattern REGEX_BRACKETS = Pattern.compile("^\\[([^\\]]+(,[^\\]]+)+)]");
 
+    @Override
+    public char[] getPrefixCharacters() {
+        return new char[]{'['};
+    }
+
     @Nullable
     @Override
     public HandleResult handlePrefixOf(String nbtPathExpression, int pos) {
@@ -75,6 +81,21 @@ public class NbtPathExpressionParseHandlerUnion implements INbtPathExpressionPar
             return childIndexes;
         }
 
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Expression)) {
+                return false;
+            }
+            Expression that = (Expression) obj;
+            return this.getChildNames().equals(that.getChildNames())
+                    && this.getChildIndexes().equals(that.getChildIndexes());
+        }
+
+        @Override
+        public int hashCode() {
+            return getChildNames().hashCode() + 31 * getChildIndexes().hashCode();
+        }
+
         @Override
         public NbtPathExpressionMatches matchContexts(Stream<NbtPathExpressionExecutionContext> executionContexts) {
             return new NbtPathExpressionMatches(executionContexts
@@ -101,6 +122,33 @@ public class NbtPathExpressionParseHandlerUnion implements INbtPathExpressionPar
             );
         }
 
+        @Override
+        public boolean isFlat() {
+            return true;
+        }
+
+        @Override
+        public boolean visitMatches(NBTBase nbt, INbtPathExpressionVisitor visitor) {
+            if (!getChildIndexes().isEmpty() && nbt.getId() == Constants.NBT.TAG_LIST) {
+                NBTTagList tag = (NBTTagList) nbt;
+                for (Integer childIndex : getChildIndexes()) {
+                    NBTBase subTag = tag.get(childIndex);
+                    if (subTag.getId() != 0 && !visitor.visit(subTag)) {
+                        return false;
+                    }
+                }
+            } else if (!getChildNames().isEmpty() && nbt.getId() == Constants.NBT.TAG_COMPOUND) {
+                NBTTagCompound tag = (NBTTagCompound) nbt;
+                for (String childName : getChildNames()) {
+                    NBTBase subTag = tag.getTag(childName);
+                    if (subTag != null && !visitor.visit(subTag)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
         @Override
         public INbtPathNavigation asNavigation(@Nullable INbtPathNavigation child) {
             if (!getChildNames().isEmpty()) {
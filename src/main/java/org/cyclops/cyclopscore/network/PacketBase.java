@@ -8,6 +8,9 @@ import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
 
+import javax.annotation.Nullable;
+import java.util.function.Consumer;
+
 /**
  * The base packet for packets.
  * @author rubensworks
@@ -33,6 +36,39 @@ public abstract class PacketBase implements IMessage {
 	 */
     public abstract void decode(ExtendedBuffer input);
 
+	/**
+	 * Prepare this packet after it has been decoded, before its action is called.
+	 * This is called on the network thread, even if this packet is not asynchronous,
+	 * so heavy work that does not require access to the world, such as decompressing or validating data,
+	 * can be done here instead of on the main thread.
+	 * Prepared results can be stored in this packet, as they will be visible to its action.
+	 * @param side The side on which this packet was received.
+	 * @return If the action should be called, otherwise the packet is dropped.
+	 */
+	public boolean prepare(Side side) {
+		return true;
+	}
+
+	/**
+	 * Prepare this packet on the current thread, and run the given action if it should be called.
+	 * The action is run directly if this packet is asynchronous, otherwise it is passed to the given scheduler.
+	 * @param side The side on which this packet was received.
+	 * @param scheduler A scheduler for actions on the main thread.
+	 * @param action The action of this packet.
+	 * @return If the action was run or scheduled.
+	 */
+	public boolean prepareAndRun(Side side, Consumer<Runnable> scheduler, Runnable action) {
+		if (!prepare(side)) {
+			return false;
+		}
+		if (isAsync()) {
+			action.run();
+		} else {
+			scheduler.accept(action);
+		}
+		return true;
+	}
+
 	/**
 	 * Actions for client-side.
 	 * @param world The world.
@@ -48,6 +84,17 @@ public abstract class PacketBase implements IMessage {
 	 */
     public abstract void actionServer(World world, EntityPlayerMP player);
 
+	/**
+	 * @return A key for coalescing this packet when it is queued via
+	 *         {@link PacketHandler#queueToPlayer(PacketBase, EntityPlayerMP)}.
+	 *         A queued packet of the same type with an equal key is replaced by this packet.
+	 *         If null, this packet is never coalesced.
+	 */
+	@Nullable
+	public Object getCoalesceKey() {
+		return null;
+	}
+
 	@Override
 	public void fromBytes(ByteBuf source) {
 		decode(new ExtendedBuffer(source));
@@ -0,0 +1,135 @@
+package org.cyclops.cyclopscore.network;
+
+import com.google.common.collect.Lists;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.DecoderException;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.world.World;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * A packet that contains several other packets, so that they can be sent as a single frame.
+ *
+ * Each contained packet is encoded as its type id, followed by its length and its encoded contents.
+ * The type ids are defined by the {@link PacketHandler} that sends and receives this packet.
+ * This packet has no actions of its own, the packet handler unpacks it and handles the contained packets instead.
+ * Batches can not contain other batches, and they are only sent from the server to clients.
+ * @author rubensworks
+ *
+ */
+public class PacketBatch extends PacketBase {
+
+    // Each contained packet has at least a single-byte type id and a length
+    private static final int MIN_PACKET_SIZE = 1 + 4;
+
+    private int count;
+    private ByteBuf data;
+
+    public PacketBatch() {
+
+    }
+
+    /**
+     * Encode the given packets into a new batch.
+     * @param typeIds A function to determine the type id of a packet.
+     * @param packets The packets to contain.
+     */
+    public PacketBatch(ToIntFunction<PacketBase> typeIds, Collection<? extends PacketBase> packets) {
+        this.count = packets.size();
+        ExtendedBuffer buffer = new ExtendedBuffer(Unpooled.buffer());
+        for (PacketBase packet : packets) {
+            if (packet instanceof PacketBatch) {
+                throw new IllegalArgumentException("Tried to batch a packet batch");
+            }
+            buffer.writeVarInt(typeIds.applyAsInt(packet));
+            int lengthIndex = buffer.writerIndex();
+            buffer.writeInt(0);
+            packet.encode(buffer);
+            buffer.setInt(lengthIndex, buffer.writerIndex() - lengthIndex - 4);
+        }
+        this.data = buffer;
+    }
+
+    /**
+     * @return The number of contained packets.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return The number of bytes of the contained packets.
+     */
+    public int getDataSize() {
+        return data.readableBytes();
+    }
+
+    /**
+     * Decode the contained packets.
+     * @param factory A function to create a new packet instance for a type id.
+     * @return The contained packets, in the order in which they were added.
+     * @throws DecoderException If the batch is malformed or contains another batch.
+     */
+    public List<PacketBase> unpack(IntFunction<PacketBase> factory) {
+        // The count is sent by the other side, so it is checked before allocating anything for it.
+        if (count < 0 || count > data.readableBytes() / MIN_PACKET_SIZE) {
+            throw new DecoderException("Invalid packet batch of " + count + " packets in "
+                    + data.readableBytes() + " bytes");
+        }
+        List<PacketBase> packets = Lists.newArrayListWithCapacity(count);
+        ExtendedBuffer buffer = new ExtendedBuffer(data.duplicate());
+        for (int i = 0; i < count; i++) {
+            PacketBase packet = factory.apply(buffer.readVarInt());
+            if (packet instanceof PacketBatch) {
+                throw new DecoderException("Invalid packet batch that contains another batch");
+            }
+            int length = buffer.readInt();
+            if (length < 0 || length > buffer.readableBytes()) {
+                throw new DecoderException("Invalid batched packet length " + length);
+            }
+            packet.decode(new ExtendedBuffer(buffer.readSlice(length)));
+            packets.add(packet);
+        }
+        return packets;
+    }
+
+    @Override
+    public boolean isAsync() {
+        return true;
+    }
+
+    @Override
+    public void encode(ExtendedBuffer output) {
+        output.writeVarInt(count);
+        output.writeBytes(data, data.readerIndex(), data.readableBytes());
+    }
+
+    @Override
+    public void decode(ExtendedBuffer input) {
+        count = input.readVarInt();
+        // Copied into an unpooled buffer, as a buffer from the pooled allocator would never be released.
+        byte[] bytes = new byte[input.readableBytes()];
+        input.readBytes(bytes);
+        data = Unpooled.wrappedBuffer(bytes);
+    }
+
+    @Override
+    @SideOnly(Side.CLIENT)
+    public void actionClient(World world, EntityPlayer player) {
+        // Handled by the packet handler
+    }
+
+    @Override
+    public void actionServer(World world, EntityPlayerMP player) {
+        // Handled by the packet handler
+    }
+
+}
@@ -10,20 +10,17 @@ import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.Vec3d;
 import net.minecraftforge.fluids.FluidStack;
 import org.apache.commons.lang3.ClassUtils;
-import org.cyclops.cyclopscore.datastructure.SingleCache;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
-import java.lang.reflect.Field;
-import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 /**
  * Packet with automatic coding and decoding of basic fields annotated with {@link CodecField}.
+ * The fields of each packet class are compiled once into a {@link PacketCodecPlan}.
  * @author rubensworks
  *
  */
@@ -347,46 +344,6 @@ public abstract class PacketCodec extends PacketBase {
 		});
 	}
 
-    protected SingleCache<Void, List<Field>> fieldCache = new SingleCache<Void, List<Field>>(
-            new SingleCache.ICacheUpdater<Void, List<Field>>() {
-
-        @Override
-        public List<Field> getNewValue(Void key) {
-			List<Field> fieldList = Lists.newLinkedList();
-
-			Class<?> clazz = PacketCodec.this.getClass();
-			for (; clazz != PacketCodec.class && clazz != null; clazz = clazz.getSuperclass()) {
-				Field[] fields = clazz.getDeclaredFields();
-
-				// Sort this because the Java API tells us that getDeclaredFields()
-				// does not deterministically define the order of the fields in the array.
-				// Otherwise we might get nasty class cast exceptions when running in SMP.
-				Arrays.sort(fields, new Comparator<Field>() {
-
-					@Override
-					public int compare(Field o1, Field o2) {
-						return o1.getName().compareTo(o2.getName());
-					}
-
-				});
-
-				for (final Field field : fields) {
-					if (field.isAnnotationPresent(CodecField.class)) {
-						fieldList.add(field);
-					}
-				}
-			}
-
-            return fieldList;
-        }
-
-        @Override
-        public boolean isKeyEqual(Void cacheKey, Void newKey) {
-            return true;
-        }
-
-    });
-
 	@Nullable
 	protected static ICodecAction getActionSuper(Class<?> clazz) {
 		if(ClassUtils.isPrimitiveWrapper(clazz)) {
@@ -419,50 +376,17 @@ public abstract class PacketCodec extends PacketBase {
 		return action;
 	}
 	
-	private void loopCodecFields(ICodecRunnable runnable) {
-		try {
-			for (Field field : fieldCache.get(null)) {
-				Class<?> clazz = field.getType();
-				ICodecAction action = getAction(clazz);
-
-				// Make private fields temporarily accessible.
-				boolean accessible = field.isAccessible();
-				if (!accessible) {
-					field.setAccessible(true);
-				}
-				runnable.run(field, action);
-			}
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-	}
-
 	@Override
 	public void encode(final ExtendedBuffer output) {
-		loopCodecFields((field, action) -> {
-            Object object = null;
-            try {
-                object = field.get(PacketCodec.this);
-            } catch (IllegalArgumentException | IllegalAccessException e) {
-                e.printStackTrace();
-            }
-            action.encode(object, output);
-        });
+		PacketCodecPlanRegistry.get(getClass()).encode(this, output);
 	}
 
 	@Override
     public void decode(final ExtendedBuffer input) {
-		loopCodecFields((field, action) -> {
-            Object object = action.decode(input);
-            try {
-                field.set(PacketCodec.this, object);
-            } catch (IllegalArgumentException | IllegalAccessException e) {
-                e.printStackTrace();
-            }
-        });
+		PacketCodecPlanRegistry.get(getClass()).decode(this, input);
 	}
 	
-	private interface ICodecAction {
+	static interface ICodecAction {
 		
 		/**
 		 * Encode the given object.
@@ -480,15 +404,4 @@ public abstract class PacketCodec extends PacketBase {
 	    
 	}
 	
-	private interface ICodecRunnable {
-		
-		/**
-		 * Run a type of codec.
-		 * @param field The field annotated with {@link CodecField}.
-		 * @param action The action that must be applied to the field.
-		 */
-		public void run(Field field, ICodecAction action);
-		
-	}
-	
 }
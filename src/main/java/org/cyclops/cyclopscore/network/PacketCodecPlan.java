@@ -0,0 +1,296 @@
+package org.cyclops.cyclopscore.network;
+
+import com.google.common.collect.Lists;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A compiled encoder and decoder for all {@link CodecField} fields of a {@link PacketCodec} class.
+ *
+ * Fields are resolved only once per packet class,
+ * and are accessed through method handles with pre-resolved codec actions.
+ * Primitive fields are read and written directly, without boxing.
+ * Plans are obtained via the {@link PacketCodecPlanRegistry}.
+ *
+ * @author rubensworks
+ */
+public final class PacketCodecPlan {
+
+    private final IFieldCodec[] fieldCodecs;
+
+    private PacketCodecPlan(IFieldCodec[] fieldCodecs) {
+        this.fieldCodecs = fieldCodecs;
+    }
+
+    /**
+     * Encode all codec fields of the given packet.
+     * @param packet The packet to read from.
+     * @param output The buffer to encode to.
+     */
+    public void encode(PacketCodec packet, ExtendedBuffer output) {
+        try {
+            for (IFieldCodec fieldCodec : fieldCodecs) {
+                fieldCodec.encode(packet, output);
+            }
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Decode all codec fields into the given packet.
+     * @param packet The packet to write to.
+     * @param input The buffer to decode from.
+     */
+    public void decode(PacketCodec packet, ExtendedBuffer input) {
+        try {
+            for (IFieldCodec fieldCodec : fieldCodecs) {
+                fieldCodec.decode(packet, input);
+            }
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return The number of codec fields in this plan.
+     */
+    public int getFieldCount() {
+        return fieldCodecs.length;
+    }
+
+    protected static List<Field> getCodecFields(Class<? extends PacketCodec> packetClass) {
+        List<Field> fieldList = Lists.newArrayList();
+
+        Class<?> clazz = packetClass;
+        for (; clazz != PacketCodec.class && clazz != null; clazz = clazz.getSuperclass()) {
+            Field[] fields = clazz.getDeclaredFields();
+
+            // Sort this because the Java API tells us that getDeclaredFields()
+            // does not deterministically define the order of the fields in the array.
+            // Otherwise we might get nasty class cast exceptions when running in SMP.
+            Arrays.sort(fields, Comparator.comparing(Field::getName));
+
+            for (final Field field : fields) {
+                if (field.isAnnotationPresent(CodecField.class)) {
+                    fieldList.add(field);
+                }
+            }
+        }
+
+        return fieldList;
+    }
+
+    protected static PacketCodecPlan compile(Class<? extends PacketCodec> packetClass) {
+        List<Field> fields = getCodecFields(packetClass);
+        IFieldCodec[] fieldCodecs = new IFieldCodec[fields.size()];
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            for (int i = 0; i < fieldCodecs.length; i++) {
+                Field field = fields.get(i);
+                field.setAccessible(true);
+                fieldCodecs[i] = compileField(field, lookup.unreflectGetter(field), lookup.unreflectSetter(field));
+            }
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Could not access the codec fields of " + packetClass, e);
+        }
+        return new PacketCodecPlan(fieldCodecs);
+    }
+
+    protected static IFieldCodec compileField(Field field, MethodHandle getter, MethodHandle setter) {
+        Class<?> type = field.getType();
+        if (type == int.class) {
+            return new IntFieldCodec(getter, setter);
+        } else if (type == long.class) {
+            return new LongFieldCodec(getter, setter);
+        } else if (type == double.class) {
+            return new DoubleFieldCodec(getter, setter);
+        } else if (type == float.class) {
+            return new FloatFieldCodec(getter, setter);
+        } else if (type == short.class) {
+            return new ShortFieldCodec(getter, setter);
+        } else if (type == boolean.class) {
+            return new BooleanFieldCodec(getter, setter);
+        }
+        return new ObjectFieldCodec(getter, setter, PacketCodec.getAction(type));
+    }
+
+    protected static MethodHandle adaptGetter(MethodHandle getter, Class<?> type) {
+        return getter.asType(MethodType.methodType(type, PacketCodec.class));
+    }
+
+    protected static MethodHandle adaptSetter(MethodHandle setter, Class<?> type) {
+        return setter.asType(MethodType.methodType(void.class, PacketCodec.class, type));
+    }
+
+    /**
+     * Encoder and decoder for a single field.
+     */
+    protected static interface IFieldCodec {
+
+        public void encode(PacketCodec packet, ExtendedBuffer output) throws Throwable;
+
+        public void decode(PacketCodec packet, ExtendedBuffer input) throws Throwable;
+
+    }
+
+    protected static class ObjectFieldCodec implements IFieldCodec {
+
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final PacketCodec.ICodecAction action;
+
+        public ObjectFieldCodec(MethodHandle getter, MethodHandle setter, PacketCodec.ICodecAction action) {
+            this.getter = adaptGetter(getter, Object.class);
+            this.setter = adaptSetter(setter, Object.class);
+            this.action = action;
+        }
+
+        @Override
+        public void encode(PacketCodec packet, ExtendedBuffer output) throws Throwable {
+            action.encode((Object) getter.invokeExact(packet), output);
+        }
+
+        @Override
+        public void decode(PacketCodec packet, ExtendedBuffer input) throws Throwable {
+            setter.invokeExact(packet, action.decode(input));
+        }
+    }
+
+    protected static class IntFieldCodec implements IFieldCodec {
+
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        public IntFieldCodec(MethodHandle getter, MethodHandle setter) {
+            this.getter = adaptGetter(getter, int.class);
+            this.setter = adaptSetter(setter, int.class);
+        }
+
+        @Override
+        public void encode(PacketCodec packet, ExtendedBuffer output) throws Throwable {
+            output.writeInt((int) getter.invokeExact(packet));
+        }
+
+        @Override
+        public void decode(PacketCodec packet, ExtendedBuffer input) throws Throwable {
+            setter.invokeExact(packet, input.readInt());
+        }
+    }
+
+    protected static class LongFieldCodec implements IFieldCodec {
+
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        public LongFieldCodec(MethodHandle getter, MethodHandle setter) {
+            this.getter = adaptGetter(getter, long.class);
+            this.setter = adaptSetter(setter, long.class);
+        }
+
+        @Override
+        public void encode(PacketCodec packet, ExtendedBuffer output) throws Throwable {
+            output.writeLong((long) getter.invokeExact(packet));
+        }
+
+        @Override
+        public void decode(PacketCodec packet, ExtendedBuffer input) throws Throwable {
+            setter.invokeExact(packet, input.readLong());
+        }
+    }
+
+    protected static class DoubleFieldCodec implements IFieldCodec {
+
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        public DoubleFieldCodec(MethodHandle getter, MethodHandle setter) {
+            this.getter = adaptGetter(getter, double.class);
+            this.setter = adaptSetter(setter, double.class);
+        }
+
+        @Override
+        public void encode(PacketCodec packet, ExtendedBuffer output) throws Throwable {
+            output.writeDouble((double) getter.invokeExact(packet));
+        }
+
+        @Override
+        public void decode(PacketCodec packet, ExtendedBuffer input) throws Throwable {
+            setter.invokeExact(packet, input.readDouble());
+        }
+    }
+
+    protected static class FloatFieldCodec implements IFieldCodec {
+
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        public FloatFieldCodec(MethodHandle getter, MethodHandle setter) {
+            this.getter = adaptGetter(getter, float.class);
+            this.setter = adaptSetter(setter, float.class);
+        }
+
+        @Override
+        public void encode(PacketCodec packet, ExtendedBuffer output) throws Throwable {
+            output.writeFloat((float) getter.invokeExact(packet));
+        }
+
+        @Override
+        public void decode(PacketCodec packet, ExtendedBuffer input) throws Throwable {
+            setter.invokeExact(packet, input.readFloat());
+        }
+    }
+
+    protected static class ShortFieldCodec implements IFieldCodec {
+
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        public ShortFieldCodec(MethodHandle getter, MethodHandle setter) {
+            this.getter = adaptGetter(getter, short.class);
+            this.setter = adaptSetter(setter, short.class);
+        }
+
+        @Override
+        public void encode(PacketCodec packet, ExtendedBuffer output) throws Throwable {
+            output.writeShort((short) getter.invokeExact(packet));
+        }
+
+        @Override
+        public void decode(PacketCodec packet, ExtendedBuffer input) throws Throwable {
+            setter.invokeExact(packet, input.readShort());
+        }
+    }
+
+    protected static class BooleanFieldCodec implements IFieldCodec {
+
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        public BooleanFieldCodec(MethodHandle getter, MethodHandle setter) {
+            this.getter = adaptGetter(getter, boolean.class);
+            this.setter = adaptSetter(setter, boolean.class);
+        }
+
+        @Override
+        public void encode(PacketCodec packet, ExtendedBuffer output) throws Throwable {
+            output.writeBoolean((boolean) getter.invokeExact(packet));
+        }
+
+        @Override
+        public void decode(PacketCodec packet, ExtendedBuffer input) throws Throwable {
+            setter.invokeExact(packet, input.readBoolean());
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+package org.cyclops.cyclopscore.network;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe registry of the {@link PacketCodecPlan} of each {@link PacketCodec} class.
+ *
+ * Plans are stored per class using a {@link ClassValue},
+ * so they can be looked up concurrently from network threads without locking.
+ * Plans of registered packet types are compiled upfront,
+ * other packet types are compiled on first use.
+ *
+ * @author rubensworks
+ */
+public final class PacketCodecPlanRegistry {
+
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final LongAdder BUILDS = new LongAdder();
+    private static final LongAdder BUILD_TIME = new LongAdder();
+    // Plans are compiled on the thread that requests them, so this marks if the current lookup compiled a plan.
+    private static final ThreadLocal<boolean[]> BUILT = ThreadLocal.withInitial(() -> new boolean[1]);
+
+    private static final ClassValue<PacketCodecPlan> PLANS = new ClassValue<PacketCodecPlan>() {
+        @Override
+        protected PacketCodecPlan computeValue(Class<?> type) {
+            long start = System.nanoTime();
+            PacketCodecPlan plan = PacketCodecPlan.compile(type.asSubclass(PacketCodec.class));
+            BUILD_TIME.add(System.nanoTime() - start);
+            BUILDS.increment();
+            BUILT.get()[0] = true;
+            return plan;
+        }
+    };
+
+    private PacketCodecPlanRegistry() {
+
+    }
+
+    /**
+     * Compile the plan of the given packet type if that has not happened yet.
+     * @param packetType A packet class.
+     */
+    public static void register(Class<? extends PacketCodec> packetType) {
+        PLANS.get(packetType);
+    }
+
+    /**
+     * Get the plan of the given packet type.
+     * @param packetType A packet class.
+     * @return The codec plan.
+     */
+    public static PacketCodecPlan get(Class<? extends PacketCodec> packetType) {
+        boolean[] built = BUILT.get();
+        built[0] = false;
+        PacketCodecPlan plan = PLANS.get(packetType);
+        if (built[0]) {
+            MISSES.increment();
+        } else {
+            HITS.increment();
+        }
+        return plan;
+    }
+
+    /**
+     * @return A snapshot of the current registry statistics.
+     */
+    public static Stats getStats() {
+        return new Stats(HITS.sum(), MISSES.sum(), BUILDS.sum(), BUILD_TIME.sum());
+    }
+
+    /**
+     * Statistics about plan lookups and compilations.
+     */
+    public static class Stats {
+
+        private final long hits;
+        private final long misses;
+        private final long builds;
+        private final long buildTimeNanos;
+
+        public Stats(long hits, long misses, long builds, long buildTimeNanos) {
+            this.hits = hits;
+            this.misses = misses;
+            this.builds = builds;
+            this.buildTimeNanos = buildTimeNanos;
+        }
+
+        /**
+         * @return The number of plan lookups during encoding and decoding.
+         */
+        public long getLookups() {
+            return hits + misses;
+        }
+
+        /**
+         * @return The number of lookups that did not require a plan to be compiled.
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * @return The number of lookups that compiled a plan.
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * @return The number of compiled plans, including the ones compiled upon registration.
+         */
+        public long getBuilds() {
+            return builds;
+        }
+
+        /**
+         * @return The total time spent compiling plans, in nanoseconds.
+         */
+        public long getBuildTimeNanos() {
+            return buildTimeNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("lookups: %s, hits: %s, misses: %s, plans built: %s, plan build time: %.3fms",
+                    getLookups(), getHits(), getMisses(), getBuilds(), getBuildTimeNanos() / 1000000D);
+        }
+    }
+
+}
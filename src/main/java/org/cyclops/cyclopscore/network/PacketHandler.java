@@ -1,12 +1,17 @@
 package org.cyclops.cyclopscore.network;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import io.netty.channel.ChannelHandler.Sharable;
 import net.minecraft.client.Minecraft;
 import net.minecraft.entity.player.EntityPlayerMP;
 import net.minecraft.network.Packet;
 import net.minecraft.util.IThreadListener;
 import net.minecraft.world.WorldServer;
+import net.minecraftforge.common.MinecraftForge;
 import net.minecraftforge.fml.common.FMLCommonHandler;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
 import net.minecraftforge.fml.common.network.NetworkRegistry;
 import net.minecraftforge.fml.common.network.simpleimpl.IMessage;
 import net.minecraftforge.fml.common.network.simpleimpl.IMessageHandler;
@@ -14,16 +19,26 @@ import net.minecraftforge.fml.common.network.simpleimpl.MessageContext;
 import net.minecraftforge.fml.common.network.simpleimpl.SimpleNetworkWrapper;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.logging.log4j.Level;
 import org.cyclops.cyclopscore.helper.Helpers;
 import org.cyclops.cyclopscore.helper.Helpers.IDType;
 import org.cyclops.cyclopscore.helper.MinecraftHelpers;
 import org.cyclops.cyclopscore.init.ModBase;
 
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Advanced packet handler of {@link PacketBase} instances.
  * An alternative would be {@link SimpleNetworkWrapper}.
  * Partially based on the SecretRooms mod packet handling:
  * https://github.com/AbrarSyed/SecretRoomsMod-forge
+ *
+ * Packets to players can optionally be queued using {@link #queueToPlayer(PacketBase, EntityPlayerMP)},
+ * which will send all queued packets of a player as a single {@link PacketBatch} at the end of the server tick.
  * @author rubensworks
  *
  */
@@ -38,6 +53,15 @@ public final class PacketHandler {
     private HandlerClient handlerClient;
     private HandlerServer handlerServer;
     private final ModBase mod;
+    private final List<Class<? extends PacketBase>> packetTypes = Lists.newArrayList();
+    private final Map<Class<? extends PacketBase>, Integer> packetTypeIds = Maps.newIdentityHashMap();
+    private final Map<EntityPlayerMP, Map<Object, PacketBase>> queuedPackets = Maps.newIdentityHashMap();
+
+    private long packetsQueued = 0;
+    private long packetsCoalesced = 0;
+    private long packetsSent = 0;
+    private long batchesSent = 0;
+    private long bytesSent = 0;
 	
     public PacketHandler(ModBase mod) {
         this.mod = mod;
@@ -48,22 +72,46 @@ public final class PacketHandler {
             networkWrapper = NetworkRegistry.INSTANCE.newSimpleChannel(mod.getModId()
                     .substring(0, Math.min(mod.getModId().length(), MAX_CHANNELNAME_LENGTH)));
             if(MinecraftHelpers.isClientSide()) {
-                handlerClient = new HandlerClient();
+                handlerClient = new HandlerClient(this);
             }
-            handlerServer = new HandlerServer();
+            handlerServer = new HandlerServer(this);
+            register(PacketBatch.class);
+            MinecraftForge.EVENT_BUS.register(this);
         }
     }
     
     /**
      * Register a new packet.
+     * If the packet is a {@link PacketCodec}, its codec will be compiled immediately.
      * @param packetType The class of the packet.
      */
     public void register(Class<? extends PacketBase> packetType) {
+        if (PacketCodec.class.isAssignableFrom(packetType)) {
+            PacketCodecPlanRegistry.register(packetType.asSubclass(PacketCodec.class));
+        }
         int discriminator = Helpers.getNewId(mod, IDType.PACKET);
         if(MinecraftHelpers.isClientSide()) {
             networkWrapper.registerMessage(handlerClient, packetType, discriminator, Side.CLIENT);
         }
         networkWrapper.registerMessage(handlerServer, packetType, discriminator, Side.SERVER);
+        packetTypeIds.put(packetType, packetTypes.size());
+        packetTypes.add(packetType);
+    }
+
+    protected int getPacketTypeId(PacketBase packet) {
+        Integer id = packetTypeIds.get(packet.getClass());
+        if (id == null) {
+            throw new IllegalArgumentException("Tried to batch an unregistered packet " + packet.getClass());
+        }
+        return id;
+    }
+
+    protected PacketBase createPacket(int typeId) {
+        try {
+            return packetTypes.get(typeId).newInstance();
+        } catch (InstantiationException | IllegalAccessException | IndexOutOfBoundsException e) {
+            throw new IllegalStateException("Could not create a batched packet of type " + typeId, e);
+        }
     }
     
     /**
@@ -83,6 +131,100 @@ public final class PacketHandler {
         networkWrapper.sendTo(packet, player);
     }
 
+    /**
+     * Queue a packet to be sent to the player at the end of the current server tick.
+     * All packets that are queued for a player within the same tick are sent as a single frame,
+     * in the order in which they were queued.
+     * If a packet with the same type and an equal {@link PacketBase#getCoalesceKey()} was already queued,
+     * that packet is dropped, and this packet is added at the end of the queue instead.
+     * This must only be called from the server thread.
+     * @param packet The packet.
+     * @param player The player.
+     * @throws IllegalArgumentException If the packet type is not registered with this handler, or if it is a batch.
+     */
+    public void queueToPlayer(PacketBase packet, EntityPlayerMP player) {
+        // Validated here, so that the caller gets the exception instead of the tick event that sends the batch.
+        getPacketTypeId(packet);
+        if (packet instanceof PacketBatch) {
+            throw new IllegalArgumentException("Tried to batch a packet batch");
+        }
+        Map<Object, PacketBase> packets = queuedPackets.computeIfAbsent(player, p -> Maps.newLinkedHashMap());
+        Object coalesceKey = packet.getCoalesceKey();
+        Object key = coalesceKey == null ? new Object() : Pair.of(packet.getClass(), coalesceKey);
+        if (packets.remove(key) != null) {
+            packetsCoalesced++;
+        }
+        packets.put(key, packet);
+        packetsQueued++;
+    }
+
+    /**
+     * Immediately send all queued packets.
+     * This is called automatically at the end of each server tick.
+     */
+    public void flushQueuedPackets() {
+        if (queuedPackets.isEmpty()) {
+            return;
+        }
+        Iterator<Map.Entry<EntityPlayerMP, Map<Object, PacketBase>>> it = queuedPackets.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<EntityPlayerMP, Map<Object, PacketBase>> entry = it.next();
+            try {
+                Collection<PacketBase> packets = entry.getValue().values();
+                PacketBatch batch = new PacketBatch(this::getPacketTypeId, packets);
+                networkWrapper.sendTo(batch, entry.getKey());
+                packetsSent += packets.size();
+                batchesSent++;
+                bytesSent += batch.getDataSize();
+            } finally {
+                // Packets that could not be sent are dropped, so they are not retried on every tick.
+                it.remove();
+            }
+        }
+    }
+
+    @SubscribeEvent
+    public void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase == TickEvent.Phase.END) {
+            flushQueuedPackets();
+        }
+    }
+
+    /**
+     * @return The number of packets that were queued, including coalesced packets.
+     */
+    public long getPacketsQueued() {
+        return packetsQueued;
+    }
+
+    /**
+     * @return The number of queued packets that were replaced by a later packet before they were sent.
+     */
+    public long getPacketsCoalesced() {
+        return packetsCoalesced;
+    }
+
+    /**
+     * @return The number of queued packets that were sent.
+     */
+    public long getPacketsSent() {
+        return packetsSent;
+    }
+
+    /**
+     * @return The number of batches in which queued packets were sent.
+     */
+    public long getBatchesSent() {
+        return batchesSent;
+    }
+
+    /**
+     * @return The number of bytes of queued packets that were sent, excluding batch and channel overhead.
+     */
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
     /**
      * Send a packet to all in the target range.
      * @param packet The packet.
@@ -122,19 +264,24 @@ public final class PacketHandler {
     @SideOnly(Side.CLIENT)
     private static final class HandlerClient implements IMessageHandler<PacketBase, IMessage> {
 
+        private final PacketHandler packetHandler;
+
+        public HandlerClient(PacketHandler packetHandler) {
+            this.packetHandler = packetHandler;
+        }
+
         @Override
         public IMessage onMessage(final PacketBase packet, MessageContext ctx) {
+            if (packet instanceof PacketBatch) {
+                for (PacketBase batchedPacket : ((PacketBatch) packet).unpack(packetHandler::createPacket)) {
+                    onMessage(batchedPacket, ctx);
+                }
+                return null;
+            }
+
             final Minecraft mc = Minecraft.getMinecraft();
             IThreadListener thread = FMLCommonHandler.instance().getWorldThread(ctx.getClientHandler());
-            if (packet.isAsync()) {
-                packet.actionClient(mc.world, mc.player);
-            } else {
-                thread.addScheduledTask(new Runnable() {
-                    public void run() {
-                        packet.actionClient(mc.world, mc.player);
-                    }
-                });
-            }
+            packet.prepareAndRun(Side.CLIENT, thread::addScheduledTask, () -> packet.actionClient(mc.world, mc.player));
             return null;
         }
     }
@@ -142,6 +289,12 @@ public final class PacketHandler {
     @Sharable
     private static final class HandlerServer implements IMessageHandler<PacketBase, IMessage> {
 
+        private final PacketHandler packetHandler;
+
+        public HandlerServer(PacketHandler packetHandler) {
+            this.packetHandler = packetHandler;
+        }
+
         @Override
         public IMessage onMessage(PacketBase packet, MessageContext ctx) {
             if (ctx.side == Side.CLIENT) {
@@ -149,12 +302,16 @@ public final class PacketHandler {
                 return null;
             }
 
+            if (packet instanceof PacketBatch) {
+                // Batches are only sent to clients, so they are never accepted from clients.
+                packetHandler.mod.log(Level.WARN, "Ignored a packet batch from client "
+                        + ctx.getServerHandler().player.getName());
+                return null;
+            }
+
             EntityPlayerMP player = ctx.getServerHandler().player;
-            if (packet.isAsync()) {
-		packet.actionServer(player.world, player);
-	    } else {
-		((WorldServer) player.world).addScheduledTask(() -> packet.actionServer(player.world, player));
-	    }
+            packet.prepareAndRun(Side.SERVER, ((WorldServer) player.world)::addScheduledTask,
+                    () -> packet.actionServer(player.world, player));
             return null;
         }
     }
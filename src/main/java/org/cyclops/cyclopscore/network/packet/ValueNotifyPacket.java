@@ -6,6 +6,7 @@ import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.world.World;
 import net.minecraftforge.fml.relauncher.Side;
 import net.minecraftforge.fml.relauncher.SideOnly;
+import org.apache.commons.lang3.tuple.Triple;
 import org.cyclops.cyclopscore.inventory.IValueNotifiable;
 import org.cyclops.cyclopscore.network.CodecField;
 import org.cyclops.cyclopscore.network.PacketCodec;
@@ -44,6 +45,11 @@ public class ValueNotifyPacket extends PacketCodec {
 		return false;
 	}
 
+	@Override
+	public Object getCoalesceKey() {
+		return Triple.of(guiModId, guiId, valueId);
+	}
+
 	protected boolean isContainerValid(IValueNotifiable container) {
     	return container.getGuiId() == guiId && container.getGuiModId().equals(guiModId);
 	}
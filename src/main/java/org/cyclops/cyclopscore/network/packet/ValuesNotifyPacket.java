@@ -0,0 +1,73 @@
+package org.cyclops.cyclopscore.network.packet;
+
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.EntityPlayerMP;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.world.World;
+import net.minecraftforge.fml.relauncher.Side;
+import net.minecraftforge.fml.relauncher.SideOnly;
+import org.cyclops.cyclopscore.inventory.IValueNotifiable;
+import org.cyclops.cyclopscore.network.CodecField;
+import org.cyclops.cyclopscore.network.PacketCodec;
+
+import java.util.Map;
+
+/**
+ * Packet for sending multiple values from server to client at once.
+ * @see ValueNotifyPacket
+ * @see org.cyclops.cyclopscore.inventory.IValueNotifier
+ * @see IValueNotifiable
+ * @author rubensworks
+ *
+ */
+public class ValuesNotifyPacket extends PacketCodec {
+
+	@CodecField
+	private String guiModId;
+	@CodecField
+	private int guiId;
+	@CodecField
+	private Map<Integer, NBTTagCompound> values;
+
+    public ValuesNotifyPacket() {
+
+    }
+
+    public ValuesNotifyPacket(String guiModId, int guiId, Map<Integer, NBTTagCompound> values) {
+    	this.guiModId = guiModId;
+    	this.guiId = guiId;
+		this.values = values;
+    }
+
+	@Override
+	public boolean isAsync() {
+		return false;
+	}
+
+	protected boolean isContainerValid(IValueNotifiable container) {
+    	return container.getGuiId() == guiId && container.getGuiModId().equals(guiModId);
+	}
+
+	protected void notifyContainer(EntityPlayer player) {
+		if(player.openContainer instanceof IValueNotifiable) {
+			IValueNotifiable container = ((IValueNotifiable) player.openContainer);
+			if (isContainerValid(container)) {
+				for (Map.Entry<Integer, NBTTagCompound> entry : values.entrySet()) {
+					container.onUpdate(entry.getKey(), entry.getValue());
+				}
+			}
+		}
+	}
+
+	@Override
+	@SideOnly(Side.CLIENT)
+	public void actionClient(World world, EntityPlayer player) {
+		notifyContainer(player);
+	}
+
+	@Override
+	public void actionServer(World world, EntityPlayerMP player) {
+		notifyContainer(player);
+	}
+	
+}
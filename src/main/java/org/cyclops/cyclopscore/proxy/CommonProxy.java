@@ -35,6 +35,7 @@ public class CommonProxy extends CommonProxyComponent {
         packetHandler.register(SendPlayerNbtPacket.class);
         packetHandler.register(RequestPlayerAdvancementUnlockedPacket.class);
         packetHandler.register(SendPlayerAdvancementUnlockedPacket.class);
+        packetHandler.register(ValuesNotifyPacket.class);
 
         // Register debug packets
         packetHandler.register(PingPongPacketAsync.class);
@@ -0,0 +1,401 @@
+package org.cyclops.cyclopscore.recipe.custom;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.ints.IntRBTreeSet;
+import it.unimi.dsi.fastutil.ints.IntSortedSet;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.crafting.Ingredient;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.fluids.FluidStack;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.oredict.OreDictionary;
+import org.cyclops.cyclopscore.recipe.custom.api.IRecipe;
+import org.cyclops.cyclopscore.recipe.custom.component.FluidStackRecipeComponent;
+import org.cyclops.cyclopscore.recipe.custom.component.IngredientAndFluidStackRecipeComponent;
+import org.cyclops.cyclopscore.recipe.custom.component.IngredientRecipeComponent;
+import org.cyclops.cyclopscore.recipe.custom.component.IngredientsAndFluidStackRecipeComponent;
+import org.cyclops.cyclopscore.recipe.custom.component.IngredientsRecipeComponent;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * A list of recipes that lazily maintains indexes over the named ids, inputs and outputs of its recipes.
+ *
+ * Recipe inputs and outputs are not hashed directly, as their equals methods are not always consistent with hashCode,
+ * such as when an ore dictionary ingredient is compared with a single item.
+ * Instead, they are indexed by keys that equal components must share, such as their items or fluid.
+ * Lookups only test the recipes that share a key with the given component,
+ * and the recipes for which no keys can be determined, in the original recipe order.
+ * So the results are the same as testing all recipes in this list.
+ *
+ * The indexes are rebuilt after each modification to this list,
+ * which also includes direct modifications such as the ones done by CraftTweaker.
+ * As ore dictionary ingredients are indexed by the items they expand to,
+ * the indexes are also rebuilt after each ore dictionary registration.
+ * They are built from a copy of the recipes, and published together with that copy,
+ * so lookups from different threads always see a complete index.
+ * Just like any other list, this must not be modified while it is being read from other threads.
+ * @author rubensworks
+ */
+public class IndexedRecipeList extends ArrayList<IRecipe> {
+
+    private static final AtomicInteger ORE_DICTIONARY_VERSION = new AtomicInteger();
+
+    static {
+        MinecraftForge.EVENT_BUS.register(IndexedRecipeList.class);
+    }
+
+    private volatile Indexes indexes;
+    private volatile LastMatch lastMatch;
+
+    @Override
+    public IRecipe set(int index, IRecipe element) {
+        // Replacing elements is not a structural modification, but it invalidates the indexes.
+        modCount++;
+        return super.set(index, element);
+    }
+
+    /**
+     * @return A number that changes after each modification to this list.
+     */
+    public int getVersion() {
+        return modCount;
+    }
+
+    /**
+     * @return A number that changes after each ore dictionary registration.
+     */
+    public static int getOreDictionaryVersion() {
+        return ORE_DICTIONARY_VERSION.get();
+    }
+
+    @SubscribeEvent
+    public static void onOreRegister(OreDictionary.OreRegisterEvent event) {
+        ORE_DICTIONARY_VERSION.incrementAndGet();
+    }
+
+    /**
+     * @return The indexes for the current contents of this list and the current ore dictionary.
+     */
+    protected Indexes getIndexes() {
+        Indexes indexes = this.indexes;
+        int version = getVersion();
+        // Read before the indexes are built, so that registrations during the build cause a rebuild next time.
+        int oreDictionaryVersion = getOreDictionaryVersion();
+        if (indexes == null || indexes.version != version || indexes.oreDictionaryVersion != oreDictionaryVersion) {
+            indexes = new Indexes(version, oreDictionaryVersion, toArray(new IRecipe[0]));
+            this.indexes = indexes;
+        }
+        return indexes;
+    }
+
+    /**
+     * @param namedId A named id.
+     * @return The recipes with the given named id, in recipe order.
+     */
+    public List<IRecipe> findRecipesByNamedId(String namedId) {
+        Indexes indexes = getIndexes();
+        IntList positions = indexes.namedIdIndex.get(namedId);
+        if (positions == null) {
+            return Lists.newArrayList();
+        }
+        List<IRecipe> recipes = Lists.newArrayListWithCapacity(positions.size());
+        for (int i = 0; i < positions.size(); i++) {
+            recipes.add(indexes.recipes[positions.getInt(i)]);
+        }
+        return recipes;
+    }
+
+    /**
+     * Find the first recipe with an input that matches the given input.
+     * The last found recipe is cached, so that repeated lookups for the same input are cheap.
+     * This cache is only used for inputs that hold a single item stack, such as the ones created from machine slots,
+     * as other inputs that are equal to each other can still match different recipes.
+     * @param input A recipe input.
+     * @return The first matching recipe, or null.
+     */
+    @Nullable
+    public IRecipe findRecipeByInput(Object input) {
+        Indexes indexes = getIndexes();
+        LastMatch lastMatch = this.lastMatch;
+        if (lastMatch != null && lastMatch.indexes == indexes && lastMatch.matches(input)) {
+            return lastMatch.recipe;
+        }
+        List<IRecipe> recipes = find(indexes, indexes.inputIndex, input, IRecipe::getInput, true);
+        IRecipe recipe = recipes.isEmpty() ? null : recipes.get(0);
+        LastMatch newMatch = LastMatch.create(indexes, input, recipe);
+        if (newMatch != null) {
+            this.lastMatch = newMatch;
+        }
+        return recipe;
+    }
+
+    /**
+     * @param input A recipe input.
+     * @return All recipes with an input that matches the given input, in recipe order.
+     */
+    public List<IRecipe> findRecipesByInput(Object input) {
+        Indexes indexes = getIndexes();
+        return find(indexes, indexes.inputIndex, input, IRecipe::getInput, false);
+    }
+
+    /**
+     * @param output A recipe output.
+     * @return All recipes with an output that matches the given output, in recipe order.
+     */
+    public List<IRecipe> findRecipesByOutput(Object output) {
+        Indexes indexes = getIndexes();
+        return find(indexes, indexes.outputIndex, output, IRecipe::getOutput, false);
+    }
+
+    protected static List<IRecipe> find(Indexes indexes, Index index, Object property,
+                                        Function<IRecipe, Object> propertyGetter, boolean first) {
+        List<IRecipe> results = Lists.newArrayList();
+        Collection<Object> keys = getKeys(property);
+        if (keys == null) {
+            // The given property can not be indexed, so we test all recipes.
+            for (IRecipe recipe : indexes.recipes) {
+                if (matches(propertyGetter.apply(recipe), property)) {
+                    results.add(recipe);
+                    if (first) {
+                        break;
+                    }
+                }
+            }
+            return results;
+        }
+
+        IntSortedSet positions = new IntRBTreeSet(index.unindexed);
+        for (Object key : keys) {
+            IntList keyPositions = index.keyed.get(key);
+            if (keyPositions != null) {
+                positions.addAll(keyPositions);
+            }
+        }
+        for (int position : positions) {
+            IRecipe recipe = indexes.recipes[position];
+            if (matches(propertyGetter.apply(recipe), property)) {
+                results.add(recipe);
+                if (first) {
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @param ingredient An ingredient.
+     * @return The only stack that the ingredient matches exactly,
+     *         or null if the ingredient can match other stacks that are not equal to it.
+     */
+    @Nullable
+    protected static ItemStack getSingleStack(Ingredient ingredient) {
+        if (ingredient.getClass() != Ingredient.class) {
+            return null;
+        }
+        ItemStack[] stacks = ingredient.getMatchingStacks();
+        if (stacks.length != 1 || stacks[0].getItemDamage() == OreDictionary.WILDCARD_VALUE) {
+            return null;
+        }
+        return stacks[0];
+    }
+
+    /**
+     * The same check as {@link RecipePropertyMatcher#matches(org.cyclops.cyclopscore.recipe.custom.api.IMachine, IRecipe)}.
+     * @param recipeProperty The property of a recipe.
+     * @param property The property to look for.
+     * @return If they match.
+     */
+    protected static boolean matches(Object recipeProperty, Object property) {
+        return recipeProperty != null && recipeProperty.equals(property);
+    }
+
+    /**
+     * Determine the index keys of a recipe component.
+     * Two components that are equal to each other must have at least one key in common.
+     * @param component A recipe input or output.
+     * @return The index keys, or null if the component can not be indexed.
+     */
+    @Nullable
+    protected static Collection<Object> getKeys(@Nullable Object component) {
+        if (component == null) {
+            return null;
+        }
+        // Only the exact classes are indexed, as subclasses may override their equals method.
+        Class<?> clazz = component.getClass();
+        if (clazz == IngredientRecipeComponent.class) {
+            return getKeys(((IngredientRecipeComponent) component).getIngredient());
+        }
+        if (clazz == IngredientAndFluidStackRecipeComponent.class) {
+            // Equal to plain ingredient components if their ingredients match, so we can not index on the fluid.
+            return getKeys(((IngredientAndFluidStackRecipeComponent) component).getIngredient());
+        }
+        if (clazz == IngredientsRecipeComponent.class) {
+            List<IngredientRecipeComponent> ingredients = ((IngredientsRecipeComponent) component).getIngredientComponents();
+            return ingredients.isEmpty() ? null : getKeys(ingredients.get(0));
+        }
+        if (clazz == FluidStackRecipeComponent.class) {
+            return getKeys(((FluidStackRecipeComponent) component).getFluidStack());
+        }
+        if (clazz == IngredientsAndFluidStackRecipeComponent.class) {
+            return getKeys(((IngredientsAndFluidStackRecipeComponent) component).getFluidStack());
+        }
+        return null;
+    }
+
+    @Nullable
+    protected static Collection<Object> getKeys(Ingredient ingredient) {
+        // Only ingredients that match by item can be indexed by item.
+        if (!ingredient.isSimple() && !(ingredient instanceof net.minecraftforge.common.crafting.IngredientNBT)) {
+            return null;
+        }
+        ItemStack[] itemStacks = ingredient.getMatchingStacks();
+        if (itemStacks.length == 0) {
+            return null;
+        }
+        Set<Object> keys = Sets.newHashSet();
+        for (ItemStack itemStack : itemStacks) {
+            keys.add(itemStack.getItem());
+        }
+        return keys;
+    }
+
+    @Nullable
+    protected static Collection<Object> getKeys(@Nullable FluidStack fluidStack) {
+        if (fluidStack == null || fluidStack.getFluid() == null) {
+            return null;
+        }
+        return Sets.newHashSet(fluidStack.getFluid());
+    }
+
+    /**
+     * The recipes of a version of this list, together with their indexes for a version of the ore dictionary.
+     * This is not modified after it has been created.
+     */
+    protected static class Indexes {
+
+        private final int version;
+        private final int oreDictionaryVersion;
+        private final IRecipe[] recipes;
+        private final Map<String, IntList> namedIdIndex = Maps.newHashMap();
+        private final Index inputIndex = new Index();
+        private final Index outputIndex = new Index();
+
+        public Indexes(int version, int oreDictionaryVersion, IRecipe[] recipes) {
+            this.version = version;
+            this.oreDictionaryVersion = oreDictionaryVersion;
+            this.recipes = recipes;
+            for (int i = 0; i < recipes.length; i++) {
+                IRecipe recipe = recipes[i];
+                String namedId = recipe.getNamedId();
+                if (namedId != null) {
+                    namedIdIndex.computeIfAbsent(namedId, key -> new IntArrayList()).add(i);
+                }
+                inputIndex.add(i, recipe.getInput());
+                outputIndex.add(i, recipe.getOutput());
+            }
+        }
+
+    }
+
+    /**
+     * The result of the last {@link #findRecipeByInput(Object)} call,
+     * for an input that holds a single item stack, and optionally a fluid stack.
+     * The stacks are copied, so later changes to the input stacks do not affect this.
+     * This is not modified after it has been created.
+     */
+    protected static class LastMatch {
+
+        private final Indexes indexes;
+        private final Class<?> inputClass;
+        private final ItemStack itemStack;
+        @Nullable
+        private final FluidStack fluidStack;
+        @Nullable
+        private final IRecipe recipe;
+
+        public LastMatch(Indexes indexes, Class<?> inputClass, ItemStack itemStack, @Nullable FluidStack fluidStack,
+                         @Nullable IRecipe recipe) {
+            this.indexes = indexes;
+            this.inputClass = inputClass;
+            this.itemStack = itemStack;
+            this.fluidStack = fluidStack;
+            this.recipe = recipe;
+        }
+
+        /**
+         * @param indexes The indexes in which the recipe was found.
+         * @param input A recipe input.
+         * @param recipe The first recipe that matches the input.
+         * @return The last match, or null if the input can match other recipes than equal inputs.
+         */
+        @Nullable
+        public static LastMatch create(Indexes indexes, @Nullable Object input, @Nullable IRecipe recipe) {
+            if (input == null) {
+                return null;
+            }
+            if (input.getClass() == IngredientRecipeComponent.class) {
+                ItemStack itemStack = getSingleStack(((IngredientRecipeComponent) input).getIngredient());
+                return itemStack == null ? null
+                        : new LastMatch(indexes, input.getClass(), itemStack.copy(), null, recipe);
+            }
+            if (input.getClass() == IngredientAndFluidStackRecipeComponent.class) {
+                IngredientAndFluidStackRecipeComponent component = (IngredientAndFluidStackRecipeComponent) input;
+                ItemStack itemStack = getSingleStack(component.getIngredient());
+                return itemStack == null || component.getFluidStack() == null ? null
+                        : new LastMatch(indexes, input.getClass(), itemStack.copy(), component.getFluidStack().copy(), recipe);
+            }
+            return null;
+        }
+
+        /**
+         * @param input A recipe input.
+         * @return If the input will match exactly the same recipes as the input of this match.
+         */
+        public boolean matches(@Nullable Object input) {
+            if (input == null || input.getClass() != inputClass) {
+                return false;
+            }
+            if (inputClass == IngredientRecipeComponent.class) {
+                ItemStack itemStack = getSingleStack(((IngredientRecipeComponent) input).getIngredient());
+                return itemStack != null && ItemStack.areItemStacksEqual(this.itemStack, itemStack);
+            }
+            IngredientAndFluidStackRecipeComponent component = (IngredientAndFluidStackRecipeComponent) input;
+            ItemStack itemStack = getSingleStack(component.getIngredient());
+            return itemStack != null && ItemStack.areItemStacksEqual(this.itemStack, itemStack)
+                    && component.getFluidStack() != null && this.fluidStack.isFluidStackIdentical(component.getFluidStack());
+        }
+
+    }
+
+    protected static class Index {
+
+        private final Map<Object, IntList> keyed = Maps.newHashMap();
+        private final IntList unindexed = new IntArrayList();
+
+        public void add(int position, @Nullable Object component) {
+            Collection<Object> keys = getKeys(component);
+            if (keys == null) {
+                unindexed.add(position);
+            } else {
+                for (Object key : keys) {
+                    keyed.computeIfAbsent(key, k -> new IntArrayList()).add(position);
+                }
+            }
+        }
+
+    }
+
+}
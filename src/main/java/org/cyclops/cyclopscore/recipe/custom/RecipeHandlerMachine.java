@@ -16,10 +16,17 @@ import org.cyclops.cyclopscore.recipe.custom.api.IRecipeProperties;
 
 import javax.annotation.Nullable;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * An adapter class for exposing an {@link IMachine} as an {@link IRecipeHandler}.
+ *
+ * For machines with an {@link IndexedRecipeList}, recipe definitions are cached until the recipe list
+ * or the ore dictionary changes, as ore dictionary entries are expanded into the definitions.
  * @param <M> The type of the machine.
  * @param <I> The type of the recipe input of all recipes associated with the machine.
  * @param <O> The type of the recipe output of all recipes associated with the machine.
@@ -32,6 +39,8 @@ public abstract class RecipeHandlerMachine<M extends IMachine<M, I, O, P>,
     private final Set<IngredientComponent<?, ?>> recipeInputComponents;
     private final Set<IngredientComponent<?, ?>> recipeOutputComponents;
 
+    private volatile Definitions<I, O, P> definitions = null;
+
     public RecipeHandlerMachine(M machine,
                                 Set<IngredientComponent<?, ?>> recipeInputComponents,
                                 Set<IngredientComponent<?, ?>> recipeOutputComponents) {
@@ -52,7 +61,66 @@ public abstract class RecipeHandlerMachine<M extends IMachine<M, I, O, P>,
 
     @Override
     public Collection<IRecipeDefinition> getRecipes() {
-        return Lists.transform(machine.getRecipeRegistry().allRecipes(), getRecipeTransformer());
+        List<IRecipe<I, O, P>> recipes = machine.getRecipeRegistry().allRecipes();
+        List<?> recipeList = recipes;
+        if (!(recipeList instanceof IndexedRecipeList)) {
+            return Lists.transform(recipes, getRecipeTransformer());
+        }
+        return getDefinitions(recipes, ((IndexedRecipeList) recipeList).getVersion()).getRecipes();
+    }
+
+    /**
+     * Get the cached recipe definitions, and convert them again if they are outdated.
+     * @param recipes The indexed recipes of this machine.
+     * @param version The version of the recipes.
+     * @return The recipe definitions.
+     */
+    protected Definitions<I, O, P> getDefinitions(List<IRecipe<I, O, P>> recipes, int version) {
+        // The versions are read before the recipes are converted,
+        // so that changes during the conversion cause the definitions to be converted again next time.
+        int oreDictionaryVersion = IndexedRecipeList.getOreDictionaryVersion();
+        Definitions<I, O, P> definitions = this.definitions;
+        if (definitions == null || definitions.getVersion() != version
+                || definitions.getOreDictionaryVersion() != oreDictionaryVersion) {
+            // Only convert the recipes that were added since the last version, the others keep their definition,
+            // unless the ore dictionary has changed.
+            Map<IRecipe<I, O, P>, IRecipeDefinition> previousDefinitions = definitions != null
+                    && definitions.getOreDictionaryVersion() == oreDictionaryVersion
+                    ? definitions.getDefinitions() : Collections.emptyMap();
+            Map<IRecipe<I, O, P>, IRecipeDefinition> recipeDefinitionsMap = new IdentityHashMap<>();
+            List<IRecipeDefinition> recipeDefinitions = Lists.newArrayListWithCapacity(recipes.size());
+            for (IRecipe<I, O, P> recipe : recipes) {
+                IRecipeDefinition definition = previousDefinitions.get(recipe);
+                if (definition == null) {
+                    definition = getRecipeTransformer().apply(recipe);
+                }
+                recipeDefinitionsMap.put(recipe, definition);
+                recipeDefinitions.add(definition);
+            }
+            definitions = new Definitions<>(version, oreDictionaryVersion,
+                    Collections.unmodifiableList(recipeDefinitions), recipeDefinitionsMap);
+            this.definitions = definitions;
+        }
+        return definitions;
+    }
+
+    /**
+     * Get the recipe definition of the given recipe.
+     * @param recipe A recipe of this machine.
+     * @return The recipe definition, which is cached for indexed recipe registries.
+     */
+    protected IRecipeDefinition getRecipeDefinition(IRecipe<I, O, P> recipe) {
+        List<IRecipe<I, O, P>> recipes = machine.getRecipeRegistry().allRecipes();
+        List<?> recipeList = recipes;
+        IRecipeDefinition definition = null;
+        if (recipeList instanceof IndexedRecipeList) {
+            definition = getDefinitions(recipes, ((IndexedRecipeList) recipeList).getVersion())
+                    .getDefinitions().get(recipe);
+        }
+        if (definition == null) {
+            definition = getRecipeTransformer().apply(recipe);
+        }
+        return definition;
     }
 
     @Nullable
@@ -62,7 +130,7 @@ public abstract class RecipeHandlerMachine<M extends IMachine<M, I, O, P>,
         if (recipe == null) {
             return null;
         }
-        return getRecipeTransformer().apply(recipe).getOutput();
+        return getRecipeDefinition(recipe).getOutput();
     }
 
     protected Function<IRecipe<I, O, P>, IRecipeDefinition> getRecipeTransformer() {
@@ -73,4 +141,42 @@ public abstract class RecipeHandlerMachine<M extends IMachine<M, I, O, P>,
     }
 
     protected abstract I inputIngredientsToRecipeInput(IMixedIngredients inputIngredients);
+
+    /**
+     * The recipe definitions of a version of the recipes, which is never modified after it is created.
+     * @param <I> The type of the recipe input.
+     * @param <O> The type of the recipe output.
+     * @param <P> The type of the recipe properties.
+     */
+    protected static class Definitions<I extends IRecipeInput, O extends IRecipeOutput, P extends IRecipeProperties> {
+
+        private final int version;
+        private final int oreDictionaryVersion;
+        private final List<IRecipeDefinition> recipes;
+        private final Map<IRecipe<I, O, P>, IRecipeDefinition> definitions;
+
+        public Definitions(int version, int oreDictionaryVersion, List<IRecipeDefinition> recipes,
+                           Map<IRecipe<I, O, P>, IRecipeDefinition> definitions) {
+            this.version = version;
+            this.oreDictionaryVersion = oreDictionaryVersion;
+            this.recipes = recipes;
+            this.definitions = definitions;
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        public int getOreDictionaryVersion() {
+            return oreDictionaryVersion;
+        }
+
+        public List<IRecipeDefinition> getRecipes() {
+            return recipes;
+        }
+
+        public Map<IRecipe<I, O, P>, IRecipeDefinition> getDefinitions() {
+            return definitions;
+        }
+    }
 }
@@ -3,6 +3,7 @@ package org.cyclops.cyclopscore.recipe.custom;
 import org.cyclops.cyclopscore.init.ModBase;
 import org.cyclops.cyclopscore.recipe.custom.api.*;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -65,8 +66,23 @@ public class RecipeRegistry<M extends IMachine<M, I, O, P>, I extends IRecipeInp
         return unregisterRecipe(new Recipe<I, O, P>(input, output, properties));
     }
 
+    /**
+     * @return The indexed recipes of this machine, or null if the recipe registry does not index its recipes.
+     */
+    @Nullable
+    protected IndexedRecipeList getIndexedRecipes() {
+        List<IRecipe> recipes = getMod().getRegistryManager().getRegistry(ISuperRecipeRegistry.class).getRecipes(machine);
+        return recipes instanceof IndexedRecipeList ? (IndexedRecipeList) recipes : null;
+    }
+
     @Override
+    @SuppressWarnings("unchecked")
     public IRecipe<I, O, P> findRecipeByNamedId(String namedId) {
+        IndexedRecipeList indexedRecipes = getIndexedRecipes();
+        if (indexedRecipes != null) {
+            List<IRecipe> recipes = indexedRecipes.findRecipesByNamedId(namedId);
+            return recipes.isEmpty() ? null : recipes.get(0);
+        }
         return findRecipe(new RecipePropertyMatcher<M, IRecipe<I, O, P>, String>(namedId) {
             @Override
             public String getProperty(M machine, IRecipe<I, O, P> recipe) {
@@ -76,7 +92,12 @@ public class RecipeRegistry<M extends IMachine<M, I, O, P>, I extends IRecipeInp
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public IRecipe<I, O, P> findRecipeByInput(I input) {
+        IndexedRecipeList indexedRecipes = getIndexedRecipes();
+        if (indexedRecipes != null) {
+            return indexedRecipes.findRecipeByInput(input);
+        }
         return findRecipe(new RecipePropertyMatcher<M, IRecipe<I, O, P>, I>(input) {
 
             @Override
@@ -87,7 +108,12 @@ public class RecipeRegistry<M extends IMachine<M, I, O, P>, I extends IRecipeInp
     }
 
     @Override
+    @SuppressWarnings({ "rawtypes", "unchecked" })
     public List<IRecipe<I, O, P>> findRecipesByInput(I input) {
+        IndexedRecipeList indexedRecipes = getIndexedRecipes();
+        if (indexedRecipes != null) {
+            return (List) indexedRecipes.findRecipesByInput(input);
+        }
         return findRecipes(new RecipePropertyMatcher<M, IRecipe<I, O, P>, I>(input) {
 
             @Override
@@ -98,7 +124,13 @@ public class RecipeRegistry<M extends IMachine<M, I, O, P>, I extends IRecipeInp
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public IRecipe<I, O, P> findRecipeByOutput(O output) {
+        IndexedRecipeList indexedRecipes = getIndexedRecipes();
+        if (indexedRecipes != null) {
+            List<IRecipe> recipes = indexedRecipes.findRecipesByOutput(output);
+            return recipes.isEmpty() ? null : recipes.get(0);
+        }
         return findRecipe(new RecipePropertyMatcher<M, IRecipe<I, O, P>, O>(output) {
 
             @Override
@@ -109,7 +141,12 @@ public class RecipeRegistry<M extends IMachine<M, I, O, P>, I extends IRecipeInp
     }
 
     @Override
+    @SuppressWarnings({ "rawtypes", "unchecked" })
     public List<IRecipe<I, O, P>> findRecipesByOutput(O output) {
+        IndexedRecipeList indexedRecipes = getIndexedRecipes();
+        if (indexedRecipes != null) {
+            return (List) indexedRecipes.findRecipesByOutput(output);
+        }
         return findRecipes(new RecipePropertyMatcher<M, IRecipe<I, O, P>, O>(output) {
 
             @Override
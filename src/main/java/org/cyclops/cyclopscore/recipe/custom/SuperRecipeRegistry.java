@@ -19,7 +19,7 @@ import java.util.Map;
  */
 @SuppressWarnings("unchecked")
 public class SuperRecipeRegistry implements ISuperRecipeRegistry {
-    private final Map<IMachine, List<IRecipe>> recipes = Maps.newHashMap();
+    private final Map<IMachine, IndexedRecipeList> recipes = Maps.newHashMap();
     private final Map<IMachine, RecipeRegistry> registries = Maps.newHashMap();
     private final ModBase mod;
 
@@ -43,9 +43,9 @@ public class SuperRecipeRegistry implements ISuperRecipeRegistry {
 
     @Override
     public List<IRecipe> getRecipes(IMachine machine) {
-        List<IRecipe> list = recipes.get(machine);
+        IndexedRecipeList list = recipes.get(machine);
         if (list == null) {
-            list = new ArrayList<IRecipe>();
+            list = new IndexedRecipeList();
             recipes.put(machine, list);
         }
         return list;
@@ -53,22 +53,24 @@ public class SuperRecipeRegistry implements ISuperRecipeRegistry {
 
     @Override
     public IRecipeMatch<IMachine, IRecipe> findRecipeByNamedId(String namedId) {
-        return new RecipePropertyMatcher<IMachine, IRecipe, String>(namedId) {
-            @Override
-            public String getProperty(IMachine machine, IRecipe recipe) {
-                return recipe.getNamedId();
+        for (Map.Entry<IMachine, IndexedRecipeList> entry : recipes.entrySet()) {
+            List<IRecipe> found = entry.getValue().findRecipesByNamedId(namedId);
+            if (!found.isEmpty()) {
+                return new RecipeMatch<IMachine, IRecipe>(entry.getKey(), found.get(0));
             }
-        }.findRecipe(this);
+        }
+        return null;
     }
 
     @Override
     public List<IRecipeMatch<IMachine, IRecipe>> findRecipesByInput(IRecipeInput input) {
-        return new RecipePropertyMatcher<IMachine, IRecipe, IRecipeInput>(input) {
-            @Override
-            public IRecipeInput getProperty(IMachine machine, IRecipe recipe) {
-                return recipe.getInput();
+        List<IRecipeMatch<IMachine, IRecipe>> results = new ArrayList<IRecipeMatch<IMachine, IRecipe>>();
+        for (Map.Entry<IMachine, IndexedRecipeList> entry : recipes.entrySet()) {
+            for (IRecipe recipe : entry.getValue().findRecipesByInput(input)) {
+                results.add(new RecipeMatch<IMachine, IRecipe>(entry.getKey(), recipe));
             }
-        }.findRecipes(this);
+        }
+        return results;
     }
 
     @Override
@@ -84,7 +86,7 @@ public class SuperRecipeRegistry implements ISuperRecipeRegistry {
 
     @Override
     public <M extends IMachine, R extends IRecipe> RecipeMatch<M, R> findRecipe(IRecipeMatcher<M, R> recipeMatcher) {
-        for (Map.Entry<IMachine, List<IRecipe>> entry : recipes.entrySet()) {
+        for (Map.Entry<IMachine, IndexedRecipeList> entry : recipes.entrySet()) {
             IMachine machine = entry.getKey();
             List<IRecipe> recipes = entry.getValue();
 
@@ -101,7 +103,7 @@ public class SuperRecipeRegistry implements ISuperRecipeRegistry {
     public <M extends IMachine, R extends IRecipe> List<IRecipeMatch<M, R>> findRecipes(IRecipeMatcher<M, R> recipeMatcher) {
         List<IRecipeMatch<M, R>> results = new ArrayList<IRecipeMatch<M, R>>();
 
-        for (Map.Entry<IMachine, List<IRecipe>> entry : recipes.entrySet()) {
+        for (Map.Entry<IMachine, IndexedRecipeList> entry : recipes.entrySet()) {
             IMachine machine = entry.getKey();
             List<IRecipe> recipes = entry.getValue();
 
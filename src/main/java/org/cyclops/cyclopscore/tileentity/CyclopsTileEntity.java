@@ -22,7 +22,6 @@ import org.cyclops.cyclopscore.persist.nbt.INBTProvider;
 import org.cyclops.cyclopscore.persist.nbt.NBTPersist;
 import org.cyclops.cyclopscore.persist.nbt.NBTProviderComponent;
 
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -39,6 +38,7 @@ import java.util.Map;
 public class CyclopsTileEntity extends TileEntity implements INBTProvider {
 
     private static final int UPDATE_BACKOFF_TICKS = 1;
+    private static final int CAPABILITY_SIDELESS_SLOT = EnumFacing.VALUES.length;
 
     @NBTPersist
     private Boolean rotatable = false;
@@ -49,7 +49,8 @@ public class CyclopsTileEntity extends TileEntity implements INBTProvider {
     private boolean shouldSendUpdate = false;
     private int sendUpdateBackoff = 0;
     private final boolean ticking;
-    private Map<Pair<Capability<?>, EnumFacing>, Object> capabilities = Maps.newHashMap();
+    private final Map<Capability<?>, Object[]> capabilities = Maps.newIdentityHashMap();
+    private boolean capabilitiesLocked = false;
 
     public CyclopsTileEntity() {
         sendUpdateBackoff = (int) Math.round(Math.random() * getUpdateBackoffTicks()); // Random backoff so not all TE's will be updated at once.
@@ -214,9 +215,7 @@ public class CyclopsTileEntity extends TileEntity implements INBTProvider {
      * When the tile is loaded or created.
      */
     public void onLoad() {
-        if (capabilities instanceof HashMap) {
-            capabilities = ImmutableMap.copyOf(capabilities);
-        }
+        capabilitiesLocked = true;
     }
     
     /**
@@ -284,29 +283,52 @@ public class CyclopsTileEntity extends TileEntity implements INBTProvider {
         return DirectionHelpers.transformFacingForRotation(facing, getRotation());
     }
 
+    /**
+     * Find the capability value for the given side, falling back to the sideless value.
+     * @param capability The capability type.
+     * @param facing The side, which will be transformed by the current rotation, or null.
+     * @return The capability value or null.
+     */
+    protected Object getCapabilityValue(Capability<?> capability, EnumFacing facing) {
+        Object[] values = capabilities.get(capability);
+        if (values == null) {
+            return null;
+        }
+        if (facing != null) {
+            Object value = values[transformFacingForRotation(facing).ordinal()];
+            if (value != null) {
+                return value;
+            }
+        }
+        return values[CAPABILITY_SIDELESS_SLOT];
+    }
+
     @Override
     public boolean hasCapability(Capability<?> capability, EnumFacing facing) {
-        return (capabilities != null && capabilities.containsKey(Pair.<Capability<?>,
-                    EnumFacing>of(capability, transformFacingForRotation(facing))))
-                || (facing != null && capabilities != null && capabilities.containsKey(Pair.<Capability<?>, EnumFacing>of(capability, null)))
-                || super.hasCapability(capability, facing);
+        return getCapabilityValue(capability, facing) != null || super.hasCapability(capability, facing);
     }
 
     @Override
     public <T> T getCapability(Capability<T> capability, EnumFacing facing) {
-        if (capabilities != null) {
-            Object value = capabilities.get(Pair.<Capability<?>,
-                    EnumFacing>of(capability, transformFacingForRotation(facing)));
-            if (value == null && facing != null) {
-                value = capabilities.get(Pair.<Capability<?>, EnumFacing>of(capability, null));
-            }
-            if (value != null) {
-                return (T) value;
-            }
+        Object value = getCapabilityValue(capability, facing);
+        if (value != null) {
+            return (T) value;
         }
         return super.getCapability(capability, facing);
     }
 
+    protected void setCapabilityValue(Capability<?> capability, int slot, Object value) {
+        if (capabilitiesLocked) {
+            throw new UnsupportedOperationException("Capabilities can only be added at tile construction time.");
+        }
+        Object[] values = capabilities.get(capability);
+        if (values == null) {
+            values = new Object[CAPABILITY_SIDELESS_SLOT + 1];
+            capabilities.put(capability, values);
+        }
+        values[slot] = value;
+    }
+
     /**
      * Add a sideless capability.
      * This can only be called at tile construction time!
@@ -315,7 +337,7 @@ public class CyclopsTileEntity extends TileEntity implements INBTProvider {
      * @param <T> The capability type.
      */
     public <T> void addCapabilityInternal(Capability<T> capability, T value) {
-        capabilities.put(Pair.<Capability<?>, EnumFacing>of(capability, null), value);
+        setCapabilityValue(capability, CAPABILITY_SIDELESS_SLOT, value);
     }
 
     /**
@@ -327,11 +349,25 @@ public class CyclopsTileEntity extends TileEntity implements INBTProvider {
      * @param <T> The capability type.
      */
     public <T> void addCapabilitySided(Capability<T> capability, EnumFacing facing, T value) {
-        capabilities.put(Pair.<Capability<?>, EnumFacing>of(capability, facing), value);
+        setCapabilityValue(capability, facing == null ? CAPABILITY_SIDELESS_SLOT : facing.ordinal(), value);
     }
 
+    /**
+     * @return A new map of all added capabilities by capability type and side.
+     *         Capability lookups do not use this map, so it should only be used for inspection.
+     */
     protected Map<Pair<Capability<?>, EnumFacing>, Object> getCapabilities() {
-        return capabilities;
+        ImmutableMap.Builder<Pair<Capability<?>, EnumFacing>, Object> builder = ImmutableMap.builder();
+        for (Map.Entry<Capability<?>, Object[]> entry : capabilities.entrySet()) {
+            Object[] values = entry.getValue();
+            for (int slot = 0; slot < values.length; slot++) {
+                if (values[slot] != null) {
+                    EnumFacing facing = slot == CAPABILITY_SIDELESS_SLOT ? null : EnumFacing.VALUES[slot];
+                    builder.put(Pair.<Capability<?>, EnumFacing>of(entry.getKey(), facing), values[slot]);
+                }
+            }
+        }
+        return builder.build();
     }
 
     /**
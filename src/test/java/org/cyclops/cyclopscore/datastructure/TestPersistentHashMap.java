@@ -0,0 +1,134 @@
+package org.cyclops.cyclopscore.datastructure;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import it.unimi.dsi.fastutil.Hash;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class TestPersistentHashMap {
+
+    // Only uses a few hashes, so that collision nodes are created
+    private static final Hash.Strategy<Integer> COLLIDING = new Hash.Strategy<Integer>() {
+        @Override
+        public int hashCode(Integer o) {
+            return o == null ? 0 : o % 7;
+        }
+
+        @Override
+        public boolean equals(Integer a, Integer b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    };
+
+    @Test
+    public void testPutGetRemove() {
+        PersistentHashMap<String, Integer> map = new PersistentHashMap<>();
+        assertThat(map.isEmpty(), is(true));
+        assertThat(map.put("a", 1), nullValue());
+        assertThat(map.put("b", 2), nullValue());
+        assertThat(map.put("a", 3), is(1));
+        assertThat(map.size(), is(2));
+        assertThat(map.get("a"), is(3));
+        assertThat(map.containsKey("b"), is(true));
+        assertThat(map.containsKey("c"), is(false));
+        assertThat(map.remove("a"), is(3));
+        assertThat(map.remove("a"), nullValue());
+        assertThat(map.size(), is(1));
+        map.clear();
+        assertThat(map.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testNullKey() {
+        PersistentHashMap<Integer, Integer> map = new PersistentHashMap<>(COLLIDING);
+        map.put(null, 1);
+        map.put(0, 2);
+        map.put(7, 3);
+        assertThat(map.get(null), is(1));
+        assertThat(map.get(7), is(3));
+        assertThat(map.remove(null), is(1));
+        assertThat(map.containsKey(null), is(false));
+        assertThat(map.get(0), is(2));
+    }
+
+    @Test
+    public void testSnapshot() {
+        PersistentHashMap<String, Integer> map = new PersistentHashMap<>();
+        map.put("a", 1);
+        map.put("b", 2);
+        PersistentHashMap<String, Integer> snapshot = map.snapshot();
+        map.put("a", 10);
+        map.remove("b");
+        map.put("c", 3);
+        snapshot.put("d", 4);
+        assertThat(map, is(Maps.newHashMap(ImmutableMap.of("a", 10, "c", 3))));
+        assertThat(snapshot, is(Maps.newHashMap(ImmutableMap.of("a", 1, "b", 2, "d", 4))));
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        PersistentHashMap<Integer, Integer> map = new PersistentHashMap<>(COLLIDING);
+        for (int i = 0; i < 100; i++) {
+            map.put(i, i);
+        }
+        PersistentHashMap<Integer, Integer> snapshot = map.snapshot();
+        int count = 0;
+        Iterator<Map.Entry<Integer, Integer>> it = map.entrySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().getKey() % 2 == 0) {
+                it.remove();
+            }
+            count++;
+        }
+        assertThat(count, is(100));
+        assertThat(map.size(), is(50));
+        assertThat(map.containsKey(2), is(false));
+        assertThat(map.containsKey(3), is(true));
+        assertThat(snapshot.size(), is(100));
+    }
+
+    @Test
+    public void testRandomSnapshots() {
+        testRandomSnapshots(new PersistentHashMap<>());
+    }
+
+    @Test
+    public void testRandomSnapshotsColliding() {
+        testRandomSnapshots(new PersistentHashMap<>(COLLIDING));
+    }
+
+    protected void testRandomSnapshots(PersistentHashMap<Integer, Integer> map) {
+        Random random = new Random(1);
+        Map<Integer, Integer> expected = Maps.newHashMap();
+        List<PersistentHashMap<Integer, Integer>> snapshots = Lists.newArrayList();
+        List<Map<Integer, Integer>> expectedSnapshots = Lists.newArrayList();
+        for (int i = 0; i < 10000; i++) {
+            int key = random.nextInt(500);
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key), is(expected.remove(key)));
+            } else {
+                assertThat(map.put(key, i), is(expected.put(key, i)));
+            }
+            if (i % 1000 == 0) {
+                snapshots.add(map.snapshot());
+                expectedSnapshots.add(Maps.newHashMap(expected));
+            }
+        }
+        assertThat(map, is(expected));
+        assertThat(map.size(), is(expected.size()));
+        for (int i = 0; i < snapshots.size(); i++) {
+            assertThat(snapshots.get(i), is(expectedSnapshots.get(i)));
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+package org.cyclops.cyclopscore.datastructure;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.junit.Test;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class TestPersistentTreeMap {
+
+    @Test
+    public void testPutGetRemove() {
+        PersistentTreeMap<String, Integer> map = new PersistentTreeMap<>();
+        assertThat(map.isEmpty(), is(true));
+        assertThat(map.put("a", 1), nullValue());
+        assertThat(map.put("b", 2), nullValue());
+        assertThat(map.put("a", 3), is(1));
+        assertThat(map.size(), is(2));
+        assertThat(map.get("a"), is(3));
+        assertThat(map.containsKey("b"), is(true));
+        assertThat(map.containsKey("c"), is(false));
+        assertThat(map.remove("a"), is(3));
+        assertThat(map.remove("a"), nullValue());
+        assertThat(map.size(), is(1));
+        map.clear();
+        assertThat(map.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testOrder() {
+        PersistentTreeMap<Integer, Integer> map = new PersistentTreeMap<>(Comparator.reverseOrder());
+        map.put(2, 2);
+        map.put(3, 3);
+        map.put(1, 1);
+        assertThat(Lists.newArrayList(map.keySet()), is(Lists.newArrayList(3, 2, 1)));
+    }
+
+    @Test
+    public void testSnapshot() {
+        PersistentTreeMap<String, Integer> map = new PersistentTreeMap<>();
+        map.put("a", 1);
+        map.put("b", 2);
+        PersistentTreeMap<String, Integer> snapshot = map.snapshot();
+        map.put("a", 10);
+        map.remove("b");
+        map.put("c", 3);
+        snapshot.put("d", 4);
+        assertThat(map, is(Maps.newHashMap(ImmutableMap.of("a", 10, "c", 3))));
+        assertThat(snapshot, is(Maps.newHashMap(ImmutableMap.of("a", 1, "b", 2, "d", 4))));
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        PersistentTreeMap<Integer, Integer> map = new PersistentTreeMap<>();
+        for (int i = 0; i < 100; i++) {
+            map.put(i, i);
+        }
+        PersistentTreeMap<Integer, Integer> snapshot = map.snapshot();
+        int count = 0;
+        Iterator<Map.Entry<Integer, Integer>> it = map.entrySet().iterator();
+        while (it.hasNext()) {
+            assertThat(it.next().getKey(), is(count));
+            if (count % 2 == 0) {
+                it.remove();
+            }
+            count++;
+        }
+        assertThat(count, is(100));
+        assertThat(map.size(), is(50));
+        assertThat(map.containsKey(2), is(false));
+        assertThat(map.containsKey(3), is(true));
+        assertThat(snapshot.size(), is(100));
+    }
+
+    @Test
+    public void testRandomSnapshots() {
+        Random random = new Random(1);
+        PersistentTreeMap<Integer, Integer> map = new PersistentTreeMap<>();
+        TreeMap<Integer, Integer> expected = Maps.newTreeMap();
+        List<PersistentTreeMap<Integer, Integer>> snapshots = Lists.newArrayList();
+        List<TreeMap<Integer, Integer>> expectedSnapshots = Lists.newArrayList();
+        for (int i = 0; i < 10000; i++) {
+            int key = random.nextInt(500);
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key), is(expected.remove(key)));
+            } else {
+                assertThat(map.put(key, i), is(expected.put(key, i)));
+            }
+            if (i % 1000 == 0) {
+                snapshots.add(map.snapshot());
+                expectedSnapshots.add(Maps.newTreeMap(expected));
+            }
+        }
+        assertThat(Lists.newArrayList(map.entrySet()), is(Lists.newArrayList(expected.entrySet())));
+        assertThat(map.size(), is(expected.size()));
+        for (int i = 0; i < snapshots.size(); i++) {
+            assertThat(Lists.newArrayList(snapshots.get(i).entrySet()), is(Lists.newArrayList(expectedSnapshots.get(i).entrySet())));
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+package org.cyclops.cyclopscore.ingredient.collection;
+
+import com.google.common.collect.Lists;
+import org.cyclops.cyclopscore.ingredient.ComplexStack;
+import org.cyclops.cyclopscore.ingredient.IngredientComponentStubs;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class TestIngredientCollectionBulkEngine {
+
+    private IngredientCollectionBulkEngine engine;
+    private List<ComplexStack> instances;
+
+    @Before
+    public void beforeEach() {
+        engine = new IngredientCollectionBulkEngine(4, 1);
+        instances = Lists.newArrayList();
+        for (ComplexStack.Group group : ComplexStack.Group.values()) {
+            for (int meta = 0; meta < 100; meta++) {
+                for (ComplexStack.Tag tag : ComplexStack.Tag.values()) {
+                    instances.add(new ComplexStack(group, meta, meta % 7 + 1, tag));
+                }
+                instances.add(new ComplexStack(group, meta, 1, null));
+            }
+        }
+    }
+
+    protected IngredientCollectionMultiClassified<ComplexStack, Integer> createCollection() {
+        return new IngredientCollectionMultiClassified<>(IngredientComponentStubs.COMPLEX,
+                () -> new IngredientHashSet<>(IngredientComponentStubs.COMPLEX));
+    }
+
+    protected IngredientCollectionMultiClassified<ComplexStack, Integer> createCollectionSequential(Iterable<ComplexStack> instances) {
+        IngredientCollectionMultiClassified<ComplexStack, Integer> collection = createCollection();
+        for (ComplexStack instance : instances) {
+            collection.add(instance);
+        }
+        return collection;
+    }
+
+    protected void assertContents(IngredientCollectionMultiClassified<ComplexStack, Integer> collection,
+                                  Iterable<ComplexStack> instances) {
+        // Iteration order of hash-based sub-collections depends on their modification history
+        assertThat(new IngredientHashSet<>(IngredientComponentStubs.COMPLEX, collection),
+                is(new IngredientHashSet<>(IngredientComponentStubs.COMPLEX, createCollectionSequential(instances))));
+    }
+
+    @Test
+    public void testShouldRunInline() {
+        assertThat(engine.shouldRunInline(0), is(true));
+        assertThat(engine.shouldRunInline(1), is(false));
+        assertThat(new IngredientCollectionBulkEngine(4, 100).shouldRunInline(99), is(true));
+        assertThat(new IngredientCollectionBulkEngine(4, 100).shouldRunInline(100), is(false));
+        assertThat(new IngredientCollectionBulkEngine(1, 100).shouldRunInline(100), is(true));
+    }
+
+    @Test
+    public void testAddAll() {
+        IngredientCollectionMultiClassified<ComplexStack, Integer> collection = createCollection();
+        assertThat(engine.addAll(collection, instances), is(true));
+        assertThat(collection.size(), is(instances.size()));
+        assertContents(collection, instances);
+        for (IngredientCollectionSingleClassified<ComplexStack, Integer, ?> singleClassified : collection.getClassifiedCollections().values()) {
+            assertThat(singleClassified.size(), is(instances.size()));
+        }
+
+        assertThat(engine.addAll(collection, instances), is(false));
+        assertThat(collection.size(), is(instances.size()));
+    }
+
+    @Test
+    public void testAddAllIterable() {
+        IngredientCollectionMultiClassified<ComplexStack, Integer> collection = createCollection();
+        assertThat(engine.addAll(collection, instances::iterator), is(true));
+        assertContents(collection, instances);
+    }
+
+    @Test
+    public void testRemoveAll() {
+        IngredientCollectionMultiClassified<ComplexStack, Integer> collection = createCollectionSequential(instances);
+        List<ComplexStack> removed = Lists.newArrayList();
+        List<ComplexStack> remaining = Lists.newArrayList();
+        for (int i = 0; i < instances.size(); i++) {
+            (i % 3 == 0 ? removed : remaining).add(instances.get(i));
+        }
+        removed.add(new ComplexStack(ComplexStack.Group.A, 1000, 1, null));
+
+        assertThat(engine.removeAll(collection, removed), is(removed.size() - 1));
+        assertThat(collection.size(), is(remaining.size()));
+        assertContents(collection, remaining);
+        for (IngredientCollectionSingleClassified<ComplexStack, Integer, ?> singleClassified : collection.getClassifiedCollections().values()) {
+            assertThat(singleClassified.size(), is(remaining.size()));
+        }
+
+        assertThat(engine.removeAll(collection, remaining), is(remaining.size()));
+        assertThat(collection.isEmpty(), is(true));
+        for (IngredientCollectionSingleClassified<ComplexStack, Integer, ?> singleClassified : collection.getClassifiedCollections().values()) {
+            assertThat(singleClassified.getClassifiedCollections().isEmpty(), is(true));
+        }
+    }
+
+    @Test
+    public void testCollectionAddAllRemoveAll() {
+        IngredientCollectionMultiClassified<ComplexStack, Integer> collection = createCollection();
+        assertThat(collection.addAll(instances), is(true));
+        assertContents(collection, instances);
+        assertThat(collection.removeAll(instances), is(instances.size()));
+        assertThat(collection.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testAddAllThreaded() {
+        IngredientCollectionMultiClassified<ComplexStack, Integer> collection = createCollection();
+        assertThat(collection.addAllThreaded(null, instances), is(true));
+        assertContents(collection, instances);
+    }
+
+}
@@ -172,4 +172,88 @@ public class TestIngredientCollectionMultiClassified {
         it.remove();
     }
 
+    @Test
+    public void testRemoveAllRemovesFromAllClassifiedCollections() {
+        collection.add(CA01B);
+        assertThat(collection.removeAll(CA01_, ComplexStack.Match.GROUP), is(3));
+        assertThat(collection.size(), is(1));
+        for (IngredientCollectionSingleClassified<ComplexStack, Integer, ?> singleClassified : collection.getClassifiedCollections().values()) {
+            assertThat(singleClassified.size(), is(1));
+            assertThat(singleClassified.contains(CB02_), is(true));
+            assertThat(singleClassified.contains(CA01_), is(false));
+        }
+        assertThat(collection.add(CA01_), is(true));
+        assertThat(collection.size(), is(2));
+    }
+
+    @Test
+    public void testRemoveDuplicatesInLists() {
+        IngredientCollectionMultiClassified<ComplexStack, Integer> list = new IngredientCollectionMultiClassified<>(
+                IngredientComponentStubs.COMPLEX, () -> new IngredientArrayList<>(IngredientComponentStubs.COMPLEX));
+        assertThat(list.add(CA01_), is(true));
+        assertThat(list.add(CA01_), is(true));
+        assertThat(list.add(CB02_), is(true));
+        assertThat(list.size(), is(3));
+
+        assertThat(list.remove(CA01_), is(true));
+        assertThat(list.size(), is(2));
+        assertThat(list.contains(CA01_), is(true));
+        for (IngredientCollectionSingleClassified<ComplexStack, Integer, ?> singleClassified : list.getClassifiedCollections().values()) {
+            assertThat(singleClassified.size(), is(2));
+        }
+
+        assertThat(list.remove(CA01_), is(true));
+        assertThat(list.remove(CA01_), is(false));
+        assertThat(list.size(), is(1));
+        for (IngredientCollectionSingleClassified<ComplexStack, Integer, ?> singleClassified : list.getClassifiedCollections().values()) {
+            assertThat(singleClassified.contains(CA01_), is(false));
+        }
+    }
+
+    @Test
+    public void testIteratorRemoveFromAllClassifiedCollections() {
+        Iterator<ComplexStack> it = collection.iterator();
+        while (it.hasNext()) {
+            if (it.next().equals(CB02_)) {
+                it.remove();
+            }
+        }
+        for (IngredientCollectionSingleClassified<ComplexStack, Integer, ?> singleClassified : collection.getClassifiedCollections().values()) {
+            assertThat(singleClassified.size(), is(2));
+            assertThat(singleClassified.contains(CB02_), is(false));
+        }
+    }
+
+    @Test
+    public void testRemoveMergedQuantities() {
+        IngredientCollectionMultiClassified<ComplexStack, Integer> map = new IngredientCollectionMultiClassified<>(
+                IngredientComponentStubs.COMPLEX, () -> new IngredientCollectionPrototypeMap<>(IngredientComponentStubs.COMPLEX));
+        ComplexStack ca05 = new ComplexStack(ComplexStack.Group.A, 0, 5, null);
+        ComplexStack ca03 = new ComplexStack(ComplexStack.Group.A, 0, 3, null);
+        ComplexStack ca02 = new ComplexStack(ComplexStack.Group.A, 0, 2, null);
+        assertThat(map.add(ca05), is(true));
+        assertThat(map.add(ca03), is(true));
+
+        // The merged instance is found via its prototype
+        assertThat(map.remove(ca02), is(true));
+        assertThat(map.remove(ca02), is(true));
+        assertThat(map.contains(CA01_, ComplexStack.Match.GROUP), is(true));
+        assertThat(map.remove(new ComplexStack(ComplexStack.Group.A, 0, 4, null)), is(true));
+        assertThat(map.contains(CA01_, ComplexStack.Match.GROUP), is(false));
+        assertThat(map.remove(ca02), is(false));
+    }
+
+    @Test
+    public void testRemoveAllMergedQuantities() {
+        IngredientCollectionMultiClassified<ComplexStack, Integer> map = new IngredientCollectionMultiClassified<>(
+                IngredientComponentStubs.COMPLEX, () -> new IngredientCollectionPrototypeMap<>(IngredientComponentStubs.COMPLEX));
+        map.add(new ComplexStack(ComplexStack.Group.A, 0, 5, null));
+        map.add(new ComplexStack(ComplexStack.Group.A, 0, 3, null));
+        map.add(CB02_);
+
+        assertThat(map.removeAll(CA01_, ComplexStack.Match.GROUP), is(1));
+        assertThat(map.contains(CA01_, ComplexStack.Match.GROUP), is(false));
+        assertThat(map.contains(CB02_), is(true));
+    }
+
 }
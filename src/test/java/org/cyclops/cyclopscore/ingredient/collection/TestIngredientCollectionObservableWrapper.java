@@ -0,0 +1,85 @@
+package org.cyclops.cyclopscore.ingredient.collection;
+
+import com.google.common.collect.Lists;
+import org.cyclops.cyclopscore.ingredient.IngredientComponentStubs;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class TestIngredientCollectionObservableWrapper {
+
+    private IngredientCollectionObservableWrapper<Integer, Boolean, IngredientHashSet<Integer, Boolean>> collection;
+    private List<Integer> added;
+    private List<Integer> removed;
+
+    @Before
+    public void beforeEach() {
+        IngredientHashSet<Integer, Boolean> innerCollection = new IngredientHashSet<>(IngredientComponentStubs.SIMPLE);
+        innerCollection.add(0);
+        innerCollection.add(1);
+        innerCollection.add(2);
+        this.collection = new IngredientCollectionObservableWrapper<>(innerCollection);
+        this.added = Lists.newArrayList();
+        this.removed = Lists.newArrayList();
+        this.collection.addObserver(new IIngredientCollectionObserver<Integer, Boolean>() {
+            @Override
+            public void onInstanceAdded(Integer instance) {
+                added.add(instance);
+            }
+
+            @Override
+            public void onInstanceRemoved(Integer instance) {
+                removed.add(instance);
+            }
+        });
+    }
+
+    @Test
+    public void testAdd() {
+        assertThat(collection.add(4), is(true));
+        assertThat(collection.add(4), is(false));
+        assertThat(added, is(Lists.newArrayList(4)));
+        assertThat(removed, is(Lists.newArrayList()));
+    }
+
+    @Test
+    public void testAddAll() {
+        assertThat(collection.addAll(Lists.newArrayList(2, 4, 5)), is(true));
+        assertThat(added, is(Lists.newArrayList(4, 5)));
+    }
+
+    @Test
+    public void testRemove() {
+        assertThat(collection.remove(2), is(true));
+        assertThat(collection.remove(2), is(false));
+        assertThat(removed, is(Lists.newArrayList(2)));
+        assertThat(added, is(Lists.newArrayList()));
+    }
+
+    @Test
+    public void testRemoveAll() {
+        assertThat(collection.removeAll(Lists.newArrayList(1, 2, 3)), is(2));
+        assertThat(removed, is(Lists.newArrayList(1, 2)));
+    }
+
+    @Test
+    public void testRemoveMatch() {
+        assertThat(collection.removeAll(2, false), is(3));
+        assertThat(collection.isEmpty(), is(true));
+        assertThat(removed.size(), is(3));
+        assertThat(removed.containsAll(Lists.newArrayList(0, 1, 2)), is(true));
+    }
+
+    @Test
+    public void testClear() {
+        collection.clear();
+        assertThat(collection.isEmpty(), is(true));
+        assertThat(removed.size(), is(3));
+        assertThat(removed.containsAll(Lists.newArrayList(0, 1, 2)), is(true));
+    }
+
+}
@@ -226,4 +226,27 @@ public class TestIngredientCollectionPrototypeMapComplex {
         assertThat(available2, is(Sets.newHashSet(new AbstractMap.SimpleEntry<>(CA01_, 5L), new AbstractMap.SimpleEntry<>(CB01_, 2L), new AbstractMap.SimpleEntry<>(CA91B, 2L), new AbstractMap.SimpleEntry<>(CA01B, 5L))));
     }
 
+    @Test
+    public void addOverflow() {
+        collection.setQuantity(CA01_, Long.MAX_VALUE);
+        try {
+            collection.add(CA02_);
+        } catch (ArithmeticException e) {
+            // The quantity was not modified
+            assertThat(collection.getQuantity(CA01_), is(Long.MAX_VALUE));
+            return;
+        }
+        throw new AssertionError("An overflow was expected");
+    }
+
+    @Test
+    public void addStoresCopiedPrototype() {
+        collection.add(CA01_);
+        collection.add(CA01_);
+        Map.Entry<ComplexStack, Long> entry = collection.prototypeIterator().next();
+        assertThat(entry.getKey() != CA01_, is(true));
+        assertThat(entry.getKey(), is(CA01_));
+        assertThat(entry.getValue(), is(2L));
+    }
+
 }
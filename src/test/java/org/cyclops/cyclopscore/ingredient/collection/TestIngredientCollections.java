@@ -1,10 +1,16 @@
 package org.cyclops.cyclopscore.ingredient.collection;
 
 import com.google.common.collect.Lists;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.Unpooled;
 import org.cyclops.cyclopscore.ingredient.ComplexStack;
 import org.cyclops.cyclopscore.ingredient.IngredientComponentStubs;
 import org.junit.Test;
 
+import java.io.IOException;
+
 import static org.hamcrest.CoreMatchers.*;
 import static org.hamcrest.MatcherAssert.assertThat;
 
@@ -748,4 +754,47 @@ public class TestIngredientCollections {
         assertThat(sorted, is(new IngredientArrayList<>(IngredientComponentStubs.SIMPLE, Lists.newArrayList(1, 2, 3))));
     }
 
+    @Test
+    public void testSerializeBinary() throws IOException {
+        IngredientArrayList<Integer, Boolean> list = new IngredientArrayList<>(IngredientComponentStubs.SIMPLE,
+                Lists.newArrayList(3, 0, 1, 200, 1000000000));
+        ByteBuf buffer = Unpooled.buffer();
+        IngredientCollections.serializeBinary(list, new ByteBufOutputStream(buffer));
+
+        IngredientArrayList<?, ?> deserialized = IngredientCollections.deserializeBinary(new ByteBufInputStream(buffer));
+        assertThat(deserialized, is(list));
+        assertThat(buffer.readableBytes(), is(0));
+    }
+
+    @Test
+    public void testSerializeBinaryPrototypeMap() throws IOException {
+        IngredientCollectionPrototypeMap<Integer, Boolean> map = new IngredientCollectionPrototypeMap<>(IngredientComponentStubs.SIMPLE);
+        map.add(3);
+        map.add(4);
+        ByteBuf buffer = Unpooled.buffer();
+        IngredientCollections.serializeBinary(map, new ByteBufOutputStream(buffer));
+
+        IngredientCollectionPrototypeMap<?, ?> deserialized = IngredientCollections.deserializeBinary(
+                new ByteBufInputStream(buffer), IngredientCollectionPrototypeMap::new);
+        assertThat(Lists.newArrayList(deserialized), is(Lists.newArrayList(7)));
+    }
+
+    @Test
+    public void testSerializeBinaryEmpty() throws IOException {
+        ByteBuf buffer = Unpooled.buffer();
+        IngredientCollections.serializeBinary(new IngredientArrayList<>(IngredientComponentStubs.COMPLEX),
+                new ByteBufOutputStream(buffer));
+
+        IngredientArrayList<?, ?> deserialized = IngredientCollections.deserializeBinary(new ByteBufInputStream(buffer));
+        assertThat(deserialized.getComponent().getName(), is(IngredientComponentStubs.COMPLEX.getName()));
+        assertThat(deserialized.isEmpty(), is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDeserializeBinaryInvalidComponent() throws IOException {
+        ByteBuf buffer = Unpooled.buffer();
+        new ByteBufOutputStream(buffer).writeUTF("cyclopscore:invalid");
+        IngredientCollections.deserializeBinary(new ByteBufInputStream(buffer));
+    }
+
 }
@@ -0,0 +1,146 @@
+package org.cyclops.cyclopscore.ingredient.collection;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.cyclops.cyclopscore.ingredient.ComplexStack;
+import org.cyclops.cyclopscore.ingredient.IngredientComponentStubs;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class TestIngredientLongHashMap {
+
+    private static final ComplexStack CA01_ = new ComplexStack(ComplexStack.Group.A, 0, 1, null);
+    private static final ComplexStack CB01_ = new ComplexStack(ComplexStack.Group.B, 0, 1, null);
+    private static final ComplexStack CA91B = new ComplexStack(ComplexStack.Group.A, 9, 1, ComplexStack.Tag.B);
+    private static final ComplexStack CA01B = new ComplexStack(ComplexStack.Group.A, 0, 1, ComplexStack.Tag.B);
+
+    private IngredientLongHashMap<ComplexStack, Integer> map;
+
+    @Before
+    public void beforeEach() {
+        map = new IngredientLongHashMap<>(IngredientComponentStubs.COMPLEX);
+        map.put(CA01_, 1L);
+        map.put(CB01_, 2L);
+        map.put(CA91B, 9L);
+    }
+
+    @Test
+    public void testConstructors() {
+        assertThat(new IngredientLongHashMap<>(IngredientComponentStubs.COMPLEX).isEmpty(), is(true));
+        assertThat(new IngredientLongHashMap<>(IngredientComponentStubs.COMPLEX, 10).isEmpty(), is(true));
+        IngredientLongHashMap<ComplexStack, Integer> copy = new IngredientLongHashMap<>(IngredientComponentStubs.COMPLEX, map);
+        assertThat(copy.containsKeyAll(Lists.newArrayList(CA01_, CB01_, CA91B)), is(true));
+        assertThat(copy, is(map));
+    }
+
+    @Test
+    public void testGet() {
+        assertThat(map.get(CA01_), is(1L));
+        assertThat(map.get(CB01_), is(2L));
+        assertThat(map.get(CA91B), is(9L));
+        assertThat(map.get(CA01B), nullValue());
+
+        assertThat(map.getLong(CA01_), is(1L));
+        assertThat(map.getLong(CA01B), is(0L));
+    }
+
+    @Test
+    public void testContainsKey() {
+        assertThat(map.containsKey(CA01_), is(true));
+        assertThat(map.containsKey(CA01B), is(false));
+
+        map.putLong(CA01B, 0);
+        assertThat(map.containsKey(CA01B), is(true));
+        assertThat(map.get(CA01B), is(0L));
+    }
+
+    @Test
+    public void testContainsValue() {
+        assertThat(map.containsValue(1L), is(true));
+        assertThat(map.containsValue(9L), is(true));
+        assertThat(map.containsValue(3L), is(false));
+    }
+
+    @Test
+    public void testPutLong() {
+        assertThat(map.putLong(CA01_, 10), is(1L));
+        assertThat(map.putLong(CA01B, 20), is(0L));
+        assertThat(map.getLong(CA01_), is(10L));
+        assertThat(map.getLong(CA01B), is(20L));
+        assertThat(map.size(), is(4));
+    }
+
+    @Test
+    public void testRemove() {
+        assertThat(map.remove(CA01_), is(1L));
+        assertThat(map.remove(CA01_), nullValue());
+        assertThat(map.removeLong(CB01_), is(2L));
+        assertThat(map.removeLong(CB01_), is(0L));
+        assertThat(map.size(), is(1));
+    }
+
+    @Test
+    public void testRemoveAllMatch() {
+        assertThat(map.removeAll(CA01_, ComplexStack.Match.GROUP), is(2));
+        assertThat(map.size(), is(1));
+        assertThat(map.containsKey(CB01_), is(true));
+    }
+
+    @Test
+    public void testAddTo() {
+        assertThat(map.addTo(CA01_, 5), is(1L));
+        assertThat(map.getLong(CA01_), is(6L));
+        assertThat(map.addTo(CA01_, -6), is(6L));
+        assertThat(map.getLong(CA01_), is(0L));
+        assertThat(map.containsKey(CA01_), is(true));
+
+        assertThat(map.addTo(CA01B, 3), is(0L));
+        assertThat(map.getLong(CA01B), is(3L));
+    }
+
+    @Test
+    public void testKeySet() {
+        assertThat(Sets.newHashSet(map.keySet()), is(Sets.newHashSet(CA01_, CB01_, CA91B)));
+    }
+
+    @Test
+    public void testValues() {
+        assertThat(Sets.newHashSet(map.values()), is(Sets.newHashSet(1L, 2L, 9L)));
+    }
+
+    @Test
+    public void testIterator() {
+        assertThat(Sets.newHashSet(map.iterator()), is(Sets.newHashSet(
+                new AbstractMap.SimpleEntry<>(CA01_, 1L),
+                new AbstractMap.SimpleEntry<>(CB01_, 2L),
+                new AbstractMap.SimpleEntry<>(CA91B, 9L)
+        )));
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        Iterator<Map.Entry<ComplexStack, Long>> it = map.iterator();
+        while (it.hasNext()) {
+            if (it.next().getValue() == 2L) {
+                it.remove();
+            }
+        }
+        assertThat(map.size(), is(2));
+        assertThat(map.containsKey(CB01_), is(false));
+    }
+
+    @Test
+    public void testClear() {
+        map.clear();
+        assertThat(map.isEmpty(), is(true));
+    }
+
+}
@@ -0,0 +1,183 @@
+package org.cyclops.cyclopscore.ingredient.collection;
+
+import com.google.common.collect.Sets;
+import org.cyclops.cyclopscore.ingredient.ComplexStack;
+import org.cyclops.cyclopscore.ingredient.IngredientComponentStubs;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class TestIngredientSnapshottable {
+
+    private static final ComplexStack CA01_ = new ComplexStack(ComplexStack.Group.A, 0, 1, null);
+    private static final ComplexStack CB02_ = new ComplexStack(ComplexStack.Group.B, 0, 2, null);
+    private static final ComplexStack CA91B = new ComplexStack(ComplexStack.Group.A, 9, 1, ComplexStack.Tag.B);
+
+    protected void testMapSnapshot(IIngredientMapMutable<ComplexStack, Integer, Long> map,
+                                   IIngredientMapMutable<ComplexStack, Integer, Long> snapshot) {
+        assertThat(snapshot, is(map));
+
+        map.put(CA01_, 10L);
+        map.remove(CB02_);
+        map.put(CA91B, 3L);
+        assertThat(snapshot.size(), is(2));
+        assertThat(snapshot.get(CA01_), is(1L));
+        assertThat(snapshot.get(CB02_), is(2L));
+        assertThat(snapshot.get(CA91B), nullValue());
+        assertThat(map.size(), is(2));
+        assertThat(map.get(CA01_), is(10L));
+
+        snapshot.clear();
+        assertThat(snapshot.isEmpty(), is(true));
+        assertThat(map.size(), is(2));
+    }
+
+    protected void testMapSnapshotIteratorRemove(IIngredientMapMutable<ComplexStack, Integer, Long> map,
+                                                 IIngredientMapMutable<ComplexStack, Integer, Long> snapshot) {
+        Iterator<Map.Entry<ComplexStack, Long>> it = map.iterator();
+        while (it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        assertThat(map.isEmpty(), is(true));
+        assertThat(snapshot.size(), is(2));
+    }
+
+    protected void testMapSnapshotViews(IIngredientMapMutable<ComplexStack, Integer, Long> map,
+                                        IIngredientMapMutable<ComplexStack, Integer, Long> snapshot) {
+        IngredientSet<ComplexStack, Integer> keys = map.keySet();
+        Collection<Long> values = map.values();
+        IngredientSet<ComplexStack, Integer> snapshotKeys = snapshot.keySet();
+        Collection<Long> snapshotValues = snapshot.values();
+
+        // Views follow the map after it was modified
+        map.put(CA91B, 3L);
+        assertThat(keys.size(), is(3));
+        assertThat(keys.contains(CA91B), is(true));
+        assertThat(Sets.newHashSet(values), is(Sets.newHashSet(1L, 2L, 3L)));
+        assertThat(values.contains(3L), is(true));
+        assertThat(snapshotKeys.size(), is(2));
+        assertThat(snapshotKeys.contains(CA91B), is(false));
+        assertThat(Sets.newHashSet(snapshotValues), is(Sets.newHashSet(1L, 2L)));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testMapKeySetReadOnly() {
+        fill(new IngredientPersistentHashMap<ComplexStack, Integer, Long>(IngredientComponentStubs.COMPLEX)).keySet().add(CA91B);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testLongMapValuesReadOnly() {
+        Iterator<Long> it = fill(new IngredientPersistentLongHashMap<>(IngredientComponentStubs.COMPLEX)).values().iterator();
+        it.next();
+        it.remove();
+    }
+
+    protected <C extends IIngredientMapMutable<ComplexStack, Integer, Long> & IIngredientSnapshottable<C>> C fill(C map) {
+        map.put(CA01_, 1L);
+        map.put(CB02_, 2L);
+        return map;
+    }
+
+    @Test
+    public void testHashMap() {
+        IngredientPersistentHashMap<ComplexStack, Integer, Long> map = fill(new IngredientPersistentHashMap<>(IngredientComponentStubs.COMPLEX));
+        testMapSnapshot(map, map.snapshot());
+    }
+
+    @Test
+    public void testHashMapIteratorRemove() {
+        IngredientPersistentHashMap<ComplexStack, Integer, Long> map = fill(new IngredientPersistentHashMap<>(IngredientComponentStubs.COMPLEX));
+        testMapSnapshotIteratorRemove(map, map.snapshot());
+    }
+
+    @Test
+    public void testHashMapViews() {
+        IngredientPersistentHashMap<ComplexStack, Integer, Long> map = fill(new IngredientPersistentHashMap<>(IngredientComponentStubs.COMPLEX));
+        testMapSnapshotViews(map, map.snapshot());
+    }
+
+    @Test
+    public void testTreeMap() {
+        IngredientPersistentTreeMap<ComplexStack, Integer, Long> map = fill(new IngredientPersistentTreeMap<>(IngredientComponentStubs.COMPLEX));
+        testMapSnapshot(map, map.snapshot());
+    }
+
+    @Test
+    public void testTreeMapViews() {
+        IngredientPersistentTreeMap<ComplexStack, Integer, Long> map = fill(new IngredientPersistentTreeMap<>(IngredientComponentStubs.COMPLEX));
+        testMapSnapshotViews(map, map.snapshot());
+    }
+
+    @Test
+    public void testTreeMapIteratorRemove() {
+        IngredientPersistentTreeMap<ComplexStack, Integer, Long> map = fill(new IngredientPersistentTreeMap<>(IngredientComponentStubs.COMPLEX));
+        testMapSnapshotIteratorRemove(map, map.snapshot());
+    }
+
+    @Test
+    public void testLongHashMap() {
+        IngredientPersistentLongHashMap<ComplexStack, Integer> map = fill(new IngredientPersistentLongHashMap<>(IngredientComponentStubs.COMPLEX));
+        testMapSnapshot(map, map.snapshot());
+    }
+
+    @Test
+    public void testLongHashMapViews() {
+        IngredientPersistentLongHashMap<ComplexStack, Integer> map = fill(new IngredientPersistentLongHashMap<>(IngredientComponentStubs.COMPLEX));
+        testMapSnapshotViews(map, map.snapshot());
+    }
+
+    @Test
+    public void testLongHashMapIteratorRemove() {
+        IngredientPersistentLongHashMap<ComplexStack, Integer> map = fill(new IngredientPersistentLongHashMap<>(IngredientComponentStubs.COMPLEX));
+        testMapSnapshotIteratorRemove(map, map.snapshot());
+    }
+
+    @Test
+    public void testLongHashMapSnapshotOfSnapshot() {
+        IngredientPersistentLongHashMap<ComplexStack, Integer> map = fill(new IngredientPersistentLongHashMap<>(IngredientComponentStubs.COMPLEX));
+        IngredientPersistentLongHashMap<ComplexStack, Integer> snapshot1 = map.snapshot();
+        IngredientPersistentLongHashMap<ComplexStack, Integer> snapshot2 = snapshot1.snapshot();
+        snapshot1.addTo(CA01_, 5);
+        map.removeLong(CA01_);
+        assertThat(map.getLong(CA01_), is(0L));
+        assertThat(snapshot1.getLong(CA01_), is(6L));
+        assertThat(snapshot2.getLong(CA01_), is(1L));
+    }
+
+    @Test
+    public void testPrototypeMap() {
+        testPrototypeMap(new IngredientCollectionPrototypeMap<>(IngredientComponentStubs.COMPLEX, false,
+                new IngredientPersistentLongHashMap<>(IngredientComponentStubs.COMPLEX)));
+    }
+
+    @Test
+    public void testPrototypeMapCopied() {
+        testPrototypeMap(new IngredientCollectionPrototypeMap<>(IngredientComponentStubs.COMPLEX));
+    }
+
+    protected void testPrototypeMap(IngredientCollectionPrototypeMap<ComplexStack, Integer> collection) {
+        collection.add(CA01_);
+        collection.add(CB02_);
+        IngredientCollectionPrototypeMap<ComplexStack, Integer> snapshot = collection.snapshot();
+        assertThat(snapshot.size(), is(2));
+
+        collection.add(CA01_);
+        collection.remove(CB02_);
+        assertThat(collection.getQuantity(CA01_), is(2L));
+        assertThat(collection.getQuantity(CB02_), is(0L));
+        assertThat(snapshot.getQuantity(CA01_), is(1L));
+        assertThat(snapshot.getQuantity(CB02_), is(2L));
+
+        snapshot.remove(CA01_);
+        assertThat(snapshot.getQuantity(CA01_), is(0L));
+        assertThat(collection.getQuantity(CA01_), is(2L));
+    }
+
+}
@@ -5,6 +5,8 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.cyclops.cyclopscore.ingredient.ComplexStack;
 import org.cyclops.cyclopscore.ingredient.IngredientComponentStubs;
+import org.cyclops.cyclopscore.ingredient.collection.IngredientCollectionObservableWrapper;
+import org.cyclops.cyclopscore.ingredient.collection.IngredientCollectionPrototypeMap;
 import org.junit.Test;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -73,4 +75,73 @@ public class TestIngredientCollectionDiffManager {
         assertThat(diff5.isCompletelyEmpty(), is(true));
     }
 
+    @Test
+    public void testIncrementalInitial() {
+        IngredientCollectionDiffManager<ComplexStack, Integer> manager = new IngredientCollectionDiffManager<>(IngredientComponentStubs.COMPLEX);
+        IngredientCollectionObservableWrapper<ComplexStack, Integer, ?> collection = new IngredientCollectionObservableWrapper<>(
+                new IngredientCollectionPrototypeMap<>(IngredientComponentStubs.COMPLEX));
+        collection.add(CA02_);
+        manager.observe(collection);
+        assertThat(manager.isObserving(), is(true));
+
+        IngredientCollectionDiff<ComplexStack, Integer> diff = manager.onChange();
+        assertThat(Sets.newHashSet(diff.getAdditions()), is(Sets.newHashSet(CA02_)));
+        assertThat(Sets.newHashSet(diff.getDeletions()), is(Sets.newHashSet()));
+        assertThat(diff.isCompletelyEmpty(), is(false));
+    }
+
+    @Test
+    public void testIncrementalIterations() {
+        IngredientCollectionDiffManager<ComplexStack, Integer> manager = new IngredientCollectionDiffManager<>(IngredientComponentStubs.COMPLEX);
+        IngredientCollectionObservableWrapper<ComplexStack, Integer, ?> collection = new IngredientCollectionObservableWrapper<>(
+                new IngredientCollectionPrototypeMap<>(IngredientComponentStubs.COMPLEX));
+        manager.observe(collection);
+
+        IngredientCollectionDiff<ComplexStack, Integer> diff0 = manager.onChange();
+        assertThat(Sets.newHashSet(diff0.getAdditions()), is(Sets.newHashSet()));
+        assertThat(Sets.newHashSet(diff0.getDeletions()), is(Sets.newHashSet()));
+        assertThat(diff0.isCompletelyEmpty(), is(true));
+
+        collection.add(CA02_);
+        IngredientCollectionDiff<ComplexStack, Integer> diff1 = manager.onChange();
+        assertThat(Sets.newHashSet(diff1.getAdditions()), is(Sets.newHashSet(CA02_)));
+        assertThat(Sets.newHashSet(diff1.getDeletions()), is(Sets.newHashSet()));
+        assertThat(diff1.isCompletelyEmpty(), is(false));
+
+        collection.remove(CA01_);
+        IngredientCollectionDiff<ComplexStack, Integer> diff2 = manager.onChange();
+        assertThat(Sets.newHashSet(diff2.getAdditions()), is(Sets.newHashSet()));
+        assertThat(Sets.newHashSet(diff2.getDeletions()), is(Sets.newHashSet(CA01_)));
+        assertThat(diff2.isCompletelyEmpty(), is(false));
+
+        collection.add(CA91B);
+        collection.add(CB02_);
+        collection.remove(CB02_);
+        IngredientCollectionDiff<ComplexStack, Integer> diff3 = manager.onChange();
+        assertThat(Sets.newHashSet(diff3.getAdditions()), is(Sets.newHashSet(CA91B)));
+        assertThat(Sets.newHashSet(diff3.getDeletions()), is(Sets.newHashSet()));
+        assertThat(diff3.isCompletelyEmpty(), is(false));
+
+        collection.removeAll(CA01_, ComplexStack.Match.ANY);
+        IngredientCollectionDiff<ComplexStack, Integer> diff4 = manager.onChange();
+        assertThat(Sets.newHashSet(diff4.getAdditions()), is(Sets.newHashSet()));
+        assertThat(Sets.newHashSet(diff4.getDeletions()), is(Sets.newHashSet(CA01_, CA91B)));
+        assertThat(diff4.isCompletelyEmpty(), is(true));
+    }
+
+    @Test
+    public void testIncrementalStopObserving() {
+        IngredientCollectionDiffManager<ComplexStack, Integer> manager = new IngredientCollectionDiffManager<>(IngredientComponentStubs.COMPLEX);
+        IngredientCollectionObservableWrapper<ComplexStack, Integer, ?> collection = new IngredientCollectionObservableWrapper<>(
+                new IngredientCollectionPrototypeMap<>(IngredientComponentStubs.COMPLEX));
+        manager.observe(collection);
+        manager.stopObserving();
+        assertThat(manager.isObserving(), is(false));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testIncrementalNotObserving() {
+        new IngredientCollectionDiffManager<>(IngredientComponentStubs.COMPLEX).onChange();
+    }
+
 }
@@ -1,6 +1,7 @@
 package org.cyclops.cyclopscore.ingredient.storage;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import org.cyclops.commoncapabilities.api.ingredient.storage.IIngredientComponentStorage;
 import org.cyclops.commoncapabilities.api.ingredient.storage.IIngredientComponentStorageSlotted;
 import org.cyclops.cyclopscore.ingredient.ComplexStack;
@@ -12,6 +13,8 @@ import org.cyclops.cyclopscore.ingredient.collection.IngredientList;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.List;
+
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 
@@ -205,4 +208,183 @@ public class TestIngredientComponentStorageHelpersComplex {
         assertThat(Lists.newArrayList(destinationSlotted), is(Lists.newArrayList(CB01_)));
     }
 
+    @Test
+    public void testMoveAll() throws InconsistentIngredientInsertionException {
+        destinationSlottedInnerStorage.addAll(Lists.newArrayList(null, null, null));
+
+        sourceInnerStorage.add(CA02_);
+        sourceInnerStorage.add(CB02_);
+
+        IngredientStorageMoveResult<ComplexStack, Integer> result = IngredientStorageHelpers.moveAll(sourceStorage,
+                destinationSlotted, CA01_, ComplexStack.Match.ANY, 100, false);
+        assertThat(Sets.newHashSet(result.getMoved()), is(Sets.newHashSet(CA02_, CB02_)));
+        assertThat(result.getMovedQuantity(), is(4L));
+        assertThat(result.getMovements(), is(2));
+        assertThat(result.getScanned(), is(2));
+
+        assertThat(sourceInnerStorage.isEmpty(), is(true));
+        assertThat(Sets.newHashSet(destinationSlotted), is(Sets.newHashSet(CA02_, CB02_, null)));
+    }
+
+    @Test
+    public void testMoveAllMaxTotal() throws InconsistentIngredientInsertionException {
+        destinationSlottedInnerStorage.addAll(Lists.newArrayList(null, null, null));
+
+        sourceInnerStorage.add(CA02_);
+        sourceInnerStorage.add(CB02_);
+
+        IngredientStorageMoveResult<ComplexStack, Integer> result = IngredientStorageHelpers.moveAll(sourceStorage,
+                destinationSlotted, CA01_, ComplexStack.Match.ANY, 3, false);
+        assertThat(Sets.newHashSet(result.getMoved()), is(Sets.newHashSet(CA02_, CB01_)));
+        assertThat(result.getMovedQuantity(), is(3L));
+
+        assertThat(Lists.newArrayList(sourceInnerStorage), is(Lists.newArrayList(CB01_)));
+    }
+
+    @Test
+    public void testMoveAllSimulate() throws InconsistentIngredientInsertionException {
+        destinationSlottedInnerStorage.addAll(Lists.newArrayList(null, null, null));
+
+        sourceInnerStorage.add(CA02_);
+        sourceInnerStorage.add(CB02_);
+
+        IngredientStorageMoveResult<ComplexStack, Integer> result = IngredientStorageHelpers.moveAll(sourceStorage,
+                destinationSlotted, CA01_, ComplexStack.Match.ANY, 100, true);
+        assertThat(Sets.newHashSet(result.getMoved()), is(Sets.newHashSet(CA02_, CB02_)));
+        assertThat(result.getMovedQuantity(), is(4L));
+        assertThat(result.getMovements(), is(2));
+        assertThat(result.getScanned(), is(2));
+
+        assertThat(Lists.newArrayList(sourceInnerStorage), is(Lists.newArrayList(CA02_, CB02_)));
+        assertThat(Lists.newArrayList(destinationSlotted), is(Lists.newArrayList(null, null, null)));
+    }
+
+    @Test
+    public void testMoveAllSlottedSource() throws InconsistentIngredientInsertionException {
+        IngredientList<ComplexStack, Integer> sourceSlottedInnerStorage = new IngredientArrayList<>(IngredientComponentStubs.COMPLEX);
+        IIngredientComponentStorageSlotted<ComplexStack, Integer> sourceSlotted =
+                new IngredientComponentStorageSlottedCollectionWrapper<>(sourceSlottedInnerStorage, 100, 10);
+        for (int i = 0; i < 50; i++) {
+            sourceSlottedInnerStorage.add(i % 2 == 0 ? CA01_ : null);
+        }
+        destinationSlottedInnerStorage.add(null);
+
+        IngredientStorageMoveResult<ComplexStack, Integer> result = IngredientStorageHelpers.moveAll(sourceSlotted,
+                destinationSlotted, CA01_, ComplexStack.Match.EXACT, 100, false);
+        assertThat(result.getMovedQuantity(), is(25L));
+        assertThat(result.getMovements(), is(25));
+        assertThat(result.getScanned(), is(50));
+        assertThat(result.getExtractions(), is(50));
+        assertThat(result.getInsertions(), is(50));
+
+        assertThat(Sets.newHashSet(sourceSlottedInnerStorage), is(Sets.newHashSet((ComplexStack) null)));
+        assertThat(Lists.newArrayList(destinationSlotted), is(Lists.newArrayList(new ComplexStack(ComplexStack.Group.A, 0, 25, null))));
+    }
+
+    @Test
+    public void testMoveAllSkipsRejectedPrototypes() throws InconsistentIngredientInsertionException {
+        IngredientList<ComplexStack, Integer> sourceSlottedInnerStorage = new IngredientArrayList<>(IngredientComponentStubs.COMPLEX);
+        IIngredientComponentStorageSlotted<ComplexStack, Integer> sourceSlotted =
+                new IngredientComponentStorageSlottedCollectionWrapper<>(sourceSlottedInnerStorage, 100, 10);
+        sourceSlottedInnerStorage.addAll(Lists.newArrayList(CB01_, CB01_, CA01_));
+        destinationSlottedInnerStorage.add(CA01_);
+
+        IngredientStorageMoveResult<ComplexStack, Integer> result = IngredientStorageHelpers.moveAll(sourceSlotted,
+                destinationSlotted, CA01_, ComplexStack.Match.ANY, 100, false);
+        assertThat(Sets.newHashSet(result.getMoved()), is(Sets.newHashSet(CA01_)));
+        assertThat(result.getScanned(), is(3));
+        assertThat(result.getExtractions(), is(3));
+        assertThat(result.getInsertions(), is(3));
+
+        assertThat(Lists.newArrayList(sourceSlottedInnerStorage), is(Lists.newArrayList(CB01_, CB01_, null)));
+        assertThat(Lists.newArrayList(destinationSlotted), is(Lists.newArrayList(CA02_)));
+    }
+
+    @Test
+    public void testMoveAllRateLimitedDestination() throws InconsistentIngredientInsertionException {
+        IngredientList<ComplexStack, Integer> sourceSlottedInnerStorage = new IngredientArrayList<>(IngredientComponentStubs.COMPLEX);
+        IIngredientComponentStorageSlotted<ComplexStack, Integer> sourceSlotted =
+                new IngredientComponentStorageSlottedCollectionWrapper<>(sourceSlottedInnerStorage, 100, 100);
+        sourceSlottedInnerStorage.addAll(Lists.newArrayList(new ComplexStack(ComplexStack.Group.A, 0, 25, null), CB01_));
+        destinationSlottedInnerStorage.addAll(Lists.newArrayList(null, null));
+
+        // The destination accepts at most 10 per insertion, so the first slot needs three movements
+        IngredientStorageMoveResult<ComplexStack, Integer> result = IngredientStorageHelpers.moveAll(sourceSlotted,
+                destinationSlotted, CA01_, ComplexStack.Match.ANY, 100, false);
+        assertThat(result.getMovedQuantity(), is(26L));
+        assertThat(result.getMovements(), is(4));
+        assertThat(result.getScanned(), is(2));
+
+        assertThat(Sets.newHashSet(sourceSlottedInnerStorage), is(Sets.newHashSet((ComplexStack) null)));
+        assertThat(Lists.newArrayList(destinationSlotted), is(Lists.newArrayList(
+                new ComplexStack(ComplexStack.Group.A, 0, 25, null), CB01_)));
+    }
+
+    protected static IngredientStorageMoveResult<ComplexStack, Integer> assertSimulateSameAsMove(
+            IIngredientComponentStorage<ComplexStack, Integer> source,
+            IIngredientComponentStorage<ComplexStack, Integer> destination) throws InconsistentIngredientInsertionException {
+        List<ComplexStack> sourceContents = Lists.newArrayList(source);
+        List<ComplexStack> destinationContents = Lists.newArrayList(destination);
+        IngredientStorageMoveResult<ComplexStack, Integer> simulated = IngredientStorageHelpers.moveAll(source,
+                destination, CA01_, ComplexStack.Match.ANY, 100, true);
+        assertThat(Lists.newArrayList(source), is(sourceContents));
+        assertThat(Lists.newArrayList(destination), is(destinationContents));
+
+        IngredientStorageMoveResult<ComplexStack, Integer> result = IngredientStorageHelpers.moveAll(source,
+                destination, CA01_, ComplexStack.Match.ANY, 100, false);
+        assertThat(Sets.newHashSet(simulated.getMoved()), is(Sets.newHashSet(result.getMoved())));
+        assertThat(simulated.getMovedQuantity(), is(result.getMovedQuantity()));
+        assertThat(simulated.getMovements(), is(result.getMovements()));
+        assertThat(simulated.getScanned(), is(result.getScanned()));
+        assertThat(simulated.getExtractions(), is(result.getExtractions()));
+        assertThat(simulated.getInsertions(), is(result.getInsertions()));
+        return result;
+    }
+
+    protected static IIngredientComponentStorageSlotted<ComplexStack, Integer> createSlotted(long maxSlotQuantity,
+                                                                                            long rateLimit,
+                                                                                            ComplexStack... contents) {
+        IngredientList<ComplexStack, Integer> innerStorage = new IngredientArrayList<>(IngredientComponentStubs.COMPLEX);
+        innerStorage.addAll(Lists.newArrayList(contents));
+        return new IngredientComponentStorageSlottedCollectionWrapper<>(innerStorage, maxSlotQuantity, rateLimit);
+    }
+
+    @Test
+    public void testMoveAllSimulateSameAsMove() throws InconsistentIngredientInsertionException {
+        ComplexStack CA05_ = new ComplexStack(ComplexStack.Group.A, 0, 5, null);
+        ComplexStack CA20_ = new ComplexStack(ComplexStack.Group.A, 0, 20, null);
+        ComplexStack CA25_ = new ComplexStack(ComplexStack.Group.A, 0, 25, null);
+        IngredientStorageMoveResult<ComplexStack, Integer> result;
+        IIngredientComponentStorageSlotted<ComplexStack, Integer> destination;
+
+        // The source limits each extraction, and the destination only has room for part of the source
+        destination = createSlotted(20, 100, (ComplexStack) null);
+        result = assertSimulateSameAsMove(createSlotted(100, 10, CA25_, null, CA05_), destination);
+        assertThat(result.getMovedQuantity(), is(20L));
+        assertThat(result.getMovements(), is(2));
+        assertThat(Lists.newArrayList(destination), is(Lists.newArrayList(CA20_)));
+
+        // The destination limits each insertion
+        destination = createSlotted(100, 10, null, null);
+        result = assertSimulateSameAsMove(createSlotted(100, 100, CA25_, CB01_), destination);
+        assertThat(result.getMovedQuantity(), is(26L));
+        assertThat(result.getMovements(), is(4));
+        assertThat(Lists.newArrayList(destination), is(Lists.newArrayList(CA25_, CB01_)));
+
+        // Different instances compete for a single slot
+        destination = createSlotted(100, 100, (ComplexStack) null);
+        result = assertSimulateSameAsMove(createSlotted(100, 100, CA02_, CB02_), destination);
+        assertThat(Sets.newHashSet(result.getMoved()), is(Sets.newHashSet(CA02_)));
+        assertThat(Lists.newArrayList(destination), is(Lists.newArrayList(CA02_)));
+
+        // A destination without slots that limits each insertion and its total quantity
+        IngredientCollectionQuantitativeGrouper<ComplexStack, Integer, IIngredientListMutable<ComplexStack, Integer>> destinationInnerStorage =
+                new IngredientCollectionQuantitativeGrouper<>(new IngredientArrayList<>(IngredientComponentStubs.COMPLEX));
+        result = assertSimulateSameAsMove(createSlotted(100, 100, CA25_),
+                new IngredientComponentStorageCollectionWrapper<>(destinationInnerStorage, 20, 10));
+        assertThat(result.getMovedQuantity(), is(20L));
+        assertThat(result.getMovements(), is(2));
+        assertThat(Lists.newArrayList(destinationInnerStorage), is(Lists.newArrayList(CA20_)));
+    }
+
 }
@@ -0,0 +1,136 @@
+package org.cyclops.cyclopscore.ingredient.storage;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.cyclops.commoncapabilities.api.ingredient.storage.IIngredientComponentStorageSlotted;
+import org.cyclops.cyclopscore.ingredient.ComplexStack;
+import org.cyclops.cyclopscore.ingredient.IngredientComponentStubs;
+import org.cyclops.cyclopscore.ingredient.collection.IngredientArrayList;
+import org.cyclops.cyclopscore.ingredient.collection.IngredientList;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class TestIngredientStorageSlottedTransferPlan {
+
+    private static final ComplexStack EMPTY = IngredientComponentStubs.COMPLEX.getMatcher().getEmptyInstance();
+
+    private static final ComplexStack CA01_ = new ComplexStack(ComplexStack.Group.A, 0, 1, null);
+    private static final ComplexStack CA05_ = new ComplexStack(ComplexStack.Group.A, 0, 5, null);
+    private static final ComplexStack CA09_ = new ComplexStack(ComplexStack.Group.A, 0, 9, null);
+    private static final ComplexStack CA010_ = new ComplexStack(ComplexStack.Group.A, 0, 10, null);
+    private static final ComplexStack CA011_ = new ComplexStack(ComplexStack.Group.A, 0, 11, null);
+    private static final ComplexStack CA020_ = new ComplexStack(ComplexStack.Group.A, 0, 20, null);
+    private static final ComplexStack CA0100_ = new ComplexStack(ComplexStack.Group.A, 0, 100, null);
+    private static final ComplexStack CA0500_ = new ComplexStack(ComplexStack.Group.A, 0, 500, null);
+
+    private static final ComplexStack CB02_ = new ComplexStack(ComplexStack.Group.B, 0, 2, null);
+    private static final ComplexStack CA91B = new ComplexStack(ComplexStack.Group.A, 9, 1, ComplexStack.Tag.B);
+    private static final ComplexStack CA01B = new ComplexStack(ComplexStack.Group.A, 0, 1, ComplexStack.Tag.B);
+
+    private IngredientList<ComplexStack, Integer> sourceInnerStorage;
+    private IIngredientComponentStorageSlotted<ComplexStack, Integer> source;
+    private IngredientList<ComplexStack, Integer> destinationInnerStorage;
+    private IIngredientComponentStorageSlotted<ComplexStack, Integer> destination;
+
+    @Before
+    public void beforeEach() {
+        sourceInnerStorage = new IngredientArrayList<>(IngredientComponentStubs.COMPLEX);
+        source = new IngredientComponentStorageSlottedCollectionWrapper<>(sourceInnerStorage, 100, 10);
+        destinationInnerStorage = new IngredientArrayList<>(IngredientComponentStubs.COMPLEX);
+        destination = new IngredientComponentStorageSlottedCollectionWrapper<>(destinationInnerStorage, 100, 10);
+
+        sourceInnerStorage.addAll(Lists.newArrayList(
+                EMPTY, CA09_, EMPTY, CB02_, CA01B));
+        destinationInnerStorage.addAll(Lists.newArrayList(
+                CA01_, EMPTY, CA91B, EMPTY, EMPTY));
+    }
+
+    @Test
+    public void testMoveGroup() throws InconsistentIngredientInsertionException {
+        IngredientStorageSlottedTransferPlan<ComplexStack, Integer> plan = IngredientStorageSlottedTransferPlan
+                .create(source, destination, CA010_, ComplexStack.Match.GROUP);
+        assertThat(Sets.newHashSet(plan.getPlanned()), is(Sets.newHashSet(CA09_, CA01B)));
+        assertThat(plan.getTransferCount(), is(2));
+
+        assertThat(Sets.newHashSet(plan.execute()), is(Sets.newHashSet(CA09_, CA01B)));
+        assertThat(Lists.newArrayList(sourceInnerStorage), is(Lists.newArrayList(EMPTY, EMPTY, EMPTY, CB02_, EMPTY)));
+        assertThat(Lists.newArrayList(destinationInnerStorage), is(Lists.newArrayList(CA010_, CA01B, CA91B, EMPTY, EMPTY)));
+    }
+
+    @Test
+    public void testMoveLimitedQuantity() throws InconsistentIngredientInsertionException {
+        assertThat(Sets.newHashSet(IngredientStorageHelpers.moveIngredientsSlottedBulk(source, destination, CA05_,
+                ComplexStack.Match.GROUP, false)), is(Sets.newHashSet(CA05_)));
+        assertThat(Lists.newArrayList(sourceInnerStorage), is(Lists.newArrayList(EMPTY,
+                new ComplexStack(ComplexStack.Group.A, 0, 4, null), EMPTY, CB02_, CA01B)));
+        assertThat(Lists.newArrayList(destinationInnerStorage), is(Lists.newArrayList(
+                new ComplexStack(ComplexStack.Group.A, 0, 6, null), EMPTY, CA91B, EMPTY, EMPTY)));
+    }
+
+    @Test
+    public void testMoveSimulate() throws InconsistentIngredientInsertionException {
+        assertThat(Sets.newHashSet(IngredientStorageHelpers.moveIngredientsSlottedBulk(source, destination, CA010_,
+                ComplexStack.Match.GROUP | ComplexStack.Match.TAG, true)), is(Sets.newHashSet(CA09_)));
+        assertThat(Lists.newArrayList(sourceInnerStorage), is(Lists.newArrayList(EMPTY, CA09_, EMPTY, CB02_, CA01B)));
+        assertThat(Lists.newArrayList(destinationInnerStorage), is(Lists.newArrayList(CA01_, EMPTY, CA91B, EMPTY, EMPTY)));
+    }
+
+    @Test
+    public void testMoveExactQuantity() throws InconsistentIngredientInsertionException {
+        assertThat(IngredientStorageHelpers.moveIngredientsSlottedBulk(source, destination, CA011_,
+                ComplexStack.Match.GROUP | ComplexStack.Match.AMOUNT, false).isEmpty(), is(true));
+        assertThat(Lists.newArrayList(sourceInnerStorage), is(Lists.newArrayList(EMPTY, CA09_, EMPTY, CB02_, CA01B)));
+
+        assertThat(Sets.newHashSet(IngredientStorageHelpers.moveIngredientsSlottedBulk(source, destination, CA010_,
+                ComplexStack.Match.GROUP | ComplexStack.Match.AMOUNT, false)), is(Sets.newHashSet(CA09_, CA01B)));
+        assertThat(Lists.newArrayList(sourceInnerStorage), is(Lists.newArrayList(EMPTY, EMPTY, EMPTY, CB02_, EMPTY)));
+    }
+
+    @Test
+    public void testMoveNothing() throws InconsistentIngredientInsertionException {
+        IngredientStorageSlottedTransferPlan<ComplexStack, Integer> plan = IngredientStorageSlottedTransferPlan
+                .create(source, destination, CA91B, ComplexStack.Match.EXACT);
+        assertThat(plan.getTransferCount(), is(0));
+        assertThat(plan.execute().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testMoveLarge() throws InconsistentIngredientInsertionException {
+        sourceInnerStorage.clear();
+        destinationInnerStorage.clear();
+        for (int i = 0; i < 100; i++) {
+            sourceInnerStorage.add(CA05_);
+            destinationInnerStorage.add(i % 2 == 0 ? EMPTY : CA0100_);
+        }
+
+        // Full destination slots are skipped, and each empty slot accepts up to the rate limit per transfer
+        IngredientStorageSlottedTransferPlan<ComplexStack, Integer> plan = IngredientStorageSlottedTransferPlan
+                .create(source, destination, CA0500_, ComplexStack.Match.GROUP);
+        assertThat(Sets.newHashSet(plan.getPlanned()), is(Sets.newHashSet(CA0500_)));
+        assertThat(plan.getTransferCount(), is(100));
+        assertThat(Sets.newHashSet(plan.execute()), is(Sets.newHashSet(CA0500_)));
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(sourceInnerStorage.get(i), is(EMPTY));
+            assertThat(destinationInnerStorage.get(i), is(i % 2 == 0 ? CA010_ : CA0100_));
+        }
+    }
+
+    @Test
+    public void testMoveEmptySlotsAreNotShared() throws InconsistentIngredientInsertionException {
+        destinationInnerStorage.clear();
+        destinationInnerStorage.addAll(Lists.newArrayList(CA0100_, EMPTY));
+
+        // The only empty slot is taken by the first prototype
+        IngredientStorageSlottedTransferPlan<ComplexStack, Integer> plan = IngredientStorageSlottedTransferPlan
+                .create(source, destination, CA020_, ComplexStack.Match.ANY);
+        assertThat(Sets.newHashSet(plan.getPlanned()), is(Sets.newHashSet(CA09_)));
+        assertThat(Sets.newHashSet(plan.execute()), is(Sets.newHashSet(CA09_)));
+        assertThat(Lists.newArrayList(sourceInnerStorage), is(Lists.newArrayList(EMPTY, EMPTY, EMPTY, CB02_, CA01B)));
+        assertThat(Lists.newArrayList(destinationInnerStorage), is(Lists.newArrayList(CA0100_, CA09_)));
+    }
+
+}
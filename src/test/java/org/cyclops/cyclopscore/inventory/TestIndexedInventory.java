@@ -1,14 +1,21 @@
 package org.cyclops.cyclopscore.inventory;
 
 import com.google.common.collect.Iterators;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSets;
 import net.minecraft.init.Bootstrap;
 import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraftforge.items.wrapper.InvWrapper;
+import org.cyclops.commoncapabilities.api.capability.itemhandler.ItemMatch;
 import org.junit.Test;
 
 import static org.cyclops.cyclopscore.helper.CyclopsMatchers.isIterator;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 
 /**
@@ -1340,4 +1347,276 @@ public class TestIndexedInventory {
         assertThat("Index has incorrect contents", inv.getIndex().get(ITEM2).get(1), is(STACK2));
     }
 
+    /* ----- ----- ----- EXACT INDEX ----- ----- -----  */
+
+    @Test
+    public void testExactIndex() {
+        NBTTagCompound tagA = new NBTTagCompound();
+        tagA.setString("a", "x");
+        NBTTagCompound tagB = new NBTTagCompound();
+        tagB.setInteger("b", 2);
+        ItemStack stack1A = new ItemStack(ITEM1);
+        stack1A.setTagCompound(tagA);
+        ItemStack stack1B = new ItemStack(ITEM1);
+        stack1B.setTagCompound(tagB);
+        ItemStack stack1Damage = new ItemStack(ITEM1, 1, 1);
+
+        IndexedInventory inv = new IndexedInventory(5, "test", 64);
+        inv.setInventorySlotContents(0, STACK1_1);
+        inv.setInventorySlotContents(1, stack1A);
+        inv.setInventorySlotContents(2, stack1B);
+        inv.setInventorySlotContents(3, stack1Damage);
+        inv.setInventorySlotContents(4, stack1A.copy());
+
+        assertThat("Index has incorrect contents", inv.getIndex().get(ITEM1).size(), is(5));
+        assertThat("Exact index has incorrect contents", inv.getExactIndex(STACK1).keySet(), is(IntSets.singleton(0)));
+        assertThat("Exact index has incorrect contents", inv.getExactIndex(stack1A.copy()).keySet(), is(new IntOpenHashSet(new int[]{1, 4})));
+        assertThat("Exact index has incorrect contents", inv.getExactIndex(stack1B).keySet(), is(IntSets.singleton(2)));
+        assertThat("Exact index has incorrect contents", inv.getExactIndex(new ItemStack(ITEM1, 1, 1)).keySet(), is(IntSets.singleton(3)));
+        assertThat("Exact index has incorrect contents", inv.getExactIndex(new ItemStack(ITEM1, 1, 2)), nullValue());
+        assertThat("Exact index has incorrect contents", inv.getExactIndex(STACK2), nullValue());
+
+        inv.setInventorySlotContents(1, ItemStack.EMPTY);
+        inv.setInventorySlotContents(4, STACK2);
+        assertThat("Exact index has incorrect contents", inv.getExactIndex(stack1A), nullValue());
+        assertThat("Exact index has incorrect contents", inv.getExactIndex(STACK2).keySet(), is(IntSets.singleton(4)));
+        assertThat("Empty slots are incorrect", inv.getEmptySlots(), isIterator(Iterators.forArray(1)));
+        assertThat("Non-empty slots are incorrect", inv.getNonEmptySlots(), isIterator(Iterators.forArray(0, 2, 3, 4)));
+    }
+
+    @Test
+    public void testExactIndexModifiedTag() {
+        NBTTagCompound tag = new NBTTagCompound();
+        ItemStack stack = new ItemStack(ITEM1);
+        stack.setTagCompound(tag);
+
+        IndexedInventory inv = new IndexedInventory(1, "test", 64);
+        inv.setInventorySlotContents(0, stack);
+        tag.setString("a", "a");
+        inv.setInventorySlotContents(0, ItemStack.EMPTY);
+
+        assertThat("Index is not empty", inv.getIndex().size(), is(0));
+        assertThat("Exact index is not empty", inv.getExactIndex(new ItemStack(ITEM1)), nullValue());
+        assertThat("Exact index is not empty", inv.getExactIndex(stack), nullValue());
+    }
+
+    @Test
+    public void testExactIndexModifiedInPlace() {
+        ItemStack stack0 = new ItemStack(ITEM1);
+        ItemStack stack1 = new ItemStack(ITEM1);
+
+        IndexedInventory inv = new IndexedInventory(2, "test", 64);
+        inv.setInventorySlotContents(0, stack0);
+        inv.setInventorySlotContents(1, stack1);
+
+        // Modify a stack that was set, and set it again
+        NBTTagCompound tag0 = new NBTTagCompound();
+        tag0.setString("a", "x");
+        stack0.setTagCompound(tag0);
+        assertThat("Exact index has incorrect contents", inv.getExactIndex(stack0.copy()), nullValue());
+        inv.setInventorySlotContents(0, stack0);
+        assertThat("Exact index has incorrect contents", inv.getExactIndex(stack0.copy()).keySet(), is(IntSets.singleton(0)));
+        assertThat("Exact index has incorrect contents", inv.getExactIndex(new ItemStack(ITEM1)).keySet(), is(IntSets.singleton(1)));
+
+        // Modify a stack that was read, and mark its slot dirty
+        NBTTagCompound tag1 = new NBTTagCompound();
+        tag1.setString("b", "y");
+        inv.getStackInSlot(1).setTagCompound(tag1);
+        assertThat("Exact index has incorrect contents", inv.getExactIndex(stack1.copy()), nullValue());
+        inv.markSlotDirty(1);
+        assertThat("Exact index has incorrect contents", inv.getExactIndex(stack1.copy()).keySet(), is(IntSets.singleton(1)));
+        assertThat("Exact index has incorrect contents", inv.getExactIndex(new ItemStack(ITEM1)), nullValue());
+
+        inv.setInventorySlotContents(0, ItemStack.EMPTY);
+        inv.setInventorySlotContents(1, ItemStack.EMPTY);
+        assertThat("Exact index is not empty", inv.getExactIndex(stack0), nullValue());
+        assertThat("Exact index is not empty", inv.getExactIndex(stack1), nullValue());
+    }
+
+    @Test
+    public void testExactIndexAfterReadingAllSlots() {
+        int[] hashes = new int[1];
+        int[] comparisons = new int[1];
+        IndexedInventory inv = new IndexedInventory(100, "test", 64);
+        for (int i = 0; i < 100; i++) {
+            ItemStack stack = new ItemStack(ITEM1);
+            NBTTagCompound tag = new CountingTagCompound(hashes, comparisons);
+            tag.setInteger("i", i);
+            stack.setTagCompound(tag);
+            inv.setInventorySlotContents(i, stack);
+        }
+
+        // Read all slots, as containers and NBT persistence do each tick
+        for (int i = 0; i < 100; i++) {
+            inv.getStackInSlot(i);
+        }
+        hashes[0] = 0;
+        comparisons[0] = 0;
+
+        ItemStack prototype = new ItemStack(ITEM1);
+        NBTTagCompound tag = new CountingTagCompound(hashes, comparisons);
+        tag.setInteger("i", 42);
+        prototype.setTagCompound(tag);
+        IndexedSlotlessItemHandlerWrapper wrapper = new IndexedSlotlessItemHandlerWrapper(new InvWrapper(inv), inv);
+        assertThat("Slots are incorrect", wrapper.getSlotsWithItemStack(prototype, ItemMatch.ITEM | ItemMatch.DAMAGE | ItemMatch.NBT),
+                isIterator(Iterators.forArray(42)));
+        // Only the tag of the prototype is hashed, and only the stack in its bucket is compared
+        assertThat("Tags were hashed", hashes[0], is(1));
+        assertThat("Stacks outside the bucket were compared", comparisons[0], is(1));
+    }
+
+    @Test
+    public void testClear() {
+        IndexedInventory inv = new IndexedInventory(3, "test", 64);
+        inv.setInventorySlotContents(0, STACK1_1);
+        inv.setInventorySlotContents(2, STACK2);
+
+        inv.clear();
+
+        assertThat("Empty slots are incorrect", inv.getEmptySlots(), isIterator(Iterators.forArray(0, 1, 2)));
+        assertThat("Non-empty slots are incorrect", inv.getNonEmptySlots(), isIterator(Iterators.forArray()));
+        assertThat("Index is not empty", inv.getIndex().size(), is(0));
+        assertThat("Exact index is not empty", inv.getExactIndex(STACK1_1), nullValue());
+    }
+
+    public static class CountingTagCompound extends NBTTagCompound {
+
+        private final int[] hashes;
+        private final int[] comparisons;
+
+        public CountingTagCompound(int[] hashes, int[] comparisons) {
+            this.hashes = hashes;
+            this.comparisons = comparisons;
+        }
+
+        @Override
+        public int hashCode() {
+            hashes[0]++;
+            return super.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            comparisons[0]++;
+            return super.equals(o);
+        }
+    }
+
+    /* ----- ----- ----- DELTA PERSISTENCE ----- ----- -----  */
+
+    protected IndexedInventory createFilledInventory(boolean deltaPersistence) {
+        IndexedInventory inv = new IndexedInventory(4, "test", 64);
+        inv.setDeltaPersistence(deltaPersistence);
+        inv.setInventorySlotContents(0, new ItemStack(ITEM1, 3));
+        inv.setInventorySlotContents(2, new ItemStack(ITEM2, 5));
+        inv.setInventorySlotContents(3, new ItemStack(ITEM1, 1, 7));
+        return inv;
+    }
+
+    protected NBTTagList writeSlots(IndexedInventory inv) {
+        NBTTagCompound tag = new NBTTagCompound();
+        inv.writeToNBT(tag, "items");
+        return tag.getTagList("items", 10);
+    }
+
+    protected void assertEqualContents(IndexedInventory actual, IndexedInventory expected) {
+        assertThat("Sizes are not equal", actual.getSizeInventory(), is(expected.getSizeInventory()));
+        for (int i = 0; i < expected.getSizeInventory(); i++) {
+            ItemStack a = actual.getStackInSlot(i);
+            ItemStack b = expected.getStackInSlot(i);
+            assertThat("Slot " + i + " is incorrect", a.isEmpty(), is(b.isEmpty()));
+            if (!b.isEmpty()) {
+                assertThat("Slot " + i + " is incorrect", a.getItem(), is(b.getItem()));
+                assertThat("Slot " + i + " is incorrect", a.getCount(), is(b.getCount()));
+                assertThat("Slot " + i + " is incorrect", a.getItemDamage(), is(b.getItemDamage()));
+            }
+        }
+    }
+
+    @Test
+    public void testDeltaWriteEqualsFullWrite() {
+        assertThat(writeSlots(createFilledInventory(true)), is(writeSlots(createFilledInventory(false))));
+    }
+
+    @Test
+    public void testDeltaWriteReusesUnchangedSlots() {
+        IndexedInventory inv = createFilledInventory(true);
+        NBTTagList slots1 = writeSlots(inv);
+
+        inv.getStackInSlot(2).shrink(1);
+        inv.setInventorySlotContents(3, ItemStack.EMPTY);
+        inv.setInventorySlotContents(1, new ItemStack(ITEM3));
+        NBTTagList slots2 = writeSlots(inv);
+
+        assertThat("Lists are reused", slots1 == slots2, is(false));
+        assertThat("List size is incorrect", slots2.tagCount(), is(3));
+        assertThat("Unchanged slot was written again", slots2.get(0) == slots1.get(0), is(true));
+        assertThat("Changed slot was not written again", slots2.get(2) == slots1.get(1), is(false));
+        assertThat("Changed slot was not written again", slots2.getCompoundTagAt(2).getByte("Count"), is((byte) 4));
+        assertThat("Full write is not equal", slots2, is(writeSlots(createFilledInventoryChanged())));
+
+        inv.markSlotDirty(0);
+        assertThat("Dirty slot was not written again", writeSlots(inv).get(0) == slots1.get(0), is(false));
+    }
+
+    protected IndexedInventory createFilledInventoryChanged() {
+        IndexedInventory inv = new IndexedInventory(4, "test", 64);
+        inv.setInventorySlotContents(0, new ItemStack(ITEM1, 3));
+        inv.setInventorySlotContents(1, new ItemStack(ITEM3));
+        inv.setInventorySlotContents(2, new ItemStack(ITEM2, 4));
+        return inv;
+    }
+
+    @Test
+    public void testDeltaRead() {
+        IndexedInventory source = createFilledInventory(false);
+        NBTTagCompound tag = new NBTTagCompound();
+        source.writeToNBT(tag, "items");
+
+        IndexedInventory inv = new IndexedInventory(4, "test", 64);
+        inv.setDeltaPersistence(true);
+        inv.readFromNBT(tag, "items");
+        assertEqualContents(inv, source);
+        ItemStack unchanged = inv.getStackInSlot(0);
+
+        source.setInventorySlotContents(2, ItemStack.EMPTY);
+        source.setInventorySlotContents(1, new ItemStack(ITEM3, 2));
+        source.getStackInSlot(3).grow(1);
+        tag = new NBTTagCompound();
+        source.writeToNBT(tag, "items");
+        inv.readFromNBT(tag, "items");
+
+        assertEqualContents(inv, source);
+        assertThat("Unchanged slot was read again", inv.getStackInSlot(0) == unchanged, is(true));
+        assertThat("Empty slots are incorrect", inv.getEmptySlots(), isIterator(Iterators.forArray(2)));
+        assertThat("Index has incorrect contents", inv.getIndex().containsKey(ITEM2), is(false));
+        assertThat("Index has incorrect contents", inv.getIndex().get(ITEM3).keySet(), is(IntSets.singleton(1)));
+        assertThat("Exact index has incorrect contents", inv.getExactIndex(new ItemStack(ITEM1, 1, 7)).keySet(), is(IntSets.singleton(3)));
+
+        // A slot that was modified after reading is read again, even if its tag is unchanged.
+        inv.getStackInSlot(0).shrink(1);
+        inv.readFromNBT(tag, "items");
+        assertEqualContents(inv, source);
+    }
+
+    @Test
+    public void testDeltaCapabilities() {
+        IndexedInventory source = createFilledInventory(false);
+        NBTTagCompound tag = new NBTTagCompound();
+        source.writeToNBT(tag, "items");
+        tag.getTagList("items", 10).getCompoundTagAt(0).setTag("ForgeCaps", new NBTTagCompound());
+
+        IndexedInventory inv = new IndexedInventory(4, "test", 64);
+        inv.setDeltaPersistence(true);
+        inv.readFromNBT(tag, "items");
+        ItemStack withCapabilities = inv.getStackInSlot(0);
+        ItemStack withoutCapabilities = inv.getStackInSlot(2);
+
+        // Stacks with capability data are always read again, as their capabilities may have changed.
+        inv.readFromNBT(tag, "items");
+        assertEqualContents(inv, source);
+        assertThat("Slot with capabilities was not read again", inv.getStackInSlot(0) == withCapabilities, is(false));
+        assertThat("Slot without capabilities was read again", inv.getStackInSlot(2) == withoutCapabilities, is(true));
+    }
+
 }
@@ -34,6 +34,36 @@ public class TestNbtPath {
         NbtPath.parse("$.abc.def.");
     }
 
+    @Test
+    public void testParseCached() throws NbtParseException {
+        INbtPathExpression expression = NbtPath.parse("$.a.b");
+        assertThat(NbtPath.parse("$.a.b") == expression, is(true));
+        assertThat(NbtPath.parseUncached("$.a.b") == expression, is(false));
+
+        NbtPath.clearCache();
+        assertThat(NbtPath.parse("$.a.b") == expression, is(false));
+    }
+
+    @Test
+    public void testParseCacheDisabled() throws NbtParseException {
+        NbtPath.setCacheConfig(0, 0);
+        try {
+            assertThat(NbtPath.parse("$.a.b") == NbtPath.parse("$.a.b"), is(false));
+        } finally {
+            NbtPath.setCacheConfig(NbtPath.DEFAULT_CACHE_SIZE, NbtPath.DEFAULT_CACHE_EXPIRE_SECONDS);
+        }
+    }
+
+    @Test
+    public void testGetParseHandlers() {
+        assertThat(NbtPath.getParseHandlers('$').length, is(1));
+        assertThat(NbtPath.getParseHandlers('.').length, is(3));
+        assertThat(NbtPath.getParseHandlers('[').length, is(5));
+        assertThat(NbtPath.getParseHandlers(' ').length, is(6));
+        assertThat(NbtPath.getParseHandlers('!').length, is(0));
+        assertThat(NbtPath.getParseHandlers('\u00e9').length, is(0));
+    }
+
     @Test
     public void testParseSelf() throws NbtParseException {
         INbtPathExpression expression = NbtPath.parse("");
@@ -0,0 +1,129 @@
+package org.cyclops.cyclopscore.nbt.path;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagInt;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagString;
+import org.cyclops.cyclopscore.nbt.path.parse.NbtPathExpressionParseHandlerChild;
+import org.cyclops.cyclopscore.nbt.path.parse.NbtPathExpressionParseHandlerParent;
+import org.cyclops.cyclopscore.nbt.path.parse.NbtPathExpressionParseHandlerRoot;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class TestNbtPathExpressionListCompiled {
+
+    private static final String[] EXPRESSIONS = new String[]{
+            "",
+            "$",
+            "@",
+            "$.a",
+            "$.a.b",
+            "$.list",
+            "$.list*",
+            "$.list[1]",
+            "$.list[5]",
+            "$.list[0:2]",
+            "$.list[::2]",
+            "$.list[0,2]",
+            "$.list.length",
+            "$.length",
+            "$[\"a\",\"list\"]",
+            "$*",
+            "$.list*.c",
+            "$.list*.c > 1",
+            "$.list*.c == 3",
+            "$.a.b == \"x\"",
+            "$.list[?(@.c)]",
+            "$.list[?(@.c >= 2)]",
+            "$.list[?(@.c >= 2)].length",
+            "$.a.b.c",
+            "$.a.b.length",
+    };
+
+    private NBTTagCompound tag;
+
+    @Before
+    public void beforeEach() {
+        tag = new NBTTagCompound();
+        NBTTagCompound a = new NBTTagCompound();
+        a.setTag("b", new NBTTagString("x"));
+        tag.setTag("a", a);
+        NBTTagList list = new NBTTagList();
+        for (int i = 1; i <= 3; i++) {
+            NBTTagCompound element = new NBTTagCompound();
+            element.setTag("c", new NBTTagInt(i));
+            list.appendTag(element);
+        }
+        tag.setTag("list", list);
+    }
+
+    @Test
+    public void testCompile() {
+        assertThat(NbtPathExpressionListCompiled.compile(), instanceOf(NbtPathExpressionListCompiled.class));
+        assertThat(NbtPathExpressionListCompiled.compile(
+                NbtPathExpressionParseHandlerRoot.Expression.INSTANCE,
+                new NbtPathExpressionParseHandlerChild.Expression("a")
+        ), instanceOf(NbtPathExpressionListCompiled.class));
+        assertThat(NbtPathExpressionListCompiled.compile(
+                new NbtPathExpressionParseHandlerChild.Expression("a"),
+                NbtPathExpressionParseHandlerRoot.Expression.INSTANCE
+        ), not(instanceOf(NbtPathExpressionListCompiled.class)));
+        assertThat(NbtPathExpressionListCompiled.compile(
+                new NbtPathExpressionParseHandlerChild.Expression("a"),
+                NbtPathExpressionParseHandlerParent.Expression.INSTANCE
+        ), not(instanceOf(NbtPathExpressionListCompiled.class)));
+    }
+
+    @Test
+    public void testParseCompiled() throws NbtParseException {
+        assertThat(NbtPath.parse("$.a.b"), instanceOf(NbtPathExpressionListCompiled.class));
+        assertThat(NbtPath.parse("$.a.b.."), not(instanceOf(NbtPathExpressionListCompiled.class)));
+    }
+
+    @Test
+    public void testMatchEqualsStreamEvaluation() throws NbtParseException {
+        for (String expressionString : EXPRESSIONS) {
+            NbtPathExpressionList compiled = (NbtPathExpressionList) NbtPath.parse(expressionString);
+            assertThat(expressionString, compiled, instanceOf(NbtPathExpressionListCompiled.class));
+            NbtPathExpressionList streamed = new NbtPathExpressionList(compiled.getSubExpressions());
+
+            assertThat(expressionString, compiled.match(tag).getMatches().collect(Collectors.toList()),
+                    equalTo(streamed.match(tag).getMatches().collect(Collectors.toList())));
+            assertThat(expressionString, compiled.match(Stream.of(tag, new NBTTagString("a"))).getMatches().collect(Collectors.toList()),
+                    equalTo(streamed.match(Stream.of(tag, new NBTTagString("a"))).getMatches().collect(Collectors.toList())));
+            assertThat(expressionString, compiled.test(tag), is(streamed.test(tag)));
+            assertThat(expressionString, compiled.test(Stream.of(tag)), is(streamed.test(Stream.of(tag))));
+        }
+    }
+
+    @Test
+    public void testVisitMatchesStops() throws NbtParseException {
+        INbtPathExpression expression = NbtPath.parse("$.list*.c");
+        int[] visited = new int[1];
+        assertThat(expression.visitMatches(tag, nbt -> ++visited[0] < 2), is(false));
+        assertThat(visited[0], is(2));
+    }
+
+    @Test
+    public void testTestFirstMatch() throws NbtParseException {
+        assertThat(NbtPath.parse("$.list*.c > 1").test(tag), is(false));
+        assertThat(NbtPath.parse("$.list*.c > 0").test(tag), is(true));
+        assertThat(NbtPath.parse("$.list[?(@.c > 1)]").test(tag), is(true));
+        assertThat(NbtPath.parse("$.x").test(tag), is(false));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testNonFlatVisitMatches() {
+        NbtPathExpressionParseHandlerParent.Expression.INSTANCE.visitMatches(new NBTTagString("a"), nbt -> true);
+    }
+
+}
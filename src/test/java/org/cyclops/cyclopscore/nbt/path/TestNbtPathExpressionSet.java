@@ -0,0 +1,104 @@
+package org.cyclops.cyclopscore.nbt.path;
+
+import com.google.common.collect.Lists;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagInt;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagString;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class TestNbtPathExpressionSet {
+
+    private static final String[] EXPRESSIONS = new String[]{
+            "",
+            "$",
+            "$.display",
+            "$.display.Name",
+            "$.display.Name == \"abc\"",
+            "$.display.Name == \"def\"",
+            "$.display.Lore",
+            "$.display.Lore*",
+            "$.display.Lore[1]",
+            "$.ench*.lvl > 1",
+            "$.ench*.lvl > 2",
+            "$.ench[?(@.lvl >= 2)]",
+            "$.ench[?(@.lvl >= 5)].length > 0",
+            "$.ench.length == 2",
+            "$.other",
+            "$.display.Name..",
+            "$.display.Name...Lore",
+    };
+
+    private NBTTagCompound tag;
+    private List<INbtPathExpression> expressions;
+
+    @Before
+    public void beforeEach() throws NbtParseException {
+        tag = new NBTTagCompound();
+        NBTTagCompound display = new NBTTagCompound();
+        display.setTag("Name", new NBTTagString("abc"));
+        NBTTagList lore = new NBTTagList();
+        lore.appendTag(new NBTTagString("l1"));
+        lore.appendTag(new NBTTagString("l2"));
+        display.setTag("Lore", lore);
+        tag.setTag("display", display);
+        NBTTagList ench = new NBTTagList();
+        for (int i = 1; i <= 2; i++) {
+            NBTTagCompound element = new NBTTagCompound();
+            element.setTag("lvl", new NBTTagInt(i));
+            ench.appendTag(element);
+        }
+        tag.setTag("ench", ench);
+
+        expressions = Lists.newArrayList();
+        for (String expression : EXPRESSIONS) {
+            expressions.add(NbtPath.parse(expression));
+        }
+    }
+
+    @Test
+    public void testTestEqualsIndividualTests() {
+        NbtPathExpressionSet set = new NbtPathExpressionSet(expressions);
+        assertThat(set.size(), is(EXPRESSIONS.length));
+
+        BitSet matches = set.test(tag);
+        for (int i = 0; i < EXPRESSIONS.length; i++) {
+            assertThat(EXPRESSIONS[i], matches.get(i), is(expressions.get(i).test(tag)));
+        }
+
+        BitSet matchesString = set.test(new NBTTagString("x"));
+        for (int i = 0; i < EXPRESSIONS.length; i++) {
+            assertThat(EXPRESSIONS[i], matchesString.get(i), is(expressions.get(i).test(new NBTTagString("x"))));
+        }
+    }
+
+    @Test
+    public void testSharedPrefixes() throws NbtParseException {
+        NbtPathExpressionSet set = new NbtPathExpressionSet(
+                NbtPath.parseUncached("$.display.Name"),
+                NbtPath.parseUncached("$.display.Name == \"abc\""),
+                NbtPath.parseUncached("$.display.Lore")
+        );
+        // Root, display, Name, == "abc" and Lore
+        assertThat(set.getNodeCount(), is(5));
+
+        BitSet expected = new BitSet();
+        expected.set(0, 3);
+        assertThat(set.test(tag), is(expected));
+    }
+
+    @Test
+    public void testTestAny() throws NbtParseException {
+        assertThat(new NbtPathExpressionSet().testAny(tag), is(false));
+        assertThat(new NbtPathExpressionSet(NbtPath.parse("$.other")).testAny(tag), is(false));
+        assertThat(new NbtPathExpressionSet(NbtPath.parse("$.other"), NbtPath.parse("$.ench")).testAny(tag), is(true));
+    }
+
+}
@@ -0,0 +1,114 @@
+package org.cyclops.cyclopscore.network;
+
+import com.google.common.collect.Lists;
+import io.netty.buffer.Unpooled;
+import net.minecraftforge.fml.relauncher.Side;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for the contract of {@link PacketBase#prepare(Side)}.
+ * @author rubensworks
+ */
+public class TestPacketBase {
+
+    protected static PreparedPacket encodeDecode(PreparedPacket packetIn) {
+        ExtendedBuffer buffer = new ExtendedBuffer(Unpooled.buffer());
+        packetIn.encode(buffer);
+        PreparedPacket packetOut = new PreparedPacket();
+        packetOut.decode(buffer);
+        return packetOut;
+    }
+
+    @Test
+    public void testPrepareBeforeScheduling() {
+        PreparedPacket packetIn = new PreparedPacket();
+        packetIn.value = 10;
+        PreparedPacket packet = encodeDecode(packetIn);
+        List<Runnable> scheduled = Lists.newArrayList();
+        int[] actionPrepared = new int[]{-1};
+
+        assertThat(packet.prepareAndRun(Side.CLIENT, scheduled::add, () -> actionPrepared[0] = packet.prepared), is(true));
+        // Preparation happens on the receiving thread, on the decoded packet
+        assertThat(packet.preparedSide, is(Side.CLIENT));
+        assertThat(packet.prepared, is(20));
+        assertThat(scheduled.size(), is(1));
+        assertThat(actionPrepared[0], is(-1));
+
+        // The scheduled action sees the prepared result
+        scheduled.get(0).run();
+        assertThat(actionPrepared[0], is(20));
+    }
+
+    @Test
+    public void testPrepareDrops() {
+        PreparedPacket packet = new PreparedPacket();
+        packet.accept = false;
+        List<Runnable> scheduled = Lists.newArrayList();
+        boolean[] ran = new boolean[1];
+
+        assertThat(packet.prepareAndRun(Side.SERVER, scheduled::add, () -> ran[0] = true), is(false));
+        assertThat(packet.preparedSide, is(Side.SERVER));
+        assertThat(scheduled.isEmpty(), is(true));
+        assertThat(ran[0], is(false));
+    }
+
+    @Test
+    public void testPrepareAsync() {
+        PreparedPacket packet = new PreparedPacket();
+        packet.async = true;
+        packet.value = 3;
+        List<Runnable> scheduled = Lists.newArrayList();
+        int[] actionPrepared = new int[]{-1};
+
+        assertThat(packet.prepareAndRun(Side.CLIENT, scheduled::add, () -> actionPrepared[0] = packet.prepared), is(true));
+        assertThat(scheduled.isEmpty(), is(true));
+        assertThat(actionPrepared[0], is(6));
+    }
+
+    @Test
+    public void testPrepareDefault() {
+        TestPacketCodec.IntPacketCodec packet = new TestPacketCodec.IntPacketCodec();
+        List<Runnable> scheduled = Lists.newArrayList();
+
+        assertThat(packet.prepare(Side.CLIENT), is(true));
+        assertThat(packet.prepareAndRun(Side.CLIENT, scheduled::add, () -> {}), is(true));
+        assertThat(scheduled.size(), is(1));
+    }
+
+    @Test
+    public void testNotPreparedOnSend() {
+        PreparedPacket packetIn = new PreparedPacket();
+        packetIn.value = 1;
+        encodeDecode(packetIn);
+        assertThat(packetIn.preparedSide, nullValue());
+    }
+
+    public static class PreparedPacket extends SimplePacketCodec {
+        @CodecField
+        public int value;
+
+        public boolean async = false;
+        public boolean accept = true;
+        public Side preparedSide = null;
+        public int prepared = -1;
+
+        @Override
+        public boolean isAsync() {
+            return async;
+        }
+
+        @Override
+        public boolean prepare(Side side) {
+            this.preparedSide = side;
+            this.prepared = value * 2;
+            return accept;
+        }
+    }
+
+}
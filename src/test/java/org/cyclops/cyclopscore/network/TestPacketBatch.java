@@ -0,0 +1,136 @@
+package org.cyclops.cyclopscore.network;
+
+import com.google.common.collect.Lists;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.DecoderException;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * @author rubensworks
+ */
+public class TestPacketBatch {
+
+    protected static int getTypeId(PacketBase packet) {
+        return packet instanceof TestPacketCodec.IntPacketCodec ? 0 : 1;
+    }
+
+    protected static PacketBase createPacket(int typeId) {
+        return typeId == 0 ? new TestPacketCodec.IntPacketCodec() : new TestPacketCodec.StringPacketCodec();
+    }
+
+    protected static PacketBatch encodeDecode(PacketBatch batchIn) {
+        ExtendedBuffer buffer = new ExtendedBuffer(Unpooled.buffer());
+        batchIn.encode(buffer);
+        PacketBatch batchOut = new PacketBatch();
+        batchOut.decode(buffer);
+        return batchOut;
+    }
+
+    @Test
+    public void testEmpty() {
+        PacketBatch batch = encodeDecode(new PacketBatch(TestPacketBatch::getTypeId, Collections.emptyList()));
+        assertThat(batch.getCount(), is(0));
+        assertThat(batch.getDataSize(), is(0));
+        assertThat(batch.unpack(TestPacketBatch::createPacket).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testMultiple() {
+        TestPacketCodec.IntPacketCodec packet1 = new TestPacketCodec.IntPacketCodec();
+        packet1.value = 10;
+        TestPacketCodec.StringPacketCodec packet2 = new TestPacketCodec.StringPacketCodec();
+        packet2.value = "abc";
+        TestPacketCodec.IntPacketCodec packet3 = new TestPacketCodec.IntPacketCodec();
+        packet3.value = -3;
+
+        PacketBatch batchIn = new PacketBatch(TestPacketBatch::getTypeId, Lists.newArrayList(packet1, packet2, packet3));
+        PacketBatch batchOut = encodeDecode(batchIn);
+        assertThat(batchOut.getCount(), is(3));
+        assertThat(batchOut.getDataSize(), is(batchIn.getDataSize()));
+
+        List<PacketBase> packets = batchOut.unpack(TestPacketBatch::createPacket);
+        assertThat(packets.size(), is(3));
+        assertThat(packets.get(0), instanceOf(TestPacketCodec.IntPacketCodec.class));
+        assertThat(((TestPacketCodec.IntPacketCodec) packets.get(0)).value, is(10));
+        assertThat(packets.get(1), instanceOf(TestPacketCodec.StringPacketCodec.class));
+        assertThat(((TestPacketCodec.StringPacketCodec) packets.get(1)).value, is("abc"));
+        assertThat(packets.get(2), instanceOf(TestPacketCodec.IntPacketCodec.class));
+        assertThat(((TestPacketCodec.IntPacketCodec) packets.get(2)).value, is(-3));
+    }
+
+    @Test
+    public void testUnpackTwice() {
+        TestPacketCodec.IntPacketCodec packet = new TestPacketCodec.IntPacketCodec();
+        packet.value = 7;
+        PacketBatch batch = encodeDecode(new PacketBatch(TestPacketBatch::getTypeId, Collections.singletonList(packet)));
+        assertThat(((TestPacketCodec.IntPacketCodec) batch.unpack(TestPacketBatch::createPacket).get(0)).value, is(7));
+        assertThat(((TestPacketCodec.IntPacketCodec) batch.unpack(TestPacketBatch::createPacket).get(0)).value, is(7));
+    }
+
+    @Test
+    public void testDecodePooled() {
+        TestPacketCodec.IntPacketCodec packet = new TestPacketCodec.IntPacketCodec();
+        packet.value = 5;
+        ExtendedBuffer buffer = new ExtendedBuffer(PooledByteBufAllocator.DEFAULT.buffer());
+        new PacketBatch(TestPacketBatch::getTypeId, Collections.singletonList(packet)).encode(buffer);
+        PacketBatch batch = new PacketBatch();
+        batch.decode(buffer);
+
+        // The batch does not keep a buffer of the pooled allocator
+        buffer.release();
+        assertThat(((TestPacketCodec.IntPacketCodec) batch.unpack(TestPacketBatch::createPacket).get(0)).value, is(5));
+    }
+
+    @Test(expected = DecoderException.class)
+    public void testCountExceedsData() {
+        ExtendedBuffer buffer = new ExtendedBuffer(Unpooled.buffer());
+        buffer.writeVarInt(Integer.MAX_VALUE);
+        buffer.writeInt(0);
+        PacketBatch batch = new PacketBatch();
+        batch.decode(buffer);
+        batch.unpack(TestPacketBatch::createPacket);
+    }
+
+    @Test(expected = DecoderException.class)
+    public void testNegativeCount() {
+        ExtendedBuffer buffer = new ExtendedBuffer(Unpooled.buffer());
+        buffer.writeVarInt(-1);
+        PacketBatch batch = new PacketBatch();
+        batch.decode(buffer);
+        batch.unpack(TestPacketBatch::createPacket);
+    }
+
+    @Test(expected = DecoderException.class)
+    public void testLengthExceedsData() {
+        ExtendedBuffer buffer = new ExtendedBuffer(Unpooled.buffer());
+        buffer.writeVarInt(1);
+        buffer.writeVarInt(0);
+        buffer.writeInt(100);
+        buffer.writeInt(0);
+        PacketBatch batch = new PacketBatch();
+        batch.decode(buffer);
+        batch.unpack(TestPacketBatch::createPacket);
+    }
+
+    @Test(expected = DecoderException.class)
+    public void testNestedBatch() {
+        TestPacketCodec.IntPacketCodec packet = new TestPacketCodec.IntPacketCodec();
+        PacketBatch batch = encodeDecode(new PacketBatch(TestPacketBatch::getTypeId, Collections.singletonList(packet)));
+        // A malicious sender could declare the contained packet to be a batch
+        batch.unpack(typeId -> new PacketBatch());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBatchBatch() {
+        new PacketBatch(TestPacketBatch::getTypeId, Collections.singletonList(new PacketBatch()));
+    }
+
+}
@@ -205,6 +205,64 @@ public class TestPacketCodec {
         assertThat("Input equals output", packet1.value, equalTo(packet2.value));
     }
 
+    @Test
+    public void testMultipleFields() {
+        MultiplePacketCodec packet1 = new MultiplePacketCodec();
+        packet1.a = 3;
+        packet1.b = -4L;
+        packet1.c = "abc";
+        packet1.setD(true);
+        packet1.value = 12.5F;
+        MultiplePacketCodec packet2 = new MultiplePacketCodec();
+        encodeDecode(packet1, packet2);
+        assertThat("Input equals output", packet2.a, is(3));
+        assertThat("Input equals output", packet2.b, is(-4L));
+        assertThat("Input equals output", packet2.c, is("abc"));
+        assertThat("Input equals output", packet2.isD(), is(true));
+        assertThat("Input equals output", packet2.value, is(12.5F));
+    }
+
+    @Test
+    public void testPlanFieldCount() {
+        assertThat(PacketCodecPlanRegistry.get(SimplePacketCodec.class).getFieldCount(), is(0));
+        assertThat(PacketCodecPlanRegistry.get(IntPacketCodec.class).getFieldCount(), is(1));
+        assertThat(PacketCodecPlanRegistry.get(MultiplePacketCodec.class).getFieldCount(), is(5));
+    }
+
+    @Test
+    public void testPlanRegistry() {
+        PacketCodecPlanRegistry.register(MultiplePacketCodec.class);
+        PacketCodecPlan plan = PacketCodecPlanRegistry.get(MultiplePacketCodec.class);
+        assertThat(PacketCodecPlanRegistry.get(MultiplePacketCodec.class) == plan, is(true));
+
+        PacketCodecPlanRegistry.Stats before = PacketCodecPlanRegistry.getStats();
+        PacketCodecPlanRegistry.get(MultiplePacketCodec.class);
+        PacketCodecPlanRegistry.Stats after = PacketCodecPlanRegistry.getStats();
+        assertThat(after.getLookups(), is(before.getLookups() + 1));
+        assertThat(after.getBuilds(), is(before.getBuilds()));
+        assertThat(after.getHits(), is(before.getHits() + 1));
+        assertThat(after.getMisses(), is(before.getMisses()));
+    }
+
+    @Test
+    public void testPlanRegistryMiss() {
+        PacketCodecPlanRegistry.Stats before = PacketCodecPlanRegistry.getStats();
+        PacketCodecPlanRegistry.get(UnregisteredPacketCodec.class);
+        PacketCodecPlanRegistry.Stats after = PacketCodecPlanRegistry.getStats();
+        assertThat(after.getMisses(), is(before.getMisses() + 1));
+        assertThat(after.getHits(), is(before.getHits()));
+        assertThat(after.getBuilds(), is(before.getBuilds() + 1));
+
+        // Registration builds a plan without a lookup
+        PacketCodecPlanRegistry.register(RegisteredPacketCodec.class);
+        PacketCodecPlanRegistry.get(RegisteredPacketCodec.class);
+        PacketCodecPlanRegistry.Stats registered = PacketCodecPlanRegistry.getStats();
+        assertThat(registered.getBuilds(), is(after.getBuilds() + 1));
+        assertThat(registered.getHits(), is(after.getHits() + 1));
+        assertThat(registered.getMisses(), is(after.getMisses()));
+        assertThat(registered.getLookups(), is(after.getLookups() + 1));
+    }
+
     //@Test
     //@Ignore // Not yet supported
     public void testMapList() {
@@ -254,6 +312,16 @@ public class TestPacketCodec {
         public int value;
     }
 
+    public static class UnregisteredPacketCodec extends SimplePacketCodec {
+        @CodecField
+        public int value;
+    }
+
+    public static class RegisteredPacketCodec extends SimplePacketCodec {
+        @CodecField
+        public int value;
+    }
+
     public static class LongPacketCodec extends SimplePacketCodec {
         @CodecField
         public long value;
@@ -309,4 +377,24 @@ public class TestPacketCodec {
         public List<String> value;
     }
 
+    public static class MultiplePacketCodec extends FloatPacketCodec {
+        @CodecField
+        public int a;
+        @CodecField
+        protected long b;
+        @CodecField
+        String c;
+        @CodecField
+        private boolean d;
+        public int ignored;
+
+        public boolean isD() {
+            return d;
+        }
+
+        public void setD(boolean d) {
+            this.d = d;
+        }
+    }
+
 }
@@ -0,0 +1,221 @@
+package org.cyclops.cyclopscore.recipe.custom;
+
+import com.google.common.collect.Lists;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.crafting.Ingredient;
+import net.minecraftforge.fluids.Fluid;
+import net.minecraftforge.fluids.FluidRegistry;
+import net.minecraftforge.fluids.FluidStack;
+import net.minecraftforge.oredict.OreDictionary;
+import org.cyclops.cyclopscore.inventory.ItemDummy;
+import org.cyclops.cyclopscore.recipe.custom.api.IRecipe;
+import org.cyclops.cyclopscore.recipe.custom.api.IRecipeInput;
+import org.cyclops.cyclopscore.recipe.custom.api.IRecipeOutput;
+import org.cyclops.cyclopscore.recipe.custom.component.DummyPropertiesComponent;
+import org.cyclops.cyclopscore.recipe.custom.component.FluidStackRecipeComponent;
+import org.cyclops.cyclopscore.recipe.custom.component.IngredientAndFluidStackRecipeComponent;
+import org.cyclops.cyclopscore.recipe.custom.component.IngredientRecipeComponent;
+import org.cyclops.cyclopscore.recipe.custom.component.IngredientsRecipeComponent;
+import org.junit.Test;
+
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Unit tests for {@link IndexedRecipeList}, which compare the indexed lookups with a scan over all recipes.
+ * @author rubensworks
+ */
+public class TestIndexedRecipeList {
+
+    static {
+        Bootstrap.register();
+    }
+
+    private static final Item[] ITEMS = new Item[]{new ItemDummy(), new ItemDummy(), new ItemDummy(), new ItemDummy()};
+    private static final Fluid[] FLUIDS = new Fluid[]{FluidRegistry.WATER, FluidRegistry.LAVA};
+
+    private static ItemStack randomStack(Random random) {
+        int meta = random.nextInt(5) == 0 ? OreDictionary.WILDCARD_VALUE : random.nextInt(2);
+        return new ItemStack(ITEMS[random.nextInt(ITEMS.length)], 1, meta);
+    }
+
+    private static Ingredient randomIngredient(Random random) {
+        switch (random.nextInt(5)) {
+            case 0:
+                return Ingredient.EMPTY;
+            case 1:
+                return new IngredientRecipeComponent(randomStack(random), true).getIngredient();
+            case 2:
+                return Ingredient.fromStacks(randomStack(random), randomStack(random));
+            default:
+                return Ingredient.fromStacks(randomStack(random));
+        }
+    }
+
+    private static FluidStack randomFluid(Random random) {
+        return new FluidStack(FLUIDS[random.nextInt(FLUIDS.length)], 1000);
+    }
+
+    private static Object randomComponent(Random random) {
+        switch (random.nextInt(6)) {
+            case 0:
+                return new FluidStackRecipeComponent(randomFluid(random));
+            case 1:
+                return new IngredientAndFluidStackRecipeComponent(randomIngredient(random), randomFluid(random));
+            case 2:
+                return new IngredientsRecipeComponent(Lists.newArrayList(
+                        new IngredientRecipeComponent(randomIngredient(random)),
+                        new IngredientRecipeComponent(randomIngredient(random))));
+            default:
+                return new IngredientRecipeComponent(randomIngredient(random));
+        }
+    }
+
+    private static IRecipe randomRecipe(Random random) {
+        return new Recipe<>("recipe" + random.nextInt(10), (IRecipeInput) randomComponent(random),
+                (IRecipeOutput) randomComponent(random), new DummyPropertiesComponent());
+    }
+
+    private static List<IRecipe> scan(List<IRecipe> recipes, Object component, boolean input) {
+        List<IRecipe> results = Lists.newArrayList();
+        for (IRecipe recipe : recipes) {
+            Object property = input ? recipe.getInput() : recipe.getOutput();
+            if (property != null && property.equals(component)) {
+                results.add(recipe);
+            }
+        }
+        return results;
+    }
+
+    private static List<IRecipe> scanNamedId(List<IRecipe> recipes, String namedId) {
+        List<IRecipe> results = Lists.newArrayList();
+        for (IRecipe recipe : recipes) {
+            if (namedId.equals(recipe.getNamedId())) {
+                results.add(recipe);
+            }
+        }
+        return results;
+    }
+
+    @Test
+    public void testLookupsMatchScan() {
+        Random random = new Random(1);
+        IndexedRecipeList recipes = new IndexedRecipeList();
+        for (int round = 0; round < 300; round++) {
+            int operation = random.nextInt(4);
+            if (operation == 0 || recipes.isEmpty()) {
+                recipes.add(randomRecipe(random));
+            } else if (operation == 1) {
+                recipes.remove(random.nextInt(recipes.size()));
+            } else if (operation == 2) {
+                recipes.set(random.nextInt(recipes.size()), randomRecipe(random));
+            }
+
+            for (int i = 0; i < 10; i++) {
+                Object component = randomComponent(random);
+                List<IRecipe> expectedInput = scan(recipes, component, true);
+                assertThat(recipes.findRecipesByInput(component), is(expectedInput));
+                IRecipe expectedFirst = expectedInput.isEmpty() ? null : expectedInput.get(0);
+                assertThat(recipes.findRecipeByInput(component), is(expectedFirst));
+                // The second lookup can use the last match
+                assertThat(recipes.findRecipeByInput(component), is(expectedFirst));
+                assertThat(recipes.findRecipesByOutput(component), is(scan(recipes, component, false)));
+
+                String namedId = "recipe" + random.nextInt(10);
+                assertThat(recipes.findRecipesByNamedId(namedId), is(scanNamedId(recipes, namedId)));
+            }
+        }
+    }
+
+    @Test
+    public void testLastMatchCopiesInput() {
+        ItemStack recipeStack = new ItemStack(ITEMS[0], 1, 0);
+        IRecipe recipe = new Recipe<>("recipe", new IngredientRecipeComponent(recipeStack),
+                new IngredientRecipeComponent(recipeStack), new DummyPropertiesComponent());
+        IndexedRecipeList recipes = new IndexedRecipeList();
+        recipes.add(recipe);
+
+        ItemStack inputStack = new ItemStack(ITEMS[0], 1, 0);
+        assertThat(recipes.findRecipeByInput(new IngredientRecipeComponent(inputStack)), is(recipe));
+
+        // Changing the stack of an earlier input must not change the result for other inputs.
+        inputStack.setItemDamage(1);
+        assertThat(recipes.findRecipeByInput(new IngredientRecipeComponent(new ItemStack(ITEMS[0], 1, 1))),
+                nullValue());
+        assertThat(recipes.findRecipeByInput(new IngredientRecipeComponent(new ItemStack(ITEMS[0], 1, 0))), is(recipe));
+    }
+
+    @Test
+    public void testLastMatchInvalidatedByModification() {
+        ItemStack stack = new ItemStack(ITEMS[1], 1, 0);
+        IRecipe recipe1 = new Recipe<>("recipe1", new IngredientRecipeComponent(stack),
+                new IngredientRecipeComponent(stack), new DummyPropertiesComponent());
+        IRecipe recipe2 = new Recipe<>("recipe2", new IngredientRecipeComponent(stack),
+                new IngredientRecipeComponent(stack), new DummyPropertiesComponent());
+        IndexedRecipeList recipes = new IndexedRecipeList();
+        recipes.add(recipe1);
+        assertThat(recipes.findRecipeByInput(new IngredientRecipeComponent(stack)), is(recipe1));
+
+        recipes.set(0, recipe2);
+        assertThat(recipes.findRecipeByInput(new IngredientRecipeComponent(stack)), is(recipe2));
+
+        recipes.clear();
+        assertThat(recipes.findRecipeByInput(new IngredientRecipeComponent(stack)), nullValue());
+    }
+
+    @Test
+    public void testIndexesInvalidatedByOreRegistration() {
+        OreLikeIngredient ingredient = new OreLikeIngredient(new ItemStack(ITEMS[2], 1, 0));
+        IRecipe recipe = new Recipe<>("recipe", new IngredientRecipeComponent(ingredient),
+                new IngredientRecipeComponent(ingredient), new DummyPropertiesComponent());
+        IndexedRecipeList recipes = new IndexedRecipeList();
+        recipes.add(recipe);
+        IngredientRecipeComponent input = new IngredientRecipeComponent(new ItemStack(ITEMS[3], 1, 0));
+        assertThat(recipes.findRecipeByInput(input), nullValue());
+
+        // The ingredient now also expands to the item of the input, as an ore dictionary ingredient would.
+        ingredient.stacks = new ItemStack[]{new ItemStack(ITEMS[2], 1, 0), new ItemStack(ITEMS[3], 1, 0)};
+        IndexedRecipeList.onOreRegister(new OreDictionary.OreRegisterEvent("ore", new ItemStack(ITEMS[3], 1, 0)));
+        assertThat(recipes.findRecipeByInput(input), is(recipe));
+        assertThat(recipes.findRecipesByInput(input), is(Lists.newArrayList(recipe)));
+    }
+
+    /**
+     * An ingredient of which the matching stacks can change, like an ore dictionary ingredient.
+     */
+    private static class OreLikeIngredient extends Ingredient {
+
+        private ItemStack[] stacks;
+
+        public OreLikeIngredient(ItemStack... stacks) {
+            super(stacks);
+            this.stacks = stacks;
+        }
+
+        @Override
+        public ItemStack[] getMatchingStacks() {
+            return stacks;
+        }
+
+        @Override
+        public boolean apply(@Nullable ItemStack itemStack) {
+            if (itemStack == null) {
+                return false;
+            }
+            for (ItemStack stack : stacks) {
+                if (stack.getItem() == itemStack.getItem() && stack.getItemDamage() == itemStack.getItemDamage()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+}